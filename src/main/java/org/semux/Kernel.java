@@ -11,6 +11,9 @@ import java.io.IOException;
 import java.net.InetAddress;
 import java.util.Arrays;
 import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import javax.xml.parsers.ParserConfigurationException;
@@ -22,14 +25,20 @@ import org.semux.config.Config;
 import org.semux.config.Constants;
 import org.semux.consensus.SemuxBft;
 import org.semux.consensus.SemuxSync;
+import org.semux.core.BlockCache;
 import org.semux.core.Blockchain;
 import org.semux.core.BlockchainImpl;
 import org.semux.core.Consensus;
 import org.semux.core.PendingManager;
 import org.semux.core.SyncManager;
+import org.semux.core.TransactionIndexer;
+import org.semux.core.VerifiedTransactionCache;
 import org.semux.core.Wallet;
+import org.semux.core.state.AccountStateImpl;
 import org.semux.crypto.Hex;
 import org.semux.crypto.Key;
+import org.semux.crypto.VerificationExecutor;
+import org.semux.crypto.VerificationExecutor.Priority;
 import org.semux.db.DatabaseFactory;
 import org.semux.db.DatabaseName;
 import org.semux.db.LeveldbDatabase;
@@ -69,6 +78,8 @@ public class Kernel {
 
     private static final PubSub pubSub = PubSubFactory.getDefault();
 
+    private static final long DB_METRICS_INTERVAL = 10; // minutes
+
     public enum State {
         STOPPED, BOOTING, RUNNING, STOPPING
     }
@@ -93,6 +104,10 @@ public class Kernel {
     protected SemuxApiService api;
 
     protected Thread consThread;
+    protected ScheduledExecutorService dbMetricsReporter;
+    protected TransactionIndexer indexer;
+    protected VerifiedTransactionCache verifiedTxs = new VerifiedTransactionCache();
+    protected VerificationExecutor verifier = new VerificationExecutor();
     protected SemuxSync sync;
     protected SemuxBft cons;
 
@@ -136,11 +151,15 @@ public class Kernel {
         // initialize blockchain database
         // ====================================
         relocateDatabaseIfNeeded();
-        dbFactory = new LeveldbFactory(config.databaseDir());
-        chain = new BlockchainImpl(config, dbFactory);
+        dbFactory = new LeveldbFactory(config);
+        BlockchainImpl blockchain = new BlockchainImpl(config, dbFactory);
+        chain = blockchain;
         long number = chain.getLatestBlockNumber();
         logger.info("Latest block number = {}", number);
 
+        indexer = blockchain.getTransactionIndexer();
+        indexer.start();
+
         // ====================================
         // set up client
         // ====================================
@@ -184,6 +203,17 @@ public class Kernel {
         // ====================================
         new Thread(this::setupUpnp, "upnp").start();
 
+        // ====================================
+        // report database metrics
+        // ====================================
+        dbMetricsReporter = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "db-metrics");
+            t.setDaemon(true);
+            return t;
+        });
+        dbMetricsReporter.scheduleAtFixedRate(this::logDatabaseMetrics, DB_METRICS_INTERVAL, DB_METRICS_INTERVAL,
+                TimeUnit.MINUTES);
+
         // ====================================
         // register shutdown hook
         // ====================================
@@ -353,6 +383,15 @@ public class Kernel {
         // close client
         client.close();
 
+        // stop reporting database metrics
+        dbMetricsReporter.shutdownNow();
+
+        // stop the background indexer
+        indexer.stop();
+
+        // stop the verification pool
+        verifier.shutdown();
+
         // make sure no thread is reading/writing the state
         ReentrantReadWriteLock.WriteLock lock = stateLock.writeLock();
         lock.lock();
@@ -360,6 +399,9 @@ public class Kernel {
             for (DatabaseName name : DatabaseName.values()) {
                 dbFactory.getDB(name).close();
             }
+            if (chain instanceof BlockchainImpl) {
+                ((BlockchainImpl) chain).closeArchive();
+            }
         } finally {
             lock.unlock();
         }
@@ -367,6 +409,31 @@ public class Kernel {
         state = State.STOPPED;
     }
 
+    /**
+     * Logs the metrics of all the databases.
+     */
+    protected void logDatabaseMetrics() {
+        for (DatabaseName name : DatabaseName.values()) {
+            logger.info("Database metrics: name = {}, {}", name, dbFactory.getDB(name).getMetrics());
+        }
+        if (chain.getAccountState() instanceof AccountStateImpl) {
+            AccountStateImpl as = (AccountStateImpl) chain.getAccountState();
+            logger.info("Account cache: hits = {}, misses = {}", as.getCacheHitCount(), as.getCacheMissCount());
+        }
+        if (chain instanceof BlockchainImpl) {
+            BlockCache cache = ((BlockchainImpl) chain).getBlockCache();
+            logger.info("Block cache: hits = {}, misses = {}", cache.getHitCount(), cache.getMissCount());
+        }
+        logger.info("Verified transaction cache: hits = {}, misses = {}", verifiedTxs.getHitCount(),
+                verifiedTxs.getMissCount());
+        for (Priority priority : Priority.values()) {
+            logger.info("Verification pool: priority = {}, tasks = {}, avg wait = {} μs", priority,
+                    verifier.getTaskCount(priority), verifier.getAverageWaitMicros(priority));
+        }
+        logger.info("Verification pool: queue size = {}, caller runs = {}", verifier.getQueueSize(),
+                verifier.getCallerRunCount());
+    }
+
     /**
      * Returns the kernel state.
      *
@@ -421,6 +488,24 @@ public class Kernel {
         return pendingMgr;
     }
 
+    /**
+     * Returns the cache of verified transaction signatures.
+     * 
+     * @return
+     */
+    public VerifiedTransactionCache getVerifiedTransactionCache() {
+        return verifiedTxs;
+    }
+
+    /**
+     * Returns the thread pool of the signature verifications.
+     * 
+     * @return
+     */
+    public VerificationExecutor getVerificationExecutor() {
+        return verifier;
+    }
+
     /**
      * Returns the channel manager.
      * 
@@ -84,7 +84,7 @@ public class SemuxApiImpl implements SemuxApi {
     @Override
     public ApiHandlerResponse getPeers() {
         return new GetPeersResponse(true,
-                kernel.getChannelManager().getActivePeers().parallelStream()
+                kernel.getChannelManager().getActivePeers().stream()
                         .map(Types.PeerType::new)
                         .collect(Collectors.toList()));
     }
@@ -195,7 +195,7 @@ public class SemuxApiImpl implements SemuxApi {
     @Override
     public ApiHandlerResponse getPendingTransactions() {
         return new GetPendingTransactionsResponse(true,
-                kernel.getPendingManager().getPendingTransactions().parallelStream()
+                kernel.getPendingManager().getPendingTransactions().stream()
                         .map(pendingTransaction -> pendingTransaction.transaction)
                         .map(tx -> new Types.TransactionType(null, tx))
                         .collect(Collectors.toList()));
@@ -235,9 +235,8 @@ public class SemuxApiImpl implements SemuxApi {
             return failure("Parameter `to` is not a valid integer");
         }
         return new GetAccountTransactionsResponse(true,
-                kernel.getBlockchain().getTransactions(addressBytes, fromInt, toInt).parallelStream()
-                        .map(tx -> new Types.TransactionType(
-                                kernel.getBlockchain().getTransactionBlockNumber(tx.getHash()), tx))
+                kernel.getBlockchain().getTransactionsWithBlockNumbers(addressBytes, fromInt, toInt).stream()
+                        .map(p -> new Types.TransactionType(p.getLeft(), p.getRight()))
                         .collect(Collectors.toList()));
     }
 
@@ -322,7 +321,7 @@ public class SemuxApiImpl implements SemuxApi {
     @Override
     public ApiHandlerResponse getDelegates() {
         return new GetDelegatesResponse(true,
-                kernel.getBlockchain().getDelegateState().getDelegates().parallelStream()
+                kernel.getBlockchain().getDelegateState().getDelegates().stream()
                         .map(delegate -> new Types.DelegateType(
                                 kernel.getBlockchain().getValidatorStats(delegate.getAddress()), delegate))
                         .collect(Collectors.toList()));
@@ -330,7 +329,7 @@ public class SemuxApiImpl implements SemuxApi {
 
     @Override
     public ApiHandlerResponse getValidators() {
-        return new GetValidatorsResponse(true, kernel.getBlockchain().getValidators().parallelStream()
+        return new GetValidatorsResponse(true, kernel.getBlockchain().getValidators().stream()
                 .map(v -> Hex.PREF + v).collect(Collectors.toList()));
     }
 
@@ -377,7 +376,7 @@ public class SemuxApiImpl implements SemuxApi {
         }
 
         return new GetVotesResponse(true,
-                kernel.getBlockchain().getDelegateState().getVotes(delegateBytes).entrySet().parallelStream()
+                kernel.getBlockchain().getDelegateState().getVotes(delegateBytes).entrySet().stream()
                         .collect(Collectors.toMap(
                                 entry -> Hex.PREF + entry.getKey().toString(),
                                 entry -> entry.getValue().getNano())));
@@ -385,7 +384,7 @@ public class SemuxApiImpl implements SemuxApi {
 
     @Override
     public ApiHandlerResponse listAccounts() {
-        return new ListAccountsResponse(true, kernel.getWallet().getAccounts().parallelStream()
+        return new ListAccountsResponse(true, kernel.getWallet().getAccounts().stream()
                 .map(acc -> Hex.PREF + acc.toAddressString())
                 .collect(Collectors.toList()));
     }
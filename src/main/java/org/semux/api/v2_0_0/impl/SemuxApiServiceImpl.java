@@ -235,9 +235,8 @@ public final class SemuxApiServiceImpl implements SemuxApi, FailableApiService {
             return failure(resp, "Parameter `to` is not a valid integer");
         }
 
-        resp.setResult(kernel.getBlockchain().getTransactions(addressBytes, fromInt, toInt).parallelStream()
-                .map(tx -> TypeFactory.transactionType(
-                        kernel.getBlockchain().getTransactionBlockNumber(tx.getHash()), tx))
+        resp.setResult(kernel.getBlockchain().getTransactionsWithBlockNumbers(addressBytes, fromInt, toInt).stream()
+                .map(p -> TypeFactory.transactionType(p.getLeft(), p.getRight()))
                 .collect(Collectors.toList()));
         resp.setSuccess(true);
         return Response.ok().entity(resp).build();
@@ -321,7 +320,7 @@ public final class SemuxApiServiceImpl implements SemuxApi, FailableApiService {
     @Override
     public Response getDelegates() {
         GetDelegatesResponse resp = new GetDelegatesResponse();
-        resp.setResult(kernel.getBlockchain().getDelegateState().getDelegates().parallelStream()
+        resp.setResult(kernel.getBlockchain().getDelegateState().getDelegates().stream()
                 .map(delegate -> TypeFactory.delegateType(
                         kernel.getBlockchain().getValidatorStats(delegate.getAddress()), delegate))
                 .collect(Collectors.toList()));
@@ -357,7 +356,7 @@ public final class SemuxApiServiceImpl implements SemuxApi, FailableApiService {
     @Override
     public Response getPeers() {
         GetPeersResponse resp = new GetPeersResponse();
-        resp.setResult(kernel.getChannelManager().getActivePeers().parallelStream()
+        resp.setResult(kernel.getChannelManager().getActivePeers().stream()
                 .map(TypeFactory::peerType)
                 .collect(Collectors.toList()));
         resp.setSuccess(true);
@@ -367,7 +366,7 @@ public final class SemuxApiServiceImpl implements SemuxApi, FailableApiService {
     @Override
     public Response getPendingTransactions() {
         GetPendingTransactionsResponse resp = new GetPendingTransactionsResponse();
-        resp.result(kernel.getPendingManager().getPendingTransactions().parallelStream()
+        resp.result(kernel.getPendingManager().getPendingTransactions().stream()
                 .map(pendingTransaction -> pendingTransaction.transaction)
                 .map(tx -> TypeFactory.transactionType(null, tx))
                 .collect(Collectors.toList()));
@@ -428,7 +427,7 @@ public final class SemuxApiServiceImpl implements SemuxApi, FailableApiService {
     @Override
     public Response getValidators() {
         GetValidatorsResponse resp = new GetValidatorsResponse();
-        resp.setResult(kernel.getBlockchain().getValidators().parallelStream()
+        resp.setResult(kernel.getBlockchain().getValidators().stream()
                 .map(v -> Hex.PREF + v).collect(Collectors.toList()));
         resp.setSuccess(true);
         return Response.ok().entity(resp).build();
@@ -480,7 +479,7 @@ public final class SemuxApiServiceImpl implements SemuxApi, FailableApiService {
             return failure(resp, "Parameter `delegate` is not a valid hexadecimal string");
         }
 
-        resp.setResult(kernel.getBlockchain().getDelegateState().getVotes(delegateBytes).entrySet().parallelStream()
+        resp.setResult(kernel.getBlockchain().getDelegateState().getVotes(delegateBytes).entrySet().stream()
                 .collect(Collectors.toMap(
                         entry -> Hex.PREF + entry.getKey().toString(),
                         entry -> TypeFactory.encodeAmount(entry.getValue()))));
@@ -491,7 +490,7 @@ public final class SemuxApiServiceImpl implements SemuxApi, FailableApiService {
     @Override
     public Response listAccounts() {
         ListAccountsResponse resp = new ListAccountsResponse();
-        resp.setResult(kernel.getWallet().getAccounts().parallelStream()
+        resp.setResult(kernel.getWallet().getAccounts().stream()
                 .map(acc -> Hex.PREF + acc.toAddressString())
                 .collect(Collectors.toList()));
         resp.setSuccess(true);
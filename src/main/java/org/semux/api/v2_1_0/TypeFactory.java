@@ -8,8 +8,10 @@ package org.semux.api.v2_1_0;
 
 import static org.semux.core.TransactionType.DELEGATE;
 
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -17,6 +19,8 @@ import org.semux.Kernel;
 import org.semux.api.v2_1_0.model.AccountType;
 import org.semux.api.v2_1_0.model.AccountVoteType;
 import org.semux.api.v2_1_0.model.BlockType;
+import org.semux.api.v2_1_0.model.DatabaseMetricsType;
+import org.semux.api.v2_1_0.model.DatabaseOperationType;
 import org.semux.api.v2_1_0.model.DelegateType;
 import org.semux.api.v2_1_0.model.InfoType;
 import org.semux.api.v2_1_0.model.PeerType;
@@ -30,8 +34,13 @@ import org.semux.core.BlockchainImpl;
 import org.semux.core.Transaction;
 import org.semux.core.state.Account;
 import org.semux.core.state.Delegate;
+import org.semux.core.state.DelegateIndex;
+import org.semux.core.state.DelegateState;
 import org.semux.crypto.Hex;
+import org.semux.db.DatabaseMetrics;
+import org.semux.db.DatabaseName;
 import org.semux.net.Peer;
+import org.semux.util.ByteArray;
 
 public class TypeFactory {
 
@@ -81,25 +90,24 @@ public class TypeFactory {
 
     public static List<AccountVoteType> accountVotes(Blockchain blockchain, byte[] address) {
         Set<String> validators = new HashSet<>(blockchain.getValidators());
-        return blockchain.getDelegateState()
-                .getDelegates()
-                .parallelStream()
-                .map(delegate -> accountVoteType(blockchain, address, delegate,
-                        validators.contains(delegate.getAddressString())))
-                .filter(accountVote -> !accountVote.getVotes().equals("0"))
+        DelegateState ds = blockchain.getDelegateState();
+        Map<ByteArray, Amount> votes = ds.getVotesByVoter(address);
+        return votes.keySet()
+                .stream()
+                .map(k -> ds.getDelegateByAddress(k.getData()))
+                .sorted(DelegateIndex.RANKING)
+                .map(d -> accountVoteType(blockchain, d, votes.get(ByteArray.of(d.getAddress())), validators))
                 .collect(Collectors.toList());
     }
 
-    public static AccountVoteType accountVoteType(Blockchain blockchain, byte[] address, Delegate delegate,
-            Boolean isValidator) {
+    public static AccountVoteType accountVoteType(Blockchain blockchain, Delegate delegate, Amount votes,
+            Set<String> validators) {
         return new AccountVoteType()
                 .delegate(
                         TypeFactory
                                 .delegateType(blockchain.getValidatorStats(delegate.getAddress()), delegate,
-                                        isValidator))
-                .votes(
-                        String.valueOf(
-                                blockchain.getDelegateState().getVote(address, delegate.getAddress()).getNano()));
+                                        validators.contains(delegate.getAddressString())))
+                .votes(String.valueOf(votes.getNano()));
     }
 
     public static InfoType infoType(Kernel kernel) {
@@ -114,6 +122,28 @@ public class TypeFactory {
                 .pendingTransactions(kernel.getPendingManager().getPendingTransactions().size());
     }
 
+    public static DatabaseMetricsType databaseMetricsType(DatabaseName name, DatabaseMetrics metrics) {
+        return new DatabaseMetricsType()
+                .name(name.name())
+                .approximateSize(String.valueOf(metrics.getApproximateSize()))
+                .filesPerLevel(Arrays.stream(metrics.getFilesPerLevel()).boxed().collect(Collectors.toList()))
+                .bytesRead(String.valueOf(metrics.getBytesRead()))
+                .bytesWritten(String.valueOf(metrics.getBytesWritten()))
+                .operations(Arrays.stream(DatabaseMetrics.Operation.values())
+                        .map(op -> databaseOperationType(op, metrics.getLatency(op)))
+                        .collect(Collectors.toList()));
+    }
+
+    public static DatabaseOperationType databaseOperationType(DatabaseMetrics.Operation op,
+            DatabaseMetrics.Histogram latency) {
+        return new DatabaseOperationType()
+                .operation(DatabaseOperationType.OperationEnum.fromValue(op.name()))
+                .count(String.valueOf(latency.getCount()))
+                .meanLatency(String.valueOf(latency.getMean() / 1000))
+                .p50Latency(String.valueOf(latency.getPercentile(0.5) / 1000))
+                .p99Latency(String.valueOf(latency.getPercentile(0.99) / 1000));
+    }
+
     public static PeerType peerType(Peer peer) {
         return new PeerType()
                 .ip(peer.getIp())
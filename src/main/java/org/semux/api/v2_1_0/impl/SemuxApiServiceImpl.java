@@ -41,6 +41,7 @@ import org.semux.api.v2_1_0.model.GetAccountResponse;
 import org.semux.api.v2_1_0.model.GetAccountTransactionsResponse;
 import org.semux.api.v2_1_0.model.GetAccountVotesResponse;
 import org.semux.api.v2_1_0.model.GetBlockResponse;
+import org.semux.api.v2_1_0.model.GetDatabaseMetricsResponse;
 import org.semux.api.v2_1_0.model.GetDelegateResponse;
 import org.semux.api.v2_1_0.model.GetDelegatesResponse;
 import org.semux.api.v2_1_0.model.GetInfoResponse;
@@ -63,6 +64,7 @@ import org.semux.api.v2_1_0.model.VerifyMessageResponse;
 import org.semux.core.Block;
 import org.semux.core.Blockchain;
 import org.semux.core.BlockchainImpl;
+import org.semux.core.BlockchainSnapshot;
 import org.semux.core.PendingManager;
 import org.semux.core.SyncManager;
 import org.semux.core.Transaction;
@@ -75,6 +77,7 @@ import org.semux.crypto.Hash;
 import org.semux.crypto.Hex;
 import org.semux.crypto.Key;
 import org.semux.crypto.cache.PublicKeyCache;
+import org.semux.db.DatabaseName;
 import org.semux.net.NodeManager;
 import org.semux.net.filter.SemuxIpFilter;
 
@@ -216,10 +219,14 @@ public final class SemuxApiServiceImpl implements SemuxApi, FailableApiService {
             return failure(resp, "Parameter `address` is not a valid hexadecimal string");
         }
 
-        Account account = kernel.getBlockchain().getAccountState().getAccount(addressBytes);
-        int transactionCount = kernel.getBlockchain().getTransactionCount(account.getAddress());
+        Account account;
+        int transactionCount;
+        try (BlockchainSnapshot chain = kernel.getBlockchain().snapshot()) {
+            account = chain.getAccountState().getAccount(addressBytes);
+            transactionCount = chain.getTransactionCount(account.getAddress());
+        }
         int pendingTransactionCount = (int) kernel.getPendingManager()
-                .getPendingTransactions().parallelStream()
+                .getPendingTransactions().stream()
                 .map(pendingTransaction -> pendingTransaction.transaction)
                 .filter(tx -> Arrays.equals(tx.getFrom(), addressBytes) || Arrays.equals(tx.getTo(), addressBytes))
                 .count();
@@ -291,9 +298,8 @@ public final class SemuxApiServiceImpl implements SemuxApi, FailableApiService {
             return failure(resp, "Parameter `to` is not a valid integer");
         }
 
-        resp.setResult(kernel.getBlockchain().getTransactions(addressBytes, fromInt, toInt).parallelStream()
-                .map(tx -> TypeFactory.transactionType(
-                        kernel.getBlockchain().getTransactionBlockNumber(tx.getHash()), tx))
+        resp.setResult(kernel.getBlockchain().getTransactionsWithBlockNumbers(addressBytes, fromInt, toInt).stream()
+                .map(p -> TypeFactory.transactionType(p.getLeft(), p.getRight()))
                 .collect(Collectors.toList()));
         resp.setSuccess(true);
         return Response.ok().entity(resp).build();
@@ -339,7 +345,7 @@ public final class SemuxApiServiceImpl implements SemuxApi, FailableApiService {
         }
 
         resp.setResult(kernel.getPendingManager()
-                .getPendingTransactions().parallelStream()
+                .getPendingTransactions().stream()
                 .map(pendingTransaction -> pendingTransaction.transaction)
                 .filter(tx -> Arrays.equals(tx.getFrom(), addressBytes) || Arrays.equals(tx.getTo(), addressBytes))
                 .skip(fromInt)
@@ -365,7 +371,9 @@ public final class SemuxApiServiceImpl implements SemuxApi, FailableApiService {
             return failure(resp, "Parameter `address` is not a valid hexadecimal string");
         }
 
-        resp.setResult(TypeFactory.accountVotes(kernel.getBlockchain(), addressBytes));
+        try (BlockchainSnapshot chain = kernel.getBlockchain().snapshot()) {
+            resp.setResult(TypeFactory.accountVotes(chain, addressBytes));
+        }
         resp.setSuccess(true);
         return Response.ok(resp).build();
     }
@@ -450,15 +458,16 @@ public final class SemuxApiServiceImpl implements SemuxApi, FailableApiService {
     @Override
     public Response getDelegates() {
         GetDelegatesResponse resp = new GetDelegatesResponse();
-        Blockchain chain = kernel.getBlockchain();
-        Set<String> validators = new HashSet<>(chain.getValidators());
+        try (BlockchainSnapshot chain = kernel.getBlockchain().snapshot()) {
+            Set<String> validators = new HashSet<>(chain.getValidators());
 
-        resp.setResult(chain.getDelegateState().getDelegates().parallelStream()
-                .map(delegate -> TypeFactory.delegateType(
-                        chain.getValidatorStats(delegate.getAddress()),
-                        delegate,
-                        validators.contains(delegate.getAddressString())))
-                .collect(Collectors.toList()));
+            resp.setResult(chain.getDelegateState().getDelegates().stream()
+                    .map(delegate -> TypeFactory.delegateType(
+                            chain.getValidatorStats(delegate.getAddress()),
+                            delegate,
+                            validators.contains(delegate.getAddressString())))
+                    .collect(Collectors.toList()));
+        }
         resp.setSuccess(true);
         return Response.ok().entity(resp).build();
     }
@@ -491,7 +500,7 @@ public final class SemuxApiServiceImpl implements SemuxApi, FailableApiService {
     @Override
     public Response getPeers() {
         GetPeersResponse resp = new GetPeersResponse();
-        resp.setResult(kernel.getChannelManager().getActivePeers().parallelStream()
+        resp.setResult(kernel.getChannelManager().getActivePeers().stream()
                 .map(TypeFactory::peerType)
                 .collect(Collectors.toList()));
         resp.setSuccess(true);
@@ -501,7 +510,7 @@ public final class SemuxApiServiceImpl implements SemuxApi, FailableApiService {
     @Override
     public Response getPendingTransactions() {
         GetPendingTransactionsResponse resp = new GetPendingTransactionsResponse();
-        resp.result(kernel.getPendingManager().getPendingTransactions().parallelStream()
+        resp.result(kernel.getPendingManager().getPendingTransactions().stream()
                 .map(pendingTransaction -> pendingTransaction.transaction)
                 .map(TypeFactory::pendingTransactionType)
                 .collect(Collectors.toList()));
@@ -562,7 +571,7 @@ public final class SemuxApiServiceImpl implements SemuxApi, FailableApiService {
     @Override
     public Response getValidators() {
         GetValidatorsResponse resp = new GetValidatorsResponse();
-        resp.setResult(kernel.getBlockchain().getValidators().parallelStream()
+        resp.setResult(kernel.getBlockchain().getValidators().stream()
                 .map(v -> Hex.PREF + v).collect(Collectors.toList()));
         resp.setSuccess(true);
         return Response.ok().entity(resp).build();
@@ -614,7 +623,7 @@ public final class SemuxApiServiceImpl implements SemuxApi, FailableApiService {
             return failure(resp, "Parameter `delegate` is not a valid hexadecimal string");
         }
 
-        resp.setResult(kernel.getBlockchain().getDelegateState().getVotes(delegateBytes).entrySet().parallelStream()
+        resp.setResult(kernel.getBlockchain().getDelegateState().getVotes(delegateBytes).entrySet().stream()
                 .collect(Collectors.toMap(
                         entry -> Hex.PREF + entry.getKey().toString(),
                         entry -> TypeFactory.encodeAmount(entry.getValue()))));
@@ -625,7 +634,7 @@ public final class SemuxApiServiceImpl implements SemuxApi, FailableApiService {
     @Override
     public Response listAccounts() {
         ListAccountsResponse resp = new ListAccountsResponse();
-        resp.setResult(kernel.getWallet().getAccounts().parallelStream()
+        resp.setResult(kernel.getWallet().getAccounts().stream()
                 .map(acc -> Hex.PREF + acc.toAddressString())
                 .collect(Collectors.toList()));
         resp.setSuccess(true);
@@ -814,6 +823,16 @@ public final class SemuxApiServiceImpl implements SemuxApi, FailableApiService {
         return Response.ok(resp).build();
     }
 
+    @Override
+    public Response getDatabaseMetrics() {
+        GetDatabaseMetricsResponse resp = new GetDatabaseMetricsResponse();
+        resp.setResult(Arrays.stream(DatabaseName.values())
+                .map(name -> TypeFactory.databaseMetricsType(name, kernel.getDbFactory().getDB(name).getMetrics()))
+                .collect(Collectors.toList()));
+        resp.setSuccess(true);
+        return Response.ok().entity(resp).build();
+    }
+
     public Response failure(ApiHandlerResponse resp, Response.Status status, String message) {
         resp.setSuccess(false);
         resp.setMessage(message);
@@ -15,9 +15,11 @@ import java.io.FileInputStream;
 import java.math.BigInteger;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.EnumMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Properties;
 import java.util.Set;
@@ -28,6 +30,8 @@ import org.semux.config.exception.ConfigException;
 import org.semux.core.Amount;
 import org.semux.core.TransactionType;
 import org.semux.crypto.Hash;
+import org.semux.db.DatabaseName;
+import org.semux.db.LeveldbProfile;
 import org.semux.net.NodeManager.Node;
 import org.semux.net.msg.MessageCode;
 import org.semux.util.BigIntegerUtil;
@@ -113,6 +117,16 @@ public abstract class AbstractConfig implements Config {
     protected int vmMaxStackSize = 1024;
     protected int vmInitHeapSize = 128;
 
+    // =========================
+    // Database
+    // =========================
+    protected long dbCacheSize = 0; // 0 = derived from the available memory
+    protected Map<DatabaseName, LeveldbProfile> dbProfiles = new EnumMap<>(DatabaseName.class);
+    protected boolean dbBlockArchive = false;
+    protected boolean dbStateHistory = false;
+    protected long dbStateHistoryDepth = 0; // 0 = unlimited
+    protected boolean dbAsyncIndexing = false;
+
     // =========================
     // UI
     // =========================
@@ -452,6 +466,39 @@ public abstract class AbstractConfig implements Config {
         return vmInitHeapSize;
     }
 
+    @Override
+    public long dbCacheSize() {
+        if (dbCacheSize <= 0) {
+            dbCacheSize = LeveldbProfile.defaultCacheSize();
+        }
+        return dbCacheSize;
+    }
+
+    @Override
+    public LeveldbProfile dbProfile(DatabaseName name) {
+        return dbProfiles.computeIfAbsent(name, LeveldbProfile::of);
+    }
+
+    @Override
+    public boolean dbBlockArchive() {
+        return dbBlockArchive;
+    }
+
+    @Override
+    public boolean dbAsyncIndexing() {
+        return dbAsyncIndexing;
+    }
+
+    @Override
+    public boolean dbStateHistory() {
+        return dbStateHistory;
+    }
+
+    @Override
+    public long dbStateHistoryDepth() {
+        return dbStateHistoryDepth;
+    }
+
     @Override
     public Locale locale() {
         return locale;
@@ -570,8 +617,25 @@ public abstract class AbstractConfig implements Config {
                     uiFractionDigits = Integer.parseInt(props.getProperty(name).trim());
                     break;
                 }
+                case "db.cacheSize":
+                    dbCacheSize = Long.parseLong(props.getProperty(name).trim()) * 1024 * 1024;
+                    break;
+                case "db.blockArchive":
+                    dbBlockArchive = Boolean.parseBoolean(props.getProperty(name).trim());
+                    break;
+                case "db.asyncIndexing":
+                    dbAsyncIndexing = Boolean.parseBoolean(props.getProperty(name).trim());
+                    break;
+                case "db.stateHistory":
+                    dbStateHistory = Boolean.parseBoolean(props.getProperty(name).trim());
+                    break;
+                case "db.stateHistoryDepth":
+                    dbStateHistoryDepth = Long.parseLong(props.getProperty(name).trim());
+                    break;
                 default:
-                    logger.error("Unsupported option: {} = {}", name, props.getProperty(name));
+                    if (!setDbProfileOption(name, props.getProperty(name).trim())) {
+                        logger.error("Unsupported option: {} = {}", name, props.getProperty(name));
+                    }
                     break;
                 }
             }
@@ -580,6 +644,52 @@ public abstract class AbstractConfig implements Config {
         }
     }
 
+    /**
+     * Sets an option of a database profile, in the format of
+     * <code>db.[name].[option]</code>.
+     *
+     * @param key
+     * @param value
+     * @return whether the option is recognized
+     */
+    private boolean setDbProfileOption(String key, String value) {
+        String[] tokens = key.split("\\.");
+        if (tokens.length != 3 || !tokens[0].equals("db")) {
+            return false;
+        }
+
+        DatabaseName name;
+        try {
+            name = DatabaseName.valueOf(tokens[1].toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+
+        LeveldbProfile profile = dbProfile(name);
+        switch (tokens[2]) {
+        case "blockSize":
+            profile.setBlockSize(Integer.parseInt(value) * 1024);
+            return true;
+        case "compression":
+            profile.setCompression(Boolean.parseBoolean(value));
+            return true;
+        case "cacheShare":
+            profile.setCacheShare(Double.parseDouble(value));
+            return true;
+        case "writeBufferSize":
+            profile.setWriteBufferSize(Integer.parseInt(value) * 1024 * 1024);
+            return true;
+        case "maxOpenFiles":
+            profile.setMaxOpenFiles(Integer.parseInt(value));
+            return true;
+        case "rowCacheSize":
+            profile.setRowCacheSize(Long.parseLong(value) * 1024 * 1024);
+            return true;
+        default:
+            return false;
+        }
+    }
+
     private void validate() {
         if (apiEnabled &&
                 ("YOUR_API_USERNAME".equals(apiUsername) || "YOUR_API_PASSWORD".equals(apiPassword))) {
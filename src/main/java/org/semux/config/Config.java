@@ -17,6 +17,8 @@ import org.semux.Network;
 import org.semux.consensus.ValidatorActivatedFork;
 import org.semux.core.Amount;
 import org.semux.core.TransactionType;
+import org.semux.db.DatabaseName;
+import org.semux.db.LeveldbProfile;
 import org.semux.net.CapabilitySet;
 import org.semux.net.NodeManager.Node;
 import org.semux.net.msg.MessageCode;
@@ -403,6 +405,57 @@ public interface Config {
      */
     int vmInitialHeapSize();
 
+    // =========================
+    // Database
+    // =========================
+
+    /**
+     * Returns the size of the block cache shared by all the databases, in bytes.
+     *
+     * @return
+     */
+    long dbCacheSize();
+
+    /**
+     * Returns the tuning profile of a database.
+     *
+     * @param name
+     * @return
+     */
+    LeveldbProfile dbProfile(DatabaseName name);
+
+    /**
+     * Returns whether to move finalized blocks from the block database into
+     * append-only archive segments.
+     *
+     * @return
+     */
+    boolean dbBlockArchive();
+
+    /**
+     * Returns whether to build the transaction indexes of the accounts in the
+     * background, rather than with each block.
+     *
+     * @return
+     */
+    boolean dbAsyncIndexing();
+
+    /**
+     * Returns whether to record the state changes of every block, for historical
+     * state queries.
+     *
+     * @return
+     */
+    boolean dbStateHistory();
+
+    /**
+     * Returns the number of recent blocks whose state changes are kept, or 0 to
+     * keep them all.
+     *
+     * @return
+     */
+    long dbStateHistoryDepth();
+
     // =========================
     // UI
     // =========================
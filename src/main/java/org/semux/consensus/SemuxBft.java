@@ -16,7 +16,6 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.OptionalLong;
-import java.util.Set;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.locks.ReentrantReadWriteLock.WriteLock;
@@ -45,6 +44,7 @@ import org.semux.crypto.Hash;
 import org.semux.crypto.Hex;
 import org.semux.crypto.Key;
 import org.semux.crypto.Key.Signature;
+import org.semux.crypto.VerificationExecutor.Priority;
 import org.semux.net.Channel;
 import org.semux.net.ChannelManager;
 import org.semux.net.msg.Message;
@@ -849,10 +849,9 @@ public class SemuxBft implements Consensus {
             return false;
         }
 
-        // [2] check transactions and results (skipped)
-        List<Transaction> unvalidatedTransactions = getUnvalidatedTransactions(transactions);
-
-        if (!Block.validateTransactions(header, unvalidatedTransactions, transactions, config.network())
+        // [2] check transactions and results, skipping the signatures verified already
+        if (!Block.validateTransactions(header, transactions, config.network(), kernel.getVerifiedTransactionCache(),
+                kernel.getVerificationExecutor(), Priority.CONSENSUS)
                 || transactions.stream().mapToInt(Transaction::size).sum() > config.maxBlockTransactionsSize()) {
             logger.warn("Invalid block transactions");
             return false;
@@ -882,32 +881,6 @@ public class SemuxBft implements Consensus {
         return true;
     }
 
-    /**
-     * Filter transactions to find ones that have not already been validated via the
-     * pending manager.
-     *
-     * @param transactions
-     * @return
-     */
-    protected List<Transaction> getUnvalidatedTransactions(List<Transaction> transactions) {
-
-        Set<Transaction> pendingValidatedTransactions = pendingMgr.getPendingTransactions()
-                .stream()
-                .filter(pendingTx -> pendingTx.transactionResult.isSuccess())
-                .map(pendingTx -> pendingTx.transaction)
-                .collect(Collectors.toSet());
-
-        List<Transaction> unvalidatedTransactions = transactions
-                .stream()
-                .filter(it -> !pendingValidatedTransactions.contains(it))
-                .collect(Collectors.toList());
-
-        logger.debug("Block validation: # txs = {}, # txs unvalidated = {}", transactions.size(),
-                unvalidatedTransactions.size());
-
-        return unvalidatedTransactions;
-    }
-
     /**
      * Apply a block to the chain.
      * 
@@ -947,19 +920,12 @@ public class SemuxBft implements Consensus {
             as.adjustAvailable(block.getCoinbase(), reward);
         }
 
-        // [6] commit the updates
-        as.commit();
-        ds.commit();
-
         WriteLock lock = kernel.getStateLock().writeLock();
         lock.lock();
         try {
-            // [7] flush state to disk
-            chain.getAccountState().commit();
-            chain.getDelegateState().commit();
-
-            // [8] add block to chain
-            chain.addBlock(block);
+            // [6] commit the updates, [7] flush state and add block to chain, as one unit
+            // of work
+            chain.addBlock(block, as, ds);
         } finally {
             lock.unlock();
         }
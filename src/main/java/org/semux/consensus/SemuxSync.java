@@ -16,6 +16,7 @@ import java.net.InetSocketAddress;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -53,6 +54,8 @@ import org.semux.core.state.AccountState;
 import org.semux.core.state.DelegateState;
 import org.semux.crypto.Hex;
 import org.semux.crypto.Key;
+import org.semux.crypto.Key.Signature;
+import org.semux.crypto.VerificationExecutor.Priority;
 import org.semux.net.Channel;
 import org.semux.net.ChannelManager;
 import org.semux.net.msg.Message;
@@ -398,7 +401,8 @@ public class SemuxSync implements SyncManager {
         }
 
         // [2] check transactions and results
-        if (!Block.validateTransactions(header, transactions, config.network())
+        if (!Block.validateTransactions(header, transactions, config.network(), kernel.getVerifiedTransactionCache(),
+                kernel.getVerificationExecutor(), Priority.SYNC)
                 || transactions.stream().mapToInt(Transaction::size).sum() > config.maxBlockTransactionsSize()) {
             logger.error("Invalid block transactions");
             return false;
@@ -434,14 +438,16 @@ public class SemuxSync implements SyncManager {
         byte[] encoded = vote.getEncoded();
 
         // check validity of votes
-        if (!block.getVotes().stream()
-                .allMatch(sig -> Key.verify(encoded, sig) && validators.contains(Hex.encode(sig.getAddress())))) {
+        List<Signature> votes = block.getVotes();
+        if (!votes.stream().allMatch(sig -> validators.contains(Hex.encode(sig.getAddress())))
+                || !Key.verifyBatch(Collections.nCopies(votes.size(), encoded), votes,
+                        kernel.getVerificationExecutor(), Priority.SYNC)) {
             logger.debug("Block votes are invalid");
             return false;
         }
 
         // at least two thirds voters
-        if (block.getVotes().stream()
+        if (votes.stream()
                 .map(sig -> new ByteArray(sig.getA()))
                 .collect(Collectors.toSet()).size() < twoThirds) {
             logger.debug("Not enough votes, needs 2/3+");
@@ -460,19 +466,12 @@ public class SemuxSync implements SyncManager {
             asSnapshot.adjustAvailable(block.getCoinbase(), reward);
         }
 
-        // [6] commit the updates
-        asSnapshot.commit();
-        dsSnapshot.commit();
-
         WriteLock writeLock = kernel.getStateLock().writeLock();
         writeLock.lock();
         try {
-            // [7] flush state to disk
-            chain.getAccountState().commit();
-            chain.getDelegateState().commit();
-
-            // [8] add block to chain
-            chain.addBlock(block);
+            // [6] commit the updates, [7] flush state and add block to chain, as one unit
+            // of work
+            chain.addBlock(block, asSnapshot, dsSnapshot);
         } finally {
             writeLock.unlock();
         }
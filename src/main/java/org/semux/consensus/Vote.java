@@ -36,7 +36,7 @@ public class Vote {
         this.blockHash = blockHash;
         this.validated = null;
 
-        SimpleEncoder enc = new SimpleEncoder();
+        SimpleEncoder enc = new SimpleEncoder(1 + 1 + 8 + 4 + SimpleEncoder.sizeOf(blockHash));
         enc.writeByte(type.toByte());
         enc.writeBoolean(value);
         enc.writeLong(height);
@@ -15,12 +15,19 @@ import org.apache.commons.lang3.tuple.Pair;
 import org.semux.Network;
 import org.semux.crypto.Hex;
 import org.semux.crypto.Key.Signature;
+import org.semux.crypto.VerificationExecutor;
+import org.semux.crypto.VerificationExecutor.Priority;
 import org.semux.util.MerkleUtil;
 import org.semux.util.SimpleDecoder;
 import org.semux.util.SimpleEncoder;
+import org.semux.util.exception.SimpleCodecException;
 
 /**
  * Represents a block in the blockchain.
+ * <p>
+ * A block parsed from bytes keeps the encoding of its sections, and only
+ * decodes the transactions, results and votes when they are first accessed, so
+ * that relaying or storing it does not decode or re-encode the body.
  */
 public class Block {
 
@@ -30,36 +37,39 @@ public class Block {
     private final BlockHeader header;
 
     /**
-     * The transactions.
+     * The transactions, decoded on demand.
      */
-    private final List<Transaction> transactions;
+    private volatile List<Transaction> transactions;
 
     /**
-     * The transaction results.
+     * The transaction results, decoded on demand.
      */
-    private final List<TransactionResult> results;
+    private volatile List<TransactionResult> results;
 
     /**
-     * The BFT view and votes.
+     * The BFT view and votes, decoded on demand.
      */
-    private int view;
-    private List<Signature> votes;
+    private volatile int view;
+    private volatile List<Signature> votes;
 
     // =========================
     // Auxiliary data
     // =========================
 
     /**
-     * Encoding of transactions.
+     * Encoding of the sections. The encoding of the votes is reset when they are
+     * updated.
      */
     protected final byte[] encodedHeader;
     protected final byte[] encodedTransactions;
     protected final byte[] encodedResults;
+    protected volatile byte[] encodedVotes;
 
     /**
-     * Transaction indexes
+     * Offsets of the transactions and their results in the encoded sections,
+     * computed on demand.
      */
-    protected final List<Pair<Integer, Integer>> indexes = new ArrayList<>();
+    protected volatile List<Pair<Integer, Integer>> indexes;
 
     /**
      * Create a new block, with no BFT information.
@@ -100,19 +110,61 @@ public class Block {
         this.votes = votes;
 
         this.encodedHeader = header.toBytes();
-        SimpleEncoder encTx = new SimpleEncoder();
-        SimpleEncoder encRe = new SimpleEncoder();
-        encTx.writeInt(transactions.size());
+
+        // sizes the encoders exactly, so the buffers are not copied
+        int n = transactions.size();
+        byte[][] txs = new byte[n][];
+        byte[][] res = new byte[n][];
+        int sizeTx = 4;
+        int sizeRe = 4;
+        for (int i = 0; i < n; i++) {
+            txs[i] = transactions.get(i).toBytes();
+            res[i] = results.get(i).toBytes();
+            sizeTx += SimpleEncoder.sizeOf(txs[i]);
+            sizeRe += SimpleEncoder.sizeOf(res[i]);
+        }
+
+        SimpleEncoder encTx = new SimpleEncoder(sizeTx);
+        SimpleEncoder encRe = new SimpleEncoder(sizeRe);
+        encTx.writeInt(n);
         encRe.writeInt(results.size());
-        for (int i = 0; i < transactions.size(); i++) {
+        List<Pair<Integer, Integer>> idx = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
             int idxTx = encTx.getWriteIndex();
             int idxRe = encRe.getWriteIndex();
-            encTx.writeBytes(transactions.get(i).toBytes());
-            encRe.writeBytes(results.get(i).toBytes());
-            indexes.add(Pair.of(idxTx, idxRe));
+            encTx.writeBytes(txs[i]);
+            encRe.writeBytes(res[i]);
+            idx.add(Pair.of(idxTx, idxRe));
         }
         this.encodedTransactions = encTx.toBytes();
         this.encodedResults = encRe.toBytes();
+        this.indexes = idx;
+    }
+
+    /**
+     * Create a block from its encoded sections, which are decoded on demand.
+     *
+     * @param header
+     *            the decoded header
+     * @param encodedHeader
+     * @param encodedTransactions
+     * @param encodedResults
+     * @param encodedVotes
+     *            the encoded BFT view and votes, or null if there is none
+     */
+    protected Block(BlockHeader header, byte[] encodedHeader, byte[] encodedTransactions, byte[] encodedResults,
+            byte[] encodedVotes) {
+        this.header = header;
+        this.encodedHeader = encodedHeader;
+        this.encodedTransactions = encodedTransactions;
+        this.encodedResults = encodedResults;
+
+        if (encodedVotes != null) {
+            this.encodedVotes = encodedVotes;
+            this.view = new SimpleDecoder(encodedVotes).readInt();
+        } else {
+            this.votes = new ArrayList<>();
+        }
     }
 
     /**
@@ -157,8 +209,45 @@ public class Block {
      */
     public static boolean validateTransactions(BlockHeader header, Collection<Transaction> unvalidatedTransactions,
             List<Transaction> allTransactions, Network network) {
+        return validateTransactions(header, unvalidatedTransactions, allTransactions, network, null, null, null);
+    }
+
+    /**
+     * Validates transactions in the verification pool, skipping the signatures
+     * which have been verified already.
+     *
+     * @param header
+     *            block header
+     * @param transactions
+     *            all transactions within the block
+     * @param network
+     *            network
+     * @param verified
+     *            the cache of verified signatures
+     * @param executor
+     *            the verification pool
+     * @param priority
+     *            the priority of the verification
+     * @return
+     */
+    public static boolean validateTransactions(BlockHeader header, List<Transaction> transactions, Network network,
+            VerifiedTransactionCache verified, VerificationExecutor executor, Priority priority) {
+        return validateTransactions(header, transactions, transactions, network, verified, executor, priority);
+    }
+
+    private static boolean validateTransactions(BlockHeader header, Collection<Transaction> unvalidatedTransactions,
+            List<Transaction> allTransactions, Network network, VerifiedTransactionCache verified,
+            VerificationExecutor executor, Priority priority) {
         // validate transactions
-        boolean valid = unvalidatedTransactions.parallelStream().allMatch(tx -> tx.validate(network));
+        boolean valid;
+        if (executor != null) {
+            List<Transaction> list = unvalidatedTransactions instanceof List
+                    ? (List<Transaction>) unvalidatedTransactions
+                    : new ArrayList<>(unvalidatedTransactions);
+            valid = executor.verifyAll(priority, list.size(), i -> list.get(i).validate(network, verified));
+        } else {
+            valid = unvalidatedTransactions.parallelStream().allMatch(tx -> tx.validate(network, verified));
+        }
         if (!valid) {
             return false;
         }
@@ -203,7 +292,41 @@ public class Block {
      * @return
      */
     public List<Transaction> getTransactions() {
-        return new ArrayList<>(transactions);
+        List<Transaction> list = transactions;
+        if (list == null) {
+            List<Pair<Integer, Integer>> idx = getIndexes();
+            list = new ArrayList<>(idx.size());
+            for (Pair<Integer, Integer> p : idx) {
+                list.add(Transaction.fromBytes(new SimpleDecoder(encodedTransactions, p.getLeft()).readBytes()));
+            }
+            transactions = list;
+        }
+        return new ArrayList<>(list);
+    }
+
+    /**
+     * Returns the number of transactions, without decoding them.
+     *
+     * @return
+     */
+    public int getTransactionCount() {
+        return new SimpleDecoder(encodedTransactions).readInt();
+    }
+
+    /**
+     * Returns the i-th transaction, only decoding this one if the transactions have
+     * not been decoded yet.
+     *
+     * @param i
+     * @return
+     */
+    public Transaction getTransaction(int i) {
+        List<Transaction> list = transactions;
+        if (list != null) {
+            return list.get(i);
+        }
+        int offset = getIndexes().get(i).getLeft();
+        return Transaction.fromBytes(new SimpleDecoder(encodedTransactions, offset).readBytes());
     }
 
     /**
@@ -212,7 +335,16 @@ public class Block {
      * @return
      */
     public List<TransactionResult> getResults() {
-        return new ArrayList<>(results);
+        List<TransactionResult> list = results;
+        if (list == null) {
+            List<Pair<Integer, Integer>> idx = getIndexes();
+            list = new ArrayList<>(idx.size());
+            for (Pair<Integer, Integer> p : idx) {
+                list.add(TransactionResult.fromBytes(new SimpleDecoder(encodedResults, p.getRight()).readBytes()));
+            }
+            results = list;
+        }
+        return new ArrayList<>(list);
     }
 
     /**
@@ -230,7 +362,9 @@ public class Block {
      * @param view
      */
     public void setView(int view) {
+        getVotesList();
         this.view = view;
+        this.encodedVotes = null;
     }
 
     /**
@@ -239,7 +373,22 @@ public class Block {
      * @return
      */
     public List<Signature> getVotes() {
-        return new ArrayList<>(votes);
+        return new ArrayList<>(getVotesList());
+    }
+
+    private List<Signature> getVotesList() {
+        List<Signature> list = votes;
+        if (list == null) {
+            SimpleDecoder dec = new SimpleDecoder(encodedVotes);
+            dec.readInt(); // view
+            int n = dec.readInt();
+            list = new ArrayList<>(n);
+            for (int i = 0; i < n; i++) {
+                list.add(Signature.fromBytes(dec.readBytes()));
+            }
+            votes = list;
+        }
+        return list;
     }
 
     /**
@@ -249,6 +398,7 @@ public class Block {
      */
     public void setVotes(List<Signature> votes) {
         this.votes = votes;
+        this.encodedVotes = null;
     }
 
     /**
@@ -257,7 +407,40 @@ public class Block {
      * @return
      */
     public List<Pair<Integer, Integer>> getTransactionIndices() {
-        return new ArrayList<>(indexes);
+        return new ArrayList<>(getIndexes());
+    }
+
+    /**
+     * Decodes the whole block, which fails fast if the encoding is malformed.
+     *
+     * @return this block
+     */
+    public Block decode() {
+        getTransactions();
+        getResults();
+        getVotesList();
+        return this;
+    }
+
+    private List<Pair<Integer, Integer>> getIndexes() {
+        List<Pair<Integer, Integer>> list = indexes;
+        if (list == null) {
+            SimpleDecoder decTx = new SimpleDecoder(encodedTransactions);
+            SimpleDecoder decRe = new SimpleDecoder(encodedResults);
+            int n = decTx.readInt();
+            if (decRe.readInt() != n) {
+                throw new SimpleCodecException("The numbers of transactions and results do not match");
+            }
+
+            list = new ArrayList<>(n);
+            for (int i = 0; i < n; i++) {
+                list.add(Pair.of(decTx.getReadIndex(), decRe.getReadIndex()));
+                decTx.skipBytes();
+                decRe.skipBytes();
+            }
+            indexes = list;
+        }
+        return list;
     }
 
     /**
@@ -374,15 +557,21 @@ public class Block {
      * @return
      */
     public byte[] toBytesVotes() {
-        SimpleEncoder enc = new SimpleEncoder();
+        byte[] encoded = encodedVotes;
+        if (encoded == null) {
+            List<Signature> list = votes;
+            SimpleEncoder enc = new SimpleEncoder();
+
+            enc.writeInt(view);
+            enc.writeInt(list.size());
+            for (Signature vote : list) {
+                enc.writeBytes(vote.toBytes());
+            }
 
-        enc.writeInt(view);
-        enc.writeInt(votes.size());
-        for (Signature vote : votes) {
-            enc.writeBytes(vote.toBytes());
+            encoded = enc.toBytes();
+            encodedVotes = encoded;
         }
-
-        return enc.toBytes();
+        return encoded;
     }
 
     /**
@@ -408,35 +597,7 @@ public class Block {
      * @return
      */
     public static Block fromBytes(byte[] h, byte[] t, byte[] r, byte[] v) {
-        BlockHeader header = BlockHeader.fromBytes(h);
-
-        SimpleDecoder dec = new SimpleDecoder(t);
-        List<Transaction> transactions = new ArrayList<>();
-        int n = dec.readInt();
-        for (int i = 0; i < n; i++) {
-            transactions.add(Transaction.fromBytes(dec.readBytes()));
-        }
-
-        dec = new SimpleDecoder(r);
-        List<TransactionResult> results = new ArrayList<>();
-        n = dec.readInt();
-        for (int i = 0; i < n; i++) {
-            results.add(TransactionResult.fromBytes(dec.readBytes()));
-        }
-
-        int view = 0;
-        List<Signature> votes = new ArrayList<>();
-
-        if (v != null) {
-            dec = new SimpleDecoder(v);
-            view = dec.readInt();
-            n = dec.readInt();
-            for (int i = 0; i < n; i++) {
-                votes.add(Signature.fromBytes(dec.readBytes()));
-            }
-        }
-
-        return new Block(header, transactions, results, view, votes);
+        return new Block(BlockHeader.fromBytes(h), h, t, r, v);
     }
 
     public static Block fromBytes(byte[] h, byte[] t, byte[] r) {
@@ -446,7 +607,7 @@ public class Block {
     @Override
     public String toString() {
         return "Block [number = " + getNumber() + ", view = " + getView() + ", hash = " + Hex.encode(getHash())
-                + ", # txs = " + transactions.size() + ", # votes = " + votes.size() + "]";
+                + ", # txs = " + getTransactionCount() + ", # votes = " + getVotesList().size() + "]";
     }
 
 }
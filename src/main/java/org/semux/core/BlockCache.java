@@ -0,0 +1,164 @@
+/**
+ * Copyright (c) 2017-2018 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.core;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongFunction;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+/**
+ * A cache of decoded blocks and headers, keyed by number.
+ * <p>
+ * The most recent blocks, which are read the most by peers syncing from us and
+ * by the consensus, are pinned and never evicted. Older blocks and headers are
+ * kept in LRU caches bounded by count.
+ * <p>
+ * As added blocks are final, the entries never go stale. Absent blocks are not
+ * cached, so the cache only has to be updated when a block is added.
+ */
+public class BlockCache {
+
+    public static final int DEFAULT_PINNED_BLOCKS = 16;
+    public static final long DEFAULT_MAX_BLOCKS = 64;
+    public static final long DEFAULT_MAX_HEADERS = 2048;
+
+    private final AtomicReferenceArray<Block> pinned;
+    private final Cache<Long, Block> blocks;
+    private final Cache<Long, BlockHeader> headers;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * Creates a block cache.
+     *
+     * @param pinnedBlocks
+     *            the number of most recent blocks which are pinned
+     * @param maxBlocks
+     *            the max number of other cached blocks
+     * @param maxHeaders
+     *            the max number of other cached headers
+     */
+    public BlockCache(int pinnedBlocks, long maxBlocks, long maxHeaders) {
+        this.pinned = new AtomicReferenceArray<>(pinnedBlocks);
+        this.blocks = Caffeine.newBuilder().maximumSize(maxBlocks).build();
+        this.headers = Caffeine.newBuilder().maximumSize(maxHeaders).build();
+    }
+
+    /**
+     * Creates a block cache with the default sizes.
+     */
+    public BlockCache() {
+        this(DEFAULT_PINNED_BLOCKS, DEFAULT_MAX_BLOCKS, DEFAULT_MAX_HEADERS);
+    }
+
+    /**
+     * Returns a block, loading it on a miss.
+     *
+     * @param number
+     * @param loader
+     *            the loader, which returns null if the block does not exist
+     * @return
+     */
+    public Block getBlock(long number, LongFunction<Block> loader) {
+        Block block = getPinned(number);
+        if (block == null) {
+            block = blocks.getIfPresent(number);
+        }
+        if (block != null) {
+            hits.increment();
+            return block;
+        }
+
+        misses.increment();
+        block = loader.apply(number);
+        if (block != null) {
+            blocks.put(number, block);
+        }
+        return block;
+    }
+
+    /**
+     * Returns a block header, loading it on a miss.
+     *
+     * @param number
+     * @param loader
+     *            the loader, which returns null if the block does not exist
+     * @return
+     */
+    public BlockHeader getHeader(long number, LongFunction<BlockHeader> loader) {
+        Block block = getPinned(number);
+        if (block == null) {
+            block = blocks.getIfPresent(number);
+        }
+        BlockHeader header = block != null ? block.getHeader() : headers.getIfPresent(number);
+        if (header != null) {
+            hits.increment();
+            return header;
+        }
+
+        misses.increment();
+        header = loader.apply(number);
+        if (header != null) {
+            headers.put(number, header);
+        }
+        return header;
+    }
+
+    /**
+     * Pins a newly added block, unpinning the oldest one.
+     *
+     * @param block
+     */
+    public void add(Block block) {
+        Block prev = pinned.getAndSet(slot(block.getNumber()), block);
+        if (prev != null) {
+            blocks.put(prev.getNumber(), prev);
+        }
+    }
+
+    /**
+     * Removes all the cached entries.
+     */
+    public void clear() {
+        for (int i = 0; i < pinned.length(); i++) {
+            pinned.set(i, null);
+        }
+        blocks.invalidateAll();
+        headers.invalidateAll();
+    }
+
+    /**
+     * Returns the number of block and header reads served by the cache.
+     *
+     * @return
+     */
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * Returns the number of block and header reads served by the database.
+     *
+     * @return
+     */
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    private Block getPinned(long number) {
+        Block block = pinned.get(slot(number));
+        return block != null && block.getNumber() == number ? block : null;
+    }
+
+    private int slot(long number) {
+        return (int) Math.floorMod(number, (long) pinned.length());
+    }
+}
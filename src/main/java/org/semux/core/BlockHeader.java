@@ -61,7 +61,9 @@ public class BlockHeader {
         this.stateRoot = stateRoot;
         this.data = data;
 
-        SimpleEncoder enc = new SimpleEncoder();
+        SimpleEncoder enc = new SimpleEncoder(16 + SimpleEncoder.sizeOf(coinbase) + SimpleEncoder.sizeOf(prevHash)
+                + SimpleEncoder.sizeOf(transactionsRoot) + SimpleEncoder.sizeOf(resultsRoot)
+                + SimpleEncoder.sizeOf(stateRoot) + SimpleEncoder.sizeOf(data));
         enc.writeLong(number);
         enc.writeBytes(coinbase);
         enc.writeBytes(prevHash);
@@ -156,7 +158,7 @@ public class BlockHeader {
     }
 
     public byte[] toBytes() {
-        SimpleEncoder enc = new SimpleEncoder();
+        SimpleEncoder enc = new SimpleEncoder(SimpleEncoder.sizeOf(hash) + SimpleEncoder.sizeOf(encoded));
         enc.writeBytes(hash);
         enc.writeBytes(encoded);
         return enc.toBytes();
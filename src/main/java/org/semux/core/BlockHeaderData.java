@@ -101,6 +101,15 @@ public class BlockHeaderData {
         return forkSignalSet != null && forkSignalSet.signalingFork(fork);
     }
 
+    /**
+     * Returns the signaled forks numbered from 0 to 63, as a bitmask.
+     *
+     * @return
+     */
+    public long getForkSignalBits() {
+        return forkSignalSet == null ? 0 : forkSignalSet.toBits();
+    }
+
     public byte[] toBytes() {
         if (version == 0x00) {
             return new byte[0];
@@ -183,6 +192,16 @@ public class BlockHeaderData {
             return pendingForks.contains(fork.number);
         }
 
+        long toBits() {
+            long bits = 0;
+            for (Short pendingFork : pendingForks) {
+                if (pendingFork >= 0 && pendingFork < Long.SIZE) {
+                    bits |= 1L << pendingFork;
+                }
+            }
+            return bits;
+        }
+
         byte[] toBytes() {
             SimpleEncoder encoder = new SimpleEncoder();
             encoder.writeByte((byte) pendingForks.size());
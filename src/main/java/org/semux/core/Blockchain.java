@@ -9,6 +9,7 @@ package org.semux.core;
 import java.util.List;
 import java.util.Map;
 
+import org.apache.commons.lang3.tuple.Pair;
 import org.semux.consensus.ValidatorActivatedFork;
 import org.semux.core.BlockchainImpl.ValidatorStats;
 import org.semux.core.state.AccountState;
@@ -106,7 +107,7 @@ public interface Blockchain {
      *
      * @param blockNumber
      *            the block number
-     * @return the coinbase transaction
+     * @return the coinbase transaction, or null if it has not been indexed yet
      */
     Transaction getCoinbaseTransaction(long blockNumber);
 
@@ -157,12 +158,70 @@ public interface Blockchain {
     List<Transaction> getTransactions(byte[] address, int from, int to);
 
     /**
-     * Add a block to the chain.
+     * Returns transactions from/to an address, each with the number of the block
+     * which includes it.
+     * 
+     * @param address
+     *            account address
+     * @param from
+     *            transaction index from
+     * @param to
+     *            transaction index to
+     * @return pairs of block number and transaction
+     */
+    List<Pair<Long, Transaction>> getTransactionsWithBlockNumbers(byte[] address, int from, int to);
+
+    /**
+     * Returns a batch of transactions. The transactions included in the same block
+     * are read with a single read of the block.
+     *
+     * @param hashes
+     *            transaction hashes
+     * @return the transactions, in the same order, with null for the unknown ones
+     */
+    List<Transaction> getTransactions(List<byte[]> hashes);
+
+    /**
+     * Add a block to the chain. The pending updates of the account state and the
+     * delegate state are flushed atomically with the block.
      * 
      * @param block
      */
     void addBlock(Block block);
 
+    /**
+     * Commits the given tracked states into the states of the chain and adds the
+     * block, as one step with regard to {@link #snapshot()}: a snapshot never holds
+     * the state of a block which is not added yet.
+     *
+     * @param block
+     * @param as
+     *            the account state tracked from {@link #getAccountState()}
+     * @param ds
+     *            the delegate state tracked from {@link #getDelegateState()}
+     */
+    void addBlock(Block block, AccountState as, DelegateState ds);
+
+    /**
+     * Returns the root of the state tree after a block. The state root is not part
+     * of the block header, and is unknown for the blocks added before the state
+     * tree was built.
+     *
+     * @param number
+     * @return the state root, or null if unknown
+     */
+    byte[] getStateRoot(long number);
+
+    /**
+     * Returns a read-only view of this blockchain, pinned to the latest block.
+     * Blocks added afterwards are not visible through the view.<br>
+     * <br>
+     * NOTE: be sure to close the snapshot after use.
+     *
+     * @return
+     */
+    BlockchainSnapshot snapshot();
+
     /**
      * Returns account state.
      * 
@@ -8,14 +8,17 @@ package org.semux.core;
 
 import static org.semux.consensus.ValidatorActivatedFork.UNIFORM_DISTRIBUTION;
 
+import java.io.File;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.commons.lang3.tuple.ImmutablePair;
@@ -31,15 +34,25 @@ import org.semux.core.state.AccountStateImpl;
 import org.semux.core.state.Delegate;
 import org.semux.core.state.DelegateState;
 import org.semux.core.state.DelegateStateImpl;
+import org.semux.core.state.StateHistory;
+import org.semux.core.state.StateTree;
+import org.semux.crypto.Hash;
 import org.semux.crypto.Hex;
+import org.semux.db.BlockArchive;
+import org.semux.db.BufferedDatabaseFactory;
 import org.semux.db.Database;
 import org.semux.db.DatabaseFactory;
 import org.semux.db.DatabaseName;
 import org.semux.db.LeveldbDatabase;
 import org.semux.db.Migration;
+import org.semux.db.MigrationRunner;
+import org.semux.db.UnitOfWork;
 import org.semux.event.PubSub;
 import org.semux.event.PubSubFactory;
+import org.semux.util.ByteArray;
 import org.semux.util.Bytes;
+import org.semux.util.ClosableIterator;
+import org.semux.util.FileUtil;
 import org.semux.util.SimpleDecoder;
 import org.semux.util.SimpleEncoder;
 import org.slf4j.Logger;
@@ -61,8 +74,13 @@ import com.github.benmanes.caffeine.cache.Caffeine;
  * [3, block_hash] => [block_number]
  * [4, transaction_hash] => [block_number, from, to] | [coinbase_transaction]
  * [5, address, n] => [transaction_hash]
- * [7] => [activated forks]
+ * [6] => [activated forks]
+ * [7, block_number] => [coinbase_transaction_hash]
+ * [8, block_number] => [state_root]
+ * [9..11] => [state history], see {@link StateHistory}
+ * [12] => [last indexed block number], see {@link TransactionIndexer}
  *
+ * [0xfe] => [pending unit of work]
  * [0xff] => [database version]
  * </pre>
  *
@@ -90,6 +108,7 @@ public class BlockchainImpl implements Blockchain {
     protected static final byte TYPE_ACCOUNT_TRANSACTION = 0x05;
     protected static final byte TYPE_ACTIVATED_FORKS = 0x06;
     protected static final byte TYPE_COINBASE_TRANSACTION_HASH = 0x07;
+    protected static final byte TYPE_STATE_ROOT = 0x08;
     protected static final byte TYPE_DATABASE_VERSION = (byte) 0xff;
 
     protected static final byte TYPE_BLOCK_HEADER = 0x00;
@@ -97,21 +116,47 @@ public class BlockchainImpl implements Blockchain {
     protected static final byte TYPE_BLOCK_RESULTS = 0x02;
     protected static final byte TYPE_BLOCK_VOTES = 0x03;
 
+    /**
+     * Number of the most recent blocks kept in the block database when the block
+     * archive is enabled.
+     */
+    protected static final long ARCHIVE_DEPTH = 1024;
+    protected static final String ARCHIVE_DIR = "archive";
+    protected static final int ARCHIVE_MIN_BATCH = 64;
+    protected static final int ARCHIVE_MAX_BATCH = 1024;
+    protected static final String HEADER_INDEX_FILE = "headers.idx";
+
     protected enum StatsType {
         FORGED, HIT, MISSED
     }
 
     private final Config config;
 
+    private DatabaseFactory dbFactory;
     private Database indexDB;
     private Database blockDB;
+    private BlockArchive archive;
 
-    private AccountState accountState;
-    private DelegateState delegateState;
+    private AccountStateImpl accountState;
+    private DelegateStateImpl delegateState;
+    private StateTree stateTree;
+    private StateHistory stateHistory;
+    private TransactionIndexer indexer;
 
     private Genesis genesis;
     private Block latestBlock;
 
+    /**
+     * Decoded blocks, shared with the snapshots which only read up to their own
+     * latest block.
+     */
+    private BlockCache blockCache = new BlockCache();
+
+    /**
+     * Compact index of all the headers, shared with the snapshots as well.
+     */
+    private HeaderIndex headerIndex;
+
     private final List<BlockchainListener> listeners = new ArrayList<>();
 
     /**
@@ -140,15 +185,79 @@ public class BlockchainImpl implements Blockchain {
         openDb(dbFactory);
     }
 
+    /**
+     * Create a read-only blockchain, pinned to a snapshot of the databases of
+     * another blockchain. The pending updates of its account and delegate state are
+     * carried over.
+     *
+     * @param chain
+     * @param snapshot
+     */
+    protected BlockchainImpl(BlockchainImpl chain, DatabaseFactory snapshot) {
+        this.config = chain.config;
+        this.dbFactory = snapshot;
+        this.indexDB = snapshot.getDB(DatabaseName.INDEX);
+        this.blockDB = snapshot.getDB(DatabaseName.BLOCK);
+        this.archive = chain.archive;
+
+        this.accountState = chain.accountState.copy(snapshot.getDB(DatabaseName.ACCOUNT));
+        this.delegateState = chain.delegateState.copy(this, snapshot.getDB(DatabaseName.DELEGATE),
+                snapshot.getDB(DatabaseName.VOTE));
+        this.stateTree = chain.stateTree;
+        this.indexer = chain.indexer;
+        if (chain.stateHistory != null) {
+            this.stateHistory = new StateHistory(snapshot, config.dbStateHistoryDepth());
+            this.accountState.setHistory(stateHistory);
+            this.delegateState.setHistory(stateHistory);
+        }
+
+        this.genesis = chain.genesis;
+        this.latestBlock = chain.latestBlock;
+        this.blockCache = chain.blockCache;
+        this.headerIndex = chain.headerIndex;
+        this.activatedForks = new ConcurrentHashMap<>(chain.activatedForks);
+    }
+
     private synchronized void openDb(DatabaseFactory factory) {
+        this.dbFactory = factory;
         this.indexDB = factory.getDB(DatabaseName.INDEX);
         this.blockDB = factory.getDB(DatabaseName.BLOCK);
 
+        // the archive is kept readable after being disabled
+        File archiveDir = factory.getDataDir().resolve(ARCHIVE_DIR).toFile();
+        if (this.archive != null) {
+            this.archive.close();
+            this.archive = null;
+        }
+        if (config.dbBlockArchive() || archiveDir.exists()) {
+            this.archive = new BlockArchive(archiveDir);
+        }
+
         this.accountState = new AccountStateImpl(factory.getDB(DatabaseName.ACCOUNT));
         this.delegateState = new DelegateStateImpl(this, factory.getDB(DatabaseName.DELEGATE),
                 factory.getDB(DatabaseName.VOTE));
+        this.stateTree = new StateTree(factory.getDB(DatabaseName.STATE), StateTree.DEFAULT_CACHE_SIZE);
+        if (config.dbStateHistory()) {
+            this.stateHistory = new StateHistory(factory, config.dbStateHistoryDepth());
+            this.accountState.setHistory(stateHistory);
+            this.delegateState.setHistory(stateHistory);
+        }
 
         this.genesis = Genesis.load(config.network());
+        this.blockCache.clear();
+        this.indexer = new TransactionIndexer(config, this, indexDB);
+        if (this.headerIndex != null) {
+            this.headerIndex.close();
+        }
+        this.headerIndex = new HeaderIndex(factory.getDataDir().resolve(HEADER_INDEX_FILE).toFile());
+
+        // completes the interrupted block commit, if any
+        UnitOfWork.recover(factory);
+
+        // removes the blocks archived right before a crash, if any
+        if (archive != null) {
+            removeArchivedBlocks();
+        }
 
         // checks if the database needs to be initialized
         byte[] number = indexDB.get(Bytes.of(TYPE_LATEST_BLOCK_NUMBER));
@@ -168,30 +277,47 @@ public class BlockchainImpl implements Blockchain {
         }
 
         // load version 1 index
+        headerIndex.load(latestBlock.getNumber(), this::loadBlockHeader);
         activatedForks = getActivatedForks();
+
+        // backfills the voter index and the state tree of older databases
+        delegateState.buildVoterIndex();
+        if (!stateTree.isBuilt()) {
+            stateTree.rebuild(factory, BlockchainImpl::isStateEntry);
+        }
+
+        // catches up with the secondary indexes, unless built in the background
+        indexer.initialize(latestBlock.getNumber());
+        if (!config.dbAsyncIndexing()) {
+            indexer.catchUp();
+        }
     }
 
     private void initializeDb() {
+        // marks the empty databases as indexed
+        delegateState.buildVoterIndex();
+        stateTree.rebuild(dbFactory, BlockchainImpl::isStateEntry);
+
+        UnitOfWork uow = dbFactory.createUnitOfWork();
+
         // initialize database version
-        indexDB.put(getDatabaseVersionKey(), Bytes.of(DATABASE_VERSION));
+        uow.put(DatabaseName.INDEX, getDatabaseVersionKey(), Bytes.of(DATABASE_VERSION));
 
         // initialize activated forks
-        setActivatedForks(new HashMap<>());
+        setActivatedForks(uow, new HashMap<>());
 
         // pre-allocation
         for (Premine p : genesis.getPremines().values()) {
             accountState.adjustAvailable(p.getAddress(), p.getAmount());
         }
-        accountState.commit();
 
         // delegates
         for (Entry<String, byte[]> e : genesis.getDelegates().entrySet()) {
             delegateState.register(e.getValue(), Bytes.of(e.getKey()), 0);
         }
-        delegateState.commit();
 
         // add block
-        addBlock(genesis);
+        addBlock(genesis, uow);
     }
 
     /**
@@ -234,18 +360,47 @@ public class BlockchainImpl implements Blockchain {
 
     @Override
     public long getBlockNumber(byte[] hash) {
-        byte[] number = indexDB.get(Bytes.merge(TYPE_BLOCK_HASH, hash));
-        return (number == null) ? -1 : Bytes.toLong(number);
+        if (hash == null || hash.length != Hash.HASH_LEN) {
+            return -1;
+        }
+
+        // the header index only matches the first 8 bytes of the hash, and may hold
+        // blocks added after the snapshot this blockchain is pinned to
+        long number = headerIndex.getNumber(hash);
+        BlockHeader header = number == -1 ? null : getBlockHeader(number);
+        if (header == null || !Arrays.equals(header.getHash(), hash)) {
+            byte[] bytes = indexDB.get(Bytes.merge(TYPE_BLOCK_HASH, hash));
+            number = (bytes == null) ? -1 : Bytes.toLong(bytes);
+        }
+        return (number == -1 || !isVisible(number)) ? -1 : number;
     }
 
     @Override
     public Block getBlock(long number) {
-        byte[] header = blockDB.get(Bytes.merge(TYPE_BLOCK_HEADER, Bytes.of(number)));
-        byte[] transactions = blockDB.get(Bytes.merge(TYPE_BLOCK_TRANSACTIONS, Bytes.of(number)));
-        byte[] results = blockDB.get(Bytes.merge(TYPE_BLOCK_RESULTS, Bytes.of(number)));
-        byte[] votes = blockDB.get(Bytes.merge(TYPE_BLOCK_VOTES, Bytes.of(number)));
+        return isVisible(number) ? blockCache.getBlock(number, this::loadBlock) : null;
+    }
+
+    /**
+     * Returns whether a block may be read from the cache, which can hold blocks
+     * added after the snapshot this blockchain is pinned to.
+     *
+     * @param number
+     * @return
+     */
+    private boolean isVisible(long number) {
+        return latestBlock == null || number <= latestBlock.getNumber();
+    }
+
+    protected Block loadBlock(long number) {
+        byte[] header = getBlockPart(TYPE_BLOCK_HEADER, number);
+        if (header == null) {
+            return null;
+        }
+        byte[] transactions = getBlockPart(TYPE_BLOCK_TRANSACTIONS, number);
+        byte[] results = getBlockPart(TYPE_BLOCK_RESULTS, number);
+        byte[] votes = getBlockPart(TYPE_BLOCK_VOTES, number);
 
-        return (header == null) ? null : Block.fromBytes(header, transactions, results, votes);
+        return Block.fromBytes(header, transactions, results, votes);
     }
 
     @Override
@@ -256,7 +411,11 @@ public class BlockchainImpl implements Blockchain {
 
     @Override
     public BlockHeader getBlockHeader(long number) {
-        byte[] header = blockDB.get(Bytes.merge(TYPE_BLOCK_HEADER, Bytes.of(number)));
+        return isVisible(number) ? blockCache.getHeader(number, this::loadBlockHeader) : null;
+    }
+
+    protected BlockHeader loadBlockHeader(long number) {
+        byte[] header = getBlockPart(TYPE_BLOCK_HEADER, number);
         return (header == null) ? null : BlockHeader.fromBytes(header);
     }
 
@@ -268,7 +427,7 @@ public class BlockchainImpl implements Blockchain {
 
     @Override
     public boolean hasBlock(long number) {
-        return blockDB.get(Bytes.merge(TYPE_BLOCK_HEADER, Bytes.of(number))) != null;
+        return headerIndex.contains(number) && isVisible(number);
     }
 
     @Override
@@ -285,7 +444,7 @@ public class BlockchainImpl implements Blockchain {
             int start = dec.readInt();
             dec.readInt();
 
-            byte[] transactions = blockDB.get(Bytes.merge(TYPE_BLOCK_TRANSACTIONS, Bytes.of(number)));
+            byte[] transactions = getBlockPart(TYPE_BLOCK_TRANSACTIONS, number);
             dec = new SimpleDecoder(transactions, start);
             return Transaction.fromBytes(dec.readBytes());
         }
@@ -295,9 +454,13 @@ public class BlockchainImpl implements Blockchain {
 
     @Override
     public Transaction getCoinbaseTransaction(long blockNumber) {
-        return blockNumber == 0
-                ? null
-                : getTransaction(indexDB.get(Bytes.merge(TYPE_COINBASE_TRANSACTION_HASH, Bytes.of(blockNumber))));
+        if (blockNumber == 0) {
+            return null;
+        }
+
+        // missing when the background indexer has not reached the block yet
+        byte[] hash = indexDB.get(Bytes.merge(TYPE_COINBASE_TRANSACTION_HASH, Bytes.of(blockNumber)));
+        return hash == null ? null : getTransaction(hash);
     }
 
     @Override
@@ -319,7 +482,7 @@ public class BlockchainImpl implements Blockchain {
             dec.readInt();
             int start = dec.readInt();
 
-            byte[] results = blockDB.get(Bytes.merge(TYPE_BLOCK_RESULTS, Bytes.of(number)));
+            byte[] results = getBlockPart(TYPE_BLOCK_RESULTS, number);
             dec = new SimpleDecoder(results, start);
             return TransactionResult.fromBytes(dec.readBytes());
         }
@@ -329,97 +492,206 @@ public class BlockchainImpl implements Blockchain {
 
     @Override
     public long getTransactionBlockNumber(byte[] hash) {
-        Transaction tx = getTransaction(hash);
-        if (tx.getType() == TransactionType.COINBASE) {
-            return tx.getNonce();
+        byte[] bytes = indexDB.get(Bytes.merge(TYPE_TRANSACTION_HASH, hash));
+        if (bytes == null) {
+            return -1;
         }
 
-        byte[] bytes = indexDB.get(Bytes.merge(TYPE_TRANSACTION_HASH, hash));
-        if (bytes != null) {
-            SimpleDecoder dec = new SimpleDecoder(bytes);
-            return dec.readLong();
+        // coinbase transaction, whose nonce is the block number
+        if (bytes.length > 64) {
+            return Transaction.readNonce(bytes);
         }
 
-        return -1;
+        return new SimpleDecoder(bytes).readLong();
     }
 
     @Override
     public synchronized void addBlock(Block block) {
+        addBlock(block, dbFactory.createUnitOfWork());
+    }
+
+    @Override
+    public synchronized void addBlock(Block block, AccountState as, DelegateState ds) {
+        as.commit();
+        ds.commit();
+        addBlock(block);
+    }
+
+    /**
+     * Reads a part of a block from the block database, or the archive.
+     *
+     * @param type
+     * @param number
+     * @return
+     */
+    protected byte[] getBlockPart(byte type, long number) {
+        byte[] bytes = blockDB.get(Bytes.merge(type, Bytes.of(number)));
+        if (bytes == null && archive != null) {
+            // appended to the archive before being removed from the database
+            bytes = archive.get(number, type);
+        }
+        return bytes;
+    }
+
+    /**
+     * Appends the blocks up to the given number to the archive, in batches, and
+     * stages their removal from the block database.
+     *
+     * @param uow
+     * @param target
+     */
+    protected void archiveBlocks(UnitOfWork uow, long target) {
+        long from = archive.size();
+        long n = Math.min(target - from + 1, ARCHIVE_MAX_BATCH);
+        if (n < ARCHIVE_MIN_BATCH) {
+            return;
+        }
+
+        List<byte[][]> records = new ArrayList<>();
+        for (long i = from; i < from + n; i++) {
+            byte[][] parts = new byte[TYPE_BLOCK_VOTES + 1][];
+            for (byte type = TYPE_BLOCK_HEADER; type <= TYPE_BLOCK_VOTES; type++) {
+                parts[type] = blockDB.get(Bytes.merge(type, Bytes.of(i)));
+            }
+            records.add(parts);
+        }
+        archive.append(from, records);
+
+        for (long i = from; i < from + n; i++) {
+            for (byte type = TYPE_BLOCK_HEADER; type <= TYPE_BLOCK_VOTES; type++) {
+                uow.delete(DatabaseName.BLOCK, Bytes.merge(type, Bytes.of(i)));
+            }
+        }
+        logger.debug("Archived blocks: from = {}, to = {}", from, from + n - 1);
+    }
+
+    /**
+     * Removes from the block database the blocks which are already in the archive.
+     * These are left behind when the process stops between the archiving of the
+     * blocks and the commit of their removal.
+     */
+    protected void removeArchivedBlocks() {
+        UnitOfWork uow = dbFactory.createUnitOfWork();
+        int n = 0;
+        for (byte type = TYPE_BLOCK_HEADER; type <= TYPE_BLOCK_VOTES; type++) {
+            ClosableIterator<Entry<byte[], byte[]>> itr = blockDB.rangeIterator(Bytes.merge(type, Bytes.of(0L)),
+                    Bytes.merge(type, Bytes.of(archive.size())));
+            while (itr.hasNext()) {
+                uow.delete(DatabaseName.BLOCK, itr.next().getKey());
+                n++;
+            }
+            itr.close();
+        }
+
+        if (n > 0) {
+            uow.commit();
+            logger.info("Removed the archived blocks left in the block database: # entries = {}", n);
+        }
+    }
+
+    /**
+     * Releases the block archive, if any. The databases are closed by their
+     * factory.
+     */
+    public synchronized void closeArchive() {
+        if (archive != null) {
+            archive.close();
+        }
+    }
+
+    /**
+     * Adds a block to the chain, together with the pending updates of the account
+     * and delegate state, as one unit of work.
+     *
+     * @param block
+     * @param uow
+     */
+    protected synchronized void addBlock(Block block, UnitOfWork uow) {
         long number = block.getNumber();
         byte[] hash = block.getHash();
-        activateForks(number);
 
         if (number != genesis.getNumber() && number != latestBlock.getNumber() + 1) {
             logger.error("Adding wrong block: number = {}, expected = {}", number, latestBlock.getNumber() + 1);
             throw new BlockchainException("Blocks can only be added sequentially");
         }
 
+        activateForks(uow, number);
+
+        // [0] stage the state updates, and their authentication
+        accountState.commit(uow);
+        delegateState.commit(uow);
+        for (DatabaseName name : StateTree.DATABASES) {
+            for (Map.Entry<ByteArray, byte[]> e : uow.getUpdates(name).entrySet()) {
+                if (isStateEntry(name, e.getKey().getData())) {
+                    stateTree.put(name, e.getKey().getData(), e.getValue());
+                }
+            }
+        }
+        uow.put(DatabaseName.INDEX, Bytes.merge(TYPE_STATE_ROOT, Bytes.of(number)), stateTree.commit(uow));
+        if (stateHistory != null) {
+            stateHistory.record(uow, number);
+        }
+
         // [1] update block
-        blockDB.put(Bytes.merge(TYPE_BLOCK_HEADER, Bytes.of(number)), block.toBytesHeader());
-        blockDB.put(Bytes.merge(TYPE_BLOCK_TRANSACTIONS, Bytes.of(number)), block.toBytesTransactions());
-        blockDB.put(Bytes.merge(TYPE_BLOCK_RESULTS, Bytes.of(number)), block.toBytesResults());
-        blockDB.put(Bytes.merge(TYPE_BLOCK_VOTES, Bytes.of(number)), block.toBytesVotes());
+        uow.put(DatabaseName.BLOCK, Bytes.merge(TYPE_BLOCK_HEADER, Bytes.of(number)), block.toBytesHeader());
+        uow.put(DatabaseName.BLOCK, Bytes.merge(TYPE_BLOCK_TRANSACTIONS, Bytes.of(number)),
+                block.toBytesTransactions());
+        uow.put(DatabaseName.BLOCK, Bytes.merge(TYPE_BLOCK_RESULTS, Bytes.of(number)), block.toBytesResults());
+        uow.put(DatabaseName.BLOCK, Bytes.merge(TYPE_BLOCK_VOTES, Bytes.of(number)), block.toBytesVotes());
 
-        indexDB.put(Bytes.merge(TYPE_BLOCK_HASH, hash), Bytes.of(number));
+        uow.put(DatabaseName.INDEX, Bytes.merge(TYPE_BLOCK_HASH, hash), Bytes.of(number));
 
         // [2] update transaction indices
         List<Transaction> txs = block.getTransactions();
         List<Pair<Integer, Integer>> txIndices = block.getTransactionIndices();
-        Amount reward = config.getBlockReward(number);
 
         for (int i = 0; i < txs.size(); i++) {
             Transaction tx = txs.get(i);
-            reward = Amount.sum(reward, tx.getFee());
 
             SimpleEncoder enc = new SimpleEncoder();
             enc.writeLong(number);
             enc.writeInt(txIndices.get(i).getLeft());
             enc.writeInt(txIndices.get(i).getRight());
 
-            indexDB.put(Bytes.merge(TYPE_TRANSACTION_HASH, tx.getHash()), enc.toBytes());
+            uow.put(DatabaseName.INDEX, Bytes.merge(TYPE_TRANSACTION_HASH, tx.getHash()), enc.toBytes());
+        }
 
-            // [3] update transaction_by_account index
-            addTransactionToAccount(tx, tx.getFrom());
-            if (!Arrays.equals(tx.getFrom(), tx.getTo())) {
-                addTransactionToAccount(tx, tx.getTo());
-            }
+        // [3] update the secondary indexes, unless built in the background
+        if (!config.dbAsyncIndexing()) {
+            indexer.index(block, uow);
         }
 
         if (number != genesis.getNumber()) {
-            // [4] coinbase transaction
-            Transaction tx = new Transaction(config.network(),
-                    TransactionType.COINBASE,
-                    block.getCoinbase(),
-                    reward,
-                    Amount.ZERO,
-                    block.getNumber(),
-                    block.getTimestamp(),
-                    Bytes.EMPTY_BYTES);
-            tx.sign(Constants.COINBASE_KEY);
-            indexDB.put(Bytes.merge(TYPE_TRANSACTION_HASH, tx.getHash()), tx.toBytes());
-            indexDB.put(Bytes.merge(TYPE_COINBASE_TRANSACTION_HASH, Bytes.of(block.getNumber())), tx.getHash());
-            addTransactionToAccount(tx, block.getCoinbase());
-
-            // [5] update validator statistics
+            // [4] update validator statistics
             List<String> validators = getValidators();
             String primary = config.getPrimaryValidator(validators, number, 0,
                     activatedForks.containsKey(UNIFORM_DISTRIBUTION));
-            adjustValidatorStats(block.getCoinbase(), StatsType.FORGED, 1);
+            adjustValidatorStats(uow, block.getCoinbase(), StatsType.FORGED, 1);
             if (primary.equals(Hex.encode(block.getCoinbase()))) {
-                adjustValidatorStats(Hex.decode0x(primary), StatsType.HIT, 1);
+                adjustValidatorStats(uow, Hex.decode0x(primary), StatsType.HIT, 1);
             } else {
-                adjustValidatorStats(Hex.decode0x(primary), StatsType.MISSED, 1);
+                adjustValidatorStats(uow, Hex.decode0x(primary), StatsType.MISSED, 1);
             }
         }
 
-        // [6] update validator set
+        // [5] update validator set
         if (number % config.getValidatorUpdateInterval() == 0) {
-            updateValidators(block.getNumber());
+            updateValidators(uow, block.getNumber());
+        }
+
+        // [6] update latest_block
+        uow.put(DatabaseName.INDEX, Bytes.of(TYPE_LATEST_BLOCK_NUMBER), Bytes.of(number));
+
+        // [7] move the finalized blocks out of the block database
+        if (archive != null && config.dbBlockArchive()) {
+            archiveBlocks(uow, number - ARCHIVE_DEPTH);
         }
 
-        // [7] update latest_block
+        // [8] flush all the updates
+        uow.commit();
+        blockCache.add(block);
+        headerIndex.add(block.getHeader());
         latestBlock = block;
-        indexDB.put(Bytes.of(TYPE_LATEST_BLOCK_NUMBER), Bytes.of(number));
 
         for (BlockchainListener listener : listeners) {
             listener.onBlockAdded(block);
@@ -429,7 +701,7 @@ public class BlockchainImpl implements Blockchain {
     /**
      * Attempt to activate pending forks at current height.
      */
-    private synchronized void activateForks(long number) {
+    private synchronized void activateForks(UnitOfWork uow, long number) {
         if (config.forkUniformDistributionEnabled()
                 && !activatedForks.containsKey(UNIFORM_DISTRIBUTION)
                 && number <= UNIFORM_DISTRIBUTION.activationDeadline
@@ -437,11 +709,61 @@ public class BlockchainImpl implements Blockchain {
             // persist the activated fork
             activatedForks.put(UNIFORM_DISTRIBUTION,
                     new ValidatorActivatedFork.Activation(UNIFORM_DISTRIBUTION, number));
-            setActivatedForks(activatedForks);
+            setActivatedForks(uow, activatedForks);
             logger.info("Fork UNIFORM_DISTRIBUTION activated at block {}", number);
         }
     }
 
+    /**
+     * Returns whether an entry of the state databases is authenticated by the state
+     * tree. The voter index is excluded, as it is derived from the votes.
+     *
+     * @param name
+     * @param key
+     * @return
+     */
+    protected static boolean isStateEntry(DatabaseName name, byte[] key) {
+        return name != DatabaseName.VOTE || DelegateStateImpl.isVoteKey(key);
+    }
+
+    /**
+     * Returns the indexer of the transactions.
+     *
+     * @return
+     */
+    public TransactionIndexer getTransactionIndexer() {
+        return indexer;
+    }
+
+    /**
+     * Returns the cache of decoded blocks.
+     *
+     * @return
+     */
+    public BlockCache getBlockCache() {
+        return blockCache;
+    }
+
+    /**
+     * Returns the compact index of the block headers.
+     *
+     * @return
+     */
+    public HeaderIndex getHeaderIndex() {
+        return headerIndex;
+    }
+
+    @Override
+    public byte[] getStateRoot(long number) {
+        return indexDB.get(Bytes.merge(TYPE_STATE_ROOT, Bytes.of(number)));
+    }
+
+    @Override
+    public synchronized BlockchainSnapshot snapshot() {
+        // holding the monitor of addBlock keeps the snapshots consistent
+        return new BlockchainSnapshot(this, dbFactory.snapshotAll());
+    }
+
     @Override
     public Genesis getGenesis() {
         return genesis;
@@ -460,16 +782,107 @@ public class BlockchainImpl implements Blockchain {
 
     @Override
     public List<Transaction> getTransactions(byte[] address, int from, int to) {
-        List<Transaction> list = new ArrayList<>();
+        return new ArrayList<>(Arrays.asList(getTransactions(getTransactionHashes(address, from, to), null)));
+    }
+
+    @Override
+    public List<Pair<Long, Transaction>> getTransactionsWithBlockNumbers(byte[] address, int from, int to) {
+        List<byte[]> hashes = getTransactionHashes(address, from, to);
+        long[] numbers = new long[hashes.size()];
+        Transaction[] txs = getTransactions(hashes, numbers);
+
+        List<Pair<Long, Transaction>> list = new ArrayList<>(txs.length);
+        for (int i = 0; i < txs.length; i++) {
+            list.add(Pair.of(numbers[i], txs[i]));
+        }
+        return list;
+    }
 
+    @Override
+    public List<Transaction> getTransactions(List<byte[]> hashes) {
+        return Arrays.asList(getTransactions(hashes, null));
+    }
+
+    /**
+     * Returns the hashes of the transactions from/to an address, within
+     * <code>[from, to)</code>.
+     *
+     * @param address
+     * @param from
+     * @param to
+     * @return
+     */
+    private List<byte[]> getTransactionHashes(byte[] address, int from, int to) {
         int total = getTransactionCount(address);
-        for (int i = from; i < total && i < to; i++) {
-            byte[] key = getNthTransactionIndexKey(address, i);
-            byte[] value = indexDB.get(key);
-            list.add(getTransaction(value));
+        int start = Math.max(from, 0);
+        int end = Math.min(to, total);
+        if (start >= end) {
+            return Collections.emptyList();
         }
 
-        return list;
+        // the index is a big-endian counter, so the range is a contiguous key range
+        List<byte[]> hashes = new ArrayList<>(end - start);
+        ClosableIterator<Entry<byte[], byte[]>> itr = indexDB.rangeIterator(
+                getNthTransactionIndexKey(address, start), getNthTransactionIndexKey(address, end));
+        while (itr.hasNext()) {
+            hashes.add(itr.next().getValue());
+        }
+        itr.close();
+
+        return hashes;
+    }
+
+    /**
+     * Reads a batch of transactions, each block once.
+     *
+     * @param hashes
+     *            transaction hashes
+     * @param numbers
+     *            if not null, receives the block numbers of the transactions, -1
+     *            for the unknown ones
+     * @return the transactions, in the same order, with null for the unknown ones
+     */
+    private Transaction[] getTransactions(List<byte[]> hashes, long[] numbers) {
+        Transaction[] txs = new Transaction[hashes.size()];
+        if (numbers != null) {
+            Arrays.fill(numbers, -1);
+        }
+
+        // [1] resolve the hashes, grouping the offsets by block
+        Map<Long, List<int[]>> blocks = new TreeMap<>();
+        for (int i = 0; i < txs.length; i++) {
+            byte[] bytes = indexDB.get(Bytes.merge(TYPE_TRANSACTION_HASH, hashes.get(i)));
+            if (bytes == null) {
+                continue;
+            }
+
+            // coinbase transaction, whose nonce is the block number
+            if (bytes.length > 64) {
+                txs[i] = Transaction.fromBytes(bytes);
+                if (numbers != null) {
+                    numbers[i] = txs[i].getNonce();
+                }
+                continue;
+            }
+
+            SimpleDecoder dec = new SimpleDecoder(bytes);
+            long number = dec.readLong();
+            int start = dec.readInt();
+            blocks.computeIfAbsent(number, k -> new ArrayList<>()).add(new int[] { i, start });
+            if (numbers != null) {
+                numbers[i] = number;
+            }
+        }
+
+        // [2] read each block once, and decode the needed transactions only
+        for (Entry<Long, List<int[]>> e : blocks.entrySet()) {
+            byte[] transactions = getBlockPart(TYPE_BLOCK_TRANSACTIONS, e.getKey());
+            for (int[] offset : e.getValue()) {
+                txs[offset[0]] = Transaction.fromBytes(new SimpleDecoder(transactions, offset[1]).readBytes());
+            }
+        }
+
+        return txs;
     }
 
     @Override
@@ -499,15 +912,13 @@ public class BlockchainImpl implements Blockchain {
     /**
      * Updates the validator set.
      * 
+     * @param uow
      * @param number
      */
-    protected void updateValidators(long number) {
+    protected void updateValidators(UnitOfWork uow, long number) {
         List<String> validators = new ArrayList<>();
 
-        List<Delegate> delegates = delegateState.getDelegates();
-        int max = Math.min(delegates.size(), config.getNumberOfValidators(number));
-        for (int i = 0; i < max; i++) {
-            Delegate d = delegates.get(i);
+        for (Delegate d : delegateState.getDelegates(0, config.getNumberOfValidators(number))) {
             validators.add(Hex.encode(d.getAddress()));
         }
 
@@ -516,7 +927,7 @@ public class BlockchainImpl implements Blockchain {
         for (String v : validators) {
             enc.writeString(v);
         }
-        indexDB.put(Bytes.of(TYPE_VALIDATORS), enc.toBytes());
+        uow.put(DatabaseName.INDEX, Bytes.of(TYPE_VALIDATORS), enc.toBytes());
     }
 
     /**
@@ -530,8 +941,22 @@ public class BlockchainImpl implements Blockchain {
      *            difference
      */
     protected void adjustValidatorStats(byte[] address, StatsType type, long delta) {
+        UnitOfWork uow = dbFactory.createUnitOfWork();
+        adjustValidatorStats(uow, address, type, delta);
+        uow.commit();
+    }
+
+    /**
+     * Adjusts validator statistics within a unit of work.
+     *
+     * @param uow
+     * @param address
+     * @param type
+     * @param delta
+     */
+    protected void adjustValidatorStats(UnitOfWork uow, byte[] address, StatsType type, long delta) {
         byte[] key = Bytes.merge(TYPE_VALIDATOR_STATS, address);
-        byte[] value = indexDB.get(key);
+        byte[] value = uow.get(DatabaseName.INDEX, key);
 
         ValidatorStats stats = (value == null) ? new ValidatorStats(0, 0, 0) : ValidatorStats.fromBytes(value);
 
@@ -549,29 +974,7 @@ public class BlockchainImpl implements Blockchain {
             break;
         }
 
-        indexDB.put(key, stats.toBytes());
-    }
-
-    /**
-     * Sets the total number of transaction of an account.
-     * 
-     * @param address
-     * @param total
-     */
-    protected void setTransactionCount(byte[] address, int total) {
-        indexDB.put(Bytes.merge(TYPE_ACCOUNT_TRANSACTION, address), Bytes.of(total));
-    }
-
-    /**
-     * Adds a transaction to an account.
-     * 
-     * @param tx
-     * @param address
-     */
-    protected void addTransactionToAccount(Transaction tx, byte[] address) {
-        int total = getTransactionCount(address);
-        indexDB.put(getNthTransactionIndexKey(address, total), tx.getHash());
-        setTransactionCount(address, total + 1);
+        uow.put(DatabaseName.INDEX, key, stats.toBytes());
     }
 
     /**
@@ -581,7 +984,7 @@ public class BlockchainImpl implements Blockchain {
      * @param n
      * @return
      */
-    protected byte[] getNthTransactionIndexKey(byte[] address, int n) {
+    protected static byte[] getNthTransactionIndexKey(byte[] address, int n) {
         return Bytes.merge(Bytes.of(TYPE_ACCOUNT_TRANSACTION), address, Bytes.of(n));
     }
 
@@ -598,13 +1001,14 @@ public class BlockchainImpl implements Blockchain {
         return activations;
     }
 
-    private void setActivatedForks(Map<ValidatorActivatedFork, ValidatorActivatedFork.Activation> activatedForks) {
+    private void setActivatedForks(UnitOfWork uow,
+            Map<ValidatorActivatedFork, ValidatorActivatedFork.Activation> activatedForks) {
         SimpleEncoder simpleEncoder = new SimpleEncoder();
         simpleEncoder.writeInt(activatedForks.size());
         for (Map.Entry<ValidatorActivatedFork, ValidatorActivatedFork.Activation> entry : activatedForks.entrySet()) {
             simpleEncoder.writeBytes(entry.getValue().toBytes());
         }
-        indexDB.put(getActivatedForksKey(), simpleEncoder.toBytes());
+        uow.put(DatabaseName.INDEX, getActivatedForksKey(), simpleEncoder.toBytes());
     }
 
     private byte[] getActivatedForksKey() {
@@ -737,10 +1141,10 @@ public class BlockchainImpl implements Blockchain {
         if (forkActivationMemory != null) {
             activatedBlocks = forkActivationMemory.activatedBlocks -
                     (forkActivationMemory.lowerBoundActivated && lowerBound > 1 ? 1 : 0) +
-                    (getBlockHeader(higherBound).getDecodedData().signalingFork(fork) ? 1 : 0);
+                    (signalingFork(higherBound, fork) ? 1 : 0);
         } else { // O(m) traversal lookup
             for (long i = higherBound; i >= lowerBound; i--) {
-                activatedBlocks += getBlockHeader(i).getDecodedData().signalingFork(fork) ? 1 : 0;
+                activatedBlocks += signalingFork(i, fork) ? 1 : 0;
             }
         }
 
@@ -748,7 +1152,7 @@ public class BlockchainImpl implements Blockchain {
         forkActivationMemoryCache.put(
                 ImmutablePair.of(fork, height),
                 new ForkActivationMemory(
-                        getBlockHeader(lowerBound).getDecodedData().signalingFork(fork),
+                        signalingFork(lowerBound, fork),
                         activatedBlocks));
 
         // returns
@@ -764,6 +1168,20 @@ public class BlockchainImpl implements Blockchain {
         return activated;
     }
 
+    /**
+     * Returns whether a block signals a fork, from the header index when possible.
+     *
+     * @param number
+     * @param fork
+     * @return
+     */
+    private boolean signalingFork(long number, ValidatorActivatedFork fork) {
+        if (headerIndex.contains(number) && fork.number >= 0 && fork.number < Long.SIZE) {
+            return headerIndex.isSignaling(number, fork);
+        }
+        return getBlockHeader(number).getDecodedData().signalingFork(fork);
+    }
+
     /**
      * <code>
      * ForkActivationMemory[height].lowerBoundActivated =
@@ -820,11 +1238,7 @@ public class BlockchainImpl implements Blockchain {
                 getAccountState().adjustAvailable(block.getCoinbase(), reward);
             }
 
-            // [2] commit the updates
-            getAccountState().commit();
-            getDelegateState().commit();
-
-            // [3] add block to chain
+            // [2] add block to chain, together with the state updates
             addBlock(block);
         }
     }
@@ -835,9 +1249,19 @@ public class BlockchainImpl implements Blockchain {
      * existing blockchain database to the created temporary blockchain database.
      * Once all blocks have been successfully migrated, the existing blockchain
      * database is replaced by the migrated temporary blockchain database.
+     * <p>
+     * The migrated blocks are written in large batches, each of which records the
+     * latest block of the temporary database last. A migration interrupted between
+     * two batches is therefore resumed after the last written batch on the next
+     * start. A migration interrupted while a batch is being written can not tell
+     * which part of the batch has been persisted, so it discards the temporary
+     * database and restarts from the genesis block.
      */
     private class MigrationBlockDbVersion001 implements Migration {
 
+        private static final int BATCH_SIZE = 2000;
+        private static final long MAX_BUFFERED_SIZE = 64L * 1024 * 1024;
+
         private final PubSub pubSub = PubSubFactory.getDefault();
 
         @Override
@@ -845,23 +1269,58 @@ public class BlockchainImpl implements Blockchain {
             try {
                 logger.info("Upgrading the database... DO NOT CLOSE THE WALLET!");
 
-                // recreate block db in a temporary folder
+                // recreate block db in a temporary folder, or resume from the existing one
                 String dbName = dbFactory.getDataDir().getFileName().toString();
-                Path tempPath = dbFactory
-                        .getDataDir()
-                        .resolveSibling(dbName + "_tmp_" + System.currentTimeMillis());
+                Path tempPath = dbFactory.getDataDir().resolveSibling(dbName + "_migration");
                 LeveldbDatabase.LeveldbFactory tempDb = new LeveldbDatabase.LeveldbFactory(tempPath.toFile());
-                MigrationBlockchain migrationBlockchain = new MigrationBlockchain(config, tempDb);
+                if (new BufferedDatabaseFactory(tempDb).isFlushInterrupted()) {
+                    // the state of a torn batch is ahead of its latest block, start over
+                    logger.info(
+                            "The previous database upgrade was interrupted in the middle of a batch, restarting it");
+                    tempDb.close();
+                    FileUtil.recursiveDelete(tempPath.toFile());
+                    tempDb = new LeveldbDatabase.LeveldbFactory(tempPath.toFile());
+                }
+                BufferedDatabaseFactory bufferedDb = new BufferedDatabaseFactory(tempDb);
+                MigrationBlockchain migrationBlockchain = new MigrationBlockchain(config, bufferedDb);
+                bufferedDb.flush();
+
                 final long latestBlockNumber = getLatestBlockNumber();
-                for (long i = 1; i <= latestBlockNumber; i++) {
-                    migrationBlockchain.applyBlock(getBlock(i));
-                    if (i % 1000 == 0) {
-                        pubSub.publish(new BlockchainDatabaseUpgradingEvent(i, latestBlockNumber));
-                        logger.info("Loaded {} / {} blocks", i, latestBlockNumber);
-                    }
+                long from = migrationBlockchain.getLatestBlockNumber() + 1;
+                if (from > 1) {
+                    logger.info("Resuming the database upgrade from block {}", from);
                 }
+
+                int threads = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+                new MigrationRunner<Block>(threads, threads * 64, BATCH_SIZE) {
+                    @Override
+                    protected Block read(long n) {
+                        return getBlock(n);
+                    }
+
+                    @Override
+                    protected void apply(long n, Block block) {
+                        migrationBlockchain.applyBlock(block);
+                    }
+
+                    @Override
+                    protected boolean isBatchFull(int applied) {
+                        return super.isBatchFull(applied) || bufferedDb.getBufferedSize() >= MAX_BUFFERED_SIZE;
+                    }
+
+                    @Override
+                    protected void checkpoint(long n) {
+                        bufferedDb.flush();
+                    }
+
+                    @Override
+                    protected void onProgress(long n, long to) {
+                        pubSub.publish(new BlockchainDatabaseUpgradingEvent(n, to));
+                    }
+                }.run(from, latestBlockNumber);
+
                 dbFactory.close();
-                tempDb.close();
+                bufferedDb.close();
 
                 // move the existing database to backup folder then replace the database folder
                 // with the upgraded database
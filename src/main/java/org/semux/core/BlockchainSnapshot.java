@@ -0,0 +1,48 @@
+/**
+ * Copyright (c) 2017-2018 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.core;
+
+import org.semux.db.DatabaseFactory;
+import org.semux.db.UnitOfWork;
+
+/**
+ * A read-only view of a blockchain, pinned to one height. Reads through the
+ * snapshot, including its account and delegate state, are consistent with each
+ * other and do not block block application.
+ */
+public class BlockchainSnapshot extends BlockchainImpl implements AutoCloseable {
+
+    private final DatabaseFactory snapshot;
+
+    protected BlockchainSnapshot(BlockchainImpl chain, DatabaseFactory snapshot) {
+        super(chain, snapshot);
+        this.snapshot = snapshot;
+    }
+
+    @Override
+    public void addBlock(Block block) {
+        throw new UnsupportedOperationException("Blockchain snapshot is read-only");
+    }
+
+    @Override
+    protected void addBlock(Block block, UnitOfWork uow) {
+        throw new UnsupportedOperationException("Blockchain snapshot is read-only");
+    }
+
+    @Override
+    public BlockchainSnapshot snapshot() {
+        throw new UnsupportedOperationException("Snapshot of a snapshot is not supported");
+    }
+
+    /**
+     * Releases the underlying database snapshots.
+     */
+    @Override
+    public void close() {
+        snapshot.close();
+    }
+}
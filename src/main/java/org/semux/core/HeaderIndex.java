@@ -0,0 +1,392 @@
+/**
+ * Copyright (c) 2017-2018 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.core;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongFunction;
+
+import org.semux.consensus.ValidatorActivatedFork;
+import org.semux.util.ByteArray;
+import org.semux.util.Bytes;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A compact in-memory index of all the block headers, made of primitive arrays
+ * indexed by block number: the first 8 bytes of the hash, the timestamp, the id
+ * of the coinbase and the signaled forks. The hash prefixes are also indexed by
+ * an open-addressing table, to look up block numbers by hash.
+ * <p>
+ * It takes about 30 bytes per block. The index is appended by a single writer
+ * and read without locking: the entries below {@link #size()} are immutable,
+ * and published by the volatile write of the size.
+ * <p>
+ * The index is saved to a file every {@link #SAVE_INTERVAL} blocks, in the
+ * background, so it is only caught up with the recent headers on startup.
+ */
+public class HeaderIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(HeaderIndex.class);
+
+    private static final int FILE_MAGIC = 0x53484958;
+    private static final int FILE_VERSION = 1;
+
+    /**
+     * Number of blocks added between two saves of the index.
+     */
+    public static final int SAVE_INTERVAL = 10_000;
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final File file;
+
+    private long[] hashes = new long[INITIAL_CAPACITY];
+    private long[] timestamps = new long[INITIAL_CAPACITY];
+    private int[] coinbases = new int[INITIAL_CAPACITY];
+    private long[] forks = new long[INITIAL_CAPACITY];
+
+    /**
+     * Open-addressing table of <code>block number + 1</code>, keyed by the hash
+     * prefix, with 0 for empty slots.
+     */
+    private int[] table = new int[INITIAL_CAPACITY * 2];
+
+    private final List<byte[]> coinbaseList = new ArrayList<>();
+    private final Map<ByteArray, Integer> coinbaseIds = new HashMap<>();
+
+    private volatile int size;
+
+    private final ExecutorService saver = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "header-index");
+        t.setDaemon(true);
+        return t;
+    });
+
+    /**
+     * Creates an empty header index, saved to the given file.
+     *
+     * @param file
+     */
+    public HeaderIndex(File file) {
+        this.file = file;
+    }
+
+    /**
+     * Returns the number of indexed blocks.
+     *
+     * @return
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Loads the saved index and appends the headers added since, or rebuilds the
+     * index if the file does not match the chain.
+     *
+     * @param latest
+     *            the latest block number
+     * @param loader
+     *            the loader of the headers
+     */
+    public synchronized void load(long latest, LongFunction<BlockHeader> loader) {
+        long t1 = System.nanoTime();
+        if (!read() || size > latest + 1 || (size > 0 && hashes[size - 1] != prefix(loader.apply(size - 1L)))) {
+            clear();
+        }
+
+        int loaded = size;
+        for (long n = size; n <= latest; n++) {
+            add(loader.apply(n));
+        }
+        if (size - loaded >= SAVE_INTERVAL) {
+            save();
+        }
+        logger.info("Loaded the header index: # blocks = {}, # read from the database = {}, time = {} ms", size,
+                size - loaded, (System.nanoTime() - t1) / 1_000_000);
+    }
+
+    /**
+     * Appends the header of the next block.
+     *
+     * @param header
+     */
+    public synchronized void add(BlockHeader header) {
+        int n = size;
+        if (header.getNumber() != n) {
+            throw new IllegalArgumentException("Headers can only be indexed sequentially: number = "
+                    + header.getNumber() + ", expected = " + n);
+        }
+
+        if (n == hashes.length) {
+            int capacity = n * 2;
+            hashes = Arrays.copyOf(hashes, capacity);
+            timestamps = Arrays.copyOf(timestamps, capacity);
+            coinbases = Arrays.copyOf(coinbases, capacity);
+            forks = Arrays.copyOf(forks, capacity);
+        }
+        hashes[n] = prefix(header);
+        timestamps[n] = header.getTimestamp();
+        coinbases[n] = coinbaseId(header.getCoinbase());
+        forks[n] = header.getDecodedData().getForkSignalBits();
+
+        if ((n + 1) * 2 > table.length) {
+            rehash(table.length * 2, n);
+        }
+        insert(table, hashes, n);
+
+        size = n + 1;
+        if (size % SAVE_INTERVAL == 0) {
+            save();
+        }
+    }
+
+    /**
+     * Returns the number of the block whose hash starts with the same 8 bytes as
+     * the given hash.
+     *
+     * @param hash
+     * @return the candidate number, or -1 if there is none
+     */
+    public long getNumber(byte[] hash) {
+        if (hash == null || hash.length < 8) {
+            return -1;
+        }
+
+        int n = size;
+        int[] t = table;
+        long[] h = hashes;
+        long prefix = Bytes.toLong(hash);
+
+        int mask = t.length - 1;
+        for (int i = slot(prefix, mask);; i = (i + 1) & mask) {
+            int v = t[i];
+            if (v == 0) {
+                return -1;
+            }
+            if (v <= n && h[v - 1] == prefix) {
+                return v - 1L;
+            }
+        }
+    }
+
+    /**
+     * Returns whether a block is indexed.
+     *
+     * @param number
+     * @return
+     */
+    public boolean contains(long number) {
+        return number >= 0 && number < size;
+    }
+
+    /**
+     * Returns the timestamp of an indexed block.
+     *
+     * @param number
+     * @return
+     */
+    public long getTimestamp(long number) {
+        check(number);
+        return timestamps[(int) number];
+    }
+
+    /**
+     * Returns the coinbase of an indexed block.
+     *
+     * @param number
+     * @return
+     */
+    public synchronized byte[] getCoinbase(long number) {
+        check(number);
+        return coinbaseList.get(coinbases[(int) number]);
+    }
+
+    /**
+     * Returns whether an indexed block signals a fork numbered from 0 to 63.
+     *
+     * @param number
+     * @param fork
+     * @return
+     */
+    public boolean isSignaling(long number, ValidatorActivatedFork fork) {
+        check(number);
+        if (fork.number < 0 || fork.number >= Long.SIZE) {
+            throw new IllegalArgumentException("Fork number out of the index: " + fork.number);
+        }
+        return (forks[(int) number] & (1L << fork.number)) != 0;
+    }
+
+    /**
+     * Stops saving the index in the background, waiting for the pending save.
+     */
+    public void close() {
+        saver.shutdown();
+        try {
+            saver.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void check(long number) {
+        if (!contains(number)) {
+            throw new IllegalArgumentException("Block " + number + " is not indexed");
+        }
+    }
+
+    private static long prefix(BlockHeader header) {
+        return Bytes.toLong(header.getHash());
+    }
+
+    private static int slot(long prefix, int mask) {
+        // hashes are uniformly distributed already
+        return (int) (prefix ^ (prefix >>> 32)) & mask;
+    }
+
+    private static void insert(int[] t, long[] h, int n) {
+        int mask = t.length - 1;
+        int i = slot(h[n], mask);
+        while (t[i] != 0) {
+            i = (i + 1) & mask;
+        }
+        t[i] = n + 1;
+    }
+
+    private void rehash(int capacity, int n) {
+        int[] t = new int[capacity];
+        for (int i = 0; i < n; i++) {
+            insert(t, hashes, i);
+        }
+        table = t;
+    }
+
+    private int coinbaseId(byte[] coinbase) {
+        return coinbaseIds.computeIfAbsent(ByteArray.of(coinbase), k -> {
+            coinbaseList.add(coinbase);
+            return coinbaseList.size() - 1;
+        });
+    }
+
+    private void clear() {
+        size = 0;
+        hashes = new long[INITIAL_CAPACITY];
+        timestamps = new long[INITIAL_CAPACITY];
+        coinbases = new int[INITIAL_CAPACITY];
+        forks = new long[INITIAL_CAPACITY];
+        table = new int[INITIAL_CAPACITY * 2];
+        coinbaseList.clear();
+        coinbaseIds.clear();
+    }
+
+    /**
+     * Saves the index in the background. The entries up to the current size are
+     * never modified, so the arrays are only copied by reference.
+     */
+    private void save() {
+        int n = size;
+        long[] h = hashes;
+        long[] ts = timestamps;
+        int[] cb = coinbases;
+        long[] fk = forks;
+        List<byte[]> coinbaseCopy = new ArrayList<>(coinbaseList);
+
+        saver.submit(() -> {
+            File tmp = new File(file.getPath() + ".tmp");
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(new FileOutputStream(tmp), 1 << 16))) {
+                out.writeInt(FILE_MAGIC);
+                out.writeInt(FILE_VERSION);
+                out.writeInt(n);
+                for (int i = 0; i < n; i++) {
+                    out.writeLong(h[i]);
+                    out.writeLong(ts[i]);
+                    out.writeInt(cb[i]);
+                    out.writeLong(fk[i]);
+                }
+                out.writeInt(coinbaseCopy.size());
+                for (byte[] coinbase : coinbaseCopy) {
+                    out.writeShort(coinbase.length);
+                    out.write(coinbase);
+                }
+            } catch (IOException e) {
+                logger.warn("Failed to save the header index", e);
+                return;
+            }
+
+            try {
+                Files.move(tmp.toPath(), file.toPath(), REPLACE_EXISTING, ATOMIC_MOVE);
+            } catch (IOException e) {
+                logger.warn("Failed to save the header index", e);
+            }
+        });
+    }
+
+    /**
+     * Reads the saved index, if any.
+     *
+     * @return whether the file was read
+     */
+    private boolean read() {
+        if (!file.exists()) {
+            return false;
+        }
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 1 << 16))) {
+            if (in.readInt() != FILE_MAGIC || in.readInt() != FILE_VERSION) {
+                return false;
+            }
+
+            int n = in.readInt();
+            int capacity = Math.max(Integer.highestOneBit(Math.max(n, 1)) * 2, INITIAL_CAPACITY);
+            hashes = new long[capacity];
+            timestamps = new long[capacity];
+            coinbases = new int[capacity];
+            forks = new long[capacity];
+            for (int i = 0; i < n; i++) {
+                hashes[i] = in.readLong();
+                timestamps[i] = in.readLong();
+                coinbases[i] = in.readInt();
+                forks[i] = in.readLong();
+            }
+
+            int m = in.readInt();
+            for (int i = 0; i < m; i++) {
+                byte[] coinbase = new byte[in.readShort()];
+                in.readFully(coinbase);
+                coinbaseId(coinbase);
+            }
+
+            rehash(capacity * 2, n);
+            size = n;
+            return true;
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Failed to read the header index, rebuilding it", e);
+            clear();
+            return false;
+        }
+    }
+}
@@ -153,9 +153,16 @@ public class PendingManager implements Runnable, BlockchainListener {
      *
      * @param tx
      */
-    public synchronized void addTransaction(Transaction tx) {
-        if (queue.size() < QUEUE_MAX_SIZE && tx.validate(kernel.getConfig().network())) {
-            queue.add(tx);
+    public void addTransaction(Transaction tx) {
+        // verified out of the monitor, which block processing and proposing need
+        if (isQueueFull() || !validate(tx)) {
+            return;
+        }
+
+        synchronized (this) {
+            if (queue.size() < QUEUE_MAX_SIZE) {
+                queue.add(tx);
+            }
         }
     }
 
@@ -166,12 +173,15 @@ public class PendingManager implements Runnable, BlockchainListener {
      *            The transaction
      * @return The processing result
      */
-    public synchronized ProcessTransactionResult addTransactionSync(Transaction tx) {
-        if (/* queue/transactions limits are ignored */ tx.validate(kernel.getConfig().network())) {
-            return processTransaction(tx, true);
-        } else {
+    public ProcessTransactionResult addTransactionSync(Transaction tx) {
+        // verified out of the monitor, which block processing and proposing need
+        if (/* queue/transactions limits are ignored */ !validate(tx)) {
             return new ProcessTransactionResult(0, TransactionResult.Error.INVALID_FORMAT);
         }
+
+        synchronized (this) {
+            return processTransaction(tx, true);
+        }
     }
 
     /**
@@ -348,6 +358,10 @@ public class PendingManager implements Runnable, BlockchainListener {
                     }
                 }
             } else {
+                // discard the partial updates, as the nested states share the pending write set
+                as.rollback();
+                ds.rollback();
+
                 // exit immediately if invalid
                 return new ProcessTransactionResult(cnt, result.getError());
             }
@@ -365,6 +379,21 @@ public class PendingManager implements Runnable, BlockchainListener {
         return new ProcessTransactionResult(cnt);
     }
 
+    /**
+     * Validates a transaction on the calling thread, caching its signature for the
+     * blocks which include it later.
+     *
+     * @param tx
+     * @return
+     */
+    private boolean validate(Transaction tx) {
+        return tx.validate(kernel.getConfig().network(), kernel.getVerifiedTransactionCache());
+    }
+
+    private synchronized boolean isQueueFull() {
+        return queue.size() >= QUEUE_MAX_SIZE;
+    }
+
     private ByteArray createKey(Transaction tx) {
         return ByteArray.of(Bytes.merge(tx.getFrom(), Bytes.of(tx.getNonce())));
     }
@@ -68,7 +68,7 @@ public class Transaction {
         this.timestamp = timestamp;
         this.data = data;
 
-        SimpleEncoder enc = new SimpleEncoder();
+        SimpleEncoder enc = new SimpleEncoder(2 + SimpleEncoder.sizeOf(to) + 32 + SimpleEncoder.sizeOf(data));
         enc.writeByte(networkId);
         enc.writeByte(type.toByte());
         enc.writeBytes(to);
@@ -129,6 +129,19 @@ public class Transaction {
      * @return true if success, otherwise false
      */
     public boolean validate(Network network) {
+        return validate(network, null);
+    }
+
+    /**
+     * Validates transaction format and signature, skipping the signatures found in
+     * the cache of verified signatures.
+     *
+     * @param network
+     * @param verified
+     *            the cache of verified signatures, or null
+     * @return true if success, otherwise false
+     */
+    public boolean validate(Network network, VerifiedTransactionCache verified) {
         return hash != null && hash.length == Hash.HASH_LEN
                 && networkId == network.id()
                 && type != null
@@ -142,7 +155,7 @@ public class Transaction {
                 && signature != null && !Arrays.equals(signature.getAddress(), EMPTY_ADDRESS)
 
                 && Arrays.equals(Hash.h256(encoded), hash)
-                && Key.verify(hash, signature)
+                && (verified == null ? Key.verify(hash, signature) : verified.verify(hash, signature))
 
                 // The coinbase key is publicly available. People can use it for transactions.
                 // It won't introduce any fundamental loss to the system but could potentially
@@ -289,10 +302,12 @@ public class Transaction {
      * @return
      */
     public byte[] toBytes() {
-        SimpleEncoder enc = new SimpleEncoder();
+        byte[] sig = signature.toBytes();
+        SimpleEncoder enc = new SimpleEncoder(
+                SimpleEncoder.sizeOf(hash) + SimpleEncoder.sizeOf(encoded) + SimpleEncoder.sizeOf(sig));
         enc.writeBytes(hash);
         enc.writeBytes(encoded);
-        enc.writeBytes(signature.toBytes());
+        enc.writeBytes(sig);
 
         return enc.toBytes();
     }
@@ -312,6 +327,25 @@ public class Transaction {
         return new Transaction(hash, encoded, signature);
     }
 
+    /**
+     * Reads the nonce of a transaction in the format of {@link #toBytes()}, without
+     * parsing the rest of it.
+     *
+     * @param bytes
+     * @return
+     */
+    public static long readNonce(byte[] bytes) {
+        SimpleDecoder dec = new SimpleDecoder(bytes);
+        dec.skipBytes(); // hash
+        dec = new SimpleDecoder(dec.readBytes());
+        dec.readByte(); // network id
+        dec.readByte(); // type
+        dec.skipBytes(); // to
+        dec.readLong(); // value
+        dec.readLong(); // fee
+        return dec.readLong();
+    }
+
     /**
      * Returns size of the transaction in bytes
      *
@@ -0,0 +1,322 @@
+/**
+ * Copyright (c) 2017-2018 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.core;
+
+import static org.semux.core.BlockchainImpl.TYPE_ACCOUNT_TRANSACTION;
+import static org.semux.core.BlockchainImpl.TYPE_COINBASE_TRANSACTION_HASH;
+import static org.semux.core.BlockchainImpl.TYPE_TRANSACTION_HASH;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.commons.lang3.tuple.Pair;
+import org.semux.config.Config;
+import org.semux.config.Constants;
+import org.semux.db.Database;
+import org.semux.db.DatabaseName;
+import org.semux.db.UnitOfWork;
+import org.semux.util.ByteArray;
+import org.semux.util.Bytes;
+import org.semux.util.ClosableIterator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Builds the secondary indexes of the blockchain, which the consensus does not
+ * depend on.
+ *
+ * <pre>
+ * index DB structure:
+ *
+ * [4, coinbase_transaction_hash] => [coinbase_transaction]
+ * [5, address] => [total_transactions]
+ * [5, address, n] => [transaction_hash]
+ * [7, block_number] => [coinbase_transaction_hash]
+ * [12] => [last indexed block number]
+ * </pre>
+ *
+ * By default, the indexes are updated in the unit of work of each block. With
+ * asynchronous indexing, they are built off the block commit path by a
+ * background thread, which catches up with the chain in batches, so the queries
+ * lag slightly behind the latest block. In both cases, the last indexed block
+ * is written atomically with the indexes, and the indexes can be rebuilt from
+ * the blocks with {@link #reindex()}.
+ */
+public class TransactionIndexer implements BlockchainListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(TransactionIndexer.class);
+
+    protected static final byte TYPE_INDEXED_BLOCK_NUMBER = 0x0c;
+
+    /**
+     * Max number of blocks indexed per write batch.
+     */
+    protected static final int BATCH_SIZE = 256;
+    private static final int PURGE_BATCH_SIZE = 10_000;
+
+    private final Config config;
+    private final BlockchainImpl chain;
+    private final Database indexDB;
+
+    /**
+     * The last indexed block, or -1 if the indexes are empty or being rebuilt.
+     */
+    private volatile long indexed;
+
+    private ExecutorService exec;
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+
+    /**
+     * Creates an indexer of a blockchain.
+     *
+     * @param config
+     * @param chain
+     * @param indexDB
+     */
+    public TransactionIndexer(Config config, BlockchainImpl chain, Database indexDB) {
+        this.config = config;
+        this.chain = chain;
+        this.indexDB = indexDB;
+
+        byte[] number = indexDB.get(Bytes.of(TYPE_INDEXED_BLOCK_NUMBER));
+        this.indexed = (number == null) ? -1 : Bytes.toLong(number);
+    }
+
+    /**
+     * Marks the indexes of a database created before the indexed block number was
+     * recorded as complete, since they used to be built with each block.
+     *
+     * @param latest
+     *            the latest block number
+     */
+    public synchronized void initialize(long latest) {
+        if (indexDB.get(Bytes.of(TYPE_INDEXED_BLOCK_NUMBER)) == null) {
+            indexDB.put(Bytes.of(TYPE_INDEXED_BLOCK_NUMBER), Bytes.of(latest));
+            indexed = latest;
+        }
+    }
+
+    /**
+     * Starts indexing in the background, if asynchronous indexing is enabled.
+     */
+    public synchronized void start() {
+        if (config.dbAsyncIndexing() && exec == null) {
+            exec = Executors.newSingleThreadExecutor(r -> {
+                Thread t = new Thread(r, "indexer");
+                t.setDaemon(true);
+                return t;
+            });
+            chain.addListener(this);
+            schedule();
+        }
+    }
+
+    /**
+     * Stops indexing in the background, waiting for the running batch.
+     */
+    public void stop() {
+        ExecutorService e;
+        synchronized (this) {
+            e = exec;
+            exec = null;
+        }
+        if (e != null) {
+            e.shutdown();
+            try {
+                e.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @Override
+    public void onBlockAdded(Block block) {
+        schedule();
+    }
+
+    private synchronized void schedule() {
+        if (exec != null && scheduled.compareAndSet(false, true)) {
+            exec.submit(() -> {
+                scheduled.set(false);
+                try {
+                    catchUp();
+                } catch (RuntimeException e) {
+                    logger.error("Failed to index blocks", e);
+                }
+            });
+        }
+    }
+
+    /**
+     * Returns the last indexed block number.
+     *
+     * @return
+     */
+    public long getIndexedBlockNumber() {
+        return indexed;
+    }
+
+    /**
+     * Indexes a block in its unit of work, after catching up with the previous
+     * blocks if needed.
+     *
+     * @param block
+     * @param uow
+     */
+    public synchronized void index(Block block, UnitOfWork uow) {
+        long number = block.getNumber();
+        catchUp(number - 1);
+        if (indexed != number - 1) {
+            return;
+        }
+
+        Map<ByteArray, byte[]> writes = new HashMap<>();
+        index(block, writes);
+        for (Entry<ByteArray, byte[]> e : writes.entrySet()) {
+            uow.put(DatabaseName.INDEX, e.getKey().getData(), e.getValue());
+        }
+        uow.put(DatabaseName.INDEX, Bytes.of(TYPE_INDEXED_BLOCK_NUMBER), Bytes.of(number));
+        uow.onCommit(() -> indexed = number);
+    }
+
+    /**
+     * Indexes the blocks up to the latest block.
+     */
+    public synchronized void catchUp() {
+        catchUp(chain.getLatestBlockNumber());
+    }
+
+    protected void catchUp(long target) {
+        if (indexed < 0) {
+            // completes an interrupted rebuild
+            purge();
+        }
+
+        long t1 = System.nanoTime();
+        long from = indexed + 1;
+        while (indexed < target) {
+            long to = Math.min(target, indexed + BATCH_SIZE);
+
+            Map<ByteArray, byte[]> writes = new HashMap<>();
+            for (long n = indexed + 1; n <= to; n++) {
+                index(chain.getBlock(n), writes);
+            }
+
+            List<Pair<byte[], byte[]>> pairs = new ArrayList<>(writes.size() + 1);
+            for (Entry<ByteArray, byte[]> e : writes.entrySet()) {
+                pairs.add(Pair.of(e.getKey().getData(), e.getValue()));
+            }
+            pairs.add(Pair.of(Bytes.of(TYPE_INDEXED_BLOCK_NUMBER), Bytes.of(to)));
+            indexDB.updateBatch(pairs);
+            indexed = to;
+        }
+
+        if (target - from > BATCH_SIZE) {
+            logger.info("Indexed blocks: from = {}, to = {}, time = {} ms", from, target,
+                    (System.nanoTime() - t1) / 1_000_000);
+        }
+    }
+
+    /**
+     * Rebuilds the indexes from the blocks. When indexing asynchronously, the
+     * indexes are rebuilt in the background.
+     */
+    public synchronized void reindex() {
+        indexDB.put(Bytes.of(TYPE_INDEXED_BLOCK_NUMBER), Bytes.of(-1L));
+        indexed = -1;
+
+        if (exec != null) {
+            schedule();
+        } else {
+            catchUp();
+        }
+    }
+
+    /**
+     * Removes all the entries of the indexes.
+     */
+    protected void purge() {
+        List<Pair<byte[], byte[]>> pairs = new ArrayList<>();
+
+        ClosableIterator<Entry<byte[], byte[]>> itr = indexDB.prefixIterator(Bytes.of(TYPE_COINBASE_TRANSACTION_HASH));
+        while (itr.hasNext()) {
+            Entry<byte[], byte[]> e = itr.next();
+            pairs.add(Pair.of(Bytes.merge(TYPE_TRANSACTION_HASH, e.getValue()), null));
+            pairs.add(Pair.of(e.getKey(), null));
+            if (pairs.size() >= PURGE_BATCH_SIZE) {
+                indexDB.updateBatch(pairs);
+                pairs.clear();
+            }
+        }
+        itr.close();
+
+        itr = indexDB.prefixIterator(Bytes.of(TYPE_ACCOUNT_TRANSACTION));
+        while (itr.hasNext()) {
+            pairs.add(Pair.of(itr.next().getKey(), null));
+            if (pairs.size() >= PURGE_BATCH_SIZE) {
+                indexDB.updateBatch(pairs);
+                pairs.clear();
+            }
+        }
+        itr.close();
+
+        indexDB.updateBatch(pairs);
+    }
+
+    /**
+     * Stages the index entries of a block.
+     */
+    protected void index(Block block, Map<ByteArray, byte[]> writes) {
+        long number = block.getNumber();
+        Amount reward = config.getBlockReward(number);
+
+        for (Transaction tx : block.getTransactions()) {
+            reward = Amount.sum(reward, tx.getFee());
+
+            addTransactionToAccount(writes, tx, tx.getFrom());
+            if (!Arrays.equals(tx.getFrom(), tx.getTo())) {
+                addTransactionToAccount(writes, tx, tx.getTo());
+            }
+        }
+
+        if (number != chain.getGenesis().getNumber()) {
+            Transaction tx = new Transaction(config.network(),
+                    TransactionType.COINBASE,
+                    block.getCoinbase(),
+                    reward,
+                    Amount.ZERO,
+                    block.getNumber(),
+                    block.getTimestamp(),
+                    Bytes.EMPTY_BYTES);
+            tx.sign(Constants.COINBASE_KEY);
+            writes.put(ByteArray.of(Bytes.merge(TYPE_TRANSACTION_HASH, tx.getHash())), tx.toBytes());
+            writes.put(ByteArray.of(Bytes.merge(TYPE_COINBASE_TRANSACTION_HASH, Bytes.of(block.getNumber()))),
+                    tx.getHash());
+            addTransactionToAccount(writes, tx, block.getCoinbase());
+        }
+    }
+
+    /**
+     * Adds a transaction to an account.
+     */
+    protected void addTransactionToAccount(Map<ByteArray, byte[]> writes, Transaction tx, byte[] address) {
+        ByteArray key = ByteArray.of(Bytes.merge(TYPE_ACCOUNT_TRANSACTION, address));
+        byte[] cnt = writes.containsKey(key) ? writes.get(key) : indexDB.get(key.getData());
+        int total = (cnt == null) ? 0 : Bytes.toInt(cnt);
+        writes.put(ByteArray.of(BlockchainImpl.getNthTransactionIndexKey(address, total)), tx.getHash());
+        writes.put(key, Bytes.of(total + 1));
+    }
+}
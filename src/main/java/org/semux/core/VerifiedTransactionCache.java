@@ -0,0 +1,94 @@
+/**
+ * Copyright (c) 2017-2018 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.core;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import org.semux.crypto.Key;
+import org.semux.crypto.Key.Signature;
+import org.semux.util.ByteArray;
+import org.semux.util.Bytes;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+/**
+ * A node-wide cache of the transaction signatures which have been verified,
+ * keyed by the transaction hash and the signature.
+ * <p>
+ * The pending manager verifies the transactions as they are received, so the
+ * transactions of the blocks proposed or synced later are not verified again.
+ * Only valid signatures are cached; the hash of the transaction still has to be
+ * checked against its encoding.
+ */
+public class VerifiedTransactionCache {
+
+    public static final long DEFAULT_MAX_SIZE = 64 * 1024;
+
+    private final Cache<ByteArray, Boolean> cache;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * Creates a cache of verified signatures.
+     *
+     * @param maxSize
+     *            the max number of cached signatures
+     */
+    public VerifiedTransactionCache(long maxSize) {
+        this.cache = Caffeine.newBuilder().maximumSize(maxSize).build();
+    }
+
+    /**
+     * Creates a cache of verified signatures with the default size.
+     */
+    public VerifiedTransactionCache() {
+        this(DEFAULT_MAX_SIZE);
+    }
+
+    /**
+     * Verifies the signature of a transaction hash, unless it has been verified
+     * already.
+     *
+     * @param hash
+     * @param signature
+     * @return
+     */
+    public boolean verify(byte[] hash, Signature signature) {
+        ByteArray key = ByteArray.of(Bytes.merge(hash, signature.toBytes()));
+        if (cache.getIfPresent(key) != null) {
+            hits.increment();
+            return true;
+        }
+
+        misses.increment();
+        boolean valid = Key.verify(hash, signature);
+        if (valid) {
+            cache.put(key, Boolean.TRUE);
+        }
+        return valid;
+    }
+
+    /**
+     * Returns the number of signatures found verified already.
+     *
+     * @return
+     */
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * Returns the number of signatures which had to be verified.
+     *
+     * @return
+     */
+    public long getMissCount() {
+        return misses.sum();
+    }
+}
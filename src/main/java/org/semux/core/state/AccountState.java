@@ -7,6 +7,7 @@
 package org.semux.core.state;
 
 import org.semux.core.Amount;
+import org.semux.db.UnitOfWork;
 
 public interface AccountState {
 
@@ -82,6 +83,19 @@ public interface AccountState {
      */
     void removeStorage(byte[] address, byte[] key);
 
+    /**
+     * Returns a read-only view of the state as of a past block, i.e. after the
+     * block has been applied.
+     *
+     * @param height
+     * @return
+     * @throws UnsupportedOperationException
+     *             if the state history is not enabled
+     * @throws IllegalArgumentException
+     *             if the block is out of the state history
+     */
+    AccountState at(long height);
+
     /**
      * Makes a snapshot and starts tracking further updates.
      */
@@ -92,6 +106,14 @@ public interface AccountState {
      */
     void commit();
 
+    /**
+     * Commits all updates since last snapshot into a unit of work. The updates
+     * remain visible through this state until the unit of work is flushed.
+     *
+     * @param uow
+     */
+    void commit(UnitOfWork uow);
+
     /**
      * Reverts all updates since last snapshot.
      */
@@ -8,15 +8,23 @@ package org.semux.core.state;
 
 import static org.semux.core.Amount.sum;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
 import java.util.concurrent.ConcurrentHashMap;
 
+import org.apache.commons.lang3.tuple.Pair;
 import org.semux.core.Amount;
 import org.semux.db.Database;
+import org.semux.db.DatabaseName;
+import org.semux.db.UnitOfWork;
 import org.semux.util.ByteArray;
 import org.semux.util.Bytes;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
 /**
  * Account state implementation.
  * 
@@ -34,13 +42,46 @@ public class AccountStateImpl implements AccountState {
     protected static final byte TYPE_CODE = 1;
     protected static final byte TYPE_STORAGE = 2;
 
+    /**
+     * Default max number of decoded accounts kept in memory.
+     */
+    public static final long DEFAULT_CACHE_SIZE = 100_000;
+
+    /**
+     * Checkpoint of a tracked state which owns its journal.
+     */
+    private static final int NO_CHECKPOINT = -1;
+
     protected Database accountDB;
-    protected AccountStateImpl prev;
 
     /**
-     * All updates, or deletes if the value is null.
+     * The root state, or null if this is the root.
      */
-    protected final Map<ByteArray, byte[]> updates = new ConcurrentHashMap<>();
+    protected final AccountStateImpl root;
+
+    /**
+     * The write set shared by a tracked state and the states nested in it, or null
+     * if this is the root.
+     */
+    protected final Journal<Account> journal;
+    protected final int checkpoint;
+
+    /**
+     * Decoded accounts of the database, shared across blocks. Only the root state
+     * over the live database has one.
+     */
+    protected Cache<ByteArray, Account> cache;
+
+    /**
+     * All updates of the root, keyed by address. The accounts are never modified
+     * once they have been put here.
+     */
+    protected final Map<ByteArray, Account> updates = new ConcurrentHashMap<>();
+
+    /**
+     * The per-block history of the database, or null if not recorded.
+     */
+    protected StateHistory history;
 
     /**
      * Create an {@link AccountState} that work directly on a database.
@@ -48,59 +89,100 @@ public class AccountStateImpl implements AccountState {
      * @param accountDB
      */
     public AccountStateImpl(Database accountDB) {
+        this(accountDB, DEFAULT_CACHE_SIZE);
+    }
+
+    /**
+     * Create an {@link AccountState} that work directly on a database, with a cache
+     * of decoded accounts.
+     *
+     * @param accountDB
+     * @param cacheSize
+     *            the max number of cached accounts, or 0 to disable the cache
+     */
+    public AccountStateImpl(Database accountDB, long cacheSize) {
         this.accountDB = accountDB;
+        this.root = null;
+        this.journal = null;
+        this.checkpoint = NO_CHECKPOINT;
+        if (cacheSize > 0) {
+            this.cache = Caffeine.newBuilder().maximumSize(cacheSize).recordStats().build();
+        }
     }
 
     /**
-     * Create an {@link AccountState} based on a previous AccountState.
+     * Create an {@link AccountState} based on a previous AccountState. A state
+     * tracked from the root gets its own write set, while a state nested in a
+     * tracked state shares the write set of the latter, from a checkpoint.
      * 
      * @param prev
      */
     public AccountStateImpl(AccountStateImpl prev) {
-        this.prev = prev;
+        if (prev.root == null) {
+            this.root = prev;
+            this.journal = new Journal<>();
+            this.checkpoint = NO_CHECKPOINT;
+        } else {
+            this.root = prev.root;
+            this.journal = prev.journal;
+            this.checkpoint = prev.journal.checkpoint();
+        }
+    }
+
+    /**
+     * Creates a root {@link AccountState} over another database, e.g. a snapshot,
+     * which carries over the pending updates of this state. The cache is not
+     * shared, as it follows the live database.
+     * <p>
+     * The updates are copied under the lock of {@link #commit()}, so the copy never
+     * holds part of a tracked state.
+     *
+     * @param accountDB
+     * @return
+     */
+    public AccountStateImpl copy(Database accountDB) {
+        AccountStateImpl as = new AccountStateImpl(accountDB, 0);
+        synchronized (updates) {
+            as.updates.putAll(updates);
+        }
+        return as;
     }
 
     @Override
     public Account getAccount(byte[] address) {
-        ByteArray k = getKey(TYPE_ACCOUNT, address);
-        Amount noAmount = Amount.ZERO;
-
-        if (updates.containsKey(k)) {
-            byte[] v = updates.get(k);
-            return v == null ? new Account(address, noAmount, noAmount, 0) : Account.fromBytes(address, v);
-        } else if (prev != null) {
-            return prev.getAccount(address);
+        ByteArray k = ByteArray.of(address);
+
+        if (root != null) {
+            Account acc = journal.get(k);
+            return acc != null ? acc : root.getAccount(address);
+        }
+
+        Account acc = updates.get(k);
+        if (acc != null) {
+            return acc;
+        } else if (cache != null) {
+            return cache.get(k, key -> loadAccount(address));
         } else {
-            byte[] v = accountDB.get(k.getData());
-            return v == null ? new Account(address, noAmount, noAmount, 0) : Account.fromBytes(address, v);
+            return loadAccount(address);
         }
     }
 
     @Override
     public void increaseNonce(byte[] address) {
-        ByteArray k = getKey(TYPE_ACCOUNT, address);
-
         Account acc = getAccount(address);
-        acc.setNonce(acc.getNonce() + 1);
-        updates.put(k, acc.toBytes());
+        put(address, new Account(address, acc.getAvailable(), acc.getLocked(), acc.getNonce() + 1));
     }
 
     @Override
     public void adjustAvailable(byte[] address, Amount delta) {
-        ByteArray k = getKey(TYPE_ACCOUNT, address);
-
         Account acc = getAccount(address);
-        acc.setAvailable(sum(acc.getAvailable(), delta));
-        updates.put(k, acc.toBytes());
+        put(address, new Account(address, sum(acc.getAvailable(), delta), acc.getLocked(), acc.getNonce()));
     }
 
     @Override
     public void adjustLocked(byte[] address, Amount delta) {
-        ByteArray k = getKey(TYPE_ACCOUNT, address);
-
         Account acc = getAccount(address);
-        acc.setLocked(sum(acc.getLocked(), delta));
-        updates.put(k, acc.toBytes());
+        put(address, new Account(address, acc.getAvailable(), sum(acc.getLocked(), delta), acc.getNonce()));
     }
 
     @Override
@@ -128,6 +210,24 @@ public class AccountStateImpl implements AccountState {
         throw new UnsupportedOperationException("removeStorage() is not yet yet supported");
     }
 
+    /**
+     * Sets the history the past states are resolved from.
+     *
+     * @param history
+     */
+    public void setHistory(StateHistory history) {
+        this.history = history;
+    }
+
+    @Override
+    public AccountState at(long height) {
+        StateHistory h = root != null ? root.history : history;
+        if (h == null) {
+            throw new UnsupportedOperationException("State history is not enabled");
+        }
+        return new AccountStateImpl(h.at(DatabaseName.ACCOUNT, height), 0);
+    }
+
     @Override
     public AccountState track() {
         return new AccountStateImpl(this);
@@ -135,28 +235,98 @@ public class AccountStateImpl implements AccountState {
 
     @Override
     public void commit() {
-        synchronized (updates) {
-            if (prev == null) {
-                for (Map.Entry<ByteArray, byte[]> entry : updates.entrySet()) {
-                    if (entry.getValue() == null) {
-                        accountDB.delete(entry.getKey().getData());
-                    } else {
-                        accountDB.put(entry.getKey().getData(), entry.getValue());
-                    }
+        if (root != null) {
+            if (checkpoint == NO_CHECKPOINT) {
+                synchronized (root.updates) {
+                    root.updates.putAll(journal.getWrites());
                 }
+                journal.clear();
             } else {
-                for (Entry<ByteArray, byte[]> e : updates.entrySet()) {
-                    prev.updates.put(e.getKey(), e.getValue());
-                }
+                journal.commit();
+            }
+            return;
+        }
+
+        synchronized (updates) {
+            List<Pair<byte[], byte[]>> batch = new ArrayList<>(updates.size());
+            for (Map.Entry<ByteArray, Account> entry : updates.entrySet()) {
+                batch.add(Pair.of(getKey(TYPE_ACCOUNT, entry.getKey().getData()).getData(),
+                        entry.getValue().toBytes()));
+            }
+            accountDB.updateBatch(batch);
+            if (cache != null) {
+                cache.putAll(updates);
             }
 
             updates.clear();
         }
     }
 
+    @Override
+    public void commit(UnitOfWork uow) {
+        if (root != null) {
+            commit();
+            return;
+        }
+
+        synchronized (updates) {
+            Map<ByteArray, Account> staged = new HashMap<>(updates);
+            for (Map.Entry<ByteArray, Account> entry : staged.entrySet()) {
+                uow.put(DatabaseName.ACCOUNT, getKey(TYPE_ACCOUNT, entry.getKey().getData()).getData(),
+                        entry.getValue().toBytes());
+            }
+
+            // keep the updates visible until they reach the database, then write
+            // them back to the cache
+            uow.onCommit(() -> staged.forEach((k, v) -> {
+                if (cache != null) {
+                    cache.put(k, v);
+                }
+                updates.remove(k, v);
+            }));
+        }
+    }
+
     @Override
     public void rollback() {
-        updates.clear();
+        if (root == null) {
+            updates.clear();
+        } else if (checkpoint == NO_CHECKPOINT) {
+            journal.clear();
+        } else {
+            journal.revert(checkpoint);
+        }
+    }
+
+    /**
+     * Returns the number of account reads served by the cache.
+     *
+     * @return
+     */
+    public long getCacheHitCount() {
+        return cache == null ? 0 : cache.stats().hitCount();
+    }
+
+    /**
+     * Returns the number of account reads served by the database.
+     *
+     * @return
+     */
+    public long getCacheMissCount() {
+        return cache == null ? 0 : cache.stats().missCount();
+    }
+
+    protected void put(byte[] address, Account acc) {
+        if (root != null) {
+            journal.put(ByteArray.of(address), acc);
+        } else {
+            updates.put(ByteArray.of(address), acc);
+        }
+    }
+
+    protected Account loadAccount(byte[] address) {
+        byte[] v = accountDB.get(getKey(TYPE_ACCOUNT, address).getData());
+        return v == null ? new Account(address, Amount.ZERO, Amount.ZERO, 0) : Account.fromBytes(address, v);
     }
 
     protected ByteArray getKey(byte type, byte[] address) {
@@ -0,0 +1,188 @@
+/**
+ * Copyright (c) 2017-2018 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.core.state;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+import org.semux.util.ByteArray;
+
+/**
+ * An in-memory ranking of delegates, by votes in descending order then by name.
+ * Updates take O(log n).
+ * <p>
+ * The indexed delegates must not be modified.
+ */
+public class DelegateIndex {
+
+    /**
+     * The order of the delegates in the ranking: by votes in descending order, then
+     * by name, then by address.
+     */
+    public static final Comparator<Delegate> RANKING = (d1, d2) -> {
+        int cmp = d2.getVotes().compareTo(d1.getVotes());
+        if (cmp == 0) {
+            cmp = d1.getNameString().compareTo(d2.getNameString());
+        }
+        return (cmp != 0) ? cmp : ByteArray.of(d1.getAddress()).compareTo(ByteArray.of(d2.getAddress()));
+    };
+
+    private final Map<ByteArray, Delegate> delegates = new HashMap<>();
+    private final TreeSet<Delegate> ranking = new TreeSet<>(RANKING);
+
+    /**
+     * Adds or replaces a delegate.
+     *
+     * @param d
+     */
+    synchronized void put(Delegate d) {
+        Delegate old = delegates.put(ByteArray.of(d.getAddress()), d);
+        if (old != null) {
+            ranking.remove(old);
+        }
+        ranking.add(d);
+    }
+
+    /**
+     * Removes a delegate, if present.
+     *
+     * @param address
+     */
+    synchronized void remove(byte[] address) {
+        Delegate old = delegates.remove(ByteArray.of(address));
+        if (old != null) {
+            ranking.remove(old);
+        }
+    }
+
+    synchronized int size() {
+        return ranking.size();
+    }
+
+    /**
+     * Returns the delegates ranked within <code>[from, to)</code>.
+     *
+     * @param from
+     * @param to
+     * @return
+     */
+    synchronized List<Delegate> range(int from, int to) {
+        List<Delegate> list = new ArrayList<>(Math.max(0, Math.min(to, ranking.size()) - from));
+        Iterator<Delegate> itr = ranking.iterator();
+        for (int i = 0; i < to && itr.hasNext(); i++) {
+            Delegate d = itr.next();
+            if (i >= from) {
+                list.add(d);
+            }
+        }
+        return list;
+    }
+
+    /**
+     * Returns the zero-based rank of a delegate. This takes time proportional to
+     * the rank, which is small for the delegates of interest.
+     *
+     * @param address
+     * @return the rank, or -1 if the delegate does not exist
+     */
+    synchronized int rank(byte[] address) {
+        Delegate d = delegates.get(ByteArray.of(address));
+        return d == null ? -1 : ranking.headSet(d).size();
+    }
+
+    /**
+     * Returns the delegates ranked within <code>[from, to)</code>, with the given
+     * delegates in place of the indexed ones of the same address. The index itself
+     * is left untouched, and the cost grows with <code>to</code> and the size of
+     * the overlay only.
+     *
+     * @param from
+     * @param to
+     * @param overlay
+     *            delegates by address
+     * @return
+     */
+    synchronized List<Delegate> range(int from, int to, Map<ByteArray, Delegate> overlay) {
+        if (overlay.isEmpty()) {
+            return range(from, to);
+        }
+
+        List<Delegate> sorted = new ArrayList<>(overlay.values());
+        sorted.sort(RANKING);
+        Iterator<Delegate> over = sorted.iterator();
+        Iterator<Delegate> base = ranking.iterator();
+
+        List<Delegate> list = new ArrayList<>();
+        Delegate b = next(base, overlay);
+        Delegate o = over.next();
+        for (int i = 0; i < to && (b != null || o != null); i++) {
+            Delegate d;
+            if (o == null || (b != null && RANKING.compare(b, o) < 0)) {
+                d = b;
+                b = next(base, overlay);
+            } else {
+                d = o;
+                o = over.hasNext() ? over.next() : null;
+            }
+            if (i >= from) {
+                list.add(d);
+            }
+        }
+        return list;
+    }
+
+    /**
+     * Returns the zero-based rank of a delegate, with the given delegates in place
+     * of the indexed ones of the same address.
+     *
+     * @param address
+     * @param overlay
+     *            delegates by address
+     * @return the rank, or -1 if the delegate does not exist
+     */
+    synchronized int rank(byte[] address, Map<ByteArray, Delegate> overlay) {
+        ByteArray k = ByteArray.of(address);
+        Delegate d = overlay.containsKey(k) ? overlay.get(k) : delegates.get(k);
+        if (d == null) {
+            return -1;
+        }
+
+        int rank = ranking.headSet(d).size();
+        for (Map.Entry<ByteArray, Delegate> e : overlay.entrySet()) {
+            Delegate old = delegates.get(e.getKey());
+            if (old != null && RANKING.compare(old, d) < 0) {
+                rank--;
+            }
+            if (RANKING.compare(e.getValue(), d) < 0) {
+                rank++;
+            }
+        }
+        return rank;
+    }
+
+    synchronized DelegateIndex copy() {
+        DelegateIndex index = new DelegateIndex();
+        index.delegates.putAll(delegates);
+        index.ranking.addAll(ranking);
+        return index;
+    }
+
+    private static Delegate next(Iterator<Delegate> itr, Map<ByteArray, Delegate> overlay) {
+        while (itr.hasNext()) {
+            Delegate d = itr.next();
+            if (!overlay.containsKey(ByteArray.of(d.getAddress()))) {
+                return d;
+            }
+        }
+        return null;
+    }
+}
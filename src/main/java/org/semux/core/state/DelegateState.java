@@ -10,6 +10,7 @@ import java.util.List;
 import java.util.Map;
 
 import org.semux.core.Amount;
+import org.semux.db.UnitOfWork;
 import org.semux.util.ByteArray;
 
 public interface DelegateState {
@@ -71,6 +72,14 @@ public interface DelegateState {
      */
     Map<ByteArray, Amount> getVotes(byte[] delegate);
 
+    /**
+     * Returns all the votes of one voter, by delegate.
+     *
+     * @param voter
+     * @return
+     */
+    Map<ByteArray, Amount> getVotesByVoter(byte[] voter);
+
     /**
      * Retrieves delegate by its name.
      * 
@@ -94,6 +103,37 @@ public interface DelegateState {
      */
     List<Delegate> getDelegates();
 
+    /**
+     * Returns the delegates ranked within <code>[from, to)</code>, by votes in
+     * descending order.
+     *
+     * @param from
+     * @param to
+     * @return
+     */
+    List<Delegate> getDelegates(int from, int to);
+
+    /**
+     * Returns the zero-based rank of a delegate, by votes in descending order.
+     *
+     * @param address
+     * @return the rank, or -1 if the delegate does not exist
+     */
+    int getDelegateRank(byte[] address);
+
+    /**
+     * Returns a read-only view of the state as of a past block, i.e. after the
+     * block has been applied.
+     *
+     * @param height
+     * @return
+     * @throws UnsupportedOperationException
+     *             if the state history is not enabled
+     * @throws IllegalArgumentException
+     *             if the block is out of the state history
+     */
+    DelegateState at(long height);
+
     /**
      * Returns a snapshot and starts tracking updates.
      */
@@ -104,6 +144,14 @@ public interface DelegateState {
      */
     void commit();
 
+    /**
+     * Commits all updates since last snapshot into a unit of work. The updates
+     * remain visible through this state until the unit of work is flushed.
+     *
+     * @param uow
+     */
+    void commit(UnitOfWork uow);
+
     /**
      * Reverts all updates since last snapshot.
      */
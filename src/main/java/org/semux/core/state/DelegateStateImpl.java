@@ -13,15 +13,19 @@ import static org.semux.core.Amount.sum;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.concurrent.ConcurrentHashMap;
 
+import org.apache.commons.lang3.tuple.Pair;
 import org.semux.core.Amount;
 import org.semux.core.Blockchain;
 import org.semux.db.Database;
+import org.semux.db.DatabaseName;
+import org.semux.db.UnitOfWork;
 import org.semux.util.ByteArray;
 import org.semux.util.Bytes;
 import org.semux.util.ClosableIterator;
@@ -42,6 +46,8 @@ import org.slf4j.LoggerFactory;
  * vote DB structure:
  * 
  * [delegate, voter] => vote
+ * [0x01, voter, delegate] => vote // reverse index, for the votes of a voter
+ * [0xff] => version of the reverse index
  * </pre>
  *
  */
@@ -51,22 +57,56 @@ public class DelegateStateImpl implements DelegateState {
 
     private static final int ADDRESS_LEN = 20;
 
+    private static final byte VOTER_INDEX_PREFIX = 0x01;
+    private static final byte[] VOTER_INDEX_VERSION_KEY = Bytes.of((byte) 0xff);
+    private static final int VOTER_INDEX_VERSION = 1;
+    private static final int VOTER_INDEX_BATCH_SIZE = 10_000;
+
     protected final Blockchain chain;
 
+    /**
+     * Checkpoint of a tracked state which owns its journals.
+     */
+    private static final int NO_CHECKPOINT = -1;
+
     protected Database delegateDB;
     protected Database voteDB;
-    protected DelegateStateImpl prev;
 
     /**
-     * Delegate updates
+     * The root state, or null if this is the root.
+     */
+    protected final DelegateStateImpl root;
+
+    /**
+     * The write sets shared by a tracked state and the states nested in it, or null
+     * if this is the root.
+     */
+    protected final Journal<byte[]> delegateJournal;
+    protected final Journal<byte[]> voteJournal;
+    protected final int delegateCheckpoint;
+    protected final int voteCheckpoint;
+
+    /**
+     * Delegate updates of the root
      */
     protected final Map<ByteArray, byte[]> delegateUpdates = new ConcurrentHashMap<>();
 
     /**
-     * Vote updates
+     * Vote updates of the root
      */
     protected final Map<ByteArray, byte[]> voteUpdates = new ConcurrentHashMap<>();
 
+    /**
+     * Ranking of the delegates of the root, including its updates. It is built on
+     * first use and guarded by the lock of {@link #delegateUpdates}.
+     */
+    protected DelegateIndex index;
+
+    /**
+     * The per-block history of the databases, or null if not recorded.
+     */
+    protected StateHistory history;
+
     /**
      * Create a DelegateState that work directly on a database.
      * 
@@ -77,16 +117,56 @@ public class DelegateStateImpl implements DelegateState {
         this.chain = chain;
         this.delegateDB = delegateDB;
         this.voteDB = voteDB;
+        this.root = null;
+        this.delegateJournal = null;
+        this.voteJournal = null;
+        this.delegateCheckpoint = NO_CHECKPOINT;
+        this.voteCheckpoint = NO_CHECKPOINT;
     }
 
     /**
-     * Create an DelegateState based on a previous DelegateState.
+     * Create an DelegateState based on a previous DelegateState. A state tracked
+     * from the root gets its own write sets, while a state nested in a tracked
+     * state shares the write sets of the latter, from a checkpoint.
      * 
      * @param prev
      */
     public DelegateStateImpl(DelegateStateImpl prev) {
         this.chain = prev.chain;
-        this.prev = prev;
+        if (prev.root == null) {
+            this.root = prev;
+            this.delegateJournal = new Journal<>();
+            this.voteJournal = new Journal<>();
+            this.delegateCheckpoint = NO_CHECKPOINT;
+            this.voteCheckpoint = NO_CHECKPOINT;
+        } else {
+            this.root = prev.root;
+            this.delegateJournal = prev.delegateJournal;
+            this.voteJournal = prev.voteJournal;
+            this.delegateCheckpoint = prev.delegateJournal.checkpoint();
+            this.voteCheckpoint = prev.voteJournal.checkpoint();
+        }
+    }
+
+    /**
+     * Creates a root {@link DelegateState} over other databases, e.g. snapshots,
+     * which carries over the pending updates of this state.
+     *
+     * @param chain
+     * @param delegateDB
+     * @param voteDB
+     * @return
+     */
+    public DelegateStateImpl copy(Blockchain chain, Database delegateDB, Database voteDB) {
+        DelegateStateImpl ds = new DelegateStateImpl(chain, delegateDB, voteDB);
+        synchronized (delegateUpdates) {
+            ds.delegateUpdates.putAll(delegateUpdates);
+            ds.index = index == null ? null : index.copy();
+        }
+        synchronized (voteUpdates) {
+            ds.voteUpdates.putAll(voteUpdates);
+        }
+        return ds;
     }
 
     @Override
@@ -95,8 +175,8 @@ public class DelegateStateImpl implements DelegateState {
             return false;
         } else {
             Delegate d = new Delegate(address, name, registeredAt, ZERO);
-            delegateUpdates.put(ByteArray.of(name), address);
-            delegateUpdates.put(ByteArray.of(address), d.toBytes());
+            putDelegate(ByteArray.of(name), address);
+            putDelegate(ByteArray.of(address), d.toBytes());
 
             return true;
         }
@@ -116,9 +196,9 @@ public class DelegateStateImpl implements DelegateState {
         if (d == null) {
             return false;
         } else {
-            voteUpdates.put(key, encodeAmount(sum(value, v)));
+            putVote(voter, delegate, encodeAmount(sum(value, v)));
             d.setVotes(sum(d.getVotes(), v));
-            delegateUpdates.put(ByteArray.of(delegate), d.toBytes());
+            putDelegate(ByteArray.of(delegate), d.toBytes());
             return true;
         }
     }
@@ -131,11 +211,11 @@ public class DelegateStateImpl implements DelegateState {
         if (v.gt(value)) {
             return false;
         } else {
-            voteUpdates.put(key, encodeAmount(sub(value, v)));
+            putVote(voter, delegate, encodeAmount(sub(value, v)));
 
             Delegate d = getDelegateByAddress(delegate);
             d.setVotes(sub(d.getVotes(), v));
-            delegateUpdates.put(ByteArray.of(delegate), d.toBytes());
+            putDelegate(ByteArray.of(delegate), d.toBytes());
 
             return true;
         }
@@ -150,11 +230,12 @@ public class DelegateStateImpl implements DelegateState {
     public Delegate getDelegateByName(byte[] name) {
         ByteArray k = ByteArray.of(name);
 
-        if (delegateUpdates.containsKey(k)) {
+        if (root != null) {
+            byte[] v = delegateJournal.get(k);
+            return v != null ? getDelegateByAddress(v) : root.getDelegateByName(name);
+        } else if (delegateUpdates.containsKey(k)) {
             byte[] v = delegateUpdates.get(k);
             return v == null ? null : getDelegateByAddress(v);
-        } else if (prev != null) {
-            return prev.getDelegateByName(name);
         } else {
             byte[] v = delegateDB.get(k.getData());
             return v == null ? null : getDelegateByAddress(v);
@@ -165,11 +246,12 @@ public class DelegateStateImpl implements DelegateState {
     public Delegate getDelegateByAddress(byte[] address) {
         ByteArray k = ByteArray.of(address);
 
-        if (delegateUpdates.containsKey(k)) {
+        if (root != null) {
+            byte[] v = delegateJournal.get(k);
+            return v != null ? Delegate.fromBytes(k.getData(), v) : root.getDelegateByAddress(address);
+        } else if (delegateUpdates.containsKey(k)) {
             byte[] v = delegateUpdates.get(k);
             return v == null ? null : Delegate.fromBytes(k.getData(), v);
-        } else if (prev != null) {
-            return prev.getDelegateByAddress(address);
         } else {
             byte[] v = delegateDB.get(k.getData());
             return v == null ? null : Delegate.fromBytes(k.getData(), v);
@@ -178,22 +260,41 @@ public class DelegateStateImpl implements DelegateState {
 
     @Override
     public List<Delegate> getDelegates() {
-        long t1 = System.nanoTime();
+        return getDelegates(0, Integer.MAX_VALUE);
+    }
 
-        // traverse all cached update, all the way to database.
-        Map<ByteArray, Delegate> map = new HashMap<>();
-        getDelegates(map);
+    @Override
+    public List<Delegate> getDelegates(int from, int to) {
+        if (root != null) {
+            return root.getIndex().range(Math.max(from, 0), to, getJournaledDelegates());
+        }
+        return getIndex().range(Math.max(from, 0), to);
+    }
 
-        // sort the results
-        List<Delegate> list = new ArrayList<>(map.values());
-        list.sort((d1, d2) -> {
-            int cmp = d2.getVotes().compareTo(d1.getVotes());
-            return (cmp != 0) ? cmp : d1.getNameString().compareTo(d2.getNameString());
-        });
+    @Override
+    public int getDelegateRank(byte[] address) {
+        if (root != null) {
+            return root.getIndex().rank(address, getJournaledDelegates());
+        }
+        return getIndex().rank(address);
+    }
 
-        long t2 = System.nanoTime();
-        logger.trace("Get delegates duration: {} μs", (t2 - t1) / 1000L);
-        return list;
+    /**
+     * Sets the history the past states are resolved from.
+     *
+     * @param history
+     */
+    public void setHistory(StateHistory history) {
+        this.history = history;
+    }
+
+    @Override
+    public DelegateState at(long height) {
+        StateHistory h = root != null ? root.history : history;
+        if (h == null) {
+            throw new UnsupportedOperationException("State history is not enabled");
+        }
+        return new DelegateStateImpl(chain, h.at(DatabaseName.DELEGATE, height), h.at(DatabaseName.VOTE, height));
     }
 
     @Override
@@ -203,80 +304,189 @@ public class DelegateStateImpl implements DelegateState {
 
     @Override
     public void commit() {
-        synchronized (delegateUpdates) {
-            if (prev == null) {
-                for (Map.Entry<ByteArray, byte[]> entry : delegateUpdates.entrySet()) {
-                    if (entry.getValue() == null) {
-                        delegateDB.delete(entry.getKey().getData());
-                    } else {
-                        delegateDB.put(entry.getKey().getData(), entry.getValue());
-                    }
+        if (root != null) {
+            if (delegateCheckpoint == NO_CHECKPOINT) {
+                root.putDelegates(delegateJournal.getWrites());
+                synchronized (root.voteUpdates) {
+                    root.voteUpdates.putAll(voteJournal.getWrites());
                 }
+                delegateJournal.clear();
+                voteJournal.clear();
             } else {
-                for (Entry<ByteArray, byte[]> e : delegateUpdates.entrySet()) {
-                    prev.delegateUpdates.put(e.getKey(), e.getValue());
-                }
+                delegateJournal.commit();
+                voteJournal.commit();
+            }
+            return;
+        }
+
+        synchronized (delegateUpdates) {
+            List<Pair<byte[], byte[]>> batch = new ArrayList<>(delegateUpdates.size());
+            for (Map.Entry<ByteArray, byte[]> entry : delegateUpdates.entrySet()) {
+                batch.add(Pair.of(entry.getKey().getData(), entry.getValue()));
             }
+            delegateDB.updateBatch(batch);
 
             delegateUpdates.clear();
         }
 
         synchronized (voteUpdates) {
-            if (prev == null) {
-                for (Map.Entry<ByteArray, byte[]> entry : voteUpdates.entrySet()) {
-                    if (entry.getValue() == null) {
-                        voteDB.delete(entry.getKey().getData());
-                    } else {
-                        voteDB.put(entry.getKey().getData(), entry.getValue());
-                    }
-                }
-            } else {
-                for (Entry<ByteArray, byte[]> e : voteUpdates.entrySet()) {
-                    prev.voteUpdates.put(e.getKey(), e.getValue());
-                }
+            List<Pair<byte[], byte[]>> batch = new ArrayList<>(voteUpdates.size());
+            for (Map.Entry<ByteArray, byte[]> entry : voteUpdates.entrySet()) {
+                batch.add(Pair.of(entry.getKey().getData(), entry.getValue()));
             }
+            voteDB.updateBatch(batch);
 
             voteUpdates.clear();
         }
     }
 
+    @Override
+    public void commit(UnitOfWork uow) {
+        if (root != null) {
+            commit();
+            return;
+        }
+
+        synchronized (delegateUpdates) {
+            Map<ByteArray, byte[]> staged = new HashMap<>(delegateUpdates);
+            for (Map.Entry<ByteArray, byte[]> entry : staged.entrySet()) {
+                uow.put(DatabaseName.DELEGATE, entry.getKey().getData(), entry.getValue());
+            }
+            uow.onCommit(() -> staged.forEach(delegateUpdates::remove));
+        }
+
+        synchronized (voteUpdates) {
+            Map<ByteArray, byte[]> staged = new HashMap<>(voteUpdates);
+            for (Map.Entry<ByteArray, byte[]> entry : staged.entrySet()) {
+                uow.put(DatabaseName.VOTE, entry.getKey().getData(), entry.getValue());
+            }
+            uow.onCommit(() -> staged.forEach(voteUpdates::remove));
+        }
+    }
+
     @Override
     public void rollback() {
-        delegateUpdates.clear();
-        voteUpdates.clear();
+        if (root == null) {
+            synchronized (delegateUpdates) {
+                if (index != null) {
+                    // restore the ranking of the reverted delegates from the database
+                    for (ByteArray k : delegateUpdates.keySet()) {
+                        if (k.length() == ADDRESS_LEN) {
+                            byte[] v = delegateDB.get(k.getData());
+                            if (v == null) {
+                                index.remove(k.getData());
+                            } else {
+                                index.put(Delegate.fromBytes(k.getData(), v));
+                            }
+                        }
+                    }
+                }
+                delegateUpdates.clear();
+            }
+            voteUpdates.clear();
+        } else if (delegateCheckpoint == NO_CHECKPOINT) {
+            delegateJournal.clear();
+            voteJournal.clear();
+        } else {
+            delegateJournal.revert(delegateCheckpoint);
+            voteJournal.revert(voteCheckpoint);
+        }
+    }
+
+    protected void putDelegate(ByteArray key, byte[] value) {
+        if (root != null) {
+            delegateJournal.put(key, value);
+        } else {
+            putDelegates(Collections.singletonMap(key, value));
+        }
     }
 
     /**
-     * Recursively compute the delegates.
-     * 
-     * @param map
+     * Adds updates to the root, keeping its ranking in sync.
+     *
+     * @param updates
      */
-    protected void getDelegates(Map<ByteArray, Delegate> map) {
-        for (Map.Entry<ByteArray, byte[]> entry : delegateUpdates.entrySet()) {
-            /* filter address */
-            if (entry.getKey().length() == ADDRESS_LEN && !map.containsKey(entry.getKey())) {
-                if (entry.getValue() == null) {
-                    map.put(entry.getKey(), null);
-                } else {
-                    map.put(entry.getKey(), Delegate.fromBytes(entry.getKey().getData(), entry.getValue()));
-                }
+    protected void putDelegates(Map<ByteArray, byte[]> updates) {
+        synchronized (delegateUpdates) {
+            delegateUpdates.putAll(updates);
+            if (index != null) {
+                index(index, updates);
             }
         }
+    }
 
-        if (prev != null) {
-            prev.getDelegates(map);
-        } else {
-            ClosableIterator<Entry<byte[], byte[]>> itr = delegateDB.iterator();
-            while (itr.hasNext()) {
-                Entry<byte[], byte[]> entry = itr.next();
-                ByteArray k = ByteArray.of(entry.getKey());
-                byte[] v = entry.getValue();
-
-                if (k.length() == ADDRESS_LEN && !map.containsKey(k)) {
-                    map.put(k, Delegate.fromBytes(k.getData(), v));
+    /**
+     * Returns the ranking of the delegates of a root state, built on first use.
+     * Tracked states rank their pending delegates over it, see
+     * {@link #getJournaledDelegates()}.
+     *
+     * @return
+     */
+    protected DelegateIndex getIndex() {
+        synchronized (delegateUpdates) {
+            if (index == null) {
+                long t1 = System.nanoTime();
+                DelegateIndex idx = new DelegateIndex();
+                ClosableIterator<Entry<byte[], byte[]>> itr = delegateDB.iterator();
+                while (itr.hasNext()) {
+                    Entry<byte[], byte[]> entry = itr.next();
+                    if (entry.getKey().length == ADDRESS_LEN) {
+                        idx.put(Delegate.fromBytes(entry.getKey(), entry.getValue()));
+                    }
                 }
+                itr.close();
+                index(idx, delegateUpdates);
+                index = idx;
+
+                long t2 = System.nanoTime();
+                logger.debug("Built delegate index: # delegates = {}, time = {} μs", idx.size(), (t2 - t1) / 1000L);
+            }
+            return index;
+        }
+    }
+
+    /**
+     * Returns the delegates written by this tracked state, by address.
+     *
+     * @return
+     */
+    private Map<ByteArray, Delegate> getJournaledDelegates() {
+        Map<ByteArray, Delegate> delegates = new HashMap<>();
+        for (Map.Entry<ByteArray, byte[]> entry : delegateJournal.getWrites().entrySet()) {
+            /* filter address */
+            if (entry.getKey().length() == ADDRESS_LEN) {
+                delegates.put(entry.getKey(), Delegate.fromBytes(entry.getKey().getData(), entry.getValue()));
+            }
+        }
+        return delegates;
+    }
+
+    private void index(DelegateIndex idx, Map<ByteArray, byte[]> updates) {
+        for (Map.Entry<ByteArray, byte[]> entry : updates.entrySet()) {
+            /* filter address */
+            if (entry.getKey().length() == ADDRESS_LEN) {
+                idx.put(Delegate.fromBytes(entry.getKey().getData(), entry.getValue()));
             }
-            itr.close();
+        }
+    }
+
+    /**
+     * Updates a vote, along with its entry in the reverse index.
+     *
+     * @param voter
+     * @param delegate
+     * @param value
+     */
+    protected void putVote(byte[] voter, byte[] delegate, byte[] value) {
+        putVote(ByteArray.of(Bytes.merge(delegate, voter)), value);
+        putVote(ByteArray.of(Bytes.merge(Bytes.of(VOTER_INDEX_PREFIX), voter, delegate)), value);
+    }
+
+    protected void putVote(ByteArray key, byte[] value) {
+        if (root != null) {
+            voteJournal.put(key, value);
+        } else {
+            voteUpdates.put(key, value);
         }
     }
 
@@ -288,13 +498,12 @@ public class DelegateStateImpl implements DelegateState {
      * @return
      */
     protected Amount getVote(ByteArray key) {
-        if (voteUpdates.containsKey(key)) {
+        if (root != null) {
+            byte[] bytes = voteJournal.get(key);
+            return bytes != null ? decodeAmount(bytes) : root.getVote(key);
+        } else if (voteUpdates.containsKey(key)) {
             byte[] bytes = voteUpdates.get(key);
             return decodeAmount(bytes);
-        }
-
-        if (prev != null) {
-            return prev.getVote(key);
         } else {
             byte[] bytes = voteDB.get(key.getData());
             return decodeAmount(bytes);
@@ -305,15 +514,16 @@ public class DelegateStateImpl implements DelegateState {
     public Map<ByteArray, Amount> getVotes(byte[] delegate) {
         Map<ByteArray, Amount> result = new HashMap<>();
 
-        ClosableIterator<Entry<byte[], byte[]>> itr = voteDB.iterator(delegate);
+        ClosableIterator<Entry<byte[], byte[]>> itr = voteDB.prefixIterator(delegate);
         while (itr.hasNext()) {
             Entry<byte[], byte[]> e = itr.next();
-            byte[] d = Arrays.copyOf(e.getKey(), 20);
-            byte[] v = Arrays.copyOfRange(e.getKey(), 20, 40);
+            if (e.getKey().length != ADDRESS_LEN * 2) {
+                // reverse index entry sharing the prefix
+                continue;
+            }
+            byte[] v = Arrays.copyOfRange(e.getKey(), ADDRESS_LEN, ADDRESS_LEN * 2);
 
-            if (!Arrays.equals(delegate, d)) {
-                break;
-            } else if (Bytes.toLong(e.getValue()) != 0) {
+            if (Bytes.toLong(e.getValue()) != 0) {
                 result.put(ByteArray.of(v), decodeAmount(e.getValue()));
             }
         }
@@ -322,6 +532,110 @@ public class DelegateStateImpl implements DelegateState {
         return result;
     }
 
+    @Override
+    public Map<ByteArray, Amount> getVotesByVoter(byte[] voter) {
+        byte[] prefix = Bytes.merge(VOTER_INDEX_PREFIX, voter);
+
+        Map<ByteArray, byte[]> votes = new HashMap<>();
+        collectVotesByVoter(prefix, votes);
+
+        Map<ByteArray, Amount> result = new HashMap<>();
+        for (Map.Entry<ByteArray, byte[]> entry : votes.entrySet()) {
+            if (Bytes.toLong(entry.getValue()) != 0) {
+                result.put(entry.getKey(), decodeAmount(entry.getValue()));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Collects the raw votes of the reverse index entries with the given prefix, by
+     * delegate, overlaying the pending updates onto the database.
+     *
+     * @param prefix
+     * @param votes
+     */
+    private void collectVotesByVoter(byte[] prefix, Map<ByteArray, byte[]> votes) {
+        if (root != null) {
+            root.collectVotesByVoter(prefix, votes);
+            overlayVotes(prefix, voteJournal.getWrites(), votes);
+            return;
+        }
+
+        ClosableIterator<Entry<byte[], byte[]>> itr = voteDB.prefixIterator(prefix);
+        while (itr.hasNext()) {
+            Entry<byte[], byte[]> e = itr.next();
+            if (e.getKey().length == prefix.length + ADDRESS_LEN) {
+                votes.put(ByteArray.of(Arrays.copyOfRange(e.getKey(), prefix.length, e.getKey().length)),
+                        e.getValue());
+            }
+        }
+        itr.close();
+
+        overlayVotes(prefix, voteUpdates, votes);
+    }
+
+    private void overlayVotes(byte[] prefix, Map<ByteArray, byte[]> updates, Map<ByteArray, byte[]> votes) {
+        for (Map.Entry<ByteArray, byte[]> entry : updates.entrySet()) {
+            byte[] k = entry.getKey().getData();
+            if (k.length == prefix.length + ADDRESS_LEN && Arrays.equals(prefix, Arrays.copyOf(k, prefix.length))) {
+                votes.put(ByteArray.of(Arrays.copyOfRange(k, prefix.length, k.length)), entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * Returns whether a key of the vote database is a vote, rather than an entry of
+     * the voter index.
+     *
+     * @param key
+     * @return
+     */
+    public static boolean isVoteKey(byte[] key) {
+        return key.length == ADDRESS_LEN * 2;
+    }
+
+    /**
+     * Builds the reverse index of the votes, if the database predates it. The index
+     * is written in batches, and the version is written last, so an interrupted
+     * build starts over on the next call.
+     */
+    public void buildVoterIndex() {
+        byte[] version = voteDB.get(VOTER_INDEX_VERSION_KEY);
+        if (version != null && Bytes.toInt(version) >= VOTER_INDEX_VERSION) {
+            return;
+        }
+
+        logger.info("Building the voter index of the vote database");
+        long t1 = System.nanoTime();
+        long count = 0;
+
+        List<Pair<byte[], byte[]>> batch = new ArrayList<>();
+        ClosableIterator<Entry<byte[], byte[]>> itr = voteDB.iterator();
+        while (itr.hasNext()) {
+            Entry<byte[], byte[]> e = itr.next();
+            byte[] k = e.getKey();
+            if (k.length == ADDRESS_LEN * 2) {
+                byte[] delegate = Arrays.copyOfRange(k, 0, ADDRESS_LEN);
+                byte[] voter = Arrays.copyOfRange(k, ADDRESS_LEN, ADDRESS_LEN * 2);
+                batch.add(Pair.of(Bytes.merge(Bytes.of(VOTER_INDEX_PREFIX), voter, delegate), e.getValue()));
+                count++;
+
+                if (batch.size() >= VOTER_INDEX_BATCH_SIZE) {
+                    voteDB.updateBatch(batch);
+                    batch = new ArrayList<>();
+                }
+            }
+        }
+        itr.close();
+
+        batch.add(Pair.of(VOTER_INDEX_VERSION_KEY, Bytes.of(VOTER_INDEX_VERSION)));
+        voteDB.updateBatch(batch);
+
+        long t2 = System.nanoTime();
+        logger.info("Built the voter index: # votes = {}, time = {} ms", count, (t2 - t1) / 1_000_000L);
+    }
+
     protected byte[] encodeAmount(Amount a) {
         return Bytes.of(a.getNano());
     }
@@ -0,0 +1,118 @@
+/**
+ * Copyright (c) 2017-2018 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.core.state;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.semux.util.ByteArray;
+
+/**
+ * A flat write set shared by a tracked state and all the states nested in it.
+ * <p>
+ * While a nested state is open, every write records the value it replaces, so
+ * that the nested state can be reverted by undoing the writes made since its
+ * checkpoint. Nested states are expected to be committed or rolled back in the
+ * reverse order of their creation.
+ *
+ * @param <V>
+ *            the type of the values
+ */
+class Journal<V> {
+
+    private final Map<ByteArray, V> writes = new ConcurrentHashMap<>();
+
+    /**
+     * Undo log of the writes, with the replaced values or null if absent.
+     */
+    private final List<ByteArray> keys = new ArrayList<>();
+    private final List<V> replaced = new ArrayList<>();
+
+    private int checkpoints;
+
+    /**
+     * Returns the value of a key, or null if it has not been written.
+     *
+     * @param key
+     * @return
+     */
+    V get(ByteArray key) {
+        return writes.get(key);
+    }
+
+    void put(ByteArray key, V value) {
+        V prev = writes.put(key, value);
+        if (checkpoints > 0) {
+            keys.add(key);
+            replaced.add(prev);
+        }
+    }
+
+    /**
+     * Returns all the writes.
+     *
+     * @return
+     */
+    Map<ByteArray, V> getWrites() {
+        return writes;
+    }
+
+    /**
+     * Opens a checkpoint.
+     *
+     * @return the position to revert to
+     */
+    int checkpoint() {
+        checkpoints++;
+        return keys.size();
+    }
+
+    /**
+     * Closes the latest checkpoint, keeping the writes made since.
+     */
+    void commit() {
+        release();
+    }
+
+    /**
+     * Closes the latest checkpoint, undoing the writes made since.
+     *
+     * @param checkpoint
+     */
+    void revert(int checkpoint) {
+        for (int i = keys.size() - 1; i >= checkpoint; i--) {
+            ByteArray key = keys.remove(i);
+            V prev = replaced.remove(i);
+            if (prev == null) {
+                writes.remove(key);
+            } else {
+                writes.put(key, prev);
+            }
+        }
+        release();
+    }
+
+    /**
+     * Discards all the writes and checkpoints.
+     */
+    void clear() {
+        writes.clear();
+        keys.clear();
+        replaced.clear();
+        checkpoints = 0;
+    }
+
+    private void release() {
+        if (checkpoints > 0 && --checkpoints == 0) {
+            // no one can revert any more
+            keys.clear();
+            replaced.clear();
+        }
+    }
+}
@@ -0,0 +1,389 @@
+/**
+ * Copyright (c) 2017-2018 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.core.state;
+
+import java.nio.file.Path;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.NoSuchElementException;
+
+import org.apache.commons.lang3.tuple.Pair;
+import org.semux.db.Database;
+import org.semux.db.DatabaseFactory;
+import org.semux.db.DatabaseMetrics;
+import org.semux.db.DatabaseName;
+import org.semux.db.LeveldbDatabase;
+import org.semux.db.UnitOfWork;
+import org.semux.util.ByteArray;
+import org.semux.util.Bytes;
+import org.semux.util.ClosableIterator;
+import org.semux.util.SimpleDecoder;
+import org.semux.util.SimpleEncoder;
+
+/**
+ * A journal of the state changes of each block, which gives read-only views of
+ * the account, delegate and vote databases as of a past block.
+ * <p>
+ * For every entry updated by a block, the value it replaces is recorded under
+ * the entry and the block number, so the value as of block <code>h</code> is
+ * the value replaced by the first later update, or the current value if none. A
+ * lookup is a single seek, whatever the distance to the tip.
+ *
+ * <pre>
+ * index DB structure:
+ *
+ * [9, block_number] => [updated entries] // reverse diff of the block
+ * [10, db, key_length, key, block_number] => [replaced value]
+ * [11] => [first block, last block]
+ * </pre>
+ *
+ * The views are meant to be taken from a snapshot of the blockchain, to stay
+ * consistent while blocks are added.
+ */
+public class StateHistory {
+
+    protected static final byte TYPE_BLOCK_DIFF = 0x09;
+    protected static final byte TYPE_ENTRY_HISTORY = 0x0a;
+    protected static final byte TYPE_RANGE = 0x0b;
+
+    /**
+     * Max number of blocks pruned per added block, so that a shortened window is
+     * caught up with gradually.
+     */
+    private static final int MAX_PRUNED_BLOCKS = 16;
+
+    private final DatabaseFactory factory;
+    private final Database indexDB;
+    private final long depth;
+
+    /**
+     * Creates a state history.
+     *
+     * @param factory
+     * @param depth
+     *            the number of recent blocks whose diffs are kept, or 0 to keep
+     *            them all
+     */
+    public StateHistory(DatabaseFactory factory, long depth) {
+        this.factory = factory;
+        this.indexDB = factory.getDB(DatabaseName.INDEX);
+        this.depth = depth;
+    }
+
+    /**
+     * Returns the first block whose diff is recorded, or -1 if none.
+     *
+     * @return
+     */
+    public long getFirstBlock() {
+        byte[] range = indexDB.get(Bytes.of(TYPE_RANGE));
+        return range == null ? -1 : new SimpleDecoder(range).readLong();
+    }
+
+    /**
+     * Returns the last block whose diff is recorded, or -1 if none.
+     *
+     * @return
+     */
+    public long getLastBlock() {
+        byte[] range = indexDB.get(Bytes.of(TYPE_RANGE));
+        if (range == null) {
+            return -1;
+        }
+        SimpleDecoder dec = new SimpleDecoder(range);
+        dec.readLong();
+        return dec.readLong();
+    }
+
+    /**
+     * Records the reverse diff of a block, from the state updates staged in its
+     * unit of work, and prunes the diffs out of the window. A block which does not
+     * follow the last recorded one restarts the history, and discards the diffs
+     * recorded so far.
+     *
+     * @param uow
+     * @param number
+     */
+    public void record(UnitOfWork uow, long number) {
+        long first = getFirstBlock();
+        long last = getLastBlock();
+        if (first < 0 || last != number - 1) {
+            // the history restarts after a gap, without the diffs recorded before it
+            for (long n = first; first >= 0 && n <= last; n++) {
+                prune(uow, n);
+            }
+            first = number;
+        }
+
+        SimpleEncoder diff = new SimpleEncoder();
+        for (DatabaseName name : StateTree.DATABASES) {
+            Database db = factory.getDB(name);
+            Map<ByteArray, byte[]> updates = uow.getUpdates(name);
+            diff.writeInt(updates.size());
+            for (ByteArray k : updates.keySet()) {
+                byte[] key = k.getData();
+                diff.writeBytes(key);
+                uow.put(DatabaseName.INDEX, entryKey(name, key, number), encodeValue(db.get(key)));
+            }
+        }
+        uow.put(DatabaseName.INDEX, blockKey(number), diff.toBytes());
+
+        if (depth > 0) {
+            for (int i = 0; i < MAX_PRUNED_BLOCKS && first <= number - depth; i++) {
+                prune(uow, first++);
+            }
+        }
+
+        SimpleEncoder range = new SimpleEncoder();
+        range.writeLong(first);
+        range.writeLong(number);
+        uow.put(DatabaseName.INDEX, Bytes.of(TYPE_RANGE), range.toBytes());
+    }
+
+    /**
+     * Stages the removal of the diff of a block.
+     */
+    protected void prune(UnitOfWork uow, long number) {
+        byte[] diff = indexDB.get(blockKey(number));
+        if (diff == null) {
+            return;
+        }
+
+        SimpleDecoder dec = new SimpleDecoder(diff);
+        for (DatabaseName name : StateTree.DATABASES) {
+            int n = dec.readInt();
+            for (int i = 0; i < n; i++) {
+                uow.delete(DatabaseName.INDEX, entryKey(name, dec.readBytes(), number));
+            }
+        }
+        uow.delete(DatabaseName.INDEX, blockKey(number));
+    }
+
+    /**
+     * Returns a read-only view of a database as of a block, that is after the block
+     * has been applied.
+     *
+     * @param name
+     *            one of {@link StateTree#DATABASES}
+     * @param number
+     * @return
+     * @throws IllegalArgumentException
+     *             if the state of the block can not be resolved
+     */
+    public Database at(DatabaseName name, long number) {
+        long first = getFirstBlock();
+        long last = getLastBlock();
+        if (first < 0 || number < first - 1 || number > last) {
+            throw new IllegalArgumentException(
+                    "State of block " + number + " is out of the history: [" + (first - 1) + ", " + last + "]");
+        }
+        return new HistoricalDatabase(name, number);
+    }
+
+    /**
+     * Returns the entries updated by a block, for inspection.
+     *
+     * @param number
+     * @return the keys of each database, or null if the diff is not recorded
+     */
+    public Map<DatabaseName, List<byte[]>> getDiff(long number) {
+        byte[] diff = indexDB.get(blockKey(number));
+        if (diff == null) {
+            return null;
+        }
+
+        Map<DatabaseName, List<byte[]>> keys = new EnumMap<>(DatabaseName.class);
+        SimpleDecoder dec = new SimpleDecoder(diff);
+        for (DatabaseName name : StateTree.DATABASES) {
+            int n = dec.readInt();
+            List<byte[]> list = new ArrayList<>(n);
+            for (int i = 0; i < n; i++) {
+                list.add(dec.readBytes());
+            }
+            keys.put(name, list);
+        }
+        return keys;
+    }
+
+    protected static byte[] blockKey(long number) {
+        return Bytes.merge(TYPE_BLOCK_DIFF, Bytes.of(number));
+    }
+
+    protected static byte[] entryKey(DatabaseName name, byte[] key, long number) {
+        return Bytes.merge(entryPrefix(name, key), Bytes.of(number));
+    }
+
+    protected static byte[] entryPrefix(DatabaseName name, byte[] key) {
+        return Bytes.merge(Bytes.of(TYPE_ENTRY_HISTORY), Bytes.of((byte) name.ordinal()),
+                Bytes.of((short) key.length), key);
+    }
+
+    private static byte[] encodeValue(byte[] value) {
+        return value == null ? Bytes.EMPTY_BYTES : Bytes.merge((byte) 1, value);
+    }
+
+    private static byte[] decodeValue(byte[] bytes) {
+        return bytes.length == 0 ? null : Arrays.copyOfRange(bytes, 1, bytes.length);
+    }
+
+    /**
+     * A database as of a block. As entries are never removed from the state
+     * databases, the entries as of a block are a subset of the current ones.
+     */
+    private class HistoricalDatabase implements Database {
+        private final DatabaseName name;
+        private final long number;
+
+        HistoricalDatabase(DatabaseName name, long number) {
+            this.name = name;
+            this.number = number;
+        }
+
+        private Database current() {
+            return factory.getDB(name);
+        }
+
+        /**
+         * Resolves the value of an entry as of the block, given its current value.
+         */
+        private byte[] resolve(byte[] key, byte[] value) {
+            byte[] prefix = entryPrefix(name, key);
+            ClosableIterator<Entry<byte[], byte[]>> itr = indexDB.rangeIterator(
+                    Bytes.merge(prefix, Bytes.of(number + 1)), LeveldbDatabase.prefixEnd(prefix));
+            try {
+                return itr.hasNext() ? decodeValue(itr.next().getValue()) : value;
+            } finally {
+                itr.close();
+            }
+        }
+
+        @Override
+        public byte[] get(byte[] key) {
+            return resolve(key, current().get(key));
+        }
+
+        @Override
+        public ClosableIterator<Entry<byte[], byte[]>> iterator() {
+            return new ResolvingIterator(current().iterator());
+        }
+
+        @Override
+        public ClosableIterator<Entry<byte[], byte[]>> iterator(byte[] prefix) {
+            return new ResolvingIterator(current().iterator(prefix));
+        }
+
+        @Override
+        public ClosableIterator<Entry<byte[], byte[]>> prefixIterator(byte[] prefix) {
+            return new ResolvingIterator(current().prefixIterator(prefix));
+        }
+
+        @Override
+        public ClosableIterator<Entry<byte[], byte[]>> reversePrefixIterator(byte[] prefix) {
+            return new ResolvingIterator(current().reversePrefixIterator(prefix));
+        }
+
+        @Override
+        public ClosableIterator<Entry<byte[], byte[]>> rangeIterator(byte[] start, byte[] end) {
+            return new ResolvingIterator(current().rangeIterator(start, end));
+        }
+
+        @Override
+        public ClosableIterator<Entry<byte[], byte[]>> reverseIterator(byte[] start, byte[] end) {
+            return new ResolvingIterator(current().reverseIterator(start, end));
+        }
+
+        @Override
+        public void put(byte[] key, byte[] value) {
+            throw new UnsupportedOperationException("Historical state is read-only");
+        }
+
+        @Override
+        public void delete(byte[] key) {
+            throw new UnsupportedOperationException("Historical state is read-only");
+        }
+
+        @Override
+        public void updateBatch(List<Pair<byte[], byte[]>> pairs) {
+            throw new UnsupportedOperationException("Historical state is read-only");
+        }
+
+        @Override
+        public Database snapshot() {
+            throw new UnsupportedOperationException("Snapshot of a historical state is not supported");
+        }
+
+        @Override
+        public DatabaseMetrics getMetrics() {
+            return current().getMetrics();
+        }
+
+        @Override
+        public void close() {
+            // owned by the factory
+        }
+
+        @Override
+        public void destroy() {
+            throw new UnsupportedOperationException("Historical state can not be destroyed");
+        }
+
+        @Override
+        public Path getDataDir() {
+            return current().getDataDir();
+        }
+
+        /**
+         * Maps the current entries to their values as of the block, skipping the
+         * entries which did not exist yet.
+         */
+        private class ResolvingIterator implements ClosableIterator<Entry<byte[], byte[]>> {
+            private final ClosableIterator<Entry<byte[], byte[]>> itr;
+            private Entry<byte[], byte[]> next;
+
+            ResolvingIterator(ClosableIterator<Entry<byte[], byte[]>> itr) {
+                this.itr = itr;
+                this.next = advance();
+            }
+
+            private Entry<byte[], byte[]> advance() {
+                while (itr.hasNext()) {
+                    Entry<byte[], byte[]> e = itr.next();
+                    byte[] value = resolve(e.getKey(), e.getValue());
+                    if (value != null) {
+                        return new SimpleImmutableEntry<>(e.getKey(), value);
+                    }
+                }
+                return null;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public Entry<byte[], byte[]> next() {
+                if (next == null) {
+                    throw new NoSuchElementException();
+                }
+                Entry<byte[], byte[]> e = next;
+                next = advance();
+                return e;
+            }
+
+            @Override
+            public void close() {
+                itr.close();
+            }
+        }
+    }
+}
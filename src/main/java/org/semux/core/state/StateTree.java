@@ -0,0 +1,552 @@
+/**
+ * Copyright (c) 2017-2018 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.core.state;
+
+import static org.bouncycastle.util.Arrays.compareUnsigned;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.function.BiPredicate;
+
+import org.apache.commons.lang3.tuple.Pair;
+import org.semux.crypto.Hash;
+import org.semux.crypto.Hex;
+import org.semux.db.Database;
+import org.semux.db.DatabaseFactory;
+import org.semux.db.DatabaseName;
+import org.semux.db.UnitOfWork;
+import org.semux.util.ByteArray;
+import org.semux.util.Bytes;
+import org.semux.util.ClosableIterator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+/**
+ * An authenticated index of the account, delegate and vote databases, as a
+ * sparse Merkle tree.
+ * <p>
+ * Each entry <code>(db, key, value)</code> is a leaf at the path
+ * <code>h256(db, key)</code>, which is consumed one nibble per level. A subtree
+ * with a single leaf is represented by the leaf itself, and a subtree with more
+ * leaves by a branch of its 16 children, so the shape of the tree only depends
+ * on its entries. The updates are applied per block, which only rehashes the
+ * paths to the updated leaves.
+ *
+ * <pre>
+ * state DB structure:
+ *
+ * [depth, path_prefix] => [0x00, path, value_hash] // leaf
+ * [depth, path_prefix] => [0x01, children_bitmap, child_hash...] // branch
+ * [0xff] => version
+ * </pre>
+ *
+ * The hash of a node is the hash of its encoding, and the hash of an empty
+ * subtree is {@link Bytes#EMPTY_HASH}.
+ */
+public class StateTree {
+
+    private static final Logger logger = LoggerFactory.getLogger(StateTree.class);
+
+    public static final int DEFAULT_CACHE_SIZE = 200_000;
+
+    /**
+     * The authenticated databases.
+     */
+    public static final DatabaseName[] DATABASES = { DatabaseName.ACCOUNT, DatabaseName.DELEGATE,
+            DatabaseName.VOTE };
+
+    private static final int RADIX = 16;
+
+    private static final byte LEAF = 0x00;
+    private static final byte BRANCH = 0x01;
+
+    private static final byte[] VERSION_KEY = Bytes.of((byte) 0xff);
+    private static final int VERSION = 1;
+    private static final int BUILD_BATCH_SIZE = 10_000;
+
+    private final Database db;
+    private final Cache<Position, Node> cache;
+
+    /**
+     * Leaf updates since the last commit, by path. A null value hash removes the
+     * leaf.
+     */
+    private final NavigableMap<ByteArray, byte[]> pending = new TreeMap<>();
+
+    /**
+     * Node updates of the ongoing commit, by position. A null node removes the
+     * position.
+     */
+    private Map<Position, Node> staged;
+
+    /**
+     * Writes of the ongoing rebuild, flushed in batches.
+     */
+    private List<Pair<byte[], byte[]>> batch;
+
+    private volatile byte[] root;
+
+    /**
+     * Creates a state tree over the given database.
+     *
+     * @param db
+     * @param cacheSize
+     *            the max number of cached nodes
+     */
+    public StateTree(Database db, long cacheSize) {
+        this.db = db;
+        this.cache = Caffeine.newBuilder().maximumSize(cacheSize).build();
+        this.root = hash(load(position(0, Bytes.EMPTY_HASH)));
+    }
+
+    /**
+     * Returns the root hash of the committed entries.
+     *
+     * @return
+     */
+    public byte[] getRoot() {
+        return root;
+    }
+
+    /**
+     * Returns whether the tree has been built over the databases.
+     *
+     * @return
+     */
+    public boolean isBuilt() {
+        byte[] version = db.get(VERSION_KEY);
+        return version != null && Bytes.toInt(version) >= VERSION;
+    }
+
+    /**
+     * Returns the path of an entry.
+     *
+     * @param name
+     * @param key
+     * @return
+     */
+    public static byte[] path(DatabaseName name, byte[] key) {
+        return Hash.h256(Bytes.of((byte) name.ordinal()), key);
+    }
+
+    /**
+     * Updates an entry, which takes effect on the next commit.
+     *
+     * @param name
+     * @param key
+     * @param value
+     *            the new value, or null to remove the entry
+     */
+    public synchronized void put(DatabaseName name, byte[] key, byte[] value) {
+        pending.put(ByteArray.of(path(name, key)), value == null ? null : Hash.h256(value));
+    }
+
+    /**
+     * Rehashes the paths to the pending updates, and stages the updated nodes into
+     * a unit of work. The new root is visible once the unit of work is flushed.
+     *
+     * @param uow
+     * @return the new root hash
+     */
+    public synchronized byte[] commit(UnitOfWork uow) {
+        if (pending.isEmpty()) {
+            return root;
+        }
+
+        List<byte[]> paths = new ArrayList<>(pending.size());
+        List<byte[]> values = new ArrayList<>(pending.size());
+        for (Entry<ByteArray, byte[]> e : pending.entrySet()) {
+            paths.add(e.getKey().getData());
+            values.add(e.getValue());
+        }
+        pending.clear();
+
+        Map<Position, Node> writes = new HashMap<>();
+        staged = writes;
+        byte[] newRoot;
+        try {
+            newRoot = hash(update(0, paths, values, 0, paths.size()));
+        } finally {
+            staged = null;
+        }
+
+        for (Entry<Position, Node> e : writes.entrySet()) {
+            if (e.getValue() == null) {
+                uow.delete(DatabaseName.STATE, e.getKey().key);
+            } else {
+                uow.put(DatabaseName.STATE, e.getKey().key, e.getValue().bytes);
+            }
+        }
+        uow.onCommit(() -> {
+            for (Entry<Position, Node> e : writes.entrySet()) {
+                if (e.getValue() == null) {
+                    cache.invalidate(e.getKey());
+                } else {
+                    cache.put(e.getKey(), e.getValue());
+                }
+            }
+            root = newRoot;
+        });
+
+        return newRoot;
+    }
+
+    /**
+     * Rebuilds the tree from the entries of the authenticated databases. The nodes
+     * are written in batches, and the version is written last, so an interrupted
+     * rebuild starts over on the next call.
+     *
+     * @param factory
+     * @param filter
+     *            selects the authenticated entries
+     */
+    public synchronized void rebuild(DatabaseFactory factory, BiPredicate<DatabaseName, byte[]> filter) {
+        long t1 = System.nanoTime();
+
+        // [1] clear the leftovers of an interrupted rebuild
+        List<Pair<byte[], byte[]>> deletes = new ArrayList<>();
+        ClosableIterator<Entry<byte[], byte[]>> itr = db.iterator();
+        while (itr.hasNext()) {
+            deletes.add(Pair.of(itr.next().getKey(), null));
+            if (deletes.size() >= BUILD_BATCH_SIZE) {
+                db.updateBatch(deletes);
+                deletes = new ArrayList<>();
+            }
+        }
+        itr.close();
+        db.updateBatch(deletes);
+        cache.invalidateAll();
+        pending.clear();
+
+        // [2] collect the leaves, ordered by path
+        List<byte[]> leaves = new ArrayList<>();
+        for (DatabaseName name : DATABASES) {
+            itr = factory.getDB(name).iterator();
+            while (itr.hasNext()) {
+                Entry<byte[], byte[]> e = itr.next();
+                if (filter.test(name, e.getKey())) {
+                    leaves.add(Bytes.merge(path(name, e.getKey()), Hash.h256(e.getValue())));
+                }
+            }
+            itr.close();
+        }
+        leaves.sort((l1, l2) -> compareUnsigned(l1, l2));
+
+        List<byte[]> paths = new ArrayList<>(leaves.size());
+        List<byte[]> values = new ArrayList<>(leaves.size());
+        for (byte[] leaf : leaves) {
+            paths.add(Arrays.copyOf(leaf, Hash.HASH_LEN));
+            values.add(Arrays.copyOfRange(leaf, Hash.HASH_LEN, leaf.length));
+        }
+        leaves.clear();
+
+        // [3] write the nodes
+        batch = new ArrayList<>();
+        try {
+            root = hash(build(0, paths, values, 0, paths.size()));
+            batch.add(Pair.of(VERSION_KEY, Bytes.of(VERSION)));
+            db.updateBatch(batch);
+        } finally {
+            batch = null;
+        }
+
+        long t2 = System.nanoTime();
+        logger.info("Built the state tree: # entries = {}, root = {}, time = {} ms", paths.size(),
+                Hex.encode(root), (t2 - t1) / 1_000_000L);
+    }
+
+    /**
+     * Applies the updates within <code>[lo, hi)</code>, which share the first
+     * <code>depth</code> nibbles of their paths, to the subtree at that position.
+     *
+     * @return the new root of the subtree, or null if it is empty
+     */
+    private Node update(int depth, List<byte[]> paths, List<byte[]> values, int lo, int hi) {
+        Position pos = position(depth, paths.get(lo));
+        Node node = load(pos);
+
+        if (node == null || node.isLeaf()) {
+            // the subtree consists of at most one leaf, merge it with the updates
+            List<byte[]> leafPaths = new ArrayList<>(hi - lo + 1);
+            List<byte[]> leafValues = new ArrayList<>(hi - lo + 1);
+            boolean merged = node == null;
+            for (int i = lo; i < hi; i++) {
+                if (!merged) {
+                    int cmp = compareUnsigned(node.path(), paths.get(i));
+                    if (cmp <= 0) {
+                        if (cmp < 0) {
+                            leafPaths.add(node.path());
+                            leafValues.add(node.valueHash());
+                        }
+                        merged = true;
+                    }
+                }
+                if (values.get(i) != null) {
+                    leafPaths.add(paths.get(i));
+                    leafValues.add(values.get(i));
+                }
+            }
+            if (!merged) {
+                leafPaths.add(node.path());
+                leafValues.add(node.valueHash());
+            }
+
+            if (leafPaths.isEmpty()) {
+                if (node != null) {
+                    write(pos, null);
+                }
+                return null;
+            }
+            return build(depth, leafPaths, leafValues, 0, leafPaths.size());
+        }
+
+        byte[][] hashes = node.children();
+        Node[] updated = new Node[RADIX];
+        for (int i = lo; i < hi;) {
+            int n = nibble(paths.get(i), depth);
+            int j = next(depth, paths, i, hi);
+            updated[n] = update(depth + 1, paths, values, i, j);
+            hashes[n] = hash(updated[n]);
+            i = j;
+        }
+
+        int count = 0;
+        int last = -1;
+        for (int n = 0; n < RADIX; n++) {
+            if (!Arrays.equals(hashes[n], Bytes.EMPTY_HASH)) {
+                count++;
+                last = n;
+            }
+        }
+        if (count == 0) {
+            write(pos, null);
+            return null;
+        }
+        if (count == 1) {
+            // a single leaf moves up to the root of the subtree
+            Position childPos = position(depth + 1, withNibble(paths.get(lo), depth, last));
+            Node child = updated[last] != null ? updated[last] : load(childPos);
+            if (child.isLeaf()) {
+                write(childPos, null);
+                write(pos, child);
+                return child;
+            }
+        }
+
+        Node branch = Node.branch(hashes);
+        write(pos, branch);
+        return branch;
+    }
+
+    /**
+     * Builds the subtree of the leaves within <code>[lo, hi)</code>, which share
+     * the first <code>depth</code> nibbles of their paths, at an empty position.
+     *
+     * @return the root of the subtree
+     */
+    private Node build(int depth, List<byte[]> paths, List<byte[]> values, int lo, int hi) {
+        if (hi - lo == 0) {
+            return null;
+        }
+
+        Position pos = position(depth, paths.get(lo));
+        if (hi - lo == 1) {
+            Node leaf = Node.leaf(paths.get(lo), values.get(lo));
+            write(pos, leaf);
+            return leaf;
+        }
+
+        byte[][] hashes = new byte[RADIX][];
+        Arrays.fill(hashes, Bytes.EMPTY_HASH);
+        for (int i = lo; i < hi;) {
+            int j = next(depth, paths, i, hi);
+            hashes[nibble(paths.get(i), depth)] = hash(build(depth + 1, paths, values, i, j));
+            i = j;
+        }
+        Node branch = Node.branch(hashes);
+        write(pos, branch);
+        return branch;
+    }
+
+    private void write(Position pos, Node node) {
+        if (batch != null) {
+            batch.add(Pair.of(pos.key, node == null ? null : node.bytes));
+            if (batch.size() >= BUILD_BATCH_SIZE) {
+                db.updateBatch(batch);
+                batch.clear();
+            }
+        } else {
+            staged.put(pos, node);
+        }
+    }
+
+    private Node load(Position pos) {
+        if (staged != null && staged.containsKey(pos)) {
+            return staged.get(pos);
+        }
+
+        Node node = cache.getIfPresent(pos);
+        if (node == null) {
+            byte[] bytes = db.get(pos.key);
+            if (bytes != null) {
+                node = new Node(bytes);
+                cache.put(pos, node);
+            }
+        }
+        return node;
+    }
+
+    /**
+     * Returns the end of the run of paths starting at <code>i</code> which share
+     * the nibble at <code>depth</code>.
+     */
+    private static int next(int depth, List<byte[]> paths, int i, int hi) {
+        int n = nibble(paths.get(i), depth);
+        int j = i + 1;
+        while (j < hi && nibble(paths.get(j), depth) == n) {
+            j++;
+        }
+        return j;
+    }
+
+    private static int nibble(byte[] path, int i) {
+        return (i % 2 == 0) ? (path[i / 2] >> 4) & 0x0f : path[i / 2] & 0x0f;
+    }
+
+    private static byte[] withNibble(byte[] path, int i, int value) {
+        byte[] p = path.clone();
+        if (i % 2 == 0) {
+            p[i / 2] = (byte) ((p[i / 2] & 0x0f) | (value << 4));
+        } else {
+            p[i / 2] = (byte) ((p[i / 2] & 0xf0) | value);
+        }
+        return p;
+    }
+
+    /**
+     * Returns the database key of the position of the given depth along a path.
+     */
+    private static Position position(int depth, byte[] path) {
+        byte[] prefix = Arrays.copyOf(path, (depth + 1) / 2);
+        if (depth % 2 != 0) {
+            prefix[prefix.length - 1] &= 0xf0;
+        }
+        return new Position(Bytes.merge((byte) depth, prefix));
+    }
+
+    private static byte[] hash(Node node) {
+        return node == null ? Bytes.EMPTY_HASH : node.hash();
+    }
+
+    /**
+     * The database key of a node. As the path prefixes are uniformly distributed,
+     * the hash code is taken from the leading bytes of the prefix, rather than the
+     * polynomial hash of {@link ByteArray}, which collides a lot on short keys.
+     */
+    private static final class Position {
+        private final byte[] key;
+        private final int hash;
+
+        Position(byte[] key) {
+            this.key = key;
+            int h = key[0];
+            for (int i = 1; i < Math.min(key.length, 5); i++) {
+                h = (h << 8) ^ (key[i] & 0xff);
+            }
+            this.hash = h ^ (key[0] << 24);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Position && Arrays.equals(key, ((Position) o).key);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    private static class Node {
+        private final byte[] bytes;
+        private byte[] hash;
+
+        Node(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        /**
+         * Returns the hash of this node, which is computed on first use as most loaded
+         * nodes are only traversed.
+         */
+        byte[] hash() {
+            if (hash == null) {
+                hash = Hash.h256(bytes);
+            }
+            return hash;
+        }
+
+        static Node leaf(byte[] path, byte[] valueHash) {
+            return new Node(Bytes.merge(Bytes.of(LEAF), path, valueHash));
+        }
+
+        /**
+         * Creates a branch, which only encodes its non-empty children, after a bitmap
+         * of them.
+         */
+        static Node branch(byte[][] children) {
+            int bitmap = 0;
+            List<byte[]> list = new ArrayList<>(RADIX + 2);
+            list.add(Bytes.of(BRANCH));
+            list.add(null);
+            for (int n = 0; n < RADIX; n++) {
+                if (!Arrays.equals(children[n], Bytes.EMPTY_HASH)) {
+                    bitmap |= 1 << n;
+                    list.add(children[n]);
+                }
+            }
+            list.set(1, Bytes.of((short) bitmap));
+            return new Node(Bytes.merge(list));
+        }
+
+        boolean isLeaf() {
+            return bytes[0] == LEAF;
+        }
+
+        byte[] path() {
+            return Arrays.copyOfRange(bytes, 1, 1 + Hash.HASH_LEN);
+        }
+
+        byte[] valueHash() {
+            return Arrays.copyOfRange(bytes, 1 + Hash.HASH_LEN, bytes.length);
+        }
+
+        byte[][] children() {
+            int bitmap = ((bytes[1] & 0xff) << 8) | (bytes[2] & 0xff);
+            byte[][] children = new byte[RADIX][];
+            int offset = 3;
+            for (int n = 0; n < RADIX; n++) {
+                if ((bitmap & (1 << n)) != 0) {
+                    children[n] = Arrays.copyOfRange(bytes, offset, offset + Hash.HASH_LEN);
+                    offset += Hash.HASH_LEN;
+                } else {
+                    children[n] = Bytes.EMPTY_HASH;
+                }
+            }
+            return children;
+        }
+    }
+}
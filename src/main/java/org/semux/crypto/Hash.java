@@ -6,12 +6,17 @@
  */
 package org.semux.crypto;
 
+import java.nio.ByteBuffer;
 import java.security.MessageDigest;
 import java.security.Security;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 import org.bouncycastle.crypto.digests.RIPEMD160Digest;
 import org.bouncycastle.jce.provider.BouncyCastleProvider;
 import org.semux.config.Constants;
+import org.semux.util.Bytes;
 
 /**
  * Hash generator
@@ -24,6 +29,18 @@ public class Hash {
 
     public static final int HASH_LEN = 32;
 
+    /**
+     * The digests of the Java implementation, reused by each thread as they are
+     * costly to look up.
+     */
+    private static final ThreadLocal<MessageDigest> digests = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance(Constants.HASH_ALGORITHM);
+        } catch (Exception e) {
+            throw new CryptoException(e);
+        }
+    });
+
     /**
      * Generate the 256-bit hash.
      *
@@ -31,16 +48,29 @@ public class Hash {
      * @return
      */
     public static byte[] h256(byte[] input) {
-
         if (Native.isEnabled()) {
             return Native.h256(input);
         } else {
-            try {
-                MessageDigest digest = MessageDigest.getInstance(Constants.HASH_ALGORITHM);
-                return digest.digest(input);
-            } catch (Exception e) {
-                throw new CryptoException(e);
-            }
+            return h256(input, 0, input.length);
+        }
+    }
+
+    /**
+     * Computes the 256-bit hash of a range of a byte array.
+     *
+     * @param input
+     * @param offset
+     * @param length
+     * @return
+     */
+    public static byte[] h256(byte[] input, int offset, int length) {
+        if (Native.isEnabled()) {
+            return Native.h256(offset == 0 && length == input.length ? input
+                    : Arrays.copyOfRange(input, offset, offset + length));
+        } else {
+            MessageDigest digest = digest();
+            digest.update(input, offset, length);
+            return digest.digest();
         }
     }
 
@@ -52,11 +82,69 @@ public class Hash {
      * @return
      */
     public static byte[] h256(byte[] one, byte[] two) {
-        byte[] all = new byte[one.length + two.length];
-        System.arraycopy(one, 0, all, 0, one.length);
-        System.arraycopy(two, 0, all, one.length, two.length);
+        return h256(new byte[][] { one, two });
+    }
+
+    /**
+     * Computes the 256-bit hash of the concatenation of the inputs, without merging
+     * them on the Java path.
+     *
+     * @param inputs
+     * @return
+     */
+    public static byte[] h256(byte[]... inputs) {
+        if (Native.isEnabled()) {
+            return Native.h256(Bytes.merge(inputs));
+        } else {
+            MessageDigest digest = digest();
+            for (byte[] input : inputs) {
+                digest.update(input);
+            }
+            return digest.digest();
+        }
+    }
 
-        return Hash.h256(all);
+    /**
+     * Computes the 256-bit hash of the remaining bytes of a buffer, without
+     * changing its position.
+     *
+     * @param buffer
+     * @return
+     */
+    public static byte[] h256(ByteBuffer buffer) {
+        if (buffer.hasArray()) {
+            return h256(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+        } else if (Native.isEnabled()) {
+            byte[] bytes = new byte[buffer.remaining()];
+            buffer.duplicate().get(bytes);
+            return Native.h256(bytes);
+        } else {
+            MessageDigest digest = digest();
+            digest.update(buffer.duplicate());
+            return digest.digest();
+        }
+    }
+
+    /**
+     * Computes the 256-bit hashes of many inputs, with a single native call when
+     * available.
+     *
+     * @param inputs
+     * @return
+     */
+    public static List<byte[]> h256(List<byte[]> inputs) {
+        List<byte[]> hashes = new ArrayList<>(inputs.size());
+        if (Native.isBulkEnabled() && !inputs.isEmpty()) {
+            byte[] packed = Native.h256Batch(Bytes.merge(inputs), Native.offsets(inputs));
+            for (int i = 0; i < inputs.size(); i++) {
+                hashes.add(Arrays.copyOfRange(packed, i * HASH_LEN, (i + 1) * HASH_LEN));
+            }
+        } else {
+            for (byte[] input : inputs) {
+                hashes.add(h256(input));
+            }
+        }
+        return hashes;
     }
 
     /**
@@ -83,6 +171,16 @@ public class Hash {
         }
     }
 
+    /**
+     * Returns the digest of the current thread, reset in case a previous use failed
+     * halfway.
+     */
+    private static MessageDigest digest() {
+        MessageDigest digest = digests.get();
+        digest.reset();
+        return digest;
+    }
+
     private Hash() {
     }
 
@@ -13,7 +13,10 @@ import java.security.SecureRandom;
 import java.security.SignatureException;
 import java.security.spec.InvalidKeySpecException;
 import java.security.spec.PKCS8EncodedKeySpec;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
 
 import org.apache.commons.lang3.builder.EqualsBuilder;
 import org.apache.commons.lang3.builder.HashCodeBuilder;
@@ -42,6 +45,11 @@ public class Key {
     public static final int PRIVATE_KEY_LEN = 48;
     public static final int ADDRESS_LEN = 20;
 
+    /**
+     * Min size of the batches which are verified in parallel.
+     */
+    protected static final int PARALLEL_BATCH_SIZE = 8;
+
     private static final Logger logger = LoggerFactory.getLogger(Key.class);
 
     private static final KeyPairGenerator gen = new KeyPairGenerator();
@@ -207,6 +215,119 @@ public class Key {
         return verify(message, sig);
     }
 
+    /**
+     * Verifies a batch of signatures, spread over the available cores when the
+     * batch is large enough.
+     * <p>
+     * Each signature is checked exactly as by {@link #verify(byte[], Signature)}. A
+     * random linear combination of the verification equations is not used, as it
+     * would be cofactored: signatures with small-order components could pass the
+     * batch while failing the individual check the consensus relies on.
+     *
+     * @param messages
+     *            the messages
+     * @param signatures
+     *            the signatures, in the same order
+     * @return true if all the signatures are valid, otherwise false
+     */
+    public static boolean verifyBatch(List<byte[]> messages, List<Signature> signatures) {
+        return indexOfInvalid(messages, signatures) == -1;
+    }
+
+    /**
+     * Verifies a batch of signatures in the given verification pool.
+     *
+     * @param messages
+     *            the messages
+     * @param signatures
+     *            the signatures, in the same order
+     * @param executor
+     *            the verification pool, or null to use the common pool
+     * @param priority
+     *            the priority of the verification
+     * @return true if all the signatures are valid, otherwise false
+     */
+    public static boolean verifyBatch(List<byte[]> messages, List<Signature> signatures,
+            VerificationExecutor executor, VerificationExecutor.Priority priority) {
+        if (executor == null) {
+            return verifyBatch(messages, signatures);
+        }
+        if (messages.size() != signatures.size()) {
+            throw new IllegalArgumentException("The numbers of messages and signatures do not match");
+        }
+
+        if (Native.isBulkEnabled()) {
+            return executor.verifyRanges(priority, messages.size(),
+                    (from, to) -> indexOfInvalid(messages, signatures, from, to) == -1);
+        }
+        return executor.verifyAll(priority, messages.size(), i -> verify(messages.get(i), signatures.get(i)));
+    }
+
+    /**
+     * Finds the first invalid signature of a batch.
+     *
+     * @param messages
+     *            the messages
+     * @param signatures
+     *            the signatures, in the same order
+     * @return the index of the first invalid signature, or -1 if all are valid
+     */
+    public static int indexOfInvalid(List<byte[]> messages, List<Signature> signatures) {
+        if (messages.size() != signatures.size()) {
+            throw new IllegalArgumentException("The numbers of messages and signatures do not match");
+        }
+
+        if (Native.isBulkEnabled()) {
+            return indexOfInvalid(messages, signatures, 0, messages.size());
+        }
+
+        IntStream indexes = IntStream.range(0, messages.size());
+        if (messages.size() >= PARALLEL_BATCH_SIZE) {
+            indexes = indexes.parallel();
+        }
+        return indexes.filter(i -> !verify(messages.get(i), signatures.get(i))).findFirst().orElse(-1);
+    }
+
+    /**
+     * Finds the first invalid signature in a range of a batch, with a single native
+     * call when available.
+     *
+     * @param messages
+     * @param signatures
+     * @param from
+     *            the start of the range, inclusive
+     * @param to
+     *            the end of the range, exclusive
+     * @return the index of the first invalid signature, or -1 if all are valid
+     */
+    private static int indexOfInvalid(List<byte[]> messages, List<Signature> signatures, int from, int to) {
+        List<byte[]> range = messages.subList(from, to);
+        List<Signature> sigs = signatures.subList(from, to);
+        // the null entries are reported by the single verifications
+        if (Native.isBulkEnabled() && !range.isEmpty() && !range.contains(null) && !sigs.contains(null)) {
+            List<byte[]> s = new ArrayList<>(range.size());
+            List<byte[]> a = new ArrayList<>(range.size());
+            for (Signature sig : sigs) {
+                s.add(sig.getS());
+                a.add(sig.getA());
+            }
+
+            try {
+                int i = Native.verifyBatch(Bytes.merge(range), Native.offsets(range), Bytes.merge(s), Bytes.merge(a));
+                return i == -1 ? -1 : from + i;
+            } catch (CryptoException e) {
+                // fall back to the single verifications
+            }
+        }
+
+        for (int i = from; i < to; i++) {
+            if (!verify(messages.get(i), signatures.get(i))) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
     /**
      * Returns a string representation of this key.
      * 
@@ -12,6 +12,7 @@ import java.io.FileOutputStream;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.file.Files;
+import java.util.List;
 
 import org.semux.util.SystemUtil;
 import org.slf4j.Logger;
@@ -26,6 +27,7 @@ public class Native {
 
     protected static File nativeDir;
     protected static boolean enabled = false;
+    protected static boolean bulkEnabled = false;
 
     /**
      * Initializes the native libraries
@@ -53,6 +55,24 @@ public class Native {
         default:
             break;
         }
+
+        bulkEnabled = enabled && probeBulk();
+    }
+
+    /**
+     * Checks whether the loaded library provides the bulk functions, as the
+     * libraries built before them don't.
+     *
+     * @return
+     */
+    protected static boolean probeBulk() {
+        try {
+            h256Batch(new byte[0], new int[] { 0 });
+            return true;
+        } catch (UnsatisfiedLinkError e) {
+            logger.info("The native library does not provide the bulk functions");
+            return false;
+        }
     }
 
     /**
@@ -104,6 +124,15 @@ public class Native {
         return enabled;
     }
 
+    /**
+     * Returns whether the bulk functions of the native library are enabled.
+     *
+     * @return
+     */
+    public static boolean isBulkEnabled() {
+        return enabled && bulkEnabled;
+    }
+
     /**
      * Disables native implementation.
      */
@@ -152,4 +181,54 @@ public class Native {
      * @return
      */
     public static native boolean verify(byte[] message, byte[] signature, byte[] publicKey);
+
+    /**
+     * Computes the 256-bit hashes of packed messages, in one call.
+     *
+     * @param messages
+     *            the concatenated messages
+     * @param offsets
+     *            the start of each message, followed by the end of the last one
+     * @return the concatenated hashes
+     */
+    public static native byte[] h256Batch(byte[] messages, int[] offsets);
+
+    /**
+     * Computes the Merkle root of packed 256-bit leaves, as
+     * {@link org.semux.util.MerkleTree} does.
+     *
+     * @param leaves
+     *            the concatenated leaves, at least one
+     * @return the root hash
+     */
+    public static native byte[] merkleRoot(byte[] leaves);
+
+    /**
+     * Verifies packed Ed25519 signatures, in one call.
+     *
+     * @param messages
+     *            the concatenated messages
+     * @param offsets
+     *            the start of each message, followed by the end of the last one
+     * @param signatures
+     *            the concatenated signatures
+     * @param publicKeys
+     *            the concatenated public keys
+     * @return the index of the first invalid signature, or -1 if all are valid
+     */
+    public static native int verifyBatch(byte[] messages, int[] offsets, byte[] signatures, byte[] publicKeys);
+
+    /**
+     * Returns the offsets of concatenated byte arrays, for the bulk functions.
+     *
+     * @param arrays
+     * @return
+     */
+    protected static int[] offsets(List<byte[]> arrays) {
+        int[] offsets = new int[arrays.size() + 1];
+        for (int i = 0; i < arrays.size(); i++) {
+            offsets[i + 1] = offsets[i] + arrays.get(i).length;
+        }
+        return offsets;
+    }
 }
@@ -0,0 +1,343 @@
+/**
+ * Copyright (c) 2017-2018 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.crypto;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
+import java.util.function.IntPredicate;
+
+/**
+ * A dedicated thread pool for the signature verifications, so that they don't
+ * compete with the other users of the common fork-join pool.
+ * <p>
+ * Tasks are queued by priority, consensus first. The queue is bounded: once it
+ * is full, the submitting thread runs its task itself, which slows down the
+ * producers until the pool catches up.
+ */
+public class VerificationExecutor {
+
+    /**
+     * The priority classes of the verifications, highest first.
+     */
+    public enum Priority {
+        CONSENSUS, SYNC, PENDING
+    }
+
+    /**
+     * A check over a range of items.
+     */
+    @FunctionalInterface
+    public interface RangePredicate {
+        boolean test(int from, int to);
+    }
+
+    public static final int DEFAULT_MAX_QUEUE_SIZE = 1024;
+
+    /**
+     * Min number of checks handed over to each worker.
+     */
+    protected static final int MIN_CHUNK_SIZE = 4;
+
+    private static final AtomicInteger poolCount = new AtomicInteger(0);
+
+    private final int threads;
+    private final int maxQueueSize;
+    private final ThreadPoolExecutor executor;
+    private final AtomicLong sequence = new AtomicLong(0);
+
+    private final LongAdder[] tasks = newCounters();
+    private final LongAdder[] waitNanos = newCounters();
+    private final LongAdder callerRuns = new LongAdder();
+
+    /**
+     * Creates a verification executor.
+     *
+     * @param threads
+     *            the number of worker threads
+     * @param maxQueueSize
+     *            the max number of queued tasks
+     */
+    public VerificationExecutor(int threads, int maxQueueSize) {
+        if (threads < 1 || maxQueueSize < 1) {
+            throw new IllegalArgumentException("Invalid pool size: threads = " + threads + ", queue = " + maxQueueSize);
+        }
+
+        this.threads = threads;
+        this.maxQueueSize = maxQueueSize;
+
+        int pool = poolCount.getAndIncrement();
+        ThreadFactory factory = new ThreadFactory() {
+            final AtomicInteger cnt = new AtomicInteger(0);
+
+            @Override
+            public Thread newThread(Runnable r) {
+                return new Worker(r, "verify-" + pool + "-" + cnt.getAndIncrement());
+            }
+        };
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new PriorityBlockingQueue<>(), factory, (r, e) -> {
+                    // the pool is shut down
+                    callerRuns.increment();
+                    r.run();
+                });
+    }
+
+    /**
+     * Creates a verification executor with one thread per processor.
+     */
+    public VerificationExecutor() {
+        this(Runtime.getRuntime().availableProcessors(), DEFAULT_MAX_QUEUE_SIZE);
+    }
+
+    /**
+     * Runs the given checks, spread over the worker threads, and stops at the first
+     * failure. The calling thread takes part in the work.
+     *
+     * @param priority
+     *            the priority class of the checks
+     * @param size
+     *            the number of checks
+     * @param check
+     *            the check of the i-th item
+     * @return true if all the checks pass, otherwise false
+     */
+    public boolean verifyAll(Priority priority, int size, IntPredicate check) {
+        AtomicBoolean failed = new AtomicBoolean();
+        return verifyRanges(priority, size, (from, to) -> {
+            for (int i = from; i < to && !failed.get(); i++) {
+                if (!check.test(i)) {
+                    failed.set(true);
+                    return false;
+                }
+            }
+            return !failed.get();
+        });
+    }
+
+    /**
+     * Runs the given check over ranges of the items, spread over the worker
+     * threads. This suits the checks which process many items at once.
+     *
+     * @param priority
+     *            the priority class of the checks
+     * @param size
+     *            the number of items
+     * @param check
+     *            the check of the items in [from, to)
+     * @return true if all the checks pass, otherwise false
+     */
+    public boolean verifyRanges(Priority priority, int size, RangePredicate check) {
+        int chunks = Math.min(threads + 1, size / MIN_CHUNK_SIZE);
+        if (chunks <= 1 || isWorker()) {
+            return check.test(0, size);
+        }
+
+        AtomicBoolean failed = new AtomicBoolean();
+        AtomicReference<RuntimeException> error = new AtomicReference<>();
+        CountDownLatch done = new CountDownLatch(chunks - 1);
+
+        // the first chunk is left to the calling thread
+        for (int c = 1; c < chunks; c++) {
+            int from = (int) ((long) size * c / chunks);
+            int to = (int) ((long) size * (c + 1) / chunks);
+            submit(priority, () -> {
+                try {
+                    if (!check.test(from, to)) {
+                        failed.set(true);
+                    }
+                } catch (RuntimeException e) {
+                    failed.set(true);
+                    error.compareAndSet(null, e);
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        if (!check.test(0, size / chunks)) {
+            failed.set(true);
+        }
+
+        try {
+            done.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        if (error.get() != null) {
+            throw error.get();
+        }
+        return !failed.get();
+    }
+
+    /**
+     * Runs a single check in the pool and waits for its result.
+     *
+     * @param priority
+     *            the priority class of the check
+     * @param check
+     *            the check
+     * @return the result of the check
+     */
+    public boolean verify(Priority priority, BooleanSupplier check) {
+        if (isWorker()) {
+            return check.getAsBoolean();
+        }
+
+        AtomicBoolean valid = new AtomicBoolean();
+        AtomicReference<RuntimeException> error = new AtomicReference<>();
+        CountDownLatch done = new CountDownLatch(1);
+        submit(priority, () -> {
+            try {
+                valid.set(check.getAsBoolean());
+            } catch (RuntimeException e) {
+                error.set(e);
+            } finally {
+                done.countDown();
+            }
+        });
+
+        try {
+            done.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        if (error.get() != null) {
+            throw error.get();
+        }
+        return valid.get();
+    }
+
+    /**
+     * Returns the number of tasks waiting in the queue.
+     *
+     * @return
+     */
+    public int getQueueSize() {
+        return executor.getQueue().size();
+    }
+
+    /**
+     * Returns the number of tasks which have been run by the pool, for the given
+     * priority.
+     *
+     * @param priority
+     * @return
+     */
+    public long getTaskCount(Priority priority) {
+        return tasks[priority.ordinal()].sum();
+    }
+
+    /**
+     * Returns the average time the tasks of the given priority spent in the queue,
+     * in microseconds.
+     *
+     * @param priority
+     * @return
+     */
+    public long getAverageWaitMicros(Priority priority) {
+        long n = tasks[priority.ordinal()].sum();
+        return n == 0 ? 0 : waitNanos[priority.ordinal()].sum() / n / 1_000;
+    }
+
+    /**
+     * Returns the number of tasks which have been run by the submitting thread
+     * because the queue was full.
+     *
+     * @return
+     */
+    public long getCallerRunCount() {
+        return callerRuns.sum();
+    }
+
+    /**
+     * Stops the worker threads once the queued tasks are done. Tasks submitted
+     * afterwards are run by the submitting thread.
+     */
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * Returns whether the current thread belongs to this pool. Its tasks are run in
+     * place, as waiting for the other workers could deadlock the pool.
+     */
+    private boolean isWorker() {
+        Thread t = Thread.currentThread();
+        return t instanceof Worker && ((Worker) t).getOwner() == this;
+    }
+
+    private void submit(Priority priority, Runnable task) {
+        if (executor.getQueue().size() >= maxQueueSize) {
+            callerRuns.increment();
+            task.run();
+            return;
+        }
+
+        executor.execute(new Task(priority, sequence.getAndIncrement(), task));
+    }
+
+    private static LongAdder[] newCounters() {
+        LongAdder[] counters = new LongAdder[Priority.values().length];
+        for (int i = 0; i < counters.length; i++) {
+            counters[i] = new LongAdder();
+        }
+        return counters;
+    }
+
+    /**
+     * A worker thread of the pool.
+     */
+    private class Worker extends Thread {
+        Worker(Runnable r, String name) {
+            super(r, name);
+            setDaemon(true);
+        }
+
+        VerificationExecutor getOwner() {
+            return VerificationExecutor.this;
+        }
+    }
+
+    /**
+     * A queued task, ordered by priority and then by submission.
+     */
+    private class Task implements Runnable, Comparable<Task> {
+        private final Priority priority;
+        private final long sequence;
+        private final long queuedAt = System.nanoTime();
+        private final Runnable task;
+
+        Task(Priority priority, long sequence, Runnable task) {
+            this.priority = priority;
+            this.sequence = sequence;
+            this.task = task;
+        }
+
+        @Override
+        public void run() {
+            tasks[priority.ordinal()].increment();
+            waitNanos[priority.ordinal()].add(System.nanoTime() - queuedAt);
+            task.run();
+        }
+
+        @Override
+        public int compareTo(Task o) {
+            int cmp = priority.compareTo(o.priority);
+            return cmp != 0 ? cmp : Long.compare(sequence, o.sequence);
+        }
+    }
+}
@@ -0,0 +1,330 @@
+/**
+ * Copyright (c) 2017-2018 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.db;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.semux.db.exception.DatabaseException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An append-only store of finalized blocks, organized in segments of
+ * {@link #SEGMENT_SIZE} consecutive heights starting from 0.
+ * <p>
+ * Each segment consists of a data file, holding the records one after another,
+ * and an index file, holding the end offset of each record as a long. A record
+ * is a list of parts, each of which is prefixed by its length. The data is
+ * written before the index, so a torn append is discarded on open.
+ * <p>
+ * Reads go through read-only memory mappings of the files, which are refreshed
+ * when the active segment grows, and released by {@link #close()}.
+ */
+public class BlockArchive {
+
+    private static final Logger logger = LoggerFactory.getLogger(BlockArchive.class);
+
+    public static final int SEGMENT_SIZE = 10_000;
+
+    private final File dir;
+    private final List<Segment> segments = new CopyOnWriteArrayList<>();
+    private volatile long size;
+
+    /**
+     * Opens the archive in the given directory, discarding any incomplete append.
+     *
+     * @param dir
+     */
+    public BlockArchive(File dir) {
+        this.dir = dir;
+        if (!dir.exists() && !dir.mkdirs()) {
+            throw new DatabaseException("Failed to create directory: " + dir);
+        }
+
+        try {
+            long count = 0;
+            for (int i = 0;; i++) {
+                Segment s = new Segment(i);
+                if (!s.idx.exists()) {
+                    break;
+                }
+                segments.add(s);
+                int n = s.recover();
+                count += n;
+                if (n < SEGMENT_SIZE) {
+                    break;
+                }
+            }
+            this.size = count;
+        } catch (IOException e) {
+            throw new DatabaseException(e);
+        }
+
+        logger.info("Block archive opened: dir = {}, size = {}", dir, size);
+    }
+
+    /**
+     * Returns the number of archived blocks, which is also the next height to
+     * append.
+     *
+     * @return
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * Appends the records of consecutive heights, and syncs them to the disk.
+     *
+     * @param from
+     *            the height of the first record, which must be {@link #size()}
+     * @param records
+     *            the parts of each record
+     */
+    public synchronized void append(long from, List<byte[][]> records) {
+        if (from != size) {
+            throw new DatabaseException("Non-consecutive append: expected = " + size + ", actual = " + from);
+        }
+
+        try {
+            int i = 0;
+            while (i < records.size()) {
+                long height = from + i;
+                int segment = (int) (height / SEGMENT_SIZE);
+                int n = (int) Math.min(records.size() - i, SEGMENT_SIZE - height % SEGMENT_SIZE);
+
+                if (segment == segments.size()) {
+                    segments.add(new Segment(segment));
+                }
+                segments.get(segment).append(records.subList(i, i + n));
+
+                i += n;
+                size = from + i;
+            }
+        } catch (IOException e) {
+            throw new DatabaseException(e);
+        }
+    }
+
+    /**
+     * Returns a part of an archived record.
+     *
+     * @param height
+     * @param part
+     * @return the part, or null if the height is not archived
+     */
+    public byte[] get(long height, int part) {
+        if (height < 0 || height >= size) {
+            return null;
+        }
+
+        try {
+            Segment s = segments.get((int) (height / SEGMENT_SIZE));
+            return s.get((int) (height % SEGMENT_SIZE), part);
+        } catch (IOException e) {
+            throw new DatabaseException(e);
+        }
+    }
+
+    /**
+     * Releases the memory mappings of the segments, rather than leaving them to the
+     * garbage collector. Reads afterwards map the files again.
+     */
+    public void close() {
+        for (Segment s : segments) {
+            s.close();
+        }
+    }
+
+    /**
+     * Releases a memory mapping right away. The buffer must not be accessed
+     * afterwards.
+     *
+     * @param buf
+     */
+    private static void unmap(MappedByteBuffer buf) {
+        if (buf == null) {
+            return;
+        }
+
+        try {
+            try {
+                // Java 9 and later
+                Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+                Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+                Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+                theUnsafe.setAccessible(true);
+                invokeCleaner.invoke(theUnsafe.get(null), buf);
+            } catch (NoSuchMethodException e) {
+                // Java 8
+                Method cleaner = buf.getClass().getMethod("cleaner");
+                cleaner.setAccessible(true);
+                Object c = cleaner.invoke(buf);
+                if (c != null) {
+                    c.getClass().getMethod("clean").invoke(c);
+                }
+            }
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            logger.debug("Failed to unmap a segment, left to the garbage collector", e);
+        }
+    }
+
+    private class Segment {
+        private final File dat;
+        private final File idx;
+
+        private int count;
+        private long end;
+
+        private MappedByteBuffer datMap;
+        private MappedByteBuffer idxMap;
+
+        Segment(int n) {
+            String name = String.format(Locale.ROOT, "%08d", n);
+            this.dat = new File(dir, name + ".dat");
+            this.idx = new File(dir, name + ".idx");
+        }
+
+        /**
+         * Truncates the files to the last complete record.
+         *
+         * @return the number of records
+         */
+        synchronized int recover() throws IOException {
+            try (FileChannel ic = FileChannel.open(idx.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+                    FileChannel dc = FileChannel.open(dat.toPath(), StandardOpenOption.CREATE,
+                            StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                count = (int) Math.min(ic.size() / 8, SEGMENT_SIZE);
+                ByteBuffer buf = ByteBuffer.allocate(8);
+                while (count > 0) {
+                    buf.clear();
+                    ic.read(buf, (count - 1) * 8L);
+                    end = buf.getLong(0);
+                    if (end <= dc.size()) {
+                        break;
+                    }
+                    count--;
+                }
+                if (count == 0) {
+                    end = 0;
+                }
+
+                ic.truncate(count * 8L);
+                dc.truncate(end);
+            }
+            return count;
+        }
+
+        synchronized void append(List<byte[][]> records) throws IOException {
+            int length = 0;
+            for (byte[][] parts : records) {
+                for (byte[] p : parts) {
+                    length += 4 + p.length;
+                }
+            }
+
+            ByteBuffer data = ByteBuffer.allocate(length);
+            ByteBuffer index = ByteBuffer.allocate(records.size() * 8);
+            long offset = end;
+            for (byte[][] parts : records) {
+                for (byte[] p : parts) {
+                    data.putInt(p.length).put(p);
+                    offset += 4 + p.length;
+                }
+                index.putLong(offset);
+            }
+            data.flip();
+            index.flip();
+
+            try (FileChannel dc = FileChannel.open(dat.toPath(), StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE)) {
+                writeFully(dc, data, end);
+                dc.force(false);
+            }
+            try (FileChannel ic = FileChannel.open(idx.toPath(), StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE)) {
+                writeFully(ic, index, count * 8L);
+                ic.force(false);
+            }
+
+            count += records.size();
+            end = offset;
+        }
+
+        /**
+         * Reads a part of a record. Reads hold the monitor of the segment, so that the
+         * mappings are never released under them.
+         */
+        synchronized byte[] get(int i, int part) throws IOException {
+            ByteBuffer buf = record(i);
+            for (int j = 0; j < part; j++) {
+                int len = buf.getInt();
+                buf.position(buf.position() + len);
+            }
+
+            byte[] bytes = new byte[buf.getInt()];
+            buf.get(bytes);
+            return bytes;
+        }
+
+        /**
+         * Returns a view of a record, backed by the mapping of the data file.
+         */
+        private synchronized ByteBuffer record(int i) throws IOException {
+            if (idxMap == null || idxMap.capacity() < (i + 1) * 8L) {
+                close();
+                try (FileChannel dc = FileChannel.open(dat.toPath(), StandardOpenOption.READ);
+                        FileChannel ic = FileChannel.open(idx.toPath(), StandardOpenOption.READ)) {
+                    idxMap = ic.map(FileChannel.MapMode.READ_ONLY, 0, count * 8L);
+                    datMap = end <= Integer.MAX_VALUE ? dc.map(FileChannel.MapMode.READ_ONLY, 0, end) : null;
+                }
+            }
+
+            long start = i == 0 ? 0 : idxMap.getLong((i - 1) * 8);
+            long stop = idxMap.getLong(i * 8);
+            if (datMap != null) {
+                ByteBuffer buf = datMap.duplicate();
+                buf.limit((int) stop).position((int) start);
+                return buf;
+            }
+
+            // segments beyond 2 GB can not be mapped as a whole
+            try (FileChannel dc = FileChannel.open(dat.toPath(), StandardOpenOption.READ)) {
+                ByteBuffer buf = ByteBuffer.allocate((int) (stop - start));
+                while (buf.hasRemaining() && dc.read(buf, start + buf.position()) >= 0) {
+                    // read fully
+                }
+                buf.flip();
+                return buf;
+            }
+        }
+
+        synchronized void close() {
+            unmap(datMap);
+            unmap(idxMap);
+            datMap = null;
+            idxMap = null;
+        }
+
+        private void writeFully(FileChannel ch, ByteBuffer buf, long position) throws IOException {
+            long pos = position;
+            while (buf.hasRemaining()) {
+                pos += ch.write(buf, pos);
+            }
+        }
+    }
+}
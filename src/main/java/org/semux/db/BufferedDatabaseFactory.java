@@ -0,0 +1,366 @@
+/**
+ * Copyright (c) 2017-2018 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.db;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.NavigableMap;
+import java.util.NoSuchElementException;
+import java.util.TreeMap;
+
+import org.apache.commons.lang3.tuple.Pair;
+import org.bouncycastle.util.Arrays;
+import org.semux.util.ByteArray;
+import org.semux.util.Bytes;
+import org.semux.util.ClosableIterator;
+
+/**
+ * A database factory which keeps all the writes in memory, on top of another
+ * factory, until {@link #flush()} is called. The buffered writes are visible to
+ * the reads and iterators of this factory.
+ * <p>
+ * The buffer is flushed as one write batch per database, with
+ * {@link DatabaseName#INDEX} last: a bulk load which keeps its progress in the
+ * index therefore never records more progress than it has persisted. This makes
+ * it suitable for bulk loads, where many units of work are grouped into large
+ * batches. A flush which is cut short leaves a marker behind, see
+ * {@link #isFlushInterrupted()}.
+ */
+public class BufferedDatabaseFactory implements DatabaseFactory {
+
+    /**
+     * The key of the marker of an unfinished flush, in the index database.
+     */
+    public static final byte[] FLUSH_KEY = Bytes.of((byte) 0xfd);
+
+    private final DatabaseFactory factory;
+    private final EnumMap<DatabaseName, BufferedDatabase> databases = new EnumMap<>(DatabaseName.class);
+
+    private long bufferedSize;
+
+    public BufferedDatabaseFactory(DatabaseFactory factory) {
+        this.factory = factory;
+        for (DatabaseName name : DatabaseName.values()) {
+            databases.put(name, new BufferedDatabase(name));
+        }
+    }
+
+    @Override
+    public Database getDB(DatabaseName name) {
+        return databases.get(name);
+    }
+
+    /**
+     * Writes all the buffered updates to the underlying databases, one batch per
+     * database and the index last.
+     */
+    public synchronized void flush() {
+        if (bufferedSize == 0) {
+            return;
+        }
+
+        Database index = factory.getDB(DatabaseName.INDEX);
+        index.put(FLUSH_KEY, Bytes.EMPTY_BYTES);
+        for (BufferedDatabase db : databases.values()) {
+            if (db.name != DatabaseName.INDEX) {
+                factory.getDB(db.name).updateBatch(db.drain());
+            }
+        }
+
+        List<Pair<byte[], byte[]>> pairs = databases.get(DatabaseName.INDEX).drain();
+        pairs.add(Pair.of(FLUSH_KEY, null));
+        index.updateBatch(pairs);
+
+        bufferedSize = 0;
+    }
+
+    /**
+     * Returns whether the last flush to the underlying databases has been cut
+     * short, in which case they hold part of its updates only.
+     *
+     * @return
+     */
+    public boolean isFlushInterrupted() {
+        return factory.getDB(DatabaseName.INDEX).get(FLUSH_KEY) != null;
+    }
+
+    /**
+     * Returns the approximate size of the buffered updates, in bytes.
+     *
+     * @return
+     */
+    public synchronized long getBufferedSize() {
+        return bufferedSize;
+    }
+
+    /**
+     * Returns the underlying factory.
+     *
+     * @return
+     */
+    public DatabaseFactory getDelegate() {
+        return factory;
+    }
+
+    @Override
+    public void open() throws IOException {
+        factory.open();
+    }
+
+    /**
+     * Flushes the buffered updates and closes the underlying factory.
+     */
+    @Override
+    public void close() {
+        flush();
+        factory.close();
+    }
+
+    @Override
+    public Path getDataDir() {
+        return factory.getDataDir();
+    }
+
+    @Override
+    public void moveTo(Path path) throws IOException {
+        factory.moveTo(path);
+    }
+
+    private class BufferedDatabase implements Database {
+        private final DatabaseName name;
+
+        /**
+         * All updates, or deletes if the value is null.
+         */
+        private final NavigableMap<ByteArray, byte[]> buffer = new TreeMap<>();
+
+        BufferedDatabase(DatabaseName name) {
+            this.name = name;
+        }
+
+        /**
+         * Removes the buffered updates, as a write batch.
+         */
+        private List<Pair<byte[], byte[]>> drain() {
+            List<Pair<byte[], byte[]>> pairs = new ArrayList<>(buffer.size() + 1);
+            for (Map.Entry<ByteArray, byte[]> e : buffer.entrySet()) {
+                pairs.add(Pair.of(e.getKey().getData(), e.getValue()));
+            }
+            buffer.clear();
+            return pairs;
+        }
+
+        private Database delegate() {
+            return factory.getDB(name);
+        }
+
+        @Override
+        public byte[] get(byte[] key) {
+            synchronized (BufferedDatabaseFactory.this) {
+                ByteArray k = ByteArray.of(key);
+                if (buffer.containsKey(k)) {
+                    return buffer.get(k);
+                }
+            }
+            return delegate().get(key);
+        }
+
+        @Override
+        public void put(byte[] key, byte[] value) {
+            if (value == null) {
+                throw new IllegalArgumentException("Value can not be null");
+            }
+            buffer(key, value);
+        }
+
+        @Override
+        public void delete(byte[] key) {
+            buffer(key, null);
+        }
+
+        @Override
+        public void updateBatch(List<Pair<byte[], byte[]>> pairs) {
+            for (Pair<byte[], byte[]> p : pairs) {
+                buffer(p.getLeft(), p.getRight());
+            }
+        }
+
+        private void buffer(byte[] key, byte[] value) {
+            synchronized (BufferedDatabaseFactory.this) {
+                buffer.put(ByteArray.of(key), value);
+                bufferedSize += key.length + (value == null ? 0 : value.length);
+            }
+        }
+
+        @Override
+        public ClosableIterator<Entry<byte[], byte[]>> iterator() {
+            return rangeIterator(null, null);
+        }
+
+        @Override
+        public ClosableIterator<Entry<byte[], byte[]>> iterator(byte[] prefix) {
+            // the legacy iterator starts at the prefix and runs to the last key
+            return new MergedIterator(delegate().iterator(prefix), buffered(prefix, null, false), false);
+        }
+
+        @Override
+        public ClosableIterator<Entry<byte[], byte[]>> prefixIterator(byte[] prefix) {
+            return rangeIterator(prefix, LeveldbDatabase.prefixEnd(prefix));
+        }
+
+        @Override
+        public ClosableIterator<Entry<byte[], byte[]>> reversePrefixIterator(byte[] prefix) {
+            return reverseIterator(prefix, LeveldbDatabase.prefixEnd(prefix));
+        }
+
+        @Override
+        public ClosableIterator<Entry<byte[], byte[]>> rangeIterator(byte[] start, byte[] end) {
+            return new MergedIterator(delegate().rangeIterator(start, end), buffered(start, end, false), false);
+        }
+
+        @Override
+        public ClosableIterator<Entry<byte[], byte[]>> reverseIterator(byte[] start, byte[] end) {
+            return new MergedIterator(delegate().reverseIterator(start, end), buffered(start, end, true), true);
+        }
+
+        /**
+         * Copies the buffered updates within <code>[start, end)</code>, so that the
+         * iteration is not affected by later writes.
+         */
+        private Iterator<Map.Entry<ByteArray, byte[]>> buffered(byte[] start, byte[] end, boolean reverse) {
+            synchronized (BufferedDatabaseFactory.this) {
+                NavigableMap<ByteArray, byte[]> map = buffer;
+                if (start != null) {
+                    map = map.tailMap(ByteArray.of(start), true);
+                }
+                if (end != null) {
+                    map = map.headMap(ByteArray.of(end), false);
+                }
+                if (reverse) {
+                    map = map.descendingMap();
+                }
+                return new ArrayList<>(map.entrySet()).iterator();
+            }
+        }
+
+        /**
+         * Flushes the buffered updates first, as snapshots are served by the underlying
+         * database.
+         */
+        @Override
+        public Database snapshot() {
+            flush();
+            return delegate().snapshot();
+        }
+
+        @Override
+        public DatabaseMetrics getMetrics() {
+            return delegate().getMetrics();
+        }
+
+        @Override
+        public void close() {
+            delegate().close();
+        }
+
+        @Override
+        public void destroy() {
+            synchronized (BufferedDatabaseFactory.this) {
+                buffer.clear();
+            }
+            delegate().destroy();
+        }
+
+        @Override
+        public Path getDataDir() {
+            return delegate().getDataDir();
+        }
+    }
+
+    /**
+     * Merges the entries of the underlying database with the buffered updates,
+     * which take precedence over the former.
+     */
+    private static class MergedIterator implements ClosableIterator<Entry<byte[], byte[]>> {
+        private final ClosableIterator<Entry<byte[], byte[]>> base;
+        private final Iterator<Map.Entry<ByteArray, byte[]>> buffered;
+        private final int direction;
+
+        private Entry<byte[], byte[]> baseHead;
+        private Map.Entry<ByteArray, byte[]> bufferedHead;
+        private Entry<byte[], byte[]> next;
+
+        MergedIterator(ClosableIterator<Entry<byte[], byte[]>> base,
+                Iterator<Map.Entry<ByteArray, byte[]>> buffered, boolean reverse) {
+            this.base = base;
+            this.buffered = buffered;
+            this.direction = reverse ? -1 : 1;
+            this.next = advance();
+        }
+
+        private Entry<byte[], byte[]> advance() {
+            while (true) {
+                if (baseHead == null && base.hasNext()) {
+                    baseHead = base.next();
+                }
+                if (bufferedHead == null && buffered.hasNext()) {
+                    bufferedHead = buffered.next();
+                }
+                if (baseHead == null && bufferedHead == null) {
+                    return null;
+                }
+
+                int c = baseHead == null ? 1
+                        : bufferedHead == null ? -1
+                                : direction * Arrays.compareUnsigned(baseHead.getKey(),
+                                        bufferedHead.getKey().getData());
+                if (c < 0) {
+                    Entry<byte[], byte[]> e = baseHead;
+                    baseHead = null;
+                    return e;
+                }
+                if (c == 0) {
+                    // shadowed by the buffered update
+                    baseHead = null;
+                }
+
+                Map.Entry<ByteArray, byte[]> e = bufferedHead;
+                bufferedHead = null;
+                if (e.getValue() != null) {
+                    return new SimpleImmutableEntry<>(e.getKey().getData(), e.getValue());
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public Entry<byte[], byte[]> next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            Entry<byte[], byte[]> e = next;
+            next = advance();
+            return e;
+        }
+
+        @Override
+        public void close() {
+            base.close();
+        }
+    }
+}
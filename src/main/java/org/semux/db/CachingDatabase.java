@@ -0,0 +1,171 @@
+/**
+ * Copyright (c) 2017-2018 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.db;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map.Entry;
+
+import org.apache.commons.lang3.tuple.Pair;
+import org.semux.util.ByteArray;
+import org.semux.util.ClosableIterator;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+/**
+ * A read-through cache in front of another database, bounded by the total size
+ * of the cached keys and values. Absent keys are cached as well.
+ * <p>
+ * All the writes must go through this instance to keep the cache coherent. The
+ * returned values are shared with the cache and must not be modified.
+ */
+public class CachingDatabase implements Database {
+
+    /**
+     * Approximate memory overhead of a cache entry, in bytes.
+     */
+    private static final int ENTRY_OVERHEAD = 64;
+
+    /**
+     * Marker of absent keys, compared by identity.
+     */
+    private static final byte[] ABSENT = new byte[0];
+
+    private final Database db;
+    private final Cache<ByteArray, byte[]> cache;
+
+    /**
+     * Creates a caching database.
+     *
+     * @param db
+     *            the underlying database
+     * @param maxBytes
+     *            the max total size of the cached entries
+     */
+    public CachingDatabase(Database db, long maxBytes) {
+        this.db = db;
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher((ByteArray k, byte[] v) -> ENTRY_OVERHEAD + k.length() + v.length)
+                .recordStats()
+                .build();
+    }
+
+    @Override
+    public byte[] get(byte[] key) {
+        byte[] value = cache.get(ByteArray.of(key), k -> {
+            byte[] v = db.get(key);
+            return v == null ? ABSENT : v;
+        });
+        return value == ABSENT ? null : value;
+    }
+
+    @Override
+    public void put(byte[] key, byte[] value) {
+        db.put(key, value);
+        cache.put(ByteArray.of(key), value);
+    }
+
+    @Override
+    public void delete(byte[] key) {
+        db.delete(key);
+        cache.put(ByteArray.of(key), ABSENT);
+    }
+
+    @Override
+    public void updateBatch(List<Pair<byte[], byte[]>> pairs) {
+        db.updateBatch(pairs);
+        for (Pair<byte[], byte[]> p : pairs) {
+            cache.put(ByteArray.of(p.getLeft()), p.getRight() == null ? ABSENT : p.getRight());
+        }
+    }
+
+    @Override
+    public ClosableIterator<Entry<byte[], byte[]>> iterator() {
+        return db.iterator();
+    }
+
+    @Override
+    public ClosableIterator<Entry<byte[], byte[]>> iterator(byte[] prefix) {
+        return db.iterator(prefix);
+    }
+
+    @Override
+    public ClosableIterator<Entry<byte[], byte[]>> prefixIterator(byte[] prefix) {
+        return db.prefixIterator(prefix);
+    }
+
+    @Override
+    public ClosableIterator<Entry<byte[], byte[]>> reversePrefixIterator(byte[] prefix) {
+        return db.reversePrefixIterator(prefix);
+    }
+
+    @Override
+    public ClosableIterator<Entry<byte[], byte[]>> rangeIterator(byte[] start, byte[] end) {
+        return db.rangeIterator(start, end);
+    }
+
+    @Override
+    public ClosableIterator<Entry<byte[], byte[]>> reverseIterator(byte[] start, byte[] end) {
+        return db.reverseIterator(start, end);
+    }
+
+    @Override
+    public Database snapshot() {
+        return db.snapshot();
+    }
+
+    @Override
+    public DatabaseMetrics getMetrics() {
+        return db.getMetrics();
+    }
+
+    @Override
+    public void close() {
+        cache.invalidateAll();
+        db.close();
+    }
+
+    @Override
+    public void destroy() {
+        cache.invalidateAll();
+        db.destroy();
+    }
+
+    @Override
+    public Path getDataDir() {
+        return db.getDataDir();
+    }
+
+    /**
+     * Returns the number of reads served by the cache.
+     *
+     * @return
+     */
+    public long getHitCount() {
+        return cache.stats().hitCount();
+    }
+
+    /**
+     * Returns the number of reads served by the underlying database.
+     *
+     * @return
+     */
+    public long getMissCount() {
+        return cache.stats().missCount();
+    }
+
+    /**
+     * Returns the underlying database.
+     *
+     * @return
+     */
+    public Database getDelegate() {
+        return db;
+    }
+}
@@ -72,6 +72,73 @@ public interface Database {
      */
     ClosableIterator<Entry<byte[], byte[]>> iterator(byte[] prefix);
 
+    /**
+     * Returns all the entries whose key starts with the given prefix, in ascending
+     * order. The iteration stops at the end of the prefix.<br>
+     * <br>
+     * NOTE: be sure to close the iterator after iteration.
+     *
+     * @param prefix
+     * @return
+     */
+    ClosableIterator<Entry<byte[], byte[]>> prefixIterator(byte[] prefix);
+
+    /**
+     * Returns all the entries whose key starts with the given prefix, in descending
+     * order.<br>
+     * <br>
+     * NOTE: be sure to close the iterator after iteration.
+     *
+     * @param prefix
+     * @return
+     */
+    ClosableIterator<Entry<byte[], byte[]>> reversePrefixIterator(byte[] prefix);
+
+    /**
+     * Returns all the entries whose key is within <code>[start, end)</code>, in
+     * ascending order.<br>
+     * <br>
+     * NOTE: be sure to close the iterator after iteration.
+     *
+     * @param start
+     *            the inclusive lower bound, or null to start from the first key
+     * @param end
+     *            the exclusive upper bound, or null to iterate to the last key
+     * @return
+     */
+    ClosableIterator<Entry<byte[], byte[]>> rangeIterator(byte[] start, byte[] end);
+
+    /**
+     * Returns all the entries whose key is within <code>[start, end)</code>, in
+     * descending order.<br>
+     * <br>
+     * NOTE: be sure to close the iterator after iteration.
+     *
+     * @param start
+     *            the inclusive lower bound, or null to iterate to the first key
+     * @param end
+     *            the exclusive upper bound, or null to start from the last key
+     * @return
+     */
+    ClosableIterator<Entry<byte[], byte[]>> reverseIterator(byte[] start, byte[] end);
+
+    /**
+     * Returns a read-only view of this database, pinned to its current content.
+     * Later writes to this database are not visible through the view.<br>
+     * <br>
+     * NOTE: be sure to close the snapshot after use.
+     *
+     * @return
+     */
+    Database snapshot();
+
+    /**
+     * Returns the operation metrics and storage statistics of this database.
+     *
+     * @return
+     */
+    DatabaseMetrics getMetrics();
+
     /**
      * Closes the database.
      */
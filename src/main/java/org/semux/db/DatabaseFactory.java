@@ -22,6 +22,28 @@ public interface DatabaseFactory {
      */
     Database getDB(DatabaseName name);
 
+    /**
+     * Starts a unit of work, which collects the updates of all databases and
+     * flushes them as one batch per database.
+     *
+     * @return
+     */
+    default UnitOfWork createUnitOfWork() {
+        return new UnitOfWork(this);
+    }
+
+    /**
+     * Takes a snapshot of all the databases. The snapshots are consistent with each
+     * other only if no unit of work is being flushed meanwhile.<br>
+     * <br>
+     * NOTE: be sure to close the returned factory after use.
+     *
+     * @return a read-only factory
+     */
+    default DatabaseFactory snapshotAll() {
+        return new SnapshotFactory(this);
+    }
+
     /**
      * Open resources.
      */
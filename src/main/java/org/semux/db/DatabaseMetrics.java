@@ -0,0 +1,169 @@
+/**
+ * Copyright (c) 2017-2018 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.db;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Operation counters, latency histograms and storage statistics of a database.
+ */
+public class DatabaseMetrics {
+
+    public enum Operation {
+        GET, PUT, DELETE, BATCH, ITERATOR
+    }
+
+    private final EnumMap<Operation, Histogram> latencies = new EnumMap<>(Operation.class);
+    private final LongAdder bytesRead = new LongAdder();
+    private final LongAdder bytesWritten = new LongAdder();
+
+    private volatile long approximateSize;
+    private volatile int[] filesPerLevel = new int[0];
+
+    public DatabaseMetrics() {
+        for (Operation op : Operation.values()) {
+            latencies.put(op, new Histogram());
+        }
+    }
+
+    /**
+     * Records an operation.
+     *
+     * @param op
+     *            the operation
+     * @param startNanos
+     *            the value of {@link System#nanoTime()} when the operation started
+     */
+    public void record(Operation op, long startNanos) {
+        latencies.get(op).record(System.nanoTime() - startNanos);
+    }
+
+    public void addBytesRead(long n) {
+        bytesRead.add(n);
+    }
+
+    public void addBytesWritten(long n) {
+        bytesWritten.add(n);
+    }
+
+    /**
+     * Updates the storage statistics.
+     *
+     * @param approximateSize
+     *            the approximate size on disk, in bytes
+     * @param filesPerLevel
+     *            the number of table files at each level
+     */
+    public void updateStorage(long approximateSize, int[] filesPerLevel) {
+        this.approximateSize = approximateSize;
+        this.filesPerLevel = filesPerLevel;
+    }
+
+    public Histogram getLatency(Operation op) {
+        return latencies.get(op);
+    }
+
+    public long getBytesRead() {
+        return bytesRead.sum();
+    }
+
+    public long getBytesWritten() {
+        return bytesWritten.sum();
+    }
+
+    public long getApproximateSize() {
+        return approximateSize;
+    }
+
+    /**
+     * Returns the number of table files at each level. A growing number of files at
+     * level 0 indicates that compactions fall behind the writes.
+     *
+     * @return
+     */
+    public int[] getFilesPerLevel() {
+        return filesPerLevel.clone();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("size = ").append(approximateSize)
+                .append(", files = ").append(Arrays.toString(filesPerLevel))
+                .append(", read = ").append(getBytesRead())
+                .append(", written = ").append(getBytesWritten());
+        for (Operation op : Operation.values()) {
+            sb.append(", ").append(op.name().toLowerCase(Locale.ROOT)).append(" = ").append(latencies.get(op));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * A lock-free latency histogram with power-of-two buckets, in nanoseconds.
+     */
+    public static class Histogram {
+        private final AtomicLongArray buckets = new AtomicLongArray(64);
+        private final LongAdder count = new LongAdder();
+        private final LongAdder sum = new LongAdder();
+
+        public void record(long nanos) {
+            long n = Math.max(nanos, 0);
+            buckets.incrementAndGet(63 - Long.numberOfLeadingZeros(n | 1));
+            count.increment();
+            sum.add(n);
+        }
+
+        public long getCount() {
+            return count.sum();
+        }
+
+        /**
+         * Returns the mean latency in nanoseconds.
+         *
+         * @return
+         */
+        public long getMean() {
+            long c = count.sum();
+            return c == 0 ? 0 : sum.sum() / c;
+        }
+
+        /**
+         * Returns the upper bound of the bucket containing the given percentile, in
+         * nanoseconds.
+         *
+         * @param percentile
+         *            between 0 and 1
+         * @return
+         */
+        public long getPercentile(double percentile) {
+            long c = count.sum();
+            if (c == 0) {
+                return 0;
+            }
+
+            long threshold = (long) Math.ceil(c * percentile);
+            long acc = 0;
+            for (int i = 0; i < buckets.length(); i++) {
+                acc += buckets.get(i);
+                if (acc >= threshold) {
+                    return i >= 62 ? Long.MAX_VALUE : (1L << (i + 1)) - 1;
+                }
+            }
+            return Long.MAX_VALUE;
+        }
+
+        @Override
+        public String toString() {
+            return "[count = " + getCount() + ", mean = " + getMean() / 1000 + " μs, p99 = "
+                    + getPercentile(0.99) / 1000 + " μs]";
+        }
+    }
+}
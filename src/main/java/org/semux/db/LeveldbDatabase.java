@@ -15,15 +15,23 @@ import java.util.EnumMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map.Entry;
+import java.util.NoSuchElementException;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
 
 import org.apache.commons.lang3.tuple.Pair;
+import org.bouncycastle.util.Arrays;
 import org.fusesource.leveldbjni.JniDBFactory;
 import org.iq80.leveldb.CompressionType;
 import org.iq80.leveldb.DB;
 import org.iq80.leveldb.DBIterator;
 import org.iq80.leveldb.Options;
+import org.iq80.leveldb.Range;
+import org.iq80.leveldb.ReadOptions;
+import org.iq80.leveldb.Snapshot;
 import org.iq80.leveldb.WriteBatch;
+import org.semux.config.Config;
+import org.semux.db.DatabaseMetrics.Operation;
 import org.semux.db.exception.DatabaseException;
 import org.semux.util.ClosableIterator;
 import org.semux.util.FileUtil;
@@ -35,21 +43,54 @@ public class LeveldbDatabase implements Database {
 
     private static final Logger logger = LoggerFactory.getLogger(LeveldbDatabase.class);
 
+    private static final int MAX_LEVELS = 7;
+    private static final byte[] MAX_KEY = new byte[64];
+    static {
+        Arrays.fill(MAX_KEY, (byte) 0xff);
+    }
+
     private final File file;
-    private DB db;
+    protected DB db;
     private boolean isOpened;
 
+    protected final DatabaseMetrics metrics;
+
     public LeveldbDatabase(File file) {
         this.file = file;
+        this.metrics = new DatabaseMetrics();
 
-        File dir = file.getParentFile();
-        if (!dir.exists() && !dir.mkdirs()) {
-            logger.error("Failed to create directory: {}", dir);
-        }
-
+        createParentDir();
         open(createOptions());
     }
 
+    /**
+     * Opens a database with the given options.
+     *
+     * @param file
+     * @param options
+     */
+    public LeveldbDatabase(File file, Options options) {
+        this.file = file;
+        this.metrics = new DatabaseMetrics();
+
+        createParentDir();
+        open(options);
+    }
+
+    /**
+     * Creates a view over an opened database.
+     *
+     * @param file
+     * @param db
+     * @param metrics
+     *            the metrics shared with the database
+     */
+    protected LeveldbDatabase(File file, DB db, DatabaseMetrics metrics) {
+        this.file = file;
+        this.db = db;
+        this.metrics = metrics;
+    }
+
     /**
      * Creates the default options.
      *
@@ -69,6 +110,13 @@ public class LeveldbDatabase implements Database {
         return options;
     }
 
+    private void createParentDir() {
+        File dir = file.getParentFile();
+        if (!dir.exists() && !dir.mkdirs()) {
+            logger.error("Failed to create directory: {}", dir);
+        }
+    }
+
     /**
      * Open the database.
      * 
@@ -116,27 +164,43 @@ public class LeveldbDatabase implements Database {
 
     @Override
     public byte[] get(byte[] key) {
-        return db.get(key);
+        long start = System.nanoTime();
+        byte[] value = read(key);
+        metrics.record(Operation.GET, start);
+        if (value != null) {
+            metrics.addBytesRead(value.length);
+        }
+        return value;
     }
 
     @Override
     public void put(byte[] key, byte[] value) {
+        long start = System.nanoTime();
         db.put(key, value);
+        metrics.record(Operation.PUT, start);
+        metrics.addBytesWritten(key.length + value.length);
     }
 
     @Override
     public void delete(byte[] key) {
+        long start = System.nanoTime();
         db.delete(key);
+        metrics.record(Operation.DELETE, start);
+        metrics.addBytesWritten(key.length);
     }
 
     @Override
     public void updateBatch(List<Pair<byte[], byte[]>> pairs) {
+        long start = System.nanoTime();
+        long bytes = 0;
         try (WriteBatch batch = db.createWriteBatch()) {
             for (Pair<byte[], byte[]> p : pairs) {
                 if (p.getValue() == null) {
                     batch.delete(p.getLeft());
+                    bytes += p.getLeft().length;
                 } else {
                     batch.put(p.getLeft(), p.getRight());
+                    bytes += p.getLeft().length + p.getRight().length;
                 }
             }
             db.write(batch);
@@ -144,6 +208,32 @@ public class LeveldbDatabase implements Database {
             logger.error("Failed to update batch", e);
             SystemUtil.exitAsync(SystemUtil.Code.FAILED_TO_WRITE_BATCH_TO_DB);
         }
+        metrics.record(Operation.BATCH, start);
+        metrics.addBytesWritten(bytes);
+    }
+
+    @Override
+    public DatabaseMetrics getMetrics() {
+        if (isOpened) {
+            long size = db.getApproximateSizes(new Range(new byte[0], MAX_KEY))[0];
+            int[] files = new int[MAX_LEVELS];
+            for (int i = 0; i < MAX_LEVELS; i++) {
+                String n = db.getProperty("leveldb.num-files-at-level" + i);
+                files[i] = n == null ? 0 : Integer.parseInt(n.trim());
+            }
+            metrics.updateStorage(size, files);
+        }
+        return metrics;
+    }
+
+    /**
+     * Reads the value of a key from the underlying database.
+     *
+     * @param key
+     * @return
+     */
+    protected byte[] read(byte[] key) {
+        return db.get(key);
     }
 
     @Override
@@ -178,14 +268,16 @@ public class LeveldbDatabase implements Database {
     public ClosableIterator<Entry<byte[], byte[]>> iterator(byte[] prefix) {
 
         return new ClosableIterator<Entry<byte[], byte[]>>() {
-            final DBIterator itr = db.iterator();
+            final DBIterator itr = newIterator();
 
             private ClosableIterator<Entry<byte[], byte[]>> initialize() {
+                long start = System.nanoTime();
                 if (prefix != null) {
                     itr.seek(prefix);
                 } else {
                     itr.seekToFirst();
                 }
+                metrics.record(Operation.ITERATOR, start);
                 return this;
             }
 
@@ -196,7 +288,9 @@ public class LeveldbDatabase implements Database {
 
             @Override
             public Entry<byte[], byte[]> next() {
-                return itr.next();
+                Entry<byte[], byte[]> e = itr.next();
+                metrics.addBytesRead(e.getKey().length + e.getValue().length);
+                return e;
             }
 
             @Override
@@ -210,17 +304,260 @@ public class LeveldbDatabase implements Database {
         }.initialize();
     }
 
+    @Override
+    public ClosableIterator<Entry<byte[], byte[]>> prefixIterator(byte[] prefix) {
+        return rangeIterator(prefix, prefixEnd(prefix));
+    }
+
+    @Override
+    public ClosableIterator<Entry<byte[], byte[]>> reversePrefixIterator(byte[] prefix) {
+        return reverseIterator(prefix, prefixEnd(prefix));
+    }
+
+    @Override
+    public ClosableIterator<Entry<byte[], byte[]>> rangeIterator(byte[] start, byte[] end) {
+
+        return new BoundedIterator(newIterator(), metrics) {
+            @Override
+            protected Entry<byte[], byte[]> first() {
+                if (start != null) {
+                    itr.seek(start);
+                } else {
+                    itr.seekToFirst();
+                }
+                return itr.hasNext() ? itr.next() : null;
+            }
+
+            @Override
+            protected Entry<byte[], byte[]> advance() {
+                return itr.hasNext() ? itr.next() : null;
+            }
+
+            @Override
+            protected boolean inBound(byte[] key) {
+                return end == null || Arrays.compareUnsigned(key, end) < 0;
+            }
+        };
+    }
+
+    @Override
+    public ClosableIterator<Entry<byte[], byte[]>> reverseIterator(byte[] start, byte[] end) {
+
+        return new BoundedIterator(newIterator(), metrics) {
+            @Override
+            protected Entry<byte[], byte[]> first() {
+                if (end != null) {
+                    // positions at the first key >= end, then steps back once
+                    itr.seek(end);
+                    if (itr.hasNext()) {
+                        return itr.hasPrev() ? itr.prev() : null;
+                    }
+                }
+                itr.seekToLast();
+                return itr.hasNext() ? itr.peekNext() : null;
+            }
+
+            @Override
+            protected Entry<byte[], byte[]> advance() {
+                return itr.hasPrev() ? itr.prev() : null;
+            }
+
+            @Override
+            protected boolean inBound(byte[] key) {
+                return start == null || Arrays.compareUnsigned(key, start) >= 0;
+            }
+        };
+    }
+
+    @Override
+    public Database snapshot() {
+        return new LeveldbSnapshot(file, db, metrics);
+    }
+
+    /**
+     * Creates a native iterator.
+     *
+     * @return
+     */
+    protected DBIterator newIterator() {
+        return db.iterator();
+    }
+
+    /**
+     * Returns the smallest key which is greater than all the keys starting with the
+     * given prefix.
+     *
+     * @param prefix
+     * @return the exclusive upper bound, or null if there is no such key
+     */
+    public static byte[] prefixEnd(byte[] prefix) {
+        byte[] end = prefix.clone();
+        for (int i = end.length - 1; i >= 0; i--) {
+            if (end[i] != (byte) 0xff) {
+                end[i]++;
+                return Arrays.copyOf(end, i + 1);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * An iterator which stops at the first entry outside of its bound, without
+     * consuming the underlying iterator any further.
+     */
+    private abstract static class BoundedIterator implements ClosableIterator<Entry<byte[], byte[]>> {
+        protected final DBIterator itr;
+        private final DatabaseMetrics metrics;
+        private Entry<byte[], byte[]> next;
+        private boolean initialized;
+
+        BoundedIterator(DBIterator itr, DatabaseMetrics metrics) {
+            this.itr = itr;
+            this.metrics = metrics;
+        }
+
+        protected abstract Entry<byte[], byte[]> first();
+
+        protected abstract Entry<byte[], byte[]> advance();
+
+        protected abstract boolean inBound(byte[] key);
+
+        private Entry<byte[], byte[]> check(Entry<byte[], byte[]> e) {
+            return (e != null && inBound(e.getKey())) ? e : null;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (!initialized) {
+                long start = System.nanoTime();
+                next = check(first());
+                initialized = true;
+                metrics.record(Operation.ITERATOR, start);
+            }
+            return next != null;
+        }
+
+        @Override
+        public Entry<byte[], byte[]> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+
+            Entry<byte[], byte[]> e = next;
+            next = check(advance());
+            metrics.addBytesRead(e.getKey().length + e.getValue().length);
+            return e;
+        }
+
+        @Override
+        public void close() {
+            try {
+                itr.close();
+            } catch (IOException e) {
+                throw new DatabaseException(e);
+            }
+        }
+    }
+
+    /**
+     * A read-only view of a database, pinned to a LevelDB snapshot.
+     */
+    protected static class LeveldbSnapshot extends LeveldbDatabase {
+
+        private final Snapshot snapshot;
+        private final ReadOptions readOptions;
+
+        protected LeveldbSnapshot(File file, DB db, DatabaseMetrics metrics) {
+            super(file, db, metrics);
+            this.snapshot = db.getSnapshot();
+            this.readOptions = new ReadOptions().snapshot(snapshot);
+        }
+
+        @Override
+        protected byte[] read(byte[] key) {
+            return db.get(key, readOptions);
+        }
+
+        @Override
+        public void put(byte[] key, byte[] value) {
+            throw new UnsupportedOperationException("Snapshot is read-only");
+        }
+
+        @Override
+        public void delete(byte[] key) {
+            throw new UnsupportedOperationException("Snapshot is read-only");
+        }
+
+        @Override
+        public void updateBatch(List<Pair<byte[], byte[]>> pairs) {
+            throw new UnsupportedOperationException("Snapshot is read-only");
+        }
+
+        @Override
+        public Database snapshot() {
+            throw new UnsupportedOperationException("Snapshot of a snapshot is not supported");
+        }
+
+        @Override
+        protected DBIterator newIterator() {
+            return db.iterator(readOptions);
+        }
+
+        @Override
+        public void close() {
+            try {
+                snapshot.close();
+            } catch (IOException e) {
+                logger.error("Failed to release snapshot: {}", getDataDir(), e);
+            }
+        }
+
+        @Override
+        public void destroy() {
+            throw new UnsupportedOperationException("Snapshot can not be destroyed");
+        }
+    }
+
     public static class LeveldbFactory implements DatabaseFactory {
 
         private final EnumMap<DatabaseName, Database> databases = new EnumMap<>(DatabaseName.class);
 
+        private final EnumMap<DatabaseName, LeveldbProfile> profiles = new EnumMap<>(DatabaseName.class);
+
         private final File dataDir;
         private final AtomicBoolean open;
 
+        /**
+         * Opens the databases with the default profiles.
+         *
+         * @param dataDir
+         */
         public LeveldbFactory(File dataDir) {
+            this(dataDir, LeveldbProfile::of, LeveldbProfile.defaultCacheSize());
+        }
+
+        /**
+         * Opens the databases with the configured profiles.
+         *
+         * @param config
+         */
+        public LeveldbFactory(Config config) {
+            this(config.databaseDir(), config::dbProfile, config.dbCacheSize());
+        }
+
+        private final long cacheSize;
+
+        protected LeveldbFactory(File dataDir, Function<DatabaseName, LeveldbProfile> profiles, long cacheSize) {
             this.dataDir = dataDir;
+            this.cacheSize = cacheSize;
             this.open = new AtomicBoolean(false);
 
+            for (DatabaseName name : DatabaseName.values()) {
+                LeveldbProfile profile = profiles.apply(name);
+                logger.debug("Database profile: name = {}, {}", name, profile);
+                this.profiles.put(name, profile);
+            }
+
             open();
         }
 
@@ -229,7 +566,12 @@ public class LeveldbDatabase implements Database {
             if (open.compareAndSet(false, true)) {
                 for (DatabaseName name : DatabaseName.values()) {
                     File file = new File(dataDir.getAbsolutePath(), name.toString().toLowerCase(Locale.ROOT));
-                    databases.put(name, new LeveldbDatabase(file));
+                    LeveldbProfile profile = profiles.get(name);
+                    Database db = new LeveldbDatabase(file, profile.toOptions(cacheSize));
+                    if (profile.getRowCacheSize() > 0) {
+                        db = new CachingDatabase(db, profile.getRowCacheSize());
+                    }
+                    databases.put(name, db);
                 }
             }
         }
@@ -0,0 +1,168 @@
+/**
+ * Copyright (c) 2017-2018 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.db;
+
+import org.iq80.leveldb.CompressionType;
+import org.iq80.leveldb.Options;
+import org.semux.util.SystemUtil;
+
+/**
+ * Tuning options of a LevelDB database.
+ *
+ * The defaults reflect the access pattern of each {@link DatabaseName}: the
+ * state databases are dominated by point lookups of small values, and therefore
+ * use small blocks; the block database stores large, compressible values which
+ * are mostly read sequentially.
+ */
+public class LeveldbProfile {
+
+    private static final long MIN_CACHE_SIZE = 32L * 1024 * 1024;
+    private static final long MAX_CACHE_SIZE = 512L * 1024 * 1024;
+
+    private int blockSize;
+    private boolean compression;
+    private double cacheShare;
+    private int writeBufferSize;
+    private int maxOpenFiles;
+    private long rowCacheSize;
+
+    public LeveldbProfile(int blockSize, boolean compression, double cacheShare, int writeBufferSize,
+            int maxOpenFiles, long rowCacheSize) {
+        this.blockSize = blockSize;
+        this.compression = compression;
+        this.cacheShare = cacheShare;
+        this.writeBufferSize = writeBufferSize;
+        this.maxOpenFiles = maxOpenFiles;
+        this.rowCacheSize = rowCacheSize;
+    }
+
+    /**
+     * Returns the default profile of a database.
+     *
+     * @param name
+     * @return
+     */
+    public static LeveldbProfile of(DatabaseName name) {
+        switch (name) {
+        case BLOCK:
+            return new LeveldbProfile(64 * 1024, true, 0.25, 16 * 1024 * 1024, 256, 0);
+        case INDEX:
+            return new LeveldbProfile(16 * 1024, true, 0.20, 8 * 1024 * 1024, 128, 8L * 1024 * 1024);
+        case ACCOUNT:
+            // decoded accounts are cached by the account state
+            return new LeveldbProfile(4 * 1024, false, 0.25, 8 * 1024 * 1024, 128, 0);
+        case DELEGATE:
+            return new LeveldbProfile(4 * 1024, false, 0.05, 4 * 1024 * 1024, 64, 4L * 1024 * 1024);
+        case VOTE:
+            return new LeveldbProfile(4 * 1024, false, 0.15, 4 * 1024 * 1024, 128, 0);
+        case STATE:
+            // hot nodes are cached by the state tree
+            return new LeveldbProfile(4 * 1024, false, 0.10, 4 * 1024 * 1024, 128, 0);
+        default:
+            throw new IllegalArgumentException("Unknown database: " + name);
+        }
+    }
+
+    /**
+     * Returns the default size of the block cache shared by all the databases,
+     * which is derived from the max heap size and the available physical memory.
+     *
+     * @return
+     */
+    public static long defaultCacheSize() {
+        long size = Runtime.getRuntime().maxMemory() / 2;
+        try {
+            size = Math.min(size, SystemUtil.getAvailableMemorySize() / 8);
+        } catch (RuntimeException | LinkageError e) {
+            // physical memory is unknown, rely on the heap size only
+        }
+
+        return Math.max(MIN_CACHE_SIZE, Math.min(MAX_CACHE_SIZE, size));
+    }
+
+    /**
+     * Creates the LevelDB options of this profile.
+     *
+     * @param totalCacheSize
+     *            the size of the block cache shared by all the databases
+     * @return
+     */
+    public Options toOptions(long totalCacheSize) {
+        Options options = new Options();
+        options.createIfMissing(true);
+        options.compressionType(compression ? CompressionType.SNAPPY : CompressionType.NONE);
+        options.blockSize(blockSize);
+        options.writeBufferSize(writeBufferSize);
+        options.cacheSize((long) (totalCacheSize * cacheShare));
+        options.paranoidChecks(true);
+        options.verifyChecksums(true);
+        options.maxOpenFiles(maxOpenFiles);
+
+        return options;
+    }
+
+    public int getBlockSize() {
+        return blockSize;
+    }
+
+    public void setBlockSize(int blockSize) {
+        this.blockSize = blockSize;
+    }
+
+    public boolean isCompression() {
+        return compression;
+    }
+
+    public void setCompression(boolean compression) {
+        this.compression = compression;
+    }
+
+    public double getCacheShare() {
+        return cacheShare;
+    }
+
+    public void setCacheShare(double cacheShare) {
+        this.cacheShare = cacheShare;
+    }
+
+    public int getWriteBufferSize() {
+        return writeBufferSize;
+    }
+
+    public void setWriteBufferSize(int writeBufferSize) {
+        this.writeBufferSize = writeBufferSize;
+    }
+
+    public int getMaxOpenFiles() {
+        return maxOpenFiles;
+    }
+
+    public void setMaxOpenFiles(int maxOpenFiles) {
+        this.maxOpenFiles = maxOpenFiles;
+    }
+
+    /**
+     * Returns the max size of the {@link CachingDatabase} in front of the database,
+     * or 0 if disabled.
+     *
+     * @return
+     */
+    public long getRowCacheSize() {
+        return rowCacheSize;
+    }
+
+    public void setRowCacheSize(long rowCacheSize) {
+        this.rowCacheSize = rowCacheSize;
+    }
+
+    @Override
+    public String toString() {
+        return "LeveldbProfile [blockSize=" + blockSize + ", compression=" + compression + ", cacheShare="
+                + cacheShare + ", writeBufferSize=" + writeBufferSize + ", maxOpenFiles=" + maxOpenFiles
+                + ", rowCacheSize=" + rowCacheSize + "]";
+    }
+}
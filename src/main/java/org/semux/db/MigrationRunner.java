@@ -0,0 +1,177 @@
+/**
+ * Copyright (c) 2017-2018 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.db;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.semux.db.exception.DatabaseException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs a migration which applies a sequence of items in order, such as the
+ * blocks of a chain.
+ * <p>
+ * The items are read and decoded by a pool of threads ahead of the sequential
+ * apply, and the applied items are persisted in batches through
+ * {@link #checkpoint(long)}. A checkpoint is expected to record the last
+ * applied item along with the data, so that an interrupted migration can be
+ * resumed from there.
+ *
+ * @param <T>
+ *            the type of the items
+ */
+public abstract class MigrationRunner<T> {
+
+    private static final Logger logger = LoggerFactory.getLogger(MigrationRunner.class);
+
+    private static final long REPORT_INTERVAL = 5_000L;
+
+    private static final ThreadFactory factory = new ThreadFactory() {
+        private final AtomicInteger cnt = new AtomicInteger(0);
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, "migration-" + cnt.getAndIncrement());
+            t.setDaemon(true);
+            return t;
+        }
+    };
+
+    private final int threads;
+    private final int readAhead;
+    private final int batchSize;
+
+    /**
+     * Creates a migration runner.
+     *
+     * @param threads
+     *            the number of reader threads
+     * @param readAhead
+     *            the max number of items being read ahead of the apply
+     * @param batchSize
+     *            the number of items between two checkpoints
+     */
+    protected MigrationRunner(int threads, int readAhead, int batchSize) {
+        this.threads = threads;
+        this.readAhead = readAhead;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Reads an item. This method is called concurrently.
+     *
+     * @param n
+     * @return
+     */
+    protected abstract T read(long n);
+
+    /**
+     * Applies an item. Items are applied one by one, in order.
+     *
+     * @param n
+     * @param item
+     */
+    protected abstract void apply(long n, T item);
+
+    /**
+     * Persists all the applied items.
+     *
+     * @param n
+     *            the last applied item
+     */
+    protected abstract void checkpoint(long n);
+
+    /**
+     * Returns whether a checkpoint should be made after the given number of items
+     * have been applied since the last one.
+     *
+     * @param applied
+     * @return
+     */
+    protected boolean isBatchFull(int applied) {
+        return applied >= batchSize;
+    }
+
+    /**
+     * Reports the progress, after each checkpoint.
+     *
+     * @param n
+     *            the last applied item
+     * @param to
+     *            the last item to apply
+     */
+    protected void onProgress(long n, long to) {
+    }
+
+    /**
+     * Migrates the items within <code>[from, to]</code>.
+     *
+     * @param from
+     * @param to
+     */
+    public void run(long from, long to) {
+        if (from > to) {
+            return;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads, factory);
+        Deque<Future<T>> queue = new ArrayDeque<>();
+        long next = from;
+
+        long start = System.currentTimeMillis();
+        long lastReport = start;
+        int applied = 0;
+        try {
+            for (long n = from; n <= to; n++) {
+                while (next <= to && queue.size() < readAhead) {
+                    long i = next++;
+                    queue.add(executor.submit(() -> read(i)));
+                }
+
+                apply(n, queue.poll().get());
+                applied++;
+
+                if (n == to || isBatchFull(applied)) {
+                    checkpoint(n);
+                    applied = 0;
+                    onProgress(n, to);
+
+                    long now = System.currentTimeMillis();
+                    if (n == to || now - lastReport >= REPORT_INTERVAL) {
+                        long rate = (n - from + 1) * 1000 / Math.max(now - start, 1);
+                        logger.info("Migrated {} / {}, {} items/s", n, to, rate);
+                        lastReport = now;
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DatabaseException("Migration interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new DatabaseException(e.getCause());
+        } finally {
+            executor.shutdownNow();
+            try {
+                executor.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,61 @@
+/**
+ * Copyright (c) 2017-2018 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.db;
+
+import java.nio.file.Path;
+import java.util.EnumMap;
+
+/**
+ * A read-only database factory, which serves snapshots of all the databases of
+ * another factory.
+ */
+public class SnapshotFactory implements DatabaseFactory {
+
+    private final EnumMap<DatabaseName, Database> databases = new EnumMap<>(DatabaseName.class);
+
+    private final Path dataDir;
+
+    public SnapshotFactory(DatabaseFactory factory) {
+        this.dataDir = factory.getDataDir();
+
+        for (DatabaseName name : DatabaseName.values()) {
+            databases.put(name, factory.getDB(name).snapshot());
+        }
+    }
+
+    @Override
+    public Database getDB(DatabaseName name) {
+        return databases.get(name);
+    }
+
+    @Override
+    public void open() {
+        // snapshots are taken at construction
+    }
+
+    @Override
+    public void close() {
+        for (Database db : databases.values()) {
+            db.close();
+        }
+    }
+
+    @Override
+    public Path getDataDir() {
+        return dataDir;
+    }
+
+    @Override
+    public void moveTo(Path path) {
+        throw new UnsupportedOperationException("Snapshot can not be moved");
+    }
+
+    @Override
+    public UnitOfWork createUnitOfWork() {
+        throw new UnsupportedOperationException("Snapshot is read-only");
+    }
+}
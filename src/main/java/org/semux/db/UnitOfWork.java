@@ -0,0 +1,262 @@
+/**
+ * Copyright (c) 2017-2018 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.db;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.lang3.tuple.Pair;
+import org.semux.util.ByteArray;
+import org.semux.util.Bytes;
+import org.semux.util.SimpleDecoder;
+import org.semux.util.SimpleEncoder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A unit of work collects the mutations of multiple databases, and flushes them
+ * as one write batch per database.
+ *
+ * The databases are written in the following order:
+ * <ol>
+ * <li>{@link DatabaseName#BLOCK}, which is only reachable through the index and
+ * therefore safe to write ahead;</li>
+ * <li>a journal of all the remaining mutations, stored in the
+ * {@link DatabaseName#INDEX} database under {@link #JOURNAL_KEY};</li>
+ * <li>{@link DatabaseName#ACCOUNT}, {@link DatabaseName#DELEGATE},
+ * {@link DatabaseName#VOTE} and {@link DatabaseName#STATE};</li>
+ * <li>{@link DatabaseName#INDEX}, together with the removal of the journal,
+ * which marks the unit of work as committed.</li>
+ * </ol>
+ *
+ * If the process dies in the middle of a commit, the journal is replayed by
+ * {@link #recover(DatabaseFactory)} on the next start.
+ */
+public class UnitOfWork {
+
+    private static final Logger logger = LoggerFactory.getLogger(UnitOfWork.class);
+
+    /**
+     * The key of the pending journal in the index database.
+     */
+    public static final byte[] JOURNAL_KEY = Bytes.of((byte) 0xfe);
+
+    private static final DatabaseName[] JOURNALED = { DatabaseName.ACCOUNT, DatabaseName.DELEGATE,
+            DatabaseName.VOTE, DatabaseName.INDEX, DatabaseName.STATE };
+
+    private final DatabaseFactory factory;
+
+    /**
+     * All updates, or deletes if the value is null.
+     */
+    private final EnumMap<DatabaseName, Map<ByteArray, byte[]>> updates = new EnumMap<>(DatabaseName.class);
+
+    /**
+     * Callbacks to run once the unit of work has been flushed.
+     */
+    private final List<Runnable> callbacks = new ArrayList<>();
+
+    public UnitOfWork(DatabaseFactory factory) {
+        this.factory = factory;
+        for (DatabaseName name : DatabaseName.values()) {
+            updates.put(name, new LinkedHashMap<>());
+        }
+    }
+
+    /**
+     * Returns the value that is mapped to the specified key, taking the pending
+     * updates into account.
+     *
+     * @param name
+     * @param key
+     * @return
+     */
+    public byte[] get(DatabaseName name, byte[] key) {
+        Map<ByteArray, byte[]> map = updates.get(name);
+        ByteArray k = ByteArray.of(key);
+
+        return map.containsKey(k) ? map.get(k) : factory.getDB(name).get(key);
+    }
+
+    /**
+     * Returns the pending updates of a database, where a null value is a delete.
+     *
+     * @param name
+     * @return
+     */
+    public Map<ByteArray, byte[]> getUpdates(DatabaseName name) {
+        return Collections.unmodifiableMap(updates.get(name));
+    }
+
+    /**
+     * Associates a value to the specified key.
+     *
+     * @param name
+     * @param key
+     * @param value
+     *            can not be null
+     */
+    public void put(DatabaseName name, byte[] key, byte[] value) {
+        if (value == null) {
+            throw new IllegalArgumentException("Value can not be null");
+        }
+        updates.get(name).put(ByteArray.of(key), value);
+    }
+
+    /**
+     * Deletes the specified key value pair if present.
+     *
+     * @param name
+     * @param key
+     */
+    public void delete(DatabaseName name, byte[] key) {
+        updates.get(name).put(ByteArray.of(key), null);
+    }
+
+    /**
+     * Registers a callback which will be invoked after the updates have been
+     * flushed.
+     *
+     * @param callback
+     */
+    public void onCommit(Runnable callback) {
+        callbacks.add(callback);
+    }
+
+    /**
+     * Returns whether this unit of work has no pending updates.
+     *
+     * @return
+     */
+    public boolean isEmpty() {
+        return updates.values().stream().allMatch(Map::isEmpty);
+    }
+
+    /**
+     * Flushes all the pending updates.
+     */
+    public void commit() {
+        // [1] block data
+        flush(DatabaseName.BLOCK, new ArrayList<>());
+
+        // [2] journal of the remaining updates
+        Database indexDB = factory.getDB(DatabaseName.INDEX);
+        boolean journaled = false;
+        for (DatabaseName name : JOURNALED) {
+            if (!updates.get(name).isEmpty()) {
+                indexDB.put(JOURNAL_KEY, encodeJournal());
+                journaled = true;
+                break;
+            }
+        }
+
+        // [3] state
+        flush(DatabaseName.ACCOUNT, new ArrayList<>());
+        flush(DatabaseName.DELEGATE, new ArrayList<>());
+        flush(DatabaseName.VOTE, new ArrayList<>());
+        flush(DatabaseName.STATE, new ArrayList<>());
+
+        // [4] index and commit marker
+        List<Pair<byte[], byte[]>> marker = new ArrayList<>();
+        if (journaled) {
+            marker.add(Pair.of(JOURNAL_KEY, null));
+        }
+        flush(DatabaseName.INDEX, marker);
+
+        for (Runnable callback : callbacks) {
+            callback.run();
+        }
+        callbacks.clear();
+    }
+
+    /**
+     * Writes the pending updates of a database as a single batch.
+     *
+     * @param name
+     * @param extra
+     *            additional updates to be included in the batch
+     */
+    protected void flush(DatabaseName name, List<Pair<byte[], byte[]>> extra) {
+        Map<ByteArray, byte[]> map = updates.get(name);
+        if (map.isEmpty() && extra.isEmpty()) {
+            return;
+        }
+
+        List<Pair<byte[], byte[]>> pairs = new ArrayList<>(map.size() + extra.size());
+        for (Map.Entry<ByteArray, byte[]> e : map.entrySet()) {
+            pairs.add(Pair.of(e.getKey().getData(), e.getValue()));
+        }
+        pairs.addAll(extra);
+
+        factory.getDB(name).updateBatch(pairs);
+        map.clear();
+    }
+
+    protected byte[] encodeJournal() {
+        SimpleEncoder enc = new SimpleEncoder();
+        for (DatabaseName name : JOURNALED) {
+            Map<ByteArray, byte[]> map = updates.get(name);
+            enc.writeInt(map.size());
+            for (Map.Entry<ByteArray, byte[]> e : map.entrySet()) {
+                enc.writeBytes(e.getKey().getData());
+                enc.writeBoolean(e.getValue() != null);
+                if (e.getValue() != null) {
+                    enc.writeBytes(e.getValue());
+                }
+            }
+        }
+        return enc.toBytes();
+    }
+
+    /**
+     * Replays the pending journal, if any, left by an interrupted commit.
+     *
+     * @param factory
+     * @return whether a journal has been replayed
+     */
+    public static boolean recover(DatabaseFactory factory) {
+        byte[] journal = factory.getDB(DatabaseName.INDEX).get(JOURNAL_KEY);
+        if (journal == null) {
+            return false;
+        }
+
+        logger.warn("Found an incomplete database commit, replaying the journal...");
+        UnitOfWork uow = new UnitOfWork(factory);
+        SimpleDecoder dec = new SimpleDecoder(journal);
+        for (DatabaseName name : JOURNALED) {
+            if (dec.getReadIndex() >= journal.length) {
+                // written before the database was journaled
+                break;
+            }
+            int n = dec.readInt();
+            for (int i = 0; i < n; i++) {
+                byte[] key = dec.readBytes();
+                if (dec.readBoolean()) {
+                    uow.put(name, key, dec.readBytes());
+                } else {
+                    uow.delete(name, key);
+                }
+            }
+        }
+
+        // the journal is already persisted; flush the state and clear the marker
+        uow.flush(DatabaseName.ACCOUNT, new ArrayList<>());
+        uow.flush(DatabaseName.DELEGATE, new ArrayList<>());
+        uow.flush(DatabaseName.VOTE, new ArrayList<>());
+        uow.flush(DatabaseName.STATE, new ArrayList<>());
+        List<Pair<byte[], byte[]>> marker = new ArrayList<>();
+        marker.add(Pair.of(JOURNAL_KEY, null));
+        uow.flush(DatabaseName.INDEX, marker);
+        logger.info("Journal replayed");
+
+        return true;
+    }
+}
@@ -30,7 +30,7 @@ import org.semux.Launcher;
 import org.semux.config.Constants;
 import org.semux.config.exception.ConfigException;
 import org.semux.core.Block;
-import org.semux.core.Blockchain;
+import org.semux.core.BlockchainSnapshot;
 import org.semux.core.Transaction;
 import org.semux.core.Wallet;
 import org.semux.core.event.WalletLoadingEvent;
@@ -427,61 +427,63 @@ public class SemuxGui extends Launcher {
      * Update the model.
      */
     public void updateModel() {
-        Blockchain chain = kernel.getBlockchain();
-        AccountState as = chain.getAccountState();
-        DelegateState ds = chain.getDelegateState();
-        Block block = kernel.getBlockchain().getLatestBlock();
-
-        // update latest block and coinbase delegate status
-        model.setSyncProgress(kernel.getSyncManager().getProgress());
-        model.setLatestBlock(block);
-
-        // update coinbase
-        boolean isDelegate = ds.getDelegateByAddress(kernel.getCoinbase().toAddress()) != null;
-        boolean isValidator = chain.getValidators().contains(kernel.getCoinbase().toAddressString());
-        model.setCoinbase(kernel.getCoinbase());
-        model.setStatus(isValidator ? Status.VALIDATOR : (isDelegate ? Status.DELEGATE : Status.NORMAL));
-
-        // refresh accounts
-        if (kernel.getWallet().isUnlocked()) {
-            List<WalletAccount> accounts = new ArrayList<>();
-            for (Key key : kernel.getWallet().getAccounts()) {
-                Account a = as.getAccount(key.toAddress());
-                Optional<String> name = kernel.getWallet().getAddressAlias(key.toAddress());
-                WalletAccount wa = new WalletAccount(key, a, name.orElse(null));
-                accounts.add(wa);
+        // read all the chain data from one consistent snapshot
+        try (BlockchainSnapshot chain = kernel.getBlockchain().snapshot()) {
+            AccountState as = chain.getAccountState();
+            DelegateState ds = chain.getDelegateState();
+            Block block = chain.getLatestBlock();
+
+            // update latest block and coinbase delegate status
+            model.setSyncProgress(kernel.getSyncManager().getProgress());
+            model.setLatestBlock(block);
+
+            // update coinbase
+            boolean isDelegate = ds.getDelegateByAddress(kernel.getCoinbase().toAddress()) != null;
+            boolean isValidator = chain.getValidators().contains(kernel.getCoinbase().toAddressString());
+            model.setCoinbase(kernel.getCoinbase());
+            model.setStatus(isValidator ? Status.VALIDATOR : (isDelegate ? Status.DELEGATE : Status.NORMAL));
+
+            // refresh accounts
+            if (kernel.getWallet().isUnlocked()) {
+                List<WalletAccount> accounts = new ArrayList<>();
+                for (Key key : kernel.getWallet().getAccounts()) {
+                    Account a = as.getAccount(key.toAddress());
+                    Optional<String> name = kernel.getWallet().getAddressAlias(key.toAddress());
+                    WalletAccount wa = new WalletAccount(key, a, name.orElse(null));
+                    accounts.add(wa);
+                }
+                model.setAccounts(accounts);
             }
-            model.setAccounts(accounts);
-        }
 
-        // update transactions
-        for (WalletAccount a : model.getAccounts()) {
-            // most recent transactions of this account
-            byte[] address = a.getKey().toAddress();
-            int total = chain.getTransactionCount(address);
-            List<Transaction> list = chain.getTransactions(address, Math.max(0, total - TRANSACTION_LIMIT), total);
-            Collections.reverse(list);
-            a.setTransactions(list);
-        }
+            // update transactions
+            for (WalletAccount a : model.getAccounts()) {
+                // most recent transactions of this account
+                byte[] address = a.getKey().toAddress();
+                int total = chain.getTransactionCount(address);
+                List<Transaction> list = chain.getTransactions(address, Math.max(0, total - TRANSACTION_LIMIT), total);
+                Collections.reverse(list);
+                a.setTransactions(list);
+            }
 
-        // update delegates
-        List<WalletDelegate> wds = new ArrayList<>();
-        List<String> validators = chain.getValidators();
-        Map<String, Integer> validatorPositionMap = IntStream
-                .range(0, validators.size())
-                .boxed()
-                .collect(Collectors.toMap(validators::get, i -> i));
-        for (Delegate d : ds.getDelegates()) {
-            wds.add(validatorPositionMap.containsKey(d.getAddressString())
-                    ? new WalletDelegate(d, validatorPositionMap.containsKey(d.getAddressString()),
-                            validatorPositionMap.get(d.getAddressString()))
-                    : new WalletDelegate(d));
-        }
-        model.setDelegates(wds);
+            // update delegates
+            List<WalletDelegate> wds = new ArrayList<>();
+            List<String> validators = chain.getValidators();
+            Map<String, Integer> validatorPositionMap = IntStream
+                    .range(0, validators.size())
+                    .boxed()
+                    .collect(Collectors.toMap(validators::get, i -> i));
+            for (Delegate d : ds.getDelegates()) {
+                wds.add(validatorPositionMap.containsKey(d.getAddressString())
+                        ? new WalletDelegate(d, validatorPositionMap.containsKey(d.getAddressString()),
+                                validatorPositionMap.get(d.getAddressString()))
+                        : new WalletDelegate(d));
+            }
+            model.setDelegates(wds);
 
-        // update validators
-        model.setValidators(validators);
-        model.setActivatedForks(chain.getActivatedForks());
+            // update validators
+            model.setValidators(validators);
+            model.setActivatedForks(chain.getActivatedForks());
+        }
 
         // update active peers
         Map<String, Peer> activePeers = new HashMap<>();
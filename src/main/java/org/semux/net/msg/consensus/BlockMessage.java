@@ -21,11 +21,17 @@ public class BlockMessage extends Message {
 
         this.block = block;
 
-        SimpleEncoder enc = new SimpleEncoder();
-        enc.writeBytes(block.toBytesHeader());
-        enc.writeBytes(block.toBytesTransactions());
-        enc.writeBytes(block.toBytesResults());
-        enc.writeBytes(block.toBytesVotes());
+        byte[] header = block.toBytesHeader();
+        byte[] transactions = block.toBytesTransactions();
+        byte[] results = block.toBytesResults();
+        byte[] votes = block.toBytesVotes();
+
+        SimpleEncoder enc = new SimpleEncoder(SimpleEncoder.sizeOf(header) + SimpleEncoder.sizeOf(transactions)
+                + SimpleEncoder.sizeOf(results) + SimpleEncoder.sizeOf(votes));
+        enc.writeBytes(header);
+        enc.writeBytes(transactions);
+        enc.writeBytes(results);
+        enc.writeBytes(votes);
         this.encoded = enc.toBytes();
     }
 
@@ -40,7 +46,8 @@ public class BlockMessage extends Message {
         byte[] results = dec.readBytes();
         byte[] votes = dec.readBytes();
 
-        this.block = Block.fromBytes(header, transactions, results, votes);
+        // blocks from peers are decoded upfront, to reject malformed ones here
+        this.block = Block.fromBytes(header, transactions, results, votes).decode();
     }
 
     public Block getBlock() {
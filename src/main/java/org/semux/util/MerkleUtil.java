@@ -12,6 +12,7 @@ import java.util.List;
 import org.semux.core.Transaction;
 import org.semux.core.TransactionResult;
 import org.semux.crypto.Hash;
+import org.semux.crypto.Native;
 
 public class MerkleUtil {
 
@@ -27,7 +28,7 @@ public class MerkleUtil {
         for (Transaction tx : txs) {
             hashes.add(tx.getHash());
         }
-        return new MerkleTree(hashes).getRootHash();
+        return computeRoot(hashes);
     }
 
     /**
@@ -38,10 +39,26 @@ public class MerkleUtil {
      * @return
      */
     public static byte[] computeResultsRoot(List<TransactionResult> results) {
-        List<byte[]> hashes = new ArrayList<>();
+        List<byte[]> encoded = new ArrayList<>();
         for (TransactionResult tx : results) {
-            hashes.add(Hash.h256(tx.toBytes()));
+            encoded.add(tx.toBytes());
         }
+        return computeRoot(Hash.h256(encoded));
+    }
+
+    /**
+     * Computes the Merkle root of the given hashes, with a single native call when
+     * available.
+     *
+     * @param hashes
+     * @return
+     */
+    public static byte[] computeRoot(List<byte[]> hashes) {
+        if (Native.isBulkEnabled() && !hashes.isEmpty()
+                && hashes.stream().allMatch(h -> h != null && h.length == Hash.HASH_LEN)) {
+            return Native.merkleRoot(Bytes.merge(hashes));
+        }
+
         return new MerkleTree(hashes).getRootHash();
     }
 
@@ -9,6 +9,7 @@ package org.semux.util;
 import static org.semux.core.Amount.Unit.NANO_SEM;
 
 import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
 
 import org.semux.core.Amount;
 import org.semux.util.exception.SimpleCodecException;
@@ -37,6 +38,26 @@ public class SimpleDecoder {
         this.index = from;
     }
 
+    /**
+     * Creates a decoder over the remaining bytes of a buffer. Heap buffers are read
+     * in place, while direct buffers are copied once.
+     *
+     * @param in
+     */
+    public SimpleDecoder(ByteBuffer in) {
+        this(array(in), in.hasArray() ? in.arrayOffset() + in.position() : 0,
+                in.hasArray() ? in.arrayOffset() + in.limit() : in.remaining());
+    }
+
+    private static byte[] array(ByteBuffer in) {
+        if (in.hasArray()) {
+            return in.array();
+        }
+        byte[] bytes = new byte[in.remaining()];
+        in.duplicate().get(bytes);
+        return bytes;
+    }
+
     public boolean readBoolean() {
         require(1);
         return in[index++] != 0;
@@ -83,6 +104,31 @@ public class SimpleDecoder {
         return readBytes(true);
     }
 
+    /**
+     * Reads a byte array as a read-only view of the input, without copying it.
+     *
+     * @return
+     */
+    public ByteBuffer readSlice() {
+        int len = readSize();
+
+        require(len);
+        ByteBuffer slice = ByteBuffer.wrap(in, index, len).slice().asReadOnlyBuffer();
+        index += len;
+
+        return slice;
+    }
+
+    /**
+     * Skips a byte array, without copying it.
+     */
+    public void skipBytes() {
+        int len = readSize();
+
+        require(len);
+        index += len;
+    }
+
     public String readString() {
         try {
             return new String(readBytes(), ENCODING);
@@ -6,54 +6,70 @@
  */
 package org.semux.util;
 
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 
 import org.semux.core.Amount;
-import org.semux.util.exception.SimpleCodecException;
 
+import io.netty.buffer.ByteBuf;
+
+/**
+ * Encoder of the semux wire format, backed by a growable byte array.
+ * <p>
+ * When the encoder is created with the exact size of its output, as computed
+ * with {@link #sizeOf(byte[])}, {@link #toBytes()} returns the buffer without
+ * copying it.
+ */
 public class SimpleEncoder {
-    private final ByteArrayOutputStream out;
+
+    private static final int DEFAULT_CAPACITY = 64;
+
+    private byte[] buf;
+    private int size;
 
     public SimpleEncoder(byte[] toAppend) {
-        this.out = new ByteArrayOutputStream();
-        try {
-            out.write(toAppend);
-        } catch (IOException e) {
-            throw new SimpleCodecException(e);
-        }
+        this.buf = Arrays.copyOf(toAppend, Math.max(toAppend.length * 2, DEFAULT_CAPACITY));
+        this.size = toAppend.length;
+    }
+
+    /**
+     * Creates an encoder with the given initial capacity.
+     *
+     * @param capacity
+     */
+    public SimpleEncoder(int capacity) {
+        this.buf = new byte[capacity];
     }
 
     public SimpleEncoder() {
-        this(Bytes.EMPTY_BYTES);
+        this(DEFAULT_CAPACITY);
     }
 
     public void writeBoolean(boolean b) {
-        out.write(b ? 1 : 0);
+        ensure(1);
+        buf[size++] = (byte) (b ? 1 : 0);
     }
 
     public void writeByte(byte b) {
-        out.write(b);
+        ensure(1);
+        buf[size++] = b;
     }
 
     public void writeShort(short s) {
-        out.write(0xFF & (s >>> 8));
-        out.write(0xFF & s);
+        ensure(2);
+        buf[size++] = (byte) (s >>> 8);
+        buf[size++] = (byte) s;
     }
 
     public void writeInt(int i) {
-        out.write(0xFF & (i >>> 24));
-        out.write(0xFF & (i >>> 16));
-        out.write(0xFF & (i >>> 8));
-        out.write(0xFF & i);
+        ensure(4);
+        putInt(i);
     }
 
     public void writeLong(long l) {
-        int i1 = (int) (l >>> 32);
-        int i2 = (int) l;
-
-        writeInt(i1);
-        writeInt(i2);
+        ensure(8);
+        putInt((int) (l >>> 32));
+        putInt((int) l);
     }
 
     public void writeAmount(Amount a) {
@@ -61,17 +77,15 @@ public class SimpleEncoder {
     }
 
     public void writeBytes(byte[] bytes, boolean vlq) {
+        ensure((vlq ? sizeOfSize(bytes.length) : 4) + bytes.length);
         if (vlq) {
             writeSize(bytes.length);
         } else {
-            writeInt(bytes.length);
+            putInt(bytes.length);
         }
 
-        try {
-            out.write(bytes);
-        } catch (IOException e) {
-            throw new SimpleCodecException(e);
-        }
+        System.arraycopy(bytes, 0, buf, size, bytes.length);
+        size += bytes.length;
     }
 
     public void writeBytes(byte[] bytes) {
@@ -83,16 +97,51 @@ public class SimpleEncoder {
     }
 
     public byte[] toBytes() {
-        return out.toByteArray();
+        // the buffer is full, so the next write would reallocate it anyway
+        return size == buf.length ? buf : Arrays.copyOf(buf, size);
+    }
+
+    /**
+     * Writes the encoded bytes into a Netty buffer, without copying them into an
+     * intermediate array.
+     *
+     * @param out
+     */
+    public void writeTo(ByteBuf out) {
+        out.writeBytes(buf, 0, size);
+    }
+
+    /**
+     * Writes the encoded bytes into a buffer, without copying them into an
+     * intermediate array.
+     *
+     * @param out
+     */
+    public void writeTo(ByteBuffer out) {
+        out.put(buf, 0, size);
     }
 
     public int getWriteIndex() {
-        return out.size();
+        return size;
+    }
+
+    /**
+     * Returns the size of a byte array once encoded, with its size prefix.
+     *
+     * @param bytes
+     * @return
+     */
+    public static int sizeOf(byte[] bytes) {
+        return sizeOfSize(bytes.length) + bytes.length;
+    }
+
+    private static int sizeOfSize(int size) {
+        return size < (1 << 7) ? 1 : size < (1 << 14) ? 2 : size < (1 << 21) ? 3 : 4;
     }
 
     /**
      * Writes a size into the output byte array.
-     * 
+     *
      * @param size
      * @throws IllegalArgumentException
      *             when the input size is negative
@@ -104,19 +153,24 @@ public class SimpleEncoder {
             throw new IllegalArgumentException("Size can't be larger than 0x0FFFFFFF: " + size);
         }
 
-        int[] buf = new int[4];
-        int i = buf.length;
-        do {
-            buf[--i] = size & 0x7f;
-            size >>>= 7;
-        } while (size > 0);
-
-        while (i < buf.length) {
-            if (i != buf.length - 1) {
-                out.write((byte) (buf[i++] | 0x80));
-            } else {
-                out.write((byte) buf[i++]);
-            }
+        int n = sizeOfSize(size);
+        ensure(n);
+        for (int shift = (n - 1) * 7; shift > 0; shift -= 7) {
+            buf[this.size++] = (byte) (((size >>> shift) & 0x7f) | 0x80);
+        }
+        buf[this.size++] = (byte) (size & 0x7f);
+    }
+
+    private void putInt(int i) {
+        buf[size++] = (byte) (i >>> 24);
+        buf[size++] = (byte) (i >>> 16);
+        buf[size++] = (byte) (i >>> 8);
+        buf[size++] = (byte) i;
+    }
+
+    private void ensure(int n) {
+        if (buf.length - size < n) {
+            buf = Arrays.copyOf(buf, Math.max(buf.length * 2, size + n));
         }
     }
 }
@@ -1,6 +1,7 @@
 #include "org_semux_crypto_Native.h"
 #include "ripemd160.h"
 #include <sodium.h>
+#include <string.h>
 
 JNIEXPORT jbyteArray JNICALL Java_org_semux_crypto_Native_h256
 (JNIEnv *env, jclass cls, jbyteArray msg)
@@ -116,4 +117,153 @@ JNIEXPORT jboolean JNICALL Java_org_semux_crypto_Native_verify
     free(msg_buf);
 
     return result;
-}
\ No newline at end of file
+}
+
+// reads the offsets of packed messages, returns NULL if they are out of range
+static jint *read_offsets(JNIEnv *env, jintArray offsets, jsize msgs_size)
+{
+    jsize len = env->GetArrayLength(offsets);
+    jint *offs = (jint *)malloc(len * sizeof(jint));
+    env->GetIntArrayRegion(offsets, 0, len, offs);
+
+    if (offs[0] < 0 || offs[len - 1] > msgs_size) {
+        free(offs);
+        return NULL;
+    }
+    for (jsize i = 1; i < len; i++) {
+        if (offs[i] < offs[i - 1]) {
+            free(offs);
+            return NULL;
+        }
+    }
+
+    return offs;
+}
+
+JNIEXPORT jbyteArray JNICALL Java_org_semux_crypto_Native_h256Batch
+(JNIEnv *env, jclass cls, jbyteArray msgs, jintArray offsets)
+{
+    // check inputs
+    if (msgs == NULL || offsets == NULL || env->GetArrayLength(offsets) < 1) {
+        env->ThrowNew(env->FindClass("org/semux/crypto/CryptoException"), "Input can't be null");
+        return NULL;
+    }
+    jsize msgs_size = env->GetArrayLength(msgs);
+    jint *offs = read_offsets(env, offsets, msgs_size);
+    if (offs == NULL) {
+        env->ThrowNew(env->FindClass("org/semux/crypto/CryptoException"), "Invalid message offsets");
+        return NULL;
+    }
+    jsize n = env->GetArrayLength(offsets) - 1;
+
+    // read byte arrays
+    jbyte *msgs_buf = (jbyte *)malloc(msgs_size);
+    env->GetByteArrayRegion(msgs, 0, msgs_size, msgs_buf);
+
+    // compute blake2b hashes
+    unsigned char *hashes = (unsigned char *)malloc(n * crypto_generichash_blake2b_BYTES);
+    for (jsize i = 0; i < n; i++) {
+        crypto_generichash_blake2b(hashes + i * crypto_generichash_blake2b_BYTES, crypto_generichash_blake2b_BYTES,
+            (const unsigned char *)msgs_buf + offs[i], offs[i + 1] - offs[i], NULL, 0);
+    }
+
+    // release buffer
+    free(msgs_buf);
+    free(offs);
+
+    jbyteArray result = env->NewByteArray(n * crypto_generichash_blake2b_BYTES);
+    env->SetByteArrayRegion(result, 0, n * crypto_generichash_blake2b_BYTES, (const jbyte*)hashes);
+    free(hashes);
+    return result;
+}
+
+JNIEXPORT jbyteArray JNICALL Java_org_semux_crypto_Native_merkleRoot
+(JNIEnv *env, jclass cls, jbyteArray leaves)
+{
+    const jsize hash_size = crypto_generichash_blake2b_BYTES;
+
+    // check inputs
+    if (leaves == NULL || env->GetArrayLength(leaves) == 0 || env->GetArrayLength(leaves) % hash_size != 0) {
+        env->ThrowNew(env->FindClass("org/semux/crypto/CryptoException"), "Invalid Merkle leaves");
+        return NULL;
+    }
+
+    // read byte arrays
+    jsize size = env->GetArrayLength(leaves);
+    unsigned char *buf = (unsigned char *)malloc(size);
+    env->GetByteArrayRegion(leaves, 0, size, (jbyte *)buf);
+
+    // hash the pairs level by level, in place; an odd node is carried up as is
+    unsigned char hash[crypto_generichash_blake2b_BYTES];
+    jsize n = size / hash_size;
+    while (n > 1) {
+        jsize m = 0;
+        for (jsize i = 0; i + 1 < n; i += 2) {
+            crypto_generichash_blake2b(hash, sizeof(hash), buf + i * hash_size, 2 * hash_size, NULL, 0);
+            memcpy(buf + m * hash_size, hash, hash_size);
+            m++;
+        }
+        if (n % 2 == 1) {
+            memmove(buf + m * hash_size, buf + (n - 1) * hash_size, hash_size);
+            m++;
+        }
+        n = m;
+    }
+
+    jbyteArray result = env->NewByteArray(hash_size);
+    env->SetByteArrayRegion(result, 0, hash_size, (const jbyte*)buf);
+
+    // release buffer
+    free(buf);
+
+    return result;
+}
+
+JNIEXPORT jint JNICALL Java_org_semux_crypto_Native_verifyBatch
+(JNIEnv *env, jclass cls, jbyteArray msgs, jintArray offsets, jbyteArray sigs, jbyteArray pks)
+{
+    // check inputs
+    if (msgs == NULL || offsets == NULL || sigs == NULL || pks == NULL || env->GetArrayLength(offsets) < 1) {
+        env->ThrowNew(env->FindClass("org/semux/crypto/CryptoException"), "Input can't be null");
+        return -1;
+    }
+    jsize n = env->GetArrayLength(offsets) - 1;
+    if (env->GetArrayLength(sigs) != (jsize)(n * crypto_sign_ed25519_BYTES)
+        || env->GetArrayLength(pks) != (jsize)(n * crypto_sign_ed25519_PUBLICKEYBYTES)) {
+        env->ThrowNew(env->FindClass("org/semux/crypto/CryptoException"), "Invalid signatures or public keys");
+        return -1;
+    }
+    jsize msgs_size = env->GetArrayLength(msgs);
+    jint *offs = read_offsets(env, offsets, msgs_size);
+    if (offs == NULL) {
+        env->ThrowNew(env->FindClass("org/semux/crypto/CryptoException"), "Invalid message offsets");
+        return -1;
+    }
+
+    // read byte arrays
+    jbyte *msgs_buf = (jbyte *)malloc(msgs_size);
+    env->GetByteArrayRegion(msgs, 0, msgs_size, msgs_buf);
+    jbyte *sigs_buf = (jbyte *)malloc(n * crypto_sign_ed25519_BYTES);
+    env->GetByteArrayRegion(sigs, 0, n * crypto_sign_ed25519_BYTES, sigs_buf);
+    jbyte *pks_buf = (jbyte *)malloc(n * crypto_sign_ed25519_PUBLICKEYBYTES);
+    env->GetByteArrayRegion(pks, 0, n * crypto_sign_ed25519_PUBLICKEYBYTES, pks_buf);
+
+    // verify ed25519 signatures, stopping at the first invalid one
+    jint result = -1;
+    for (jsize i = 0; i < n; i++) {
+        if (crypto_sign_ed25519_verify_detached((const unsigned char *)sigs_buf + i * crypto_sign_ed25519_BYTES,
+            (const unsigned char *)msgs_buf + offs[i], offs[i + 1] - offs[i],
+            (const unsigned char *)pks_buf + i * crypto_sign_ed25519_PUBLICKEYBYTES) != 0) {
+            result = i;
+            break;
+        }
+    }
+
+    // release buffer
+    free(pks_buf);
+    free(sigs_buf);
+    free(msgs_buf);
+    free(offs);
+
+    return result;
+}
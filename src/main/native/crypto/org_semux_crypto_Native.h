@@ -39,6 +39,30 @@ JNIEXPORT jbyteArray JNICALL Java_org_semux_crypto_Native_sign
 JNIEXPORT jboolean JNICALL Java_org_semux_crypto_Native_verify
   (JNIEnv *, jclass, jbyteArray, jbyteArray, jbyteArray);
 
+/*
+ * Class:     org_semux_crypto_Native
+ * Method:    h256Batch
+ * Signature: ([B[I)[B
+ */
+JNIEXPORT jbyteArray JNICALL Java_org_semux_crypto_Native_h256Batch
+  (JNIEnv *, jclass, jbyteArray, jintArray);
+
+/*
+ * Class:     org_semux_crypto_Native
+ * Method:    merkleRoot
+ * Signature: ([B)[B
+ */
+JNIEXPORT jbyteArray JNICALL Java_org_semux_crypto_Native_merkleRoot
+  (JNIEnv *, jclass, jbyteArray);
+
+/*
+ * Class:     org_semux_crypto_Native
+ * Method:    verifyBatch
+ * Signature: ([B[I[B[B)I
+ */
+JNIEXPORT jint JNICALL Java_org_semux_crypto_Native_verifyBatch
+  (JNIEnv *, jclass, jbyteArray, jintArray, jbyteArray, jbyteArray);
+
 #ifdef __cplusplus
 }
 #endif
@@ -15,6 +15,7 @@ import org.semux.core.Blockchain;
 import org.semux.core.PendingManager;
 import org.semux.core.Wallet;
 import org.semux.crypto.Key;
+import org.semux.db.DatabaseFactory;
 import org.semux.net.ChannelManager;
 import org.semux.net.NodeManager;
 import org.semux.net.PeerClient;
@@ -46,6 +47,15 @@ public class KernelMock extends Kernel {
         this.chain = chain;
     }
 
+    /**
+     * Sets the database factory.
+     * 
+     * @param dbFactory
+     */
+    public void setDbFactory(DatabaseFactory dbFactory) {
+        this.dbFactory = dbFactory;
+    }
+
     /**
      * Sets the peer client instance.
      * 
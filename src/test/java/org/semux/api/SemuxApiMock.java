@@ -43,6 +43,7 @@ public class SemuxApiMock {
             client = new PeerClient(config.p2pListenIp(), config.p2pListenPort(), kernel.getCoinbase());
 
             kernel.setBlockchain(new BlockchainImpl(config, dbFactory));
+            kernel.setDbFactory(dbFactory);
             kernel.setChannelManager(new ChannelManager(kernel));
             kernel.setPendingManager(new PendingManager(kernel));
             kernel.setClient(client);
@@ -70,6 +70,7 @@ import org.semux.TestUtils;
 import org.semux.api.v2_1_0.model.AddNodeResponse;
 import org.semux.api.v2_1_0.model.BlockType;
 import org.semux.api.v2_1_0.model.ComposeRawTransactionResponse;
+import org.semux.api.v2_1_0.model.DatabaseMetricsType;
 import org.semux.api.v2_1_0.model.CreateAccountResponse;
 import org.semux.api.v2_1_0.model.DelegateType;
 import org.semux.api.v2_1_0.model.DeleteAccountResponse;
@@ -79,6 +80,7 @@ import org.semux.api.v2_1_0.model.GetAccountResponse;
 import org.semux.api.v2_1_0.model.GetAccountTransactionsResponse;
 import org.semux.api.v2_1_0.model.GetAccountVotesResponse;
 import org.semux.api.v2_1_0.model.GetBlockResponse;
+import org.semux.api.v2_1_0.model.GetDatabaseMetricsResponse;
 import org.semux.api.v2_1_0.model.GetDelegateResponse;
 import org.semux.api.v2_1_0.model.GetDelegatesResponse;
 import org.semux.api.v2_1_0.model.GetInfoResponse;
@@ -112,6 +114,8 @@ import org.semux.core.state.Delegate;
 import org.semux.core.state.DelegateState;
 import org.semux.crypto.Hex;
 import org.semux.crypto.Key;
+import org.semux.db.DatabaseMetrics;
+import org.semux.db.DatabaseName;
 import org.semux.net.ChannelManager;
 import org.semux.net.Peer;
 import org.semux.net.filter.FilterRule;
@@ -279,6 +283,13 @@ public class SemuxApiTest extends SemuxApiTestBase {
         assertThat(resp.getResult().get(0))
                 .hasFieldOrPropertyWithValue("votes", "1")
                 .hasFieldOrPropertyWithValue("delegate.address", Hex.encode0x(delegates.get(0).getAddress()));
+
+        // in the order of the delegate ranking
+        List<Delegate> ranking = delegateState.getDelegates();
+        for (int i = 0; i < ranking.size(); i++) {
+            assertEquals(Hex.encode0x(ranking.get(i).getAddress()),
+                    resp.getResult().get(i).getDelegate().getAddress());
+        }
     }
 
     @Test
@@ -299,6 +310,19 @@ public class SemuxApiTest extends SemuxApiTestBase {
         assertNotNull(response.getResult().getTransactions());
     }
 
+    @Test
+    public void blockTypeWithoutCoinbaseTest() {
+        // the coinbase transaction of a block which is not indexed yet is unknown
+        Transaction tx = createTransaction(config);
+        Block block = createBlock(chain.getLatestBlockNumber() + 1, Collections.singletonList(tx),
+                Collections.singletonList(new TransactionResult(true)));
+
+        BlockType type = TypeFactory.blockType(block, null);
+        assertEquals(String.valueOf(block.getNumber()), type.getNumber());
+        assertEquals(1, type.getTransactions().size());
+        assertEquals(Hex.encode0x(tx.getHash()), type.getTransactions().get(0).getHash());
+    }
+
     @Test
     public void getDelegateTest() {
         Genesis gen = chain.getGenesis();
@@ -891,4 +915,20 @@ public class SemuxApiTest extends SemuxApiTestBase {
         assertEquals("10", result.getCurrentHeight());
         assertEquals("100", result.getTargetHeight());
     }
+
+    @Test
+    public void getDatabaseMetricsTest() {
+        GetDatabaseMetricsResponse resp = api.getDatabaseMetrics();
+        assertTrue(resp.isSuccess());
+
+        List<DatabaseMetricsType> result = resp.getResult();
+        assertEquals(DatabaseName.values().length, result.size());
+        for (DatabaseMetricsType metrics : result) {
+            assertNotNull(DatabaseName.valueOf(metrics.getName()));
+            assertEquals(DatabaseMetrics.Operation.values().length, metrics.getOperations().size());
+        }
+
+        DatabaseMetricsType index = result.get(DatabaseName.INDEX.ordinal());
+        assertTrue(Long.parseLong(index.getBytesWritten()) > 0);
+    }
 }
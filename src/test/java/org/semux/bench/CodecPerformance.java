@@ -0,0 +1,116 @@
+/**
+ * Copyright (c) 2017-2018 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.semux.Network;
+import org.semux.core.Amount;
+import org.semux.core.Block;
+import org.semux.core.BlockHeader;
+import org.semux.core.Transaction;
+import org.semux.core.TransactionResult;
+import org.semux.core.TransactionType;
+import org.semux.crypto.Key;
+import org.semux.net.msg.consensus.BlockMessage;
+import org.semux.util.Bytes;
+import org.semux.util.MerkleUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Measures the encoding and decoding round trips of the core types.
+ */
+public class CodecPerformance {
+    private static final Logger logger = LoggerFactory.getLogger(CodecPerformance.class);
+
+    private static int WARMUP = 2_000;
+    private static int REPEAT = 10_000;
+    private static int BLOCK_TRANSACTIONS = 200;
+
+    private static Key key = new Key();
+
+    private static Transaction createTransaction(long nonce) {
+        return new Transaction(Network.DEVNET, TransactionType.TRANSFER, Bytes.random(20),
+                Amount.Unit.NANO_SEM.of(1), Amount.Unit.MILLI_SEM.of(5), nonce, System.currentTimeMillis(),
+                Bytes.random(16)).sign(key);
+    }
+
+    private static Block createBlock() {
+        List<Transaction> transactions = new ArrayList<>();
+        List<TransactionResult> results = new ArrayList<>();
+        for (int i = 0; i < BLOCK_TRANSACTIONS; i++) {
+            transactions.add(createTransaction(i));
+            results.add(new TransactionResult(true));
+        }
+
+        BlockHeader header = new BlockHeader(1, Bytes.random(20), Bytes.random(32), System.currentTimeMillis(),
+                MerkleUtil.computeTransactionsRoot(transactions), MerkleUtil.computeResultsRoot(results),
+                Bytes.EMPTY_HASH, Bytes.EMPTY_BYTES);
+        return new Block(header, transactions, results);
+    }
+
+    private static void run(String name, Runnable task) {
+        for (int i = 0; i < WARMUP; i++) {
+            task.run();
+        }
+
+        long t1 = System.nanoTime();
+        for (int i = 0; i < REPEAT; i++) {
+            task.run();
+        }
+        long t2 = System.nanoTime();
+
+        logger.info("Perf_{}: {} ns/time", name, (t2 - t1) / REPEAT);
+    }
+
+    public static void testTransaction() {
+        Transaction tx = createTransaction(1);
+        run("transaction_encode", tx::toBytes);
+
+        byte[] bytes = tx.toBytes();
+        run("transaction_decode", () -> Transaction.fromBytes(bytes));
+    }
+
+    public static void testBlockHeader() {
+        BlockHeader header = createBlock().getHeader();
+        run("header_encode", header::toBytes);
+
+        byte[] bytes = header.toBytes();
+        run("header_decode", () -> BlockHeader.fromBytes(bytes));
+    }
+
+    public static void testBlock() {
+        Block block = createBlock();
+        List<Transaction> transactions = block.getTransactions();
+        List<TransactionResult> results = block.getResults();
+        run("block_encode", () -> new Block(block.getHeader(), transactions, results));
+
+        byte[] h = block.toBytesHeader();
+        byte[] t = block.toBytesTransactions();
+        byte[] r = block.toBytesResults();
+        byte[] v = block.toBytesVotes();
+        run("block_decode_lazy", () -> Block.fromBytes(h, t, r, v).getTransactionCount());
+        run("block_decode_full", () -> Block.fromBytes(h, t, r, v).decode());
+    }
+
+    public static void testBlockMessage() {
+        Block block = createBlock();
+        run("block_message_encode", () -> new BlockMessage(block));
+
+        byte[] bytes = new BlockMessage(block).getEncoded();
+        run("block_message_decode", () -> new BlockMessage(bytes));
+    }
+
+    public static void main(String[] args) {
+        testTransaction();
+        testBlockHeader();
+        testBlock();
+        testBlockMessage();
+    }
+}
@@ -6,8 +6,13 @@
  */
 package org.semux.bench;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.semux.crypto.Hash;
 import org.semux.crypto.Key;
+import org.semux.crypto.Key.Signature;
+import org.semux.util.Bytes;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -78,10 +83,38 @@ public class CryptoPerformance {
         }
     }
 
+    public static void testVerifyBatch() {
+        for (int batch : new int[] { 16, 64, 256 }) {
+            List<byte[]> messages = new ArrayList<>();
+            List<Signature> signatures = new ArrayList<>();
+            for (int i = 0; i < batch; i++) {
+                byte[] hash = Hash.h256(Bytes.random(128));
+                messages.add(hash);
+                signatures.add(new Key().sign(hash));
+            }
+
+            long t1 = System.nanoTime();
+            for (int i = 0; i < REPEAT / 10; i++) {
+                for (int j = 0; j < batch; j++) {
+                    Key.verify(messages.get(j), signatures.get(j));
+                }
+            }
+            long t2 = System.nanoTime();
+            for (int i = 0; i < REPEAT / 10; i++) {
+                Key.verifyBatch(messages, signatures);
+            }
+            long t3 = System.nanoTime();
+
+            logger.info("Perf_verify_batch_{}: {} μs/batch sequential, {} μs/batch batched", batch,
+                    (t2 - t1) / 1_000 / (REPEAT / 10), (t3 - t2) / 1_000 / (REPEAT / 10));
+        }
+    }
+
     public static void main(String[] args) throws Exception {
         testH256();
         testH160();
         testSign();
         testVerify();
+        testVerifyBatch();
     }
 }
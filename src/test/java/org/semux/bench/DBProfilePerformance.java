@@ -0,0 +1,98 @@
+/**
+ * Copyright (c) 2017-2018 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.bench;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.commons.lang3.tuple.Pair;
+import org.semux.config.Constants;
+import org.semux.db.DatabaseName;
+import org.semux.db.LeveldbDatabase;
+import org.semux.db.LeveldbProfile;
+import org.semux.util.Bytes;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Compares the legacy database options with the per-database profiles, using
+ * key/value sizes resembling the data of each database.
+ */
+public class DBProfilePerformance {
+    private static final Logger logger = LoggerFactory.getLogger(DBProfilePerformance.class);
+
+    private static final int ENTRIES = 200_000;
+    private static final int BATCH = 1_000;
+    private static final int READS = 100_000;
+
+    private static byte[] key(DatabaseName name, int i) {
+        switch (name) {
+        case BLOCK:
+            return Bytes.merge((byte) (i % 4), Bytes.of((long) i));
+        case INDEX:
+            return Bytes.merge((byte) 4, Bytes.random(32));
+        case VOTE:
+            return Bytes.merge(Bytes.random(20), Bytes.random(20));
+        default:
+            return Bytes.random(20);
+        }
+    }
+
+    private static byte[] value(DatabaseName name) {
+        switch (name) {
+        case BLOCK:
+            // transactions are partially compressible (addresses, amounts, zero padding)
+            return Bytes.merge(Bytes.random(1024), new byte[3 * 1024]);
+        case INDEX:
+            return Bytes.random(40);
+        default:
+            return Bytes.random(32);
+        }
+    }
+
+    private static void run(DatabaseName name, String label, LeveldbDatabase db) {
+        try {
+            List<byte[]> keys = new ArrayList<>(ENTRIES);
+
+            long t1 = System.nanoTime();
+            for (int i = 0; i < ENTRIES; i += BATCH) {
+                List<Pair<byte[], byte[]>> pairs = new ArrayList<>(BATCH);
+                for (int j = 0; j < BATCH; j++) {
+                    byte[] key = key(name, i + j);
+                    keys.add(key);
+                    pairs.add(Pair.of(key, value(name)));
+                }
+                db.updateBatch(pairs);
+            }
+            long t2 = System.nanoTime();
+
+            Random r = new Random(0);
+            for (int i = 0; i < READS; i++) {
+                db.get(keys.get(r.nextInt(keys.size())));
+            }
+            long t3 = System.nanoTime();
+
+            logger.info("Perf_db_profile: db = {}, options = {}, write = {} ns/entry, read = {} ns/entry", name,
+                    label, (t2 - t1) / ENTRIES, (t3 - t2) / READS);
+        } finally {
+            db.destroy();
+        }
+    }
+
+    public static void main(String[] args) {
+        File dir = new File(Constants.DEFAULT_DATA_DIR, "test");
+        long cacheSize = LeveldbProfile.defaultCacheSize();
+
+        for (DatabaseName name : DatabaseName.values()) {
+            run(name, "legacy", new LeveldbDatabase(new File(dir, "legacy")));
+            run(name, "profile", new LeveldbDatabase(new File(dir, "profile"),
+                    LeveldbProfile.of(name).toOptions(cacheSize)));
+        }
+    }
+}
@@ -0,0 +1,90 @@
+/**
+ * Copyright (c) 2017-2018 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.bench;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.commons.io.FileUtils;
+import org.semux.config.Constants;
+import org.semux.core.state.StateTree;
+import org.semux.db.DatabaseName;
+import org.semux.db.LeveldbDatabase.LeveldbFactory;
+import org.semux.db.UnitOfWork;
+import org.semux.util.Bytes;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Measures the cost of updating the state root per block, for a state of
+ * {@link #ACCOUNTS} accounts.
+ */
+public class StateTreePerformance {
+    private static final Logger logger = LoggerFactory.getLogger(StateTreePerformance.class);
+
+    private static final int ACCOUNTS = 500_000;
+    private static final int BLOCKS = 500;
+    private static final int[] UPDATES_PER_BLOCK = { 10, 100, 1_000 };
+
+    public static void main(String[] args) throws Exception {
+        File dir = new File(Constants.DEFAULT_DATA_DIR, "test");
+        FileUtils.deleteDirectory(dir);
+        LeveldbFactory factory = new LeveldbFactory(dir);
+
+        try {
+            // [1] populate the state
+            List<byte[]> keys = new ArrayList<>(ACCOUNTS);
+            for (int i = 0; i < ACCOUNTS; i += 10_000) {
+                UnitOfWork uow = factory.createUnitOfWork();
+                for (int j = 0; j < 10_000; j++) {
+                    byte[] key = Bytes.random(20);
+                    keys.add(key);
+                    uow.put(DatabaseName.ACCOUNT, key, Bytes.random(28));
+                }
+                uow.commit();
+            }
+
+            StateTree tree = new StateTree(factory.getDB(DatabaseName.STATE), StateTree.DEFAULT_CACHE_SIZE);
+            long t1 = System.nanoTime();
+            tree.rebuild(factory, (name, key) -> true);
+            long t2 = System.nanoTime();
+            logger.info("Perf_state_tree_build: accounts = {}, time = {} ms", ACCOUNTS, (t2 - t1) / 1_000_000);
+
+            // [2] update random accounts, block by block
+            Random r = new Random(0);
+            for (int updates : UPDATES_PER_BLOCK) {
+                long hashing = 0;
+                long total = 0;
+                for (int b = 0; b < BLOCKS; b++) {
+                    UnitOfWork uow = factory.createUnitOfWork();
+                    for (int i = 0; i < updates; i++) {
+                        byte[] key = keys.get(r.nextInt(keys.size()));
+                        byte[] value = Bytes.random(28);
+                        uow.put(DatabaseName.ACCOUNT, key, value);
+                        tree.put(DatabaseName.ACCOUNT, key, value);
+                    }
+
+                    long t3 = System.nanoTime();
+                    tree.commit(uow);
+                    long t4 = System.nanoTime();
+                    uow.commit();
+                    long t5 = System.nanoTime();
+
+                    hashing += t4 - t3;
+                    total += t5 - t3;
+                }
+                logger.info("Perf_state_tree_update: updates/block = {}, root = {} μs/block, with commit = {} μs/block",
+                        updates, hashing / BLOCKS / 1_000, total / BLOCKS / 1_000);
+            }
+        } finally {
+            factory.close();
+            FileUtils.deleteDirectory(dir);
+        }
+    }
+}
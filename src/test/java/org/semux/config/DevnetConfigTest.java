@@ -7,16 +7,50 @@
 package org.semux.config;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.semux.Network;
+import org.semux.db.DatabaseName;
+import org.semux.db.LeveldbProfile;
 
 public class DevnetConfigTest {
 
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
     @Test
     public void testNetworkId() {
         Config config = new DevnetConfig(Constants.DEFAULT_DATA_DIR);
         assertEquals(Network.DEVNET, config.network());
     }
 
+    @Test
+    public void testDbProfile() throws IOException {
+        File dataDir = temporaryFolder.getRoot();
+        FileUtils.writeStringToFile(new File(dataDir, Constants.CONFIG_DIR + "/semux.properties"),
+                "db.cacheSize = 100\n"
+                        + "db.account.blockSize = 8\n"
+                        + "db.block.compression = false\n"
+                        + "db.vote.cacheShare = 0.5\n",
+                StandardCharsets.UTF_8);
+
+        Config config = new DevnetConfig(dataDir.getAbsolutePath());
+        assertEquals(100L * 1024 * 1024, config.dbCacheSize());
+        assertEquals(8 * 1024, config.dbProfile(DatabaseName.ACCOUNT).getBlockSize());
+        assertFalse(config.dbProfile(DatabaseName.BLOCK).isCompression());
+        assertEquals(0.5, config.dbProfile(DatabaseName.VOTE).getCacheShare(), 0.0);
+
+        LeveldbProfile index = LeveldbProfile.of(DatabaseName.INDEX);
+        assertEquals(index.getBlockSize(), config.dbProfile(DatabaseName.INDEX).getBlockSize());
+        assertTrue(config.dbProfile(DatabaseName.INDEX).isCompression());
+    }
 }
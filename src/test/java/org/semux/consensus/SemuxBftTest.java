@@ -36,10 +36,10 @@ import org.semux.core.Amount;
 import org.semux.core.Block;
 import org.semux.core.Blockchain;
 import org.semux.core.BlockchainImpl;
-import org.semux.core.PendingManager;
 import org.semux.core.Transaction;
 import org.semux.core.TransactionResult;
 import org.semux.core.TransactionType;
+import org.semux.core.VerifiedTransactionCache;
 import org.semux.crypto.Key;
 import org.semux.rules.KernelRule;
 import org.semux.rules.TemporaryDatabaseRule;
@@ -153,35 +153,31 @@ public class SemuxBftTest {
     }
 
     @Test
-    public void testFilterPendingTransactions() {
+    public void testVerifiedTransactionCache() {
         Key to = new Key();
         Key from = new Key();
-        long time = System.currentTimeMillis();
-        Transaction tx1 = createTransaction(to, from, time, 0);
-        Transaction tx2 = createTransaction(to, from, time, 1);
-
+        Transaction tx = createTransaction(to, from, System.currentTimeMillis(), 0);
         kernelRule.getKernel().setBlockchain(new BlockchainImpl(kernelRule.getKernel().getConfig(), temporaryDBRule));
+        kernelRule.getKernel().getBlockchain().getAccountState().adjustAvailable(from.toAddress(), SEM.of(1000));
+        Block block = TestUtils.createBlock(
+                kernelRule.getKernel().getBlockchain().getLatestBlock().getHash(),
+                from,
+                kernelRule.getKernel().getBlockchain().getLatestBlock().getNumber() + 1,
+                Collections.singletonList(tx),
+                Collections.singletonList(new TransactionResult(true)));
 
-        // pending manager has only tx1 (validated)
-        PendingManager.PendingTransaction pending = new PendingManager.PendingTransaction(tx1,
-                new TransactionResult(true));
-        when(kernelRule.getKernel().getPendingManager().getPendingTransactions())
-                .thenReturn(Collections.singletonList(pending));
+        // the transaction was verified when added to the pending manager
+        VerifiedTransactionCache cache = kernelRule.getKernel().getVerifiedTransactionCache();
+        assertTrue(tx.validate(kernelRule.getKernel().getConfig().network(), cache));
+        long misses = cache.getMissCount();
 
         SemuxBft semuxBFT = new SemuxBft(kernelRule.getKernel());
-
-        // tx1 should filter out
-        assertTrue(semuxBFT.getUnvalidatedTransactions(Collections.singletonList(tx1)).isEmpty());
-
-        // other transactions should remain
-        assertFalse(semuxBFT.getUnvalidatedTransactions(Collections.singletonList(tx2)).isEmpty());
-
-        // test that invalid pending are not filtered
-        when(kernelRule.getKernel().getPendingManager().getPendingTransactions(anyInt()))
-                .thenReturn(Collections.singletonList(new PendingManager.PendingTransaction(tx2,
-                        new TransactionResult(false))));
-
-        assertFalse(semuxBFT.getUnvalidatedTransactions(Collections.singletonList(tx2)).isEmpty());
+        semuxBFT.proposal = new Proposal(new Proof(block.getNumber(), 0), block.getHeader(),
+                Collections.singletonList(tx));
+        semuxBFT.proposal.sign(from);
+        assertTrue(semuxBFT.validateBlock(block.getHeader(), Collections.singletonList(tx)));
+        assertEquals(misses, cache.getMissCount());
+        assertEquals(1, cache.getHitCount());
     }
 
     @Test
@@ -0,0 +1,72 @@
+/**
+ * Copyright (c) 2017-2018 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+public class BlockCacheTest {
+
+    private Block block(long number) {
+        BlockHeader header = mock(BlockHeader.class);
+        when(header.getNumber()).thenReturn(number);
+
+        Block block = mock(Block.class);
+        when(block.getNumber()).thenReturn(number);
+        when(block.getHeader()).thenReturn(header);
+        return block;
+    }
+
+    @Test
+    public void testPinned() {
+        BlockCache cache = new BlockCache(4, 1, 1);
+        Block[] blocks = new Block[10];
+        for (int i = 0; i < blocks.length; i++) {
+            blocks[i] = block(i);
+            cache.add(blocks[i]);
+        }
+
+        for (int i = 6; i < 10; i++) {
+            assertSame(blocks[i], cache.getBlock(i, n -> null));
+            assertSame(blocks[i].getHeader(), cache.getHeader(i, n -> null));
+        }
+        assertEquals(8, cache.getHitCount());
+        assertEquals(0, cache.getMissCount());
+    }
+
+    @Test
+    public void testLoad() {
+        BlockCache cache = new BlockCache(4, 16, 16);
+        AtomicInteger loads = new AtomicInteger();
+        Block block = block(1);
+
+        assertSame(block, cache.getBlock(1, n -> {
+            loads.incrementAndGet();
+            return block;
+        }));
+        assertSame(block, cache.getBlock(1, n -> null));
+        assertSame(block.getHeader(), cache.getHeader(1, n -> null));
+        assertEquals(1, loads.get());
+        assertEquals(1, cache.getMissCount());
+        assertEquals(2, cache.getHitCount());
+
+        // absent blocks are not cached
+        assertNull(cache.getBlock(2, n -> null));
+        Block block2 = block(2);
+        assertSame(block2, cache.getBlock(2, n -> block2));
+
+        cache.clear();
+        assertNull(cache.getBlock(1, n -> null));
+    }
+}
@@ -8,6 +8,7 @@ package org.semux.core;
 
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.semux.core.Amount.ZERO;
 
@@ -26,6 +27,7 @@ import org.semux.crypto.Key.Signature;
 import org.semux.util.Bytes;
 import org.semux.util.MerkleUtil;
 import org.semux.util.SimpleDecoder;
+import org.semux.util.exception.SimpleCodecException;
 
 public class BlockTest {
 
@@ -108,6 +110,41 @@ public class BlockTest {
         assertArrayEquals(tx.getHash(), tx2.getHash());
     }
 
+    @Test
+    public void testLazyDecoding() {
+        BlockHeader header = new BlockHeader(number, coinbase, prevHash, timestamp, transactionsRoot, resultsRoot,
+                stateRoot, data);
+        Block block = new Block(header, transactions, results, view, votes);
+        byte[] encodedTransactions = block.toBytesTransactions();
+        byte[] encodedVotes = block.toBytesVotes();
+
+        Block parsed = Block.fromBytes(block.toBytesHeader(), encodedTransactions, block.toBytesResults(),
+                encodedVotes);
+        assertEquals(1, parsed.getTransactionCount());
+        assertArrayEquals(tx.getHash(), parsed.getTransaction(0).getHash());
+        assertEquals(block.getTransactionIndices(), parsed.getTransactionIndices());
+        assertTrue(parsed.getResults().get(0).isSuccess());
+
+        // the encoding is reused, until the votes are updated
+        assertSame(encodedTransactions, parsed.toBytesTransactions());
+        assertSame(encodedVotes, parsed.toBytesVotes());
+        parsed.setView(view + 1);
+        Block updated = Block.fromBytes(parsed.toBytesHeader(), parsed.toBytesTransactions(),
+                parsed.toBytesResults(), parsed.toBytesVotes());
+        assertEquals(view + 1, updated.getView());
+        assertTrue(updated.getVotes().isEmpty());
+    }
+
+    @Test(expected = SimpleCodecException.class)
+    public void testDecodeMalformed() {
+        BlockHeader header = new BlockHeader(number, coinbase, prevHash, timestamp, transactionsRoot, resultsRoot,
+                stateRoot, data);
+        Block block = new Block(header, transactions, results, view, votes);
+
+        Block.fromBytes(block.toBytesHeader(), block.toBytesTransactions(), Bytes.of(0), block.toBytesVotes())
+                .decode();
+    }
+
     @Test
     public void testValidateTransactions() {
         BlockHeader previousHeader = new BlockHeader(number - 1, coinbase, prevHash, timestamp - 1, transactionsRoot,
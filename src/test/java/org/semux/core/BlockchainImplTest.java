@@ -12,13 +12,16 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.semux.core.Amount.Unit.NANO_SEM;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
+import org.apache.commons.lang3.tuple.Pair;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -29,7 +32,13 @@ import org.semux.config.Constants;
 import org.semux.config.DevnetConfig;
 import org.semux.consensus.ValidatorActivatedFork;
 import org.semux.core.BlockchainImpl.StatsType;
+import org.semux.core.state.AccountState;
+import org.semux.core.state.DelegateState;
+import org.semux.core.state.StateTree;
+import org.semux.crypto.Hex;
 import org.semux.crypto.Key;
+import org.semux.db.Database;
+import org.semux.db.DatabaseName;
 import org.semux.rules.TemporaryDatabaseRule;
 import org.semux.util.Bytes;
 import org.semux.util.MerkleUtil;
@@ -65,6 +74,186 @@ public class BlockchainImplTest {
         chain = new BlockchainImpl(config, temporaryDBFactory);
     }
 
+    @Test
+    public void testSnapshot() {
+        chain.addBlock(createBlock(1, Collections.emptyList(), Collections.emptyList()));
+
+        chain.getAccountState().adjustAvailable(from, value);
+
+        try (BlockchainSnapshot snapshot = chain.snapshot()) {
+            chain.getAccountState().adjustAvailable(to, value);
+            chain.addBlock(createBlock(2));
+
+            assertEquals(1, snapshot.getLatestBlockNumber());
+            assertNull(snapshot.getBlock(2));
+            assertFalse(snapshot.hasTransaction(tx.getHash()));
+            assertEquals(value, snapshot.getAccountState().getAccount(from).getAvailable());
+            assertEquals(Amount.ZERO, snapshot.getAccountState().getAccount(to).getAvailable());
+        }
+
+        assertEquals(2, chain.getLatestBlockNumber());
+        assertEquals(value, chain.getAccountState().getAccount(to).getAvailable());
+    }
+
+    @Test
+    public void testSnapshotTrackedStates() throws InterruptedException {
+        int blocks = 20;
+        List<String> errors = Collections.synchronizedList(new ArrayList<>());
+        Thread reader = new Thread(() -> {
+            long number;
+            do {
+                try (BlockchainSnapshot snapshot = chain.snapshot()) {
+                    number = snapshot.getLatestBlockNumber();
+                    Amount available = snapshot.getAccountState().getAccount(to).getAvailable();
+                    if (!available.equals(NANO_SEM.of(number * 20))) {
+                        errors.add("block " + number + ": " + available);
+                    }
+                }
+            } while (number < blocks);
+        });
+        reader.start();
+
+        for (int i = 1; i <= blocks; i++) {
+            AccountState as = chain.getAccountState().track();
+            DelegateState ds = chain.getDelegateState().track();
+            as.adjustAvailable(to, value);
+            chain.addBlock(createBlock(i), as, ds);
+        }
+        reader.join();
+
+        assertEquals(Collections.emptyList(), errors);
+    }
+
+    @Test
+    public void testBlockArchive() {
+        Whitebox.setInternalState(config, "dbBlockArchive", true);
+        chain = new BlockchainImpl(config, temporaryDBFactory);
+
+        long n = BlockchainImpl.ARCHIVE_DEPTH + BlockchainImpl.ARCHIVE_MIN_BATCH;
+        for (long i = 1; i <= n; i++) {
+            chain.addBlock(createBlock(i, Collections.singletonList(tx), Collections.singletonList(res)));
+        }
+
+        // the genesis and the following blocks have been moved out
+        assertNull(temporaryDBFactory.getDB(DatabaseName.BLOCK).get(Bytes.merge((byte) 0, Bytes.of(1L))));
+        assertEquals(0, chain.getBlock(0).getNumber());
+        assertEquals(1, chain.getBlockHeader(1).getNumber());
+        assertTrue(chain.hasBlock(1));
+        assertEquals(n, chain.getBlock(n).getNumber());
+
+        Transaction t = chain.getTransaction(tx.getHash());
+        assertNotNull(t);
+        assertArrayEquals(tx.getHash(), t.getHash());
+        assertNotNull(chain.getTransactionResult(tx.getHash()));
+
+        // archived blocks left in the block database by a crash are removed on restart
+        Database blockDB = temporaryDBFactory.getDB(DatabaseName.BLOCK);
+        byte[] key = Bytes.merge((byte) 0, Bytes.of(1L));
+        blockDB.put(key, chain.getBlockHeader(1).toBytes());
+        chain.closeArchive();
+        chain = new BlockchainImpl(config, temporaryDBFactory);
+        assertNull(blockDB.get(key));
+        assertEquals(1, chain.getBlockHeader(1).getNumber());
+        assertNotNull(blockDB.get(Bytes.merge((byte) 0, Bytes.of(n))));
+    }
+
+    @Test
+    public void testStateRoot() {
+        byte[] root = chain.getStateRoot(0);
+        assertNotNull(root);
+        assertFalse(Arrays.equals(Bytes.EMPTY_HASH, root));
+        assertNull(chain.getStateRoot(1));
+
+        byte[] address = new Key().toAddress();
+        chain.getAccountState().adjustAvailable(address, NANO_SEM.of(1));
+        chain.addBlock(createBlock(1));
+        assertFalse(Arrays.equals(root, chain.getStateRoot(1)));
+
+        // a state tree built from scratch has the same root
+        temporaryDBFactory.getDB(DatabaseName.STATE).delete(Bytes.of((byte) 0xff));
+        chain = new BlockchainImpl(config, temporaryDBFactory);
+        StateTree tree = Whitebox.getInternalState(chain, "stateTree");
+        assertArrayEquals(chain.getStateRoot(1), tree.getRoot());
+    }
+
+    @Test
+    public void testStateHistory() {
+        Whitebox.setInternalState(config, "dbStateHistory", true);
+        chain = new BlockchainImpl(config, temporaryDBFactory);
+
+        byte[] address = new Key().toAddress();
+        byte[] delegate = chain.getGenesis().getDelegates().values().iterator().next();
+        for (long i = 1; i <= 3; i++) {
+            chain.getAccountState().adjustAvailable(address, NANO_SEM.of(i));
+            assertTrue(chain.getDelegateState().vote(address, delegate, NANO_SEM.of(i)));
+            chain.addBlock(createBlock(i));
+        }
+
+        assertEquals(Amount.ZERO, chain.getAccountState().at(0).getAccount(address).getAvailable());
+        assertEquals(NANO_SEM.of(1), chain.getAccountState().at(1).getAccount(address).getAvailable());
+        assertEquals(NANO_SEM.of(3), chain.getAccountState().at(2).getAccount(address).getAvailable());
+        assertEquals(NANO_SEM.of(6), chain.getAccountState().at(3).getAccount(address).getAvailable());
+        assertEquals(Amount.ZERO, chain.getDelegateState().at(0).getVote(address, delegate));
+        assertEquals(NANO_SEM.of(3), chain.getDelegateState().at(2).getVote(address, delegate));
+        assertEquals(NANO_SEM.of(3), chain.getDelegateState().at(2).getDelegateByAddress(delegate).getVotes());
+        assertTrue(chain.getDelegateState().at(0).getVotesByVoter(address).isEmpty());
+        assertEquals(1, chain.getDelegateState().at(2).getVotesByVoter(address).size());
+
+        try (BlockchainSnapshot snapshot = chain.snapshot()) {
+            assertEquals(NANO_SEM.of(1), snapshot.getAccountState().at(1).getAccount(address).getAvailable());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testStateHistoryOutOfRange() {
+        Whitebox.setInternalState(config, "dbStateHistory", true);
+        chain = new BlockchainImpl(config, temporaryDBFactory);
+        chain.addBlock(createBlock(1));
+
+        chain.getAccountState().at(2);
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testStateHistoryDisabled() {
+        chain.getAccountState().at(0);
+    }
+
+    @Test
+    public void testBlockCache() {
+        Block block = createBlock(1);
+        chain.addBlock(block);
+
+        long misses = chain.getBlockCache().getMissCount();
+        assertSame(block, chain.getBlock(1));
+        assertSame(block, chain.getBlock(block.getHash()));
+        assertSame(block.getHeader(), chain.getBlockHeader(1));
+        assertEquals(misses, chain.getBlockCache().getMissCount());
+
+        // blocks not added yet are not cached
+        assertNull(chain.getBlock(2));
+        assertNull(chain.getBlockHeader(2));
+        block = createBlock(2);
+        chain.addBlock(block);
+        assertSame(block, chain.getBlock(2));
+    }
+
+    @Test
+    public void testHeaderIndex() {
+        Block block = createBlock(1);
+        chain.addBlock(block);
+        assertEquals(2, chain.getHeaderIndex().size());
+        assertEquals(1, chain.getBlockNumber(block.getHash()));
+        assertEquals(-1, chain.getBlockNumber(Bytes.random(32)));
+
+        // rebuilt on reload
+        chain = new BlockchainImpl(config, temporaryDBFactory);
+        assertEquals(2, chain.getHeaderIndex().size());
+        assertEquals(1, chain.getBlockNumber(block.getHash()));
+        assertEquals(block.getTimestamp(), chain.getHeaderIndex().getTimestamp(1));
+        assertTrue(chain.hasBlock(1));
+        assertFalse(chain.hasBlock(2));
+    }
+
     @Test
     public void testGetLatestBlock() {
         assertEquals(0, chain.getLatestBlockNumber());
@@ -116,6 +305,31 @@ public class BlockchainImplTest {
         assertEquals(number, chain.getBlockNumber(newBlock.getHash()));
     }
 
+    @Test
+    public void testGetBlockNumberInvalidHash() {
+        chain.addBlock(createBlock(1));
+
+        assertEquals(-1, chain.getBlockNumber(Hex.decode0x("0x1234")));
+        assertEquals(-1, chain.getBlockNumber(Bytes.EMPTY_BYTES));
+        assertEquals(-1, chain.getBlockNumber(Bytes.random(40)));
+    }
+
+    @Test
+    public void testSnapshotGetBlockNumber() {
+        Block block1 = createBlock(1);
+        chain.addBlock(block1);
+
+        try (BlockchainSnapshot snapshot = chain.snapshot()) {
+            Block block2 = createBlock(2);
+            chain.addBlock(block2);
+
+            assertEquals(1, snapshot.getBlockNumber(block1.getHash()));
+            assertEquals(-1, snapshot.getBlockNumber(block2.getHash()));
+            assertFalse(snapshot.hasBlock(2));
+            assertEquals(2, chain.getBlockNumber(block2.getHash()));
+        }
+    }
+
     @Test
     public void testGetGenesis() {
         assertArrayEquals(Genesis.load(network).getHash(), chain.getGenesis().getHash());
@@ -244,6 +458,93 @@ public class BlockchainImplTest {
         assertArrayEquals(tx.getHash(), list.get(0).getHash());
     }
 
+    @Test
+    public void testGetTransactionsBatch() {
+        Transaction tx2 = new Transaction(network, TransactionType.TRANSFER, to, value, fee, nonce + 1, timestamp,
+                data).sign(key);
+        chain.addBlock(createBlock(1, Arrays.asList(tx, tx2), Arrays.asList(res, res)));
+        byte[] coinbaseTx = chain.getTransactions(coinbase, 0, 1).get(0).getHash();
+
+        List<Transaction> list = chain.getTransactions(Arrays.asList(tx2.getHash(), Bytes.random(32), coinbaseTx,
+                tx.getHash()));
+        assertEquals(4, list.size());
+        assertArrayEquals(tx2.getHash(), list.get(0).getHash());
+        assertNull(list.get(1));
+        assertEquals(TransactionType.COINBASE, list.get(2).getType());
+        assertArrayEquals(tx.getHash(), list.get(3).getHash());
+
+        assertEquals(-1, chain.getTransactionBlockNumber(Bytes.random(32)));
+    }
+
+    @Test
+    public void testGetTransactionsWithBlockNumbers() {
+        chain.addBlock(createBlock(1, Collections.emptyList(), Collections.emptyList()));
+        chain.addBlock(createBlock(2, Collections.singletonList(tx), Collections.singletonList(res)));
+
+        List<Pair<Long, Transaction>> list = chain.getTransactionsWithBlockNumbers(to, 0, 1024);
+        assertEquals(1, list.size());
+        assertEquals(2L, list.get(0).getLeft().longValue());
+        assertArrayEquals(tx.getHash(), list.get(0).getRight().getHash());
+
+        // coinbase transactions
+        list = chain.getTransactionsWithBlockNumbers(coinbase, 0, 1024);
+        assertEquals(2, list.size());
+        for (int i = 0; i < list.size(); i++) {
+            assertEquals(TransactionType.COINBASE, list.get(i).getRight().getType());
+            assertEquals(i + 1, list.get(i).getLeft().longValue());
+            assertEquals(i + 1, chain.getTransactionBlockNumber(list.get(i).getRight().getHash()));
+        }
+
+        assertTrue(chain.getTransactionsWithBlockNumbers(Bytes.random(20), 0, 1024).isEmpty());
+    }
+
+    @Test
+    public void testAsyncIndexing() {
+        Whitebox.setInternalState(config, "dbAsyncIndexing", true);
+        chain = new BlockchainImpl(config, temporaryDBFactory);
+        TransactionIndexer indexer = chain.getTransactionIndexer();
+
+        chain.addBlock(createBlock(1));
+        chain.addBlock(createBlock(2, Collections.emptyList(), Collections.emptyList()));
+        assertTrue(chain.hasTransaction(tx.getHash()));
+        assertEquals(0, chain.getTransactionCount(to));
+        assertEquals(0, indexer.getIndexedBlockNumber());
+
+        // the latest block can be read before the indexer reaches it
+        Block latest = chain.getLatestBlock();
+        assertEquals(2, latest.getNumber());
+        assertNull(chain.getCoinbaseTransaction(latest.getNumber()));
+
+        indexer.catchUp();
+        assertEquals(2, indexer.getIndexedBlockNumber());
+        assertEquals(1, chain.getTransactionCount(to));
+        assertEquals(2, chain.getTransactionCount(coinbase));
+        assertNotNull(chain.getCoinbaseTransaction(2));
+
+        // the indexed block number is persisted
+        chain = new BlockchainImpl(config, temporaryDBFactory);
+        assertEquals(2, chain.getTransactionIndexer().getIndexedBlockNumber());
+    }
+
+    @Test
+    public void testReindex() {
+        chain.addBlock(createBlock(1));
+        chain.addBlock(createBlock(2, Collections.emptyList(), Collections.emptyList()));
+        byte[] coinbaseTx = chain.getCoinbaseTransaction(2).getHash();
+
+        chain.getTransactionIndexer().reindex();
+        assertEquals(2, chain.getTransactionIndexer().getIndexedBlockNumber());
+        assertEquals(1, chain.getTransactionCount(from));
+        assertEquals(1, chain.getTransactionCount(to));
+        assertEquals(2, chain.getTransactionCount(coinbase));
+        assertArrayEquals(coinbaseTx, chain.getCoinbaseTransaction(2).getHash());
+        assertArrayEquals(tx.getHash(), chain.getTransactions(to, 0, 1).get(0).getHash());
+
+        // further blocks are indexed with each block
+        chain.addBlock(createBlock(3, Collections.emptyList(), Collections.emptyList()));
+        assertEquals(3, chain.getTransactionCount(coinbase));
+    }
+
     @Test
     public void testGetTransactionsSelfTx() {
         Transaction selfTx = new Transaction(network, TransactionType.TRANSFER, key.toAddress(), value, fee, nonce,
@@ -0,0 +1,133 @@
+/**
+ * Copyright (c) 2017-2018 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.core;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.semux.consensus.ValidatorActivatedFork;
+import org.semux.util.Bytes;
+
+public class HeaderIndexTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final byte[] coinbase1 = Bytes.random(20);
+    private final byte[] coinbase2 = Bytes.random(20);
+    private final List<BlockHeader> headers = new ArrayList<>();
+
+    private File file;
+
+    @Before
+    public void setUp() throws IOException {
+        file = new File(folder.getRoot(), "headers.idx");
+        for (int i = 0; i < 3000; i++) {
+            headers.add(header(i));
+        }
+    }
+
+    private BlockHeader header(long number) {
+        BlockHeaderData data = number % 2 == 0
+                ? BlockHeaderData.v1(new BlockHeaderData.ForkSignalSet(ValidatorActivatedFork.UNIFORM_DISTRIBUTION))
+                : BlockHeaderData.v0();
+        return new BlockHeader(number, number % 3 == 0 ? coinbase1 : coinbase2, Bytes.EMPTY_HASH, number * 1000,
+                Bytes.EMPTY_HASH, Bytes.EMPTY_HASH, Bytes.EMPTY_HASH, data.toBytes());
+    }
+
+    private void assertIndexed(HeaderIndex index, int n) {
+        for (int i = 0; i < n; i++) {
+            BlockHeader header = headers.get(i);
+            assertEquals(i, index.getNumber(header.getHash()));
+            assertEquals(header.getTimestamp(), index.getTimestamp(i));
+            assertArrayEquals(header.getCoinbase(), index.getCoinbase(i));
+            assertEquals(i % 2 == 0, index.isSignaling(i, ValidatorActivatedFork.UNIFORM_DISTRIBUTION));
+        }
+    }
+
+    @Test
+    public void testAdd() {
+        HeaderIndex index = new HeaderIndex(file);
+        for (BlockHeader header : headers) {
+            index.add(header);
+        }
+
+        assertEquals(headers.size(), index.size());
+        assertIndexed(index, headers.size());
+        assertTrue(index.contains(0));
+        assertFalse(index.contains(headers.size()));
+        assertFalse(index.contains(-1));
+        assertEquals(-1, index.getNumber(Bytes.random(32)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testAddOutOfOrder() {
+        HeaderIndex index = new HeaderIndex(file);
+        index.add(headers.get(1));
+    }
+
+    @Test
+    public void testLoad() {
+        AtomicInteger loads = new AtomicInteger();
+        HeaderIndex index = new HeaderIndex(file);
+        index.load(1999, n -> {
+            loads.incrementAndGet();
+            return headers.get((int) n);
+        });
+        assertEquals(2000, loads.get());
+        assertEquals(2000, index.size());
+        assertIndexed(index, 2000);
+    }
+
+    @Test
+    public void testSaveAndLoad() {
+        HeaderIndex index = new HeaderIndex(file);
+        for (int i = 0; i < HeaderIndex.SAVE_INTERVAL + 10; i++) {
+            index.add(i < headers.size() ? headers.get(i) : header(i));
+        }
+        index.close();
+        assertTrue(file.exists());
+
+        // only the blocks added after the save are read
+        AtomicInteger loads = new AtomicInteger();
+        HeaderIndex loaded = new HeaderIndex(file);
+        loaded.load(HeaderIndex.SAVE_INTERVAL + 9, n -> {
+            loads.incrementAndGet();
+            return n < headers.size() ? headers.get((int) n) : header(n);
+        });
+        assertEquals(11, loads.get());
+        assertIndexed(loaded, headers.size());
+        assertEquals(HeaderIndex.SAVE_INTERVAL + 10, loaded.size());
+    }
+
+    @Test
+    public void testLoadMismatch() {
+        HeaderIndex index = new HeaderIndex(file);
+        for (int i = 0; i < HeaderIndex.SAVE_INTERVAL; i++) {
+            index.add(i < headers.size() ? headers.get(i) : header(i));
+        }
+        index.close();
+
+        // the saved index is ahead of the chain
+        HeaderIndex loaded = new HeaderIndex(file);
+        loaded.load(999, n -> headers.get((int) n));
+        assertEquals(1000, loaded.size());
+        assertIndexed(loaded, 1000);
+    }
+}
@@ -65,6 +65,14 @@ public class TransactionTest {
         testFields(Transaction.fromBytes(tx.toBytes()));
     }
 
+    @Test
+    public void testReadNonce() {
+        Transaction tx = new Transaction(network, type, to, value, fee, nonce, timestamp, data);
+        tx.sign(key);
+
+        assertEquals(nonce, Transaction.readNonce(tx.toBytes()));
+    }
+
     @Test
     public void testTransactionSize() {
         Transaction tx = new Transaction(network, type, to, value, fee, nonce, timestamp, Bytes.random(128))
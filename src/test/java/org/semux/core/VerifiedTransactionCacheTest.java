@@ -0,0 +1,40 @@
+/**
+ * Copyright (c) 2017-2018 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.semux.crypto.Hash;
+import org.semux.crypto.Key;
+import org.semux.crypto.Key.Signature;
+import org.semux.util.Bytes;
+
+public class VerifiedTransactionCacheTest {
+
+    @Test
+    public void testVerify() {
+        VerifiedTransactionCache cache = new VerifiedTransactionCache(16);
+        Key key = new Key();
+        byte[] hash = Hash.h256(Bytes.random(16));
+        Signature signature = key.sign(hash);
+
+        assertTrue(cache.verify(hash, signature));
+        assertTrue(cache.verify(hash, signature));
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+
+        // invalid signatures are never cached
+        byte[] other = Hash.h256(Bytes.random(16));
+        assertFalse(cache.verify(other, signature));
+        assertFalse(cache.verify(other, signature));
+        assertEquals(1, cache.getHitCount());
+        assertEquals(3, cache.getMissCount());
+    }
+}
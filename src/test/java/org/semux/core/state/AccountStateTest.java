@@ -21,6 +21,8 @@ import org.semux.config.DevnetConfig;
 import org.semux.core.Blockchain;
 import org.semux.core.BlockchainImpl;
 import org.semux.core.Genesis.Premine;
+import org.semux.db.DatabaseName;
+import org.semux.db.UnitOfWork;
 import org.semux.rules.TemporaryDatabaseRule;
 import org.semux.util.ByteArray;
 import org.semux.util.Bytes;
@@ -115,4 +117,63 @@ public class AccountStateTest {
         state.rollback();
         assertEquals(0, state2.getAccount(address).getNonce());
     }
+
+    @Test
+    public void testCache() {
+        AccountStateImpl as = new AccountStateImpl(temporaryDBFactory.getDB(DatabaseName.ACCOUNT), 16);
+        byte[] address = Bytes.random(20);
+
+        AccountState track = as.track();
+        track.adjustAvailable(address, NANO_SEM.of(10));
+        track.commit();
+
+        UnitOfWork uow = temporaryDBFactory.createUnitOfWork();
+        as.commit(uow);
+        uow.commit();
+
+        // written back to the cache and persisted
+        long misses = as.getCacheMissCount();
+        assertEquals(NANO_SEM.of(10), as.getAccount(address).getAvailable());
+        assertEquals(misses, as.getCacheMissCount());
+        assertEquals(1, as.getCacheHitCount());
+        assertEquals(NANO_SEM.of(10), new AccountStateImpl(temporaryDBFactory.getDB(DatabaseName.ACCOUNT), 0)
+                .getAccount(address).getAvailable());
+
+        // reads of unknown accounts are cached as well
+        byte[] other = Bytes.random(20);
+        assertEquals(ZERO, as.getAccount(other).getAvailable());
+        assertEquals(ZERO, as.getAccount(other).getAvailable());
+        assertEquals(misses + 1, as.getCacheMissCount());
+    }
+
+    @Test
+    public void testNestedTrack() {
+        byte[] address = Bytes.random(20);
+
+        AccountState pending = state.track();
+        pending.adjustAvailable(address, NANO_SEM.of(1));
+
+        AccountState tx1 = pending.track();
+        tx1.adjustAvailable(address, NANO_SEM.of(2));
+        AccountState inner = tx1.track();
+        inner.increaseNonce(address);
+        inner.commit();
+        assertEquals(NANO_SEM.of(3), pending.getAccount(address).getAvailable());
+        assertEquals(1, pending.getAccount(address).getNonce());
+
+        // reverting a nested state undoes its writes only
+        tx1.rollback();
+        assertEquals(NANO_SEM.of(1), pending.getAccount(address).getAvailable());
+        assertEquals(0, pending.getAccount(address).getNonce());
+
+        AccountState tx2 = pending.track();
+        tx2.adjustLocked(address, NANO_SEM.of(4));
+        tx2.commit();
+        assertEquals(NANO_SEM.of(4), pending.getAccount(address).getLocked());
+        assertEquals(ZERO, state.getAccount(address).getAvailable());
+
+        pending.commit();
+        assertEquals(NANO_SEM.of(1), state.getAccount(address).getAvailable());
+        assertEquals(NANO_SEM.of(4), state.getAccount(address).getLocked());
+    }
 }
@@ -10,11 +10,14 @@ import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.semux.core.Amount.Unit.NANO_SEM;
 import static org.semux.core.Amount.Unit.SEM;
 import static org.semux.core.Amount.ZERO;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -28,6 +31,8 @@ import org.semux.core.Amount;
 import org.semux.core.Blockchain;
 import org.semux.core.BlockchainImpl;
 import org.semux.crypto.Key;
+import org.semux.db.Database;
+import org.semux.db.DatabaseName;
 import org.semux.rules.TemporaryDatabaseRule;
 import org.semux.util.ByteArray;
 import org.semux.util.Bytes;
@@ -157,8 +162,162 @@ public class DelegateStateTest {
         assertEquals(value2, votes.get(new ByteArray(voterKey2.toAddress())));
     }
 
+    @Test
+    public void testGetVotesByVoter() {
+        byte[] d1 = new Key().toAddress();
+        byte[] d2 = new Key().toAddress();
+        byte[] voter = new Key().toAddress();
+
+        assertTrue(ds.register(d1, Bytes.of("d1")));
+        assertTrue(ds.register(d2, Bytes.of("d2")));
+        assertTrue(ds.vote(voter, d1, NANO_SEM.of(1)));
+        assertEquals(1, ds.getVotesByVoter(voter).size());
+        ds.commit();
+
+        DelegateState track = ds.track();
+        assertTrue(track.vote(voter, d2, NANO_SEM.of(2)));
+        assertTrue(track.unvote(voter, d1, NANO_SEM.of(1)));
+        Map<ByteArray, Amount> votes = track.getVotesByVoter(voter);
+        assertEquals(1, votes.size());
+        assertEquals(NANO_SEM.of(2), votes.get(ByteArray.of(d2)));
+        assertEquals(NANO_SEM.of(1), ds.getVotesByVoter(voter).get(ByteArray.of(d1)));
+
+        track.commit();
+        ds.commit();
+        votes = ds.getVotesByVoter(voter);
+        assertEquals(1, votes.size());
+        assertEquals(NANO_SEM.of(2), votes.get(ByteArray.of(d2)));
+        assertTrue(ds.getVotesByVoter(d1).isEmpty());
+    }
+
+    @Test
+    public void testBuildVoterIndex() {
+        byte[] delegate = delegates.values().iterator().next();
+        byte[] voter = new Key().toAddress();
+
+        // a vote written before the reverse index existed
+        Database voteDB = temporaryDBFactory.getDB(DatabaseName.VOTE);
+        voteDB.put(Bytes.merge(delegate, voter), Bytes.of(3L));
+        voteDB.delete(Bytes.of((byte) 0xff));
+
+        DelegateStateImpl state = new DelegateStateImpl(chain, temporaryDBFactory.getDB(DatabaseName.DELEGATE),
+                voteDB);
+        assertTrue(state.getVotesByVoter(voter).isEmpty());
+
+        state.buildVoterIndex();
+        assertEquals(NANO_SEM.of(3), state.getVotesByVoter(voter).get(ByteArray.of(delegate)));
+        assertEquals(NANO_SEM.of(3), state.getVotes(delegate).get(ByteArray.of(voter)));
+    }
+
     @After
     public void rollback() {
         ds.rollback();
     }
+
+    @Test
+    public void testNestedTrack() {
+        byte[] delegate = new Key().toAddress();
+        byte[] voter = new Key().toAddress();
+
+        DelegateState pending = ds.track();
+        assertTrue(pending.register(delegate, Bytes.of("delegate")));
+
+        DelegateState tx1 = pending.track();
+        assertTrue(tx1.vote(voter, delegate, NANO_SEM.of(5)));
+        assertEquals(NANO_SEM.of(5), pending.getDelegateByAddress(delegate).getVotes());
+        tx1.rollback();
+        assertEquals(ZERO, pending.getDelegateByAddress(delegate).getVotes());
+        assertEquals(ZERO, pending.getVote(voter, delegate));
+
+        DelegateState tx2 = pending.track();
+        assertTrue(tx2.vote(voter, delegate, NANO_SEM.of(7)));
+        tx2.commit();
+        assertEquals(delegates.size() + 1, pending.getDelegates().size());
+        assertNull(ds.getDelegateByAddress(delegate));
+
+        pending.commit();
+        assertEquals(NANO_SEM.of(7), ds.getDelegateByAddress(delegate).getVotes());
+        assertEquals(NANO_SEM.of(7), ds.getVote(voter, delegate));
+    }
+
+    @Test
+    public void testRanking() {
+        byte[] d1 = new Key().toAddress();
+        byte[] d2 = new Key().toAddress();
+        byte[] voter = new Key().toAddress();
+        int n = delegates.size();
+
+        assertTrue(ds.register(d1, Bytes.of("d1")));
+        assertTrue(ds.register(d2, Bytes.of("d2")));
+        assertTrue(ds.vote(voter, d1, NANO_SEM.of(1)));
+        assertTrue(ds.vote(voter, d2, NANO_SEM.of(2)));
+
+        assertEquals(0, ds.getDelegateRank(d2));
+        assertEquals(1, ds.getDelegateRank(d1));
+        assertEquals(-1, ds.getDelegateRank(voter));
+        assertEquals(2, ds.getDelegates(0, 2).size());
+        assertArrayEquals(d1, ds.getDelegates(1, 2).get(0).getAddress());
+        assertEquals(n, ds.getDelegates(2, Integer.MAX_VALUE).size());
+
+        // a tracked state ranks its own updates
+        DelegateState track = ds.track();
+        assertTrue(track.vote(voter, d1, NANO_SEM.of(2)));
+        assertEquals(0, track.getDelegateRank(d1));
+        assertEquals(1, ds.getDelegateRank(d1));
+
+        track.commit();
+        assertEquals(0, ds.getDelegateRank(d1));
+
+        // the reverted delegates are removed from the ranking
+        ds.rollback();
+        assertEquals(-1, ds.getDelegateRank(d1));
+        assertEquals(n, ds.getDelegates().size());
+    }
+
+    @Test
+    public void testTrackedRanking() {
+        byte[] voter = new Key().toAddress();
+        List<byte[]> addresses = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            byte[] address = new Key().toAddress();
+            assertTrue(ds.register(address, Bytes.of("d" + i)));
+            assertTrue(ds.vote(voter, address, NANO_SEM.of(i % 4)));
+            addresses.add(address);
+        }
+
+        // reorder some delegates and add a new one, in a tracked state
+        DelegateState track = ds.track();
+        assertTrue(track.vote(voter, addresses.get(0), NANO_SEM.of(5)));
+        assertTrue(track.vote(voter, addresses.get(3), NANO_SEM.of(1)));
+        assertTrue(track.unvote(voter, addresses.get(9), NANO_SEM.of(1)));
+        byte[] added = new Key().toAddress();
+        assertTrue(track.register(added, Bytes.of("d10")));
+        assertTrue(track.vote(voter, added, NANO_SEM.of(2)));
+        addresses.add(added);
+        addresses.addAll(delegates.values());
+
+        List<Delegate> tracked = track.getDelegates();
+        List<Delegate> page = track.getDelegates(2, 7);
+        Map<ByteArray, Integer> ranks = new HashMap<>();
+        for (byte[] address : addresses) {
+            ranks.put(ByteArray.of(address), track.getDelegateRank(address));
+        }
+        assertEquals(-1, track.getDelegateRank(voter));
+
+        // the same as the root, once committed
+        track.commit();
+        List<Delegate> expected = ds.getDelegates();
+        assertEquals(expected.size(), tracked.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertArrayEquals(expected.get(i).getAddress(), tracked.get(i).getAddress());
+            assertEquals(expected.get(i).getVotes(), tracked.get(i).getVotes());
+        }
+        assertEquals(5, page.size());
+        for (int i = 0; i < page.size(); i++) {
+            assertArrayEquals(expected.get(i + 2).getAddress(), page.get(i).getAddress());
+        }
+        for (byte[] address : addresses) {
+            assertEquals(ds.getDelegateRank(address), ranks.get(ByteArray.of(address)).intValue());
+        }
+    }
 }
@@ -0,0 +1,139 @@
+/**
+ * Copyright (c) 2017-2018 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.core.state;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map.Entry;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.semux.db.Database;
+import org.semux.db.DatabaseName;
+import org.semux.db.UnitOfWork;
+import org.semux.rules.TemporaryDatabaseRule;
+import org.semux.util.Bytes;
+import org.semux.util.ClosableIterator;
+
+public class StateHistoryTest {
+
+    @Rule
+    public TemporaryDatabaseRule temporaryDBFactory = new TemporaryDatabaseRule();
+
+    private final byte[] k1 = Bytes.random(20);
+    private final byte[] k2 = Bytes.random(20);
+
+    private void addBlock(StateHistory history, long number, byte[] key, byte[] value) {
+        UnitOfWork uow = temporaryDBFactory.createUnitOfWork();
+        if (key != null) {
+            uow.put(DatabaseName.ACCOUNT, key, value);
+        }
+        history.record(uow, number);
+        uow.commit();
+    }
+
+    private List<byte[]> values(Database db) {
+        List<byte[]> list = new ArrayList<>();
+        ClosableIterator<Entry<byte[], byte[]>> itr = db.iterator();
+        while (itr.hasNext()) {
+            list.add(itr.next().getValue());
+        }
+        itr.close();
+        return list;
+    }
+
+    @Test
+    public void testAt() {
+        StateHistory history = new StateHistory(temporaryDBFactory, 0);
+        addBlock(history, 1, k1, Bytes.of(1));
+        addBlock(history, 2, k2, Bytes.of(2));
+        addBlock(history, 3, null, null);
+        addBlock(history, 4, k1, Bytes.of(4));
+
+        assertEquals(1, history.getFirstBlock());
+        assertEquals(4, history.getLastBlock());
+
+        assertNull(history.at(DatabaseName.ACCOUNT, 0).get(k1));
+        assertArrayEquals(Bytes.of(1), history.at(DatabaseName.ACCOUNT, 1).get(k1));
+        assertNull(history.at(DatabaseName.ACCOUNT, 1).get(k2));
+        assertArrayEquals(Bytes.of(1), history.at(DatabaseName.ACCOUNT, 3).get(k1));
+        assertArrayEquals(Bytes.of(2), history.at(DatabaseName.ACCOUNT, 3).get(k2));
+        assertArrayEquals(Bytes.of(4), history.at(DatabaseName.ACCOUNT, 4).get(k1));
+
+        // the entries which did not exist yet are skipped
+        assertEquals(0, values(history.at(DatabaseName.ACCOUNT, 0)).size());
+        assertEquals(1, values(history.at(DatabaseName.ACCOUNT, 1)).size());
+        assertEquals(2, values(history.at(DatabaseName.ACCOUNT, 2)).size());
+    }
+
+    @Test
+    public void testPruning() {
+        StateHistory history = new StateHistory(temporaryDBFactory, 2);
+        for (long i = 1; i <= 5; i++) {
+            addBlock(history, i, k1, Bytes.of(i));
+        }
+
+        assertEquals(4, history.getFirstBlock());
+        assertEquals(5, history.getLastBlock());
+        assertNull(history.getDiff(3));
+        assertNotNull(history.getDiff(4));
+        assertArrayEquals(Bytes.of(3L), history.at(DatabaseName.ACCOUNT, 3).get(k1));
+        assertArrayEquals(Bytes.of(4L), history.at(DatabaseName.ACCOUNT, 4).get(k1));
+
+        // no entry of the pruned blocks is left
+        Database indexDB = temporaryDBFactory.getDB(DatabaseName.INDEX);
+        ClosableIterator<Entry<byte[], byte[]>> itr = indexDB
+                .prefixIterator(StateHistory.entryPrefix(DatabaseName.ACCOUNT, k1));
+        assertArrayEquals(StateHistory.entryKey(DatabaseName.ACCOUNT, k1, 4), itr.next().getKey());
+        assertArrayEquals(StateHistory.entryKey(DatabaseName.ACCOUNT, k1, 5), itr.next().getKey());
+        assertFalse(itr.hasNext());
+        itr.close();
+    }
+
+    @Test
+    public void testGap() {
+        StateHistory history = new StateHistory(temporaryDBFactory, 0);
+        addBlock(history, 1, k1, Bytes.of(1));
+        addBlock(history, 2, k2, Bytes.of(2));
+        addBlock(history, 5, k1, Bytes.of(5));
+
+        assertEquals(5, history.getFirstBlock());
+        assertEquals(5, history.getLastBlock());
+
+        // the diffs recorded before the gap are removed
+        assertNull(history.getDiff(1));
+        assertNull(history.getDiff(2));
+        assertNotNull(history.getDiff(5));
+        Database indexDB = temporaryDBFactory.getDB(DatabaseName.INDEX);
+        ClosableIterator<Entry<byte[], byte[]>> itr = indexDB.prefixIterator(Bytes.of(StateHistory.TYPE_ENTRY_HISTORY));
+        assertArrayEquals(StateHistory.entryKey(DatabaseName.ACCOUNT, k1, 5), itr.next().getKey());
+        assertFalse(itr.hasNext());
+        itr.close();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testOutOfRange() {
+        StateHistory history = new StateHistory(temporaryDBFactory, 0);
+        addBlock(history, 1, k1, Bytes.of(1));
+
+        history.at(DatabaseName.ACCOUNT, 2);
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testReadOnly() {
+        StateHistory history = new StateHistory(temporaryDBFactory, 0);
+        addBlock(history, 1, k1, Bytes.of(1));
+
+        history.at(DatabaseName.ACCOUNT, 1).put(k2, Bytes.of(2));
+    }
+}
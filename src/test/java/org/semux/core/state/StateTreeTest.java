@@ -0,0 +1,119 @@
+/**
+ * Copyright (c) 2017-2018 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.core.state;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.semux.db.Database;
+import org.semux.db.DatabaseName;
+import org.semux.db.UnitOfWork;
+import org.semux.rules.TemporaryDatabaseRule;
+import org.semux.util.Bytes;
+
+public class StateTreeTest {
+
+    @Rule
+    public TemporaryDatabaseRule temporaryDBFactory = new TemporaryDatabaseRule();
+
+    private byte[] commit(StateTree tree, List<byte[]> keys, Random r, int updates) {
+        UnitOfWork uow = temporaryDBFactory.createUnitOfWork();
+        for (int i = 0; i < updates; i++) {
+            byte[] key;
+            if (keys.isEmpty() || r.nextInt(3) == 0) {
+                key = Bytes.random(20);
+                keys.add(key);
+            } else {
+                key = keys.get(r.nextInt(keys.size()));
+            }
+
+            if (r.nextInt(4) == 0) {
+                uow.delete(DatabaseName.ACCOUNT, key);
+                tree.put(DatabaseName.ACCOUNT, key, null);
+            } else {
+                byte[] value = Bytes.random(1 + r.nextInt(32));
+                uow.put(DatabaseName.ACCOUNT, key, value);
+                tree.put(DatabaseName.ACCOUNT, key, value);
+            }
+        }
+        byte[] root = tree.commit(uow);
+        uow.commit();
+        return root;
+    }
+
+    @Test
+    public void testEmpty() {
+        StateTree tree = new StateTree(temporaryDBFactory.getDB(DatabaseName.STATE), 16);
+        assertArrayEquals(Bytes.EMPTY_HASH, tree.getRoot());
+        assertFalse(tree.isBuilt());
+
+        tree.rebuild(temporaryDBFactory, (name, key) -> true);
+        assertArrayEquals(Bytes.EMPTY_HASH, tree.getRoot());
+        assertTrue(tree.isBuilt());
+    }
+
+    @Test
+    public void testIncrementalUpdates() {
+        Database stateDB = temporaryDBFactory.getDB(DatabaseName.STATE);
+        StateTree tree = new StateTree(stateDB, 16);
+        tree.rebuild(temporaryDBFactory, (name, key) -> true);
+
+        Random r = new Random(1);
+        List<byte[]> keys = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            byte[] root = commit(tree, keys, r, 1 + r.nextInt(40));
+            assertArrayEquals(root, tree.getRoot());
+        }
+        byte[] root = tree.getRoot();
+
+        // the persisted tree is reloaded
+        assertArrayEquals(root, new StateTree(stateDB, 16).getRoot());
+
+        // the tree only depends on the entries
+        StateTree rebuilt = new StateTree(stateDB, 16);
+        rebuilt.rebuild(temporaryDBFactory, (name, key) -> true);
+        assertArrayEquals(root, rebuilt.getRoot());
+
+        // and keeps being updated from there
+        for (int i = 0; i < 10; i++) {
+            root = commit(rebuilt, keys, r, 100);
+        }
+        StateTree rebuilt2 = new StateTree(stateDB, 16);
+        rebuilt2.rebuild(temporaryDBFactory, (name, key) -> true);
+        assertArrayEquals(root, rebuilt2.getRoot());
+    }
+
+    @Test
+    public void testRemoveAll() {
+        StateTree tree = new StateTree(temporaryDBFactory.getDB(DatabaseName.STATE), 16);
+        byte[] k1 = Bytes.random(20);
+        byte[] k2 = Bytes.random(20);
+
+        UnitOfWork uow = temporaryDBFactory.createUnitOfWork();
+        tree.put(DatabaseName.ACCOUNT, k1, Bytes.of(1));
+        tree.put(DatabaseName.DELEGATE, k2, Bytes.of(2));
+        tree.commit(uow);
+        uow.commit();
+        assertFalse(Arrays.equals(Bytes.EMPTY_HASH, tree.getRoot()));
+
+        uow = temporaryDBFactory.createUnitOfWork();
+        tree.put(DatabaseName.ACCOUNT, k1, null);
+        tree.put(DatabaseName.DELEGATE, k2, null);
+        tree.commit(uow);
+        uow.commit();
+        assertArrayEquals(Bytes.EMPTY_HASH, tree.getRoot());
+        assertFalse(temporaryDBFactory.getDB(DatabaseName.STATE).iterator().hasNext());
+    }
+}
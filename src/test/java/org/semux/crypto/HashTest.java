@@ -6,7 +6,14 @@
  */
 package org.semux.crypto;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 
 import org.junit.Test;
 import org.semux.util.Bytes;
@@ -54,4 +61,49 @@ public class HashTest {
         assertEquals(msgH160, Hex.encode(hash));
         assertEquals(20, hash.length);
     }
+
+    @Test
+    public void testH256Segments() {
+        for (boolean enabled : new boolean[] { true, false }) {
+            if (enabled) {
+                Native.enable();
+            } else {
+                Native.disable();
+            }
+
+            try {
+                byte[] raw = Bytes.of(msg);
+                byte[] padded = Bytes.merge(Bytes.random(3), raw, Bytes.random(5));
+
+                assertEquals(msgBlake2b, Hex.encode(Hash.h256(padded, 3, raw.length)));
+                assertEquals(msgBlake2b, Hex.encode(Hash.h256(raw, 0, raw.length)));
+                assertEquals(msgBlake2b, Hex.encode(Hash.h256(Bytes.of("t"), Bytes.of("es"), Bytes.of("t"))));
+                assertEquals(msgBlake2b, Hex.encode(Hash.h256(Bytes.of("te"), Bytes.of("st"))));
+
+                ByteBuffer heap = ByteBuffer.wrap(padded, 3, raw.length).slice();
+                assertEquals(msgBlake2b, Hex.encode(Hash.h256(heap)));
+                assertEquals(0, heap.position());
+
+                ByteBuffer direct = ByteBuffer.allocateDirect(raw.length);
+                direct.put(raw).flip();
+                assertEquals(msgBlake2b, Hex.encode(Hash.h256(direct)));
+                assertEquals(0, direct.position());
+            } finally {
+                Native.enable();
+            }
+        }
+    }
+
+    @Test
+    public void testH256Batch() {
+        List<byte[]> inputs = Arrays.asList(Bytes.of(msg), Bytes.EMPTY_BYTES, Bytes.random(1024));
+        List<byte[]> hashes = Hash.h256(inputs);
+
+        assertEquals(inputs.size(), hashes.size());
+        assertEquals(msgBlake2b, Hex.encode(hashes.get(0)));
+        for (int i = 0; i < inputs.size(); i++) {
+            assertArrayEquals(Hash.h256(inputs.get(i)), hashes.get(i));
+        }
+        assertTrue(Hash.h256(Collections.emptyList()).isEmpty());
+    }
 }
@@ -15,6 +15,9 @@ import java.math.BigInteger;
 import java.security.KeyPair;
 import java.security.SignatureException;
 import java.security.spec.InvalidKeySpecException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 import org.bouncycastle.util.Arrays;
 import org.junit.Assert;
@@ -123,6 +126,47 @@ public class KeyTest {
         assertFalse(Key.verify(hash, Bytes.random(200)));
     }
 
+    @Test
+    public void testVerifyBatch() {
+        List<byte[]> messages = new ArrayList<>();
+        List<Signature> signatures = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            byte[] hash = Bytes.random(32);
+            messages.add(hash);
+            signatures.add(new Key().sign(hash));
+        }
+        assertTrue(Key.verifyBatch(messages, signatures));
+        assertEquals(-1, Key.indexOfInvalid(messages, signatures));
+
+        messages.set(13, Bytes.random(32));
+        assertFalse(Key.verifyBatch(messages, signatures));
+        assertEquals(13, Key.indexOfInvalid(messages, signatures));
+
+        assertTrue(Key.verifyBatch(messages.subList(0, 2), signatures.subList(0, 2)));
+        assertTrue(Key.verifyBatch(Collections.emptyList(), Collections.emptyList()));
+    }
+
+    @Test
+    public void testVerifyBatchNullSignature() {
+        List<byte[]> messages = new ArrayList<>();
+        List<Signature> signatures = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            byte[] hash = Bytes.random(32);
+            messages.add(hash);
+            signatures.add(new Key().sign(hash));
+        }
+        signatures.set(7, null);
+
+        assertFalse(Key.verify(messages.get(7), signatures.get(7)));
+        assertFalse(Key.verifyBatch(messages, signatures));
+        assertEquals(7, Key.indexOfInvalid(messages, signatures));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testVerifyBatchMismatch() {
+        Key.verifyBatch(Collections.singletonList(Bytes.random(32)), Collections.emptyList());
+    }
+
     @Test
     public void testSignatureSize() {
         Key key = new Key();
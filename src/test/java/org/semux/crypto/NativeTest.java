@@ -7,16 +7,22 @@
 package org.semux.crypto;
 
 import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
 
 import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 import org.junit.AfterClass;
 import org.junit.BeforeClass;
 import org.junit.Test;
 import org.semux.util.Bytes;
+import org.semux.util.MerkleTree;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -87,6 +93,49 @@ public class NativeTest {
         assertTrue(Native.verify(MESSAGE, SIGNATURE, PUBLIC_KEY));
     }
 
+    @Test
+    public void testH256Batch() {
+        assumeTrue(Native.bulkEnabled);
+
+        List<byte[]> messages = Arrays.asList(MESSAGE, Bytes.EMPTY_BYTES, Bytes.random(512));
+        byte[] hashes = Native.h256Batch(Bytes.merge(messages), Native.offsets(messages));
+        for (int i = 0; i < messages.size(); i++) {
+            assertArrayEquals(Native.h256(messages.get(i)), Arrays.copyOfRange(hashes, i * 32, i * 32 + 32));
+        }
+    }
+
+    @Test(expected = CryptoException.class)
+    public void testH256BatchInvalidOffsets() {
+        assumeTrue(Native.bulkEnabled);
+
+        Native.h256Batch(MESSAGE, new int[] { 0, MESSAGE.length + 1 });
+    }
+
+    @Test
+    public void testMerkleRoot() {
+        assumeTrue(Native.bulkEnabled);
+
+        List<byte[]> leaves = new ArrayList<>();
+        for (int i = 1; i < 10; i++) {
+            leaves.add(Bytes.random(32));
+            assertArrayEquals(new MerkleTree(leaves).getRootHash(), Native.merkleRoot(Bytes.merge(leaves)));
+        }
+    }
+
+    @Test
+    public void testVerifyBatch() {
+        assumeTrue(Native.bulkEnabled);
+
+        List<byte[]> messages = Arrays.asList(MESSAGE, Bytes.random(64), MESSAGE);
+        byte[] sigs = Bytes.merge(SIGNATURE, SIGNATURE, SIGNATURE);
+        byte[] pks = Bytes.merge(PUBLIC_KEY, PUBLIC_KEY, PUBLIC_KEY);
+        assertEquals(1, Native.verifyBatch(Bytes.merge(messages), Native.offsets(messages), sigs, pks));
+
+        messages = Arrays.asList(MESSAGE, MESSAGE);
+        assertEquals(-1, Native.verifyBatch(Bytes.merge(messages), Native.offsets(messages),
+                Bytes.merge(SIGNATURE, SIGNATURE), Bytes.merge(PUBLIC_KEY, PUBLIC_KEY)));
+    }
+
     @Test
     public void testCompatibility() {
         assertArrayEquals(Native.h256(MESSAGE), Hash.h256(MESSAGE));
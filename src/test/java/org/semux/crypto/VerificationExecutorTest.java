@@ -0,0 +1,140 @@
+/**
+ * Copyright (c) 2017-2018 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.crypto;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Test;
+import org.semux.crypto.VerificationExecutor.Priority;
+
+public class VerificationExecutorTest {
+
+    private VerificationExecutor executor;
+
+    @After
+    public void tearDown() {
+        executor.shutdown();
+    }
+
+    @Test
+    public void testVerifyAll() {
+        executor = new VerificationExecutor(4, 16);
+
+        AtomicInteger count = new AtomicInteger();
+        assertTrue(executor.verifyAll(Priority.SYNC, 100, i -> count.incrementAndGet() > 0));
+        assertEquals(100, count.get());
+
+        assertFalse(executor.verifyAll(Priority.SYNC, 100, i -> i != 57));
+        assertTrue(executor.verifyAll(Priority.SYNC, 0, i -> false));
+        assertTrue(executor.verify(Priority.PENDING, () -> true));
+        assertFalse(executor.verify(Priority.PENDING, () -> false));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testVerifyAllError() {
+        executor = new VerificationExecutor(2, 16);
+
+        executor.verifyAll(Priority.SYNC, 100, i -> {
+            if (i == 99) {
+                throw new IllegalStateException();
+            }
+            return true;
+        });
+    }
+
+    @Test
+    public void testPriority() throws InterruptedException {
+        executor = new VerificationExecutor(1, 16);
+
+        // keep the only worker busy while the other tasks are queued
+        CountDownLatch release = new CountDownLatch(1);
+        Thread blocker = new Thread(() -> executor.verify(Priority.PENDING, () -> {
+            await(release);
+            return true;
+        }));
+        blocker.start();
+        waitForQueue(0);
+
+        List<Priority> order = Collections.synchronizedList(new ArrayList<>());
+        List<Thread> threads = new ArrayList<>();
+        for (Priority priority : Arrays.asList(Priority.PENDING, Priority.SYNC, Priority.CONSENSUS)) {
+            Thread t = new Thread(() -> executor.verify(priority, () -> order.add(priority)));
+            t.start();
+            threads.add(t);
+            waitForQueue(threads.size());
+        }
+
+        release.countDown();
+        blocker.join();
+        for (Thread t : threads) {
+            t.join();
+        }
+
+        assertEquals(Arrays.asList(Priority.CONSENSUS, Priority.SYNC, Priority.PENDING), order);
+        assertEquals(1, executor.getTaskCount(Priority.CONSENSUS));
+        assertEquals(2, executor.getTaskCount(Priority.PENDING));
+        assertTrue(executor.getAverageWaitMicros(Priority.CONSENSUS) > 0);
+    }
+
+    @Test
+    public void testBackpressure() throws InterruptedException {
+        executor = new VerificationExecutor(1, 1);
+
+        CountDownLatch release = new CountDownLatch(1);
+        Thread blocker = new Thread(() -> executor.verify(Priority.PENDING, () -> {
+            await(release);
+            return true;
+        }));
+        blocker.start();
+        waitForQueue(0);
+        Thread queued = new Thread(() -> executor.verify(Priority.PENDING, () -> true));
+        queued.start();
+        waitForQueue(1);
+
+        // the queue is full, so the check is run by the calling thread
+        assertTrue(executor.verify(Priority.CONSENSUS, () -> true));
+        assertEquals(1, executor.getCallerRunCount());
+
+        release.countDown();
+        blocker.join();
+        queued.join();
+    }
+
+    @Test
+    public void testShutdown() {
+        executor = new VerificationExecutor(2, 16);
+        executor.shutdown();
+
+        assertTrue(executor.verify(Priority.CONSENSUS, () -> true));
+        assertTrue(executor.verifyAll(Priority.SYNC, 100, i -> true));
+    }
+
+    private void waitForQueue(int size) throws InterruptedException {
+        // wait for the worker to pick the first task, or for the tasks to be queued
+        while (executor.getQueueSize() != size || executor.getTaskCount(Priority.PENDING) == 0) {
+            Thread.sleep(10);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,115 @@
+/**
+ * Copyright (c) 2017-2018 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.db;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.semux.db.exception.DatabaseException;
+import org.semux.util.Bytes;
+
+public class BlockArchiveTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private byte[][] record(long height) {
+        return new byte[][] { Bytes.of(height), Bytes.EMPTY_BYTES, Bytes.of("part-" + height) };
+    }
+
+    private List<byte[][]> records(long from, int n) {
+        List<byte[][]> list = new ArrayList<>();
+        for (long i = from; i < from + n; i++) {
+            list.add(record(i));
+        }
+        return list;
+    }
+
+    @Test
+    public void testAppendAndGet() {
+        BlockArchive archive = new BlockArchive(temporaryFolder.getRoot());
+        assertEquals(0, archive.size());
+        assertNull(archive.get(0, 0));
+
+        archive.append(0, records(0, 10));
+        archive.append(10, records(10, 5));
+        assertEquals(15, archive.size());
+
+        for (long i = 0; i < 15; i++) {
+            byte[][] expected = record(i);
+            for (int part = 0; part < expected.length; part++) {
+                assertArrayEquals(expected[part], archive.get(i, part));
+            }
+        }
+        assertNull(archive.get(15, 0));
+    }
+
+    @Test
+    public void testClose() {
+        BlockArchive archive = new BlockArchive(temporaryFolder.getRoot());
+        archive.append(0, records(0, 10));
+        assertArrayEquals(record(5)[2], archive.get(5, 2));
+
+        // the segments are mapped again on the next read
+        archive.close();
+        assertArrayEquals(record(5)[2], archive.get(5, 2));
+        archive.close();
+    }
+
+    @Test
+    public void testSegments() {
+        BlockArchive archive = new BlockArchive(temporaryFolder.getRoot());
+        int n = BlockArchive.SEGMENT_SIZE + 100;
+        archive.append(0, records(0, n - 10));
+        archive.append(n - 10, records(n - 10, 10));
+
+        assertArrayEquals(record(BlockArchive.SEGMENT_SIZE - 1)[2], archive.get(BlockArchive.SEGMENT_SIZE - 1, 2));
+        assertArrayEquals(record(BlockArchive.SEGMENT_SIZE)[2], archive.get(BlockArchive.SEGMENT_SIZE, 2));
+        assertArrayEquals(record(n - 1)[0], archive.get(n - 1, 0));
+
+        archive = new BlockArchive(temporaryFolder.getRoot());
+        assertEquals(n, archive.size());
+        assertArrayEquals(record(n - 1)[2], archive.get(n - 1, 2));
+    }
+
+    @Test
+    public void testRecoverTornAppend() throws IOException {
+        File dir = temporaryFolder.getRoot();
+        BlockArchive archive = new BlockArchive(dir);
+        archive.append(0, records(0, 3));
+
+        // the index of the last record is written, but its data is not
+        File dat = new File(dir, "00000000.dat");
+        try (RandomAccessFile raf = new RandomAccessFile(dat, "rw")) {
+            raf.setLength(raf.length() - 1);
+        }
+
+        archive = new BlockArchive(dir);
+        assertEquals(2, archive.size());
+        assertNull(archive.get(2, 0));
+
+        archive.append(2, Collections.singletonList(record(2)));
+        assertArrayEquals(record(2)[2], archive.get(2, 2));
+    }
+
+    @Test(expected = DatabaseException.class)
+    public void testNonConsecutiveAppend() {
+        BlockArchive archive = new BlockArchive(temporaryFolder.getRoot());
+        archive.append(1, records(1, 1));
+    }
+}
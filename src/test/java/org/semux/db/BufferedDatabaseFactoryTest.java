@@ -0,0 +1,108 @@
+/**
+ * Copyright (c) 2017-2018 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.db;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map.Entry;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.semux.rules.TemporaryDatabaseRule;
+import org.semux.util.Bytes;
+import org.semux.util.ClosableIterator;
+
+public class BufferedDatabaseFactoryTest {
+
+    @Rule
+    public TemporaryDatabaseRule temporaryDBFactory = new TemporaryDatabaseRule();
+
+    private BufferedDatabaseFactory factory;
+    private Database underlying;
+    private Database db;
+
+    @Before
+    public void setUp() {
+        factory = new BufferedDatabaseFactory(temporaryDBFactory);
+        underlying = temporaryDBFactory.getDB(DatabaseName.INDEX);
+        db = factory.getDB(DatabaseName.INDEX);
+    }
+
+    private List<String> keys(ClosableIterator<Entry<byte[], byte[]>> itr) {
+        List<String> list = new ArrayList<>();
+        while (itr.hasNext()) {
+            list.add(Bytes.toString(itr.next().getKey()));
+        }
+        itr.close();
+        return list;
+    }
+
+    @Test
+    public void testBufferAndFlush() {
+        underlying.put(Bytes.of("a"), Bytes.of("1"));
+
+        db.put(Bytes.of("b"), Bytes.of("2"));
+        db.delete(Bytes.of("a"));
+        assertNull(db.get(Bytes.of("a")));
+        assertArrayEquals(Bytes.of("2"), db.get(Bytes.of("b")));
+        assertArrayEquals(Bytes.of("1"), underlying.get(Bytes.of("a")));
+        assertNull(underlying.get(Bytes.of("b")));
+
+        factory.flush();
+        assertEquals(0, factory.getBufferedSize());
+        assertNull(underlying.get(Bytes.of("a")));
+        assertArrayEquals(Bytes.of("2"), underlying.get(Bytes.of("b")));
+        assertNull(underlying.get(UnitOfWork.JOURNAL_KEY));
+    }
+
+    @Test
+    public void testFlushMarker() {
+        factory.getDB(DatabaseName.ACCOUNT).put(Bytes.of("a"), Bytes.of("1"));
+        db.put(Bytes.of("b"), Bytes.of("2"));
+        assertFalse(factory.isFlushInterrupted());
+
+        factory.flush();
+        assertArrayEquals(Bytes.of("1"), temporaryDBFactory.getDB(DatabaseName.ACCOUNT).get(Bytes.of("a")));
+        assertArrayEquals(Bytes.of("2"), underlying.get(Bytes.of("b")));
+        assertFalse(factory.isFlushInterrupted());
+
+        // a flush which did not reach the index database
+        underlying.put(BufferedDatabaseFactory.FLUSH_KEY, Bytes.EMPTY_BYTES);
+        assertTrue(factory.isFlushInterrupted());
+    }
+
+    @Test
+    public void testMergedIterators() {
+        underlying.put(Bytes.of("a1"), Bytes.of("1"));
+        underlying.put(Bytes.of("a3"), Bytes.of("3"));
+        underlying.put(Bytes.of("a5"), Bytes.of("5"));
+        underlying.put(Bytes.of("b1"), Bytes.of("1"));
+
+        db.put(Bytes.of("a2"), Bytes.of("2"));
+        db.put(Bytes.of("a3"), Bytes.of("33"));
+        db.delete(Bytes.of("a5"));
+        db.put(Bytes.of("a6"), Bytes.of("6"));
+
+        assertEquals(Arrays.asList("a1", "a2", "a3", "a6", "b1"), keys(db.iterator()));
+        assertEquals(Arrays.asList("a1", "a2", "a3", "a6"), keys(db.prefixIterator(Bytes.of("a"))));
+        assertEquals(Arrays.asList("a6", "a3", "a2", "a1"), keys(db.reversePrefixIterator(Bytes.of("a"))));
+        assertEquals(Arrays.asList("a2", "a3"), keys(db.rangeIterator(Bytes.of("a2"), Bytes.of("a5"))));
+
+        ClosableIterator<Entry<byte[], byte[]>> itr = db.rangeIterator(Bytes.of("a3"), Bytes.of("a4"));
+        assertArrayEquals(Bytes.of("33"), itr.next().getValue());
+        assertFalse(itr.hasNext());
+        itr.close();
+    }
+}
@@ -0,0 +1,103 @@
+/**
+ * Copyright (c) 2017-2018 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.db;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import org.apache.commons.lang3.tuple.Pair;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.semux.util.Bytes;
+
+public class CachingDatabaseTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private LeveldbDatabase leveldb;
+    private CachingDatabase db;
+
+    private byte[] key = Bytes.of("key");
+    private byte[] value = Bytes.of("value");
+
+    @Before
+    public void setUp() {
+        leveldb = new LeveldbDatabase(temporaryFolder.getRoot());
+        db = new CachingDatabase(leveldb, 1024 * 1024);
+    }
+
+    @After
+    public void tearDown() {
+        db.destroy();
+    }
+
+    @Test
+    public void testReadThrough() {
+        leveldb.put(key, value);
+
+        assertArrayEquals(value, db.get(key));
+        assertEquals(0, db.getHitCount());
+        assertEquals(1, db.getMissCount());
+
+        assertArrayEquals(value, db.get(key));
+        assertEquals(1, db.getHitCount());
+        assertEquals(1, db.getMissCount());
+    }
+
+    @Test
+    public void testAbsentKey() {
+        assertNull(db.get(key));
+        assertNull(db.get(key));
+        assertEquals(1, db.getHitCount());
+
+        db.put(key, value);
+        assertArrayEquals(value, db.get(key));
+        assertEquals(2, db.getHitCount());
+    }
+
+    @Test
+    public void testCoherence() {
+        byte[] key2 = Bytes.of("key2");
+        byte[] value2 = Bytes.of("value2");
+
+        db.put(key, value);
+        db.get(key);
+        db.get(key2);
+
+        db.updateBatch(Arrays.asList(Pair.of(key, null), Pair.of(key2, value2)));
+        assertNull(db.get(key));
+        assertArrayEquals(value2, db.get(key2));
+        assertNull(leveldb.get(key));
+        assertArrayEquals(value2, leveldb.get(key2));
+
+        db.delete(key2);
+        assertNull(db.get(key2));
+        assertNull(leveldb.get(key2));
+        assertEquals(1, db.getMissCount());
+    }
+
+    @Test
+    public void testEviction() {
+        CachingDatabase small = new CachingDatabase(leveldb, 1024);
+        for (int i = 0; i < 1000; i++) {
+            small.put(Bytes.of(i), Bytes.random(32));
+        }
+        for (int i = 0; i < 1000; i++) {
+            small.get(Bytes.of(i));
+        }
+        assertEquals(1000, small.getHitCount() + small.getMissCount());
+        assertTrue(small.getMissCount() > 500);
+    }
+}
@@ -7,6 +7,7 @@
 package org.semux.db;
 
 import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
@@ -25,6 +26,7 @@ import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.semux.config.Constants;
+import org.semux.db.DatabaseMetrics.Operation;
 import org.semux.db.LeveldbDatabase.LeveldbFactory;
 import org.semux.util.Bytes;
 import org.semux.util.ClosableIterator;
@@ -95,6 +97,169 @@ public class LeveldbDatabaseTest {
         itr.close();
     }
 
+    @Test
+    public void testPrefixIterator() {
+        db.put(Bytes.of("a"), Bytes.of("1"));
+        db.put(Bytes.of("b1"), Bytes.of("2"));
+        db.put(Bytes.of("b2"), Bytes.of("3"));
+        db.put(Bytes.of("c"), Bytes.of("4"));
+
+        ClosableIterator<Entry<byte[], byte[]>> itr = db.prefixIterator(Bytes.of("b"));
+        assertArrayEquals(Bytes.of("b1"), itr.next().getKey());
+        assertArrayEquals(Bytes.of("b2"), itr.next().getKey());
+        assertFalse(itr.hasNext());
+        itr.close();
+
+        itr = db.reversePrefixIterator(Bytes.of("b"));
+        assertArrayEquals(Bytes.of("b2"), itr.next().getKey());
+        assertArrayEquals(Bytes.of("b1"), itr.next().getKey());
+        assertFalse(itr.hasNext());
+        itr.close();
+
+        itr = db.prefixIterator(Bytes.of("d"));
+        assertFalse(itr.hasNext());
+        itr.close();
+    }
+
+    @Test
+    public void testPrefixIteratorAllOnes() {
+        byte[] prefix = { (byte) 0xff };
+        db.put(Bytes.of("a"), Bytes.of("1"));
+        db.put(new byte[] { (byte) 0xff, 0x01 }, Bytes.of("2"));
+
+        ClosableIterator<Entry<byte[], byte[]>> itr = db.prefixIterator(prefix);
+        assertArrayEquals(new byte[] { (byte) 0xff, 0x01 }, itr.next().getKey());
+        assertFalse(itr.hasNext());
+        itr.close();
+
+        itr = db.reversePrefixIterator(prefix);
+        assertArrayEquals(new byte[] { (byte) 0xff, 0x01 }, itr.next().getKey());
+        assertFalse(itr.hasNext());
+        itr.close();
+    }
+
+    @Test
+    public void testRangeIterator() {
+        db.put(Bytes.of("a"), Bytes.of("1"));
+        db.put(Bytes.of("b"), Bytes.of("2"));
+        db.put(Bytes.of("c"), Bytes.of("3"));
+        db.put(Bytes.of("d"), Bytes.of("4"));
+
+        ClosableIterator<Entry<byte[], byte[]>> itr = db.rangeIterator(Bytes.of("b"), Bytes.of("d"));
+        assertArrayEquals(Bytes.of("b"), itr.next().getKey());
+        assertArrayEquals(Bytes.of("c"), itr.next().getKey());
+        assertFalse(itr.hasNext());
+        itr.close();
+
+        itr = db.rangeIterator(null, Bytes.of("b"));
+        assertArrayEquals(Bytes.of("a"), itr.next().getKey());
+        assertFalse(itr.hasNext());
+        itr.close();
+
+        itr = db.rangeIterator(Bytes.of("c1"), null);
+        assertArrayEquals(Bytes.of("d"), itr.next().getKey());
+        assertFalse(itr.hasNext());
+        itr.close();
+    }
+
+    @Test
+    public void testReverseIterator() {
+        db.put(Bytes.of("a"), Bytes.of("1"));
+        db.put(Bytes.of("b"), Bytes.of("2"));
+        db.put(Bytes.of("c"), Bytes.of("3"));
+        db.put(Bytes.of("d"), Bytes.of("4"));
+
+        ClosableIterator<Entry<byte[], byte[]>> itr = db.reverseIterator(Bytes.of("b"), Bytes.of("d"));
+        assertArrayEquals(Bytes.of("c"), itr.next().getKey());
+        assertArrayEquals(Bytes.of("b"), itr.next().getKey());
+        assertFalse(itr.hasNext());
+        itr.close();
+
+        // seek to last
+        itr = db.reverseIterator(null, null);
+        assertArrayEquals(Bytes.of("d"), itr.next().getKey());
+        assertArrayEquals(Bytes.of("c"), itr.next().getKey());
+        assertArrayEquals(Bytes.of("b"), itr.next().getKey());
+        assertArrayEquals(Bytes.of("a"), itr.next().getKey());
+        assertFalse(itr.hasNext());
+        itr.close();
+
+        itr = db.reverseIterator(null, Bytes.of("a"));
+        assertFalse(itr.hasNext());
+        itr.close();
+
+        itr = db.reverseIterator(Bytes.of("b"), Bytes.of("z"));
+        assertArrayEquals(Bytes.of("d"), itr.next().getKey());
+        itr.close();
+    }
+
+    @Test
+    public void testSnapshot() {
+        db.put(Bytes.of("a"), Bytes.of("1"));
+
+        Database snapshot = db.snapshot();
+        db.put(Bytes.of("a"), Bytes.of("2"));
+        db.put(Bytes.of("b"), Bytes.of("3"));
+
+        assertArrayEquals(Bytes.of("1"), snapshot.get(Bytes.of("a")));
+        assertNull(snapshot.get(Bytes.of("b")));
+        ClosableIterator<Entry<byte[], byte[]>> itr = snapshot.rangeIterator(null, null);
+        assertArrayEquals(Bytes.of("a"), itr.next().getKey());
+        assertFalse(itr.hasNext());
+        itr.close();
+        snapshot.close();
+
+        assertArrayEquals(Bytes.of("2"), db.get(Bytes.of("a")));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testSnapshotReadOnly() {
+        Database snapshot = db.snapshot();
+        try {
+            snapshot.put(key, value);
+        } finally {
+            snapshot.close();
+        }
+    }
+
+    @Test
+    public void testMetrics() {
+        db.put(key, value);
+        db.get(key);
+        db.get(Bytes.of("absent"));
+        db.updateBatch(Arrays.asList(Pair.of(key, null)));
+        ClosableIterator<Entry<byte[], byte[]>> itr = db.prefixIterator(key);
+        assertFalse(itr.hasNext());
+        itr.close();
+
+        DatabaseMetrics metrics = db.getMetrics();
+        assertEquals(1, metrics.getLatency(Operation.PUT).getCount());
+        assertEquals(2, metrics.getLatency(Operation.GET).getCount());
+        assertEquals(1, metrics.getLatency(Operation.BATCH).getCount());
+        assertEquals(1, metrics.getLatency(Operation.ITERATOR).getCount());
+        assertEquals(0, metrics.getLatency(Operation.DELETE).getCount());
+        assertEquals(value.length, metrics.getBytesRead());
+        assertEquals(2 * key.length + value.length, metrics.getBytesWritten());
+        assertEquals(7, metrics.getFilesPerLevel().length);
+    }
+
+    @Test
+    public void testHistogram() {
+        DatabaseMetrics.Histogram histogram = new DatabaseMetrics.Histogram();
+        assertEquals(0, histogram.getPercentile(0.99));
+
+        for (int i = 0; i < 99; i++) {
+            histogram.record(1000);
+        }
+        histogram.record(1_000_000);
+
+        assertEquals(100, histogram.getCount());
+        assertEquals((99 * 1000 + 1_000_000) / 100, histogram.getMean());
+        assertEquals(1023, histogram.getPercentile(0.5));
+        assertEquals(1023, histogram.getPercentile(0.99));
+        assertEquals((1 << 20) - 1, histogram.getPercentile(1.0));
+    }
+
     @Test
     public void testLevelDBFactory() {
         LeveldbFactory factory = new LeveldbFactory(new File(Constants.DEFAULT_DATA_DIR, Constants.DATABASE_DIR));
@@ -104,6 +269,16 @@ public class LeveldbDatabaseTest {
         factory.close();
     }
 
+    @Test
+    public void testProfileCacheShares() {
+        // the block caches of all the databases fit in the configured cache size
+        double total = 0;
+        for (DatabaseName name : DatabaseName.values()) {
+            total += LeveldbProfile.of(name).getCacheShare();
+        }
+        assertEquals(1.0, total, 1e-9);
+    }
+
     @Test(expected = DBException.class)
     public void testClose() {
         db.close();
@@ -0,0 +1,84 @@
+/**
+ * Copyright (c) 2017-2018 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.db;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+public class MigrationRunnerTest {
+
+    /**
+     * Sums up the items, and fails once at the given item.
+     */
+    private static class SumRunner extends MigrationRunner<Long> {
+        private long sum;
+        private long persistedSum;
+        private long persisted;
+        private long failAt = -1;
+        private final List<Long> checkpoints = new ArrayList<>();
+
+        SumRunner() {
+            super(4, 16, 10);
+        }
+
+        @Override
+        protected Long read(long n) {
+            if (n == failAt) {
+                throw new IllegalStateException("Failed to read " + n);
+            }
+            return n;
+        }
+
+        @Override
+        protected void apply(long n, Long item) {
+            assertEquals(n, item.longValue());
+            sum += item;
+        }
+
+        @Override
+        protected void checkpoint(long n) {
+            persistedSum = sum;
+            persisted = n;
+            checkpoints.add(n);
+        }
+    }
+
+    @Test
+    public void testRun() {
+        SumRunner runner = new SumRunner();
+        runner.run(1, 25);
+
+        assertEquals(325, runner.persistedSum);
+        assertEquals(25, runner.persisted);
+        assertEquals(Arrays.asList(10L, 20L, 25L), runner.checkpoints);
+    }
+
+    @Test
+    public void testResume() {
+        SumRunner runner = new SumRunner();
+        runner.failAt = 15;
+        try {
+            runner.run(1, 25);
+            fail("The migration should fail");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+        assertEquals(10, runner.persisted);
+
+        // restart from the checkpoint
+        runner.sum = runner.persistedSum;
+        runner.failAt = -1;
+        runner.run(runner.persisted + 1, 25);
+        assertEquals(325, runner.persistedSum);
+    }
+}
@@ -0,0 +1,80 @@
+/**
+ * Copyright (c) 2017-2018 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.db;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.semux.rules.TemporaryDatabaseRule;
+import org.semux.util.Bytes;
+
+public class UnitOfWorkTest {
+
+    @Rule
+    public TemporaryDatabaseRule temporaryDBFactory = new TemporaryDatabaseRule();
+
+    private byte[] key = Bytes.of("key");
+    private byte[] value = Bytes.of("value");
+
+    @Test
+    public void testReadYourWrites() {
+        UnitOfWork uow = temporaryDBFactory.createUnitOfWork();
+        assertTrue(uow.isEmpty());
+
+        uow.put(DatabaseName.ACCOUNT, key, value);
+        assertFalse(uow.isEmpty());
+        assertArrayEquals(value, uow.get(DatabaseName.ACCOUNT, key));
+        assertNull(temporaryDBFactory.getDB(DatabaseName.ACCOUNT).get(key));
+
+        uow.delete(DatabaseName.ACCOUNT, key);
+        assertNull(uow.get(DatabaseName.ACCOUNT, key));
+    }
+
+    @Test
+    public void testCommit() {
+        temporaryDBFactory.getDB(DatabaseName.VOTE).put(key, value);
+
+        AtomicBoolean committed = new AtomicBoolean(false);
+        UnitOfWork uow = temporaryDBFactory.createUnitOfWork();
+        uow.put(DatabaseName.BLOCK, key, value);
+        uow.put(DatabaseName.ACCOUNT, key, value);
+        uow.put(DatabaseName.INDEX, key, value);
+        uow.delete(DatabaseName.VOTE, key);
+        uow.onCommit(() -> committed.set(true));
+        uow.commit();
+
+        assertTrue(committed.get());
+        assertTrue(uow.isEmpty());
+        assertArrayEquals(value, temporaryDBFactory.getDB(DatabaseName.BLOCK).get(key));
+        assertArrayEquals(value, temporaryDBFactory.getDB(DatabaseName.ACCOUNT).get(key));
+        assertArrayEquals(value, temporaryDBFactory.getDB(DatabaseName.INDEX).get(key));
+        assertNull(temporaryDBFactory.getDB(DatabaseName.VOTE).get(key));
+        assertNull(temporaryDBFactory.getDB(DatabaseName.INDEX).get(UnitOfWork.JOURNAL_KEY));
+    }
+
+    @Test
+    public void testRecover() {
+        assertFalse(UnitOfWork.recover(temporaryDBFactory));
+
+        // simulate a crash after the journal has been written
+        UnitOfWork uow = temporaryDBFactory.createUnitOfWork();
+        uow.put(DatabaseName.DELEGATE, key, value);
+        uow.put(DatabaseName.INDEX, key, value);
+        temporaryDBFactory.getDB(DatabaseName.INDEX).put(UnitOfWork.JOURNAL_KEY, uow.encodeJournal());
+
+        assertTrue(UnitOfWork.recover(temporaryDBFactory));
+        assertArrayEquals(value, temporaryDBFactory.getDB(DatabaseName.DELEGATE).get(key));
+        assertArrayEquals(value, temporaryDBFactory.getDB(DatabaseName.INDEX).get(key));
+        assertNull(temporaryDBFactory.getDB(DatabaseName.INDEX).get(UnitOfWork.JOURNAL_KEY));
+    }
+}
@@ -135,6 +135,7 @@ public class KernelRule extends TemporaryFolder {
         dbFactory = new LeveldbFactory(kernel.getConfig().databaseDir());
         BlockchainImpl chain = new BlockchainImpl(kernel.getConfig(), dbFactory);
         kernel.setBlockchain(chain);
+        kernel.setDbFactory(dbFactory);
     }
 
     /**
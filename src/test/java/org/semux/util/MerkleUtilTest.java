@@ -11,8 +11,10 @@ import static org.junit.Assert.assertThat;
 import static org.semux.core.Amount.Unit.SEM;
 import static org.semux.core.Amount.ZERO;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
 
 import org.junit.Test;
 import org.semux.Network;
@@ -57,4 +59,13 @@ public class MerkleUtilTest {
 
         assertThat(merkle, equalTo(root));
     }
+
+    @Test
+    public void testComputeRoot() {
+        List<byte[]> hashes = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            assertThat(MerkleUtil.computeRoot(hashes), equalTo(new MerkleTree(hashes).getRootHash()));
+            hashes.add(Bytes.random(32));
+        }
+    }
 }
@@ -8,6 +8,9 @@ package org.semux.util;
 
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
 
 import org.junit.Test;
 import org.semux.crypto.Hex;
@@ -79,4 +82,34 @@ public class SimpleDecoderTest {
         }
         assertEquals(bytes.length, dec.getReadIndex());
     }
+
+    @Test
+    public void testByteBuffer() {
+        byte[] bytes = Bytes.random(20);
+        SimpleEncoder enc = new SimpleEncoder();
+        enc.writeInt(7);
+        enc.writeBytes(bytes);
+        enc.writeBytes(bytes);
+        byte[] encoded = Bytes.merge(Bytes.of((byte) 0xff), enc.toBytes());
+
+        ByteBuffer buffer = ByteBuffer.wrap(encoded);
+        buffer.position(1);
+        ByteBuffer direct = ByteBuffer.allocateDirect(encoded.length - 1);
+        direct.put(encoded, 1, encoded.length - 1);
+        direct.flip();
+        for (ByteBuffer in : new ByteBuffer[] { buffer.slice(), direct }) {
+            SimpleDecoder dec = new SimpleDecoder(in);
+            assertEquals(7, dec.readInt());
+
+            // slices are views of the input
+            ByteBuffer slice = dec.readSlice();
+            assertTrue(slice.isReadOnly());
+            assertEquals(bytes.length, slice.remaining());
+            byte[] read = new byte[slice.remaining()];
+            slice.get(read);
+            assertArrayEquals(bytes, read);
+
+            assertArrayEquals(bytes, dec.readBytes());
+        }
+    }
 }
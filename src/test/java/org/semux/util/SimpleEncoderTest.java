@@ -7,10 +7,18 @@
 package org.semux.util;
 
 import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertThat;
 
+import java.nio.ByteBuffer;
+
 import org.junit.Test;
 
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+
 public class SimpleEncoderTest {
 
     @Test
@@ -22,4 +30,54 @@ public class SimpleEncoderTest {
 
         assertThat(enc.toBytes(), equalTo(Bytes.merge(append, Bytes.of((byte) 1), Bytes.of("s"))));
     }
+
+    @Test
+    public void testExactSize() {
+        byte[] small = Bytes.random(0x7F);
+        byte[] large = Bytes.random(0x4000);
+
+        SimpleEncoder enc = new SimpleEncoder(4 + SimpleEncoder.sizeOf(small) + SimpleEncoder.sizeOf(large));
+        enc.writeInt(1);
+        enc.writeBytes(small);
+        enc.writeBytes(large);
+        byte[] bytes = enc.toBytes();
+        assertSame(bytes, enc.toBytes());
+        assertEquals(4 + 1 + 0x7F + 3 + 0x4000, bytes.length);
+
+        // the returned bytes are not modified by later writes
+        byte[] copy = bytes.clone();
+        enc.writeByte((byte) 1);
+        assertEquals(bytes.length + 1, enc.toBytes().length);
+        assertArrayEquals(copy, bytes);
+    }
+
+    @Test
+    public void testGrow() {
+        SimpleEncoder enc = new SimpleEncoder(1);
+        for (int i = 0; i < 100; i++) {
+            enc.writeLong(i);
+        }
+
+        SimpleDecoder dec = new SimpleDecoder(enc.toBytes());
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i, dec.readLong());
+        }
+    }
+
+    @Test
+    public void testWriteTo() {
+        SimpleEncoder enc = new SimpleEncoder();
+        enc.writeString("semux");
+        enc.writeLong(Long.MAX_VALUE);
+
+        ByteBuf buf = Unpooled.buffer();
+        enc.writeTo(buf);
+        byte[] bytes = new byte[buf.readableBytes()];
+        buf.readBytes(bytes);
+        assertArrayEquals(enc.toBytes(), bytes);
+
+        ByteBuffer buffer = ByteBuffer.allocate(enc.getWriteIndex());
+        enc.writeTo(buffer);
+        assertArrayEquals(enc.toBytes(), buffer.array());
+    }
 }